@@ -0,0 +1,64 @@
+package com.genpass.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Runs the benchmarks at three concurrency levels with the GC profiler enabled:
+ * one thread, N platform threads and N virtual threads (JMH {@code jmh.executor=VIRTUAL}).
+ *
+ * <pre>
+ * java -jar genpass-benchmarks/target/benchmarks.jar [include-regex] [threads] [output-dir] [modes]
+ * </pre>
+ *
+ * <p>{@code threads} defaults to the number of available processors and {@code modes} to
+ * {@code single,platform,virtual}. One JSON result file per mode is written to
+ * {@code output-dir} (default {@code target/jmh}).</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 ? args[0] : "com\\.genpass\\.benchmarks\\..*";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path outputDir = Path.of(args.length > 2 ? args[2] : "target/jmh");
+        List<String> modes = List.of((args.length > 3 ? args[3] : "single,platform,virtual").split(","));
+        Files.createDirectories(outputDir);
+
+        if (modes.contains("single")) {
+            run(include, 1, false, outputDir.resolve("single-thread.json"));
+        }
+        if (modes.contains("platform")) {
+            run(include, threads, false, outputDir.resolve("platform-threads.json"));
+        }
+        if (modes.contains("virtual")) {
+            run(include, threads, true, outputDir.resolve("virtual-threads.json"));
+        }
+    }
+
+    private static void run(String include, int threads, boolean virtual, Path result) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        if (virtual) {
+            // iteration synchronization spins on Thread.yield(), which can starve workers
+            // when there are fewer carrier threads than benchmark threads
+            options.jvmArgsAppend("-Djmh.executor=VIRTUAL").syncIterations(false);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.genpass.benchmarks;
+
+import com.genpass.core.token.MagicLinkTokenService;
+import com.genpass.core.token.TokenFormat;
+import com.genpass.core.token.VerificationBatch;
+import com.genpass.core.token.VerificationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Magic-link token creation and the four verification outcomes, through both the
+ * {@code Optional} and the {@link VerificationResult} API, and batches of {@value #BATCH_SIZE}
+ * tokens (per-batch time), plus creation and verification of the compact V2 format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MagicLinkTokenBenchmark {
+
+    static final int BATCH_SIZE = 1024;
+
+    private MagicLinkTokenService service;
+    private MagicLinkTokenService serviceV2;
+    private String validTokenV2;
+    private String validToken;
+    private String badSignatureToken;
+    private String expiredToken;
+    private String malformedToken;
+    private List<String> batchSubjects;
+    private List<String> batchTokens;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        service = new MagicLinkTokenService("benchmark-secret-0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+        validToken = service.createToken("user@example.com", Duration.ofDays(1));
+        serviceV2 = MagicLinkTokenService.builder()
+                .hmacSecret("benchmark-secret-0123456789abcdef".getBytes(StandardCharsets.UTF_8))
+                .format(TokenFormat.V2)
+                .build();
+        validTokenV2 = serviceV2.createToken("user@example.com", Duration.ofDays(1));
+
+        // same length and structure, one signature character changed
+        int i = validToken.lastIndexOf('.') + 5;
+        char replacement = validToken.charAt(i) == 'A' ? 'B' : 'A';
+        badSignatureToken = validToken.substring(0, i) + replacement + validToken.substring(i + 1);
+
+        expiredToken = service.createToken("user@example.com", Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        malformedToken = "this-is-not-a-token";
+        batchSubjects = Collections.nCopies(BATCH_SIZE, "user@example.com");
+        batchTokens = service.createAll(batchSubjects, Duration.ofDays(1));
+    }
+
+    @Benchmark
+    public String createToken() {
+        return service.createToken("user@example.com", Duration.ofMinutes(15));
+    }
+
+    @Benchmark
+    public Optional<String> verifyValid() {
+        return service.verifyToken(validToken);
+    }
+
+    @Benchmark
+    public Optional<String> verifyBadSignature() {
+        return service.verifyToken(badSignatureToken);
+    }
+
+    @Benchmark
+    public Optional<String> verifyExpired() {
+        return service.verifyToken(expiredToken);
+    }
+
+    @Benchmark
+    public Optional<String> verifyMalformed() {
+        return service.verifyToken(malformedToken);
+    }
+
+    @Benchmark
+    public VerificationResult verifyResultValid() {
+        return service.verify(validToken);
+    }
+
+    @Benchmark
+    public VerificationResult verifyResultBadSignature() {
+        return service.verify(badSignatureToken);
+    }
+
+    @Benchmark
+    public VerificationResult verifyResultMalformed() {
+        return service.verify(malformedToken);
+    }
+
+    @Benchmark
+    public List<String> createAll() {
+        return service.createAll(batchSubjects, Duration.ofMinutes(15));
+    }
+
+    @Benchmark
+    public VerificationBatch verifyAll() {
+        return service.verifyAll(batchTokens);
+    }
+
+    @Benchmark
+    public String createTokenV2() {
+        return serviceV2.createToken("user@example.com", Duration.ofMinutes(15));
+    }
+
+    @Benchmark
+    public Optional<String> verifyValidV2() {
+        return serviceV2.verifyToken(validTokenV2);
+    }
+}
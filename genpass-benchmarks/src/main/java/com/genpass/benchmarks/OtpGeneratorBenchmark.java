@@ -0,0 +1,55 @@
+package com.genpass.benchmarks;
+
+import com.genpass.core.token.OtpGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTP generation with the default and configurable generators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OtpGeneratorBenchmark {
+
+    private static final int BULK = 1000;
+
+    private final OtpGenerator defaultGenerator = new OtpGenerator.Default();
+    private final OtpGenerator numeric8 = OtpGenerator.Configurable.numeric(8);
+    private final OtpGenerator alphanumeric8 = OtpGenerator.Configurable.alphanumeric(8);
+
+    @Benchmark
+    public String defaultOtp() {
+        return defaultGenerator.generateOtp();
+    }
+
+    @Benchmark
+    public String numeric8() {
+        return numeric8.generateOtp();
+    }
+
+    @Benchmark
+    public String alphanumeric8() {
+        return alphanumeric8.generateOtp();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK)
+    public List<String> numeric8Bulk() {
+        return numeric8.generateOtps(BULK);
+    }
+}
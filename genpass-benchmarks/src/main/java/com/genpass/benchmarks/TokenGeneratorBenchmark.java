@@ -0,0 +1,64 @@
+package com.genpass.benchmarks;
+
+import com.genpass.core.token.TokenGenerator;
+import com.genpass.core.token.TokenPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random token generation: one at a time, in bulk and from a pre-generated pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenGeneratorBenchmark {
+
+    private static final int BYTES = 32;
+    private static final int BULK = 1000;
+
+    private TokenGenerator generator;
+    private TokenPool pool;
+
+    @Setup
+    public void setUp() {
+        generator = new TokenGenerator.Default();
+        pool = new TokenPool(generator, BYTES, 1 << 16).start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return generator.generateToken(BYTES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK)
+    public List<String> generateTokensBulk() {
+        return generator.generateTokens(BULK, BYTES);
+    }
+
+    @Benchmark
+    public String pooledToken() {
+        return pool.generateToken(BYTES);
+    }
+}
@@ -1,8 +1,10 @@
 package com.genpass.core.device;
 
+import com.genpass.core.metrics.MetricsRecorder;
+import com.genpass.core.random.RandomSource;
+
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.SecureRandom;
 import java.time.Instant;
 import java.util.HexFormat;
 
@@ -23,13 +25,21 @@ import java.util.HexFormat;
  * <p>Note: including timestamp means fingerprints will vary with time. If you
  * want reproducible fingerprints for the same user, call the overload that accepts
  * a fixed timestamp (e.g. last login time).</p>
+ *
+ * <p>The salt is drawn from {@link RandomSource#shared()}. Each call is timed as
+ * {@code genpass.fingerprint.generate} on {@link MetricsRecorder#shared()}.</p>
  */
 public final class DeviceFingerprintUtil {
 
     private static final String HASH_ALGORITHM = "SHA-256";
-    private static final SecureRandom RANDOM = new SecureRandom();
     private static final HexFormat HEX = HexFormat.of();
 
+    /** Timer of the current shared recorder, re-resolved when the shared recorder changes. */
+    private record Metrics(MetricsRecorder recorder, MetricsRecorder.Timer timer) {
+    }
+
+    private static volatile Metrics metrics;
+
     private DeviceFingerprintUtil() {
         // utility class
     }
@@ -44,6 +54,26 @@ public final class DeviceFingerprintUtil {
      * @throws IllegalStateException if SHA-256 is not available (very unlikely)
      */
     public static String generateFingerprint(String userAgent, String ip, long timestamp) {
+        Metrics m = metrics();
+        long start = m.recorder.isEnabled() ? System.nanoTime() : 0;
+        String fingerprint = fingerprint(userAgent, ip, timestamp);
+        if (m.recorder.isEnabled()) {
+            m.timer.recordSince(start);
+        }
+        return fingerprint;
+    }
+
+    private static Metrics metrics() {
+        MetricsRecorder recorder = MetricsRecorder.shared();
+        Metrics m = metrics;
+        if (m == null || m.recorder != recorder) {
+            m = new Metrics(recorder, recorder.timer("genpass.fingerprint.generate"));
+            metrics = m;
+        }
+        return m;
+    }
+
+    private static String fingerprint(String userAgent, String ip, long timestamp) {
         String ua = userAgent == null ? "" : userAgent;
         String address = ip == null ? "" : ip;
         String toHash = ua + "|" + address + "|" + timestamp;
@@ -52,7 +82,7 @@ public final class DeviceFingerprintUtil {
             md.update(toHash.getBytes(StandardCharsets.UTF_8));
             // add a small random salt to reduce accidental collisions across distributed logs
             byte[] salt = new byte[8];
-            RANDOM.nextBytes(salt);
+            RandomSource.shared().nextBytes(salt);
             md.update(salt);
             byte[] digest = md.digest();
             return HEX.formatHex(digest);
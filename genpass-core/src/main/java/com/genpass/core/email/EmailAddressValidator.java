@@ -0,0 +1,162 @@
+package com.genpass.core.email;
+
+/**
+ * Fast validator and normalizer for plain email addresses ({@code local@domain}).
+ *
+ * <p>Accepts the common subset of RFC 5321 mailbox syntax:</p>
+ * <ul>
+ *   <li>local part: a dot-atom of ASCII letters, digits and {@code !#$%&'*+/=?^_`{|}~-}, at most
+ *       64 characters, no leading, trailing or doubled dots (quoted local parts are rejected);</li>
+ *   <li>domain: dot-separated labels of letters, digits and hyphens, each 1-63 characters and
+ *       not starting or ending with a hyphen, at most 253 characters (address literals such as
+ *       {@code [192.0.2.1]} are rejected);</li>
+ *   <li>whole address at most 254 characters, ASCII only.</li>
+ * </ul>
+ *
+ * <p>Validation is a single pass over the characters with no regex and no allocation.
+ * {@link #normalize(String)} trims surrounding whitespace and lower-cases the domain; the local
+ * part keeps its case because servers may treat it case-sensitively.</p>
+ */
+public final class EmailAddressValidator {
+
+    static final int MAX_LENGTH = 254;
+    static final int MAX_LOCAL_LENGTH = 64;
+    static final int MAX_DOMAIN_LENGTH = 253;
+    static final int MAX_LABEL_LENGTH = 63;
+
+    private static final boolean[] ATEXT = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ATEXT[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            ATEXT[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ATEXT[c] = true;
+        }
+        for (char c : "!#$%&'*+/=?^_`{|}~-".toCharArray()) {
+            ATEXT[c] = true;
+        }
+    }
+
+    private EmailAddressValidator() {
+        // utility class
+    }
+
+    /**
+     * @param address address to check (surrounding whitespace, as in {@link String#trim()}, is ignored)
+     * @return {@code true} if the address is valid
+     */
+    public static boolean isValid(String address) {
+        if (address == null) {
+            return false;
+        }
+        int start = 0;
+        int end = address.length();
+        while (start < end && address.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && address.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return isValid(address, start, end);
+    }
+
+    /**
+     * Validate and normalize an address.
+     *
+     * @return the trimmed address with a lower-case domain; the argument itself if already normal
+     * @throws IllegalArgumentException if the address is invalid
+     */
+    public static String normalize(String address) {
+        if (!isValid(address)) {
+            throw new IllegalArgumentException("Invalid email address: " + address);
+        }
+        String trimmed = address.trim();
+        int at = trimmed.lastIndexOf('@');
+        for (int i = at + 1; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return trimmed.substring(0, at + 1) + toLowerAscii(trimmed, at + 1);
+            }
+        }
+        return trimmed;
+    }
+
+    private static String toLowerAscii(String s, int from) {
+        char[] chars = new char[s.length() - from];
+        for (int i = from; i < s.length(); i++) {
+            char c = s.charAt(i);
+            chars[i - from] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return new String(chars);
+    }
+
+    private static boolean isValid(String s, int start, int end) {
+        if (end - start > MAX_LENGTH) {
+            return false;
+        }
+        int at = -1;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            }
+        }
+        if (at < 0) {
+            return false;
+        }
+        return isLocalPart(s, start, at) && isDomain(s, at + 1, end);
+    }
+
+    private static boolean isLocalPart(String s, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > MAX_LOCAL_LENGTH) {
+            return false;
+        }
+        boolean previousDot = true; // rejects a leading dot
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (previousDot) {
+                    return false;
+                }
+                previousDot = true;
+            } else if (c < 128 && ATEXT[c]) {
+                previousDot = false;
+            } else {
+                return false;
+            }
+        }
+        return !previousDot;
+    }
+
+    private static boolean isDomain(String s, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        int labelStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || s.charAt(i) == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                        || s.charAt(labelStart) == '-' || s.charAt(i - 1) == '-') {
+                    return false;
+                }
+                labelStart = i + 1;
+                continue;
+            }
+            char c = s.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
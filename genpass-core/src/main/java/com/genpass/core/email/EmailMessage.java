@@ -62,9 +62,20 @@ public final class EmailMessage {
         private String subject;
         private String textBody;
         private String htmlBody;
+        private boolean validateRecipients;
 
         public Builder() { }
 
+        /**
+         * Validate and normalize recipients as they are added (see {@link EmailAddressValidator}),
+         * so malformed addresses fail here rather than at send time. Off by default. Only affects
+         * recipients added after this call.
+         */
+        public Builder validateRecipients(boolean validateRecipients) {
+            this.validateRecipients = validateRecipients;
+            return this;
+        }
+
         public Builder from(String from) {
             this.from = from;
             return this;
@@ -72,13 +83,19 @@ public final class EmailMessage {
 
         public Builder addTo(String recipient) {
             Objects.requireNonNull(recipient, "recipient");
-            this.to.add(recipient);
+            this.to.add(validateRecipients ? EmailAddressValidator.normalize(recipient) : recipient);
             return this;
         }
 
         public Builder to(List<String> recipients) {
             Objects.requireNonNull(recipients, "recipients");
-            this.to.addAll(recipients);
+            if (validateRecipients) {
+                for (String recipient : recipients) {
+                    addTo(recipient);
+                }
+            } else {
+                this.to.addAll(recipients);
+            }
             return this;
         }
 
@@ -0,0 +1,401 @@
+package com.genpass.core.expiry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hierarchical timing wheel that tells stores when their entries expire.
+ *
+ * <p>Stores that keep issued tokens or codes until they expire {@link #register(ExpiryListener)
+ * register} a listener once and then {@link Registration#schedule(long, long) schedule} a
+ * {@code (key, expiryEpochMilli)} pair per entry; the listener is called with the same pair once
+ * the expiry has passed. One scheduler thread serves every registered store, so stores do not
+ * need sweeper threads and never scan their tables.</p>
+ *
+ * <p>The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots. With the default 100 ms
+ * tick, level 0 covers 6.4 s, level 1 about 7 minutes, level 2 about 7.5 hours and level 3 about
+ * 19 days; later expiries wait in an overflow list. Scheduling is O(1): entries go into a striped
+ * inbox that the scheduler thread drains on each tick, so callers never touch the wheel itself.
+ * Expiry is amortized O(1): an entry is moved down at most once per level before it fires.
+ * Entries are stored in primitive arrays per slot, not as objects.</p>
+ *
+ * <p>Listeners run on the scheduler thread and must be quick; exceptions are logged and
+ * swallowed. Entries fire no earlier than their expiry and at most about one tick late.</p>
+ */
+public final class ExpiryScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpiryScheduler.class.getName());
+
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 4;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** Default tick length. */
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    /**
+     * Callback invoked when a scheduled entry expires.
+     */
+    @FunctionalInterface
+    public interface ExpiryListener {
+        /**
+         * @param key              key passed to {@link Registration#schedule(long, long)}
+         * @param expiryEpochMilli expiry passed to {@link Registration#schedule(long, long)}
+         */
+        void onExpired(long key, long expiryEpochMilli);
+    }
+
+    /**
+     * Handle returned by {@link #register(ExpiryListener)}.
+     */
+    public final class Registration implements AutoCloseable {
+        private final int id;
+        private volatile boolean closed;
+
+        private Registration(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Schedule {@code key} to be reported to this registration's listener after
+         * {@code expiryEpochMilli}. Thread-safe and O(1).
+         */
+        public void schedule(long key, long expiryEpochMilli) {
+            if (closed) {
+                throw new IllegalStateException("registration is closed");
+            }
+            inbox().add(key, expiryEpochMilli, id);
+        }
+
+        /**
+         * Stop delivering expiries to this listener. Entries already scheduled are dropped.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            unregister(id);
+        }
+    }
+
+    /**
+     * Growable primitive triple-array holding {@code (key, expiry, owner)} entries.
+     */
+    static final class Entries {
+        long[] keys = new long[8];
+        long[] expiries = new long[8];
+        int[] owners = new int[8];
+        int size;
+
+        void add(long key, long expiry, int owner) {
+            if (size == keys.length) {
+                int n = size * 2;
+                keys = Arrays.copyOf(keys, n);
+                expiries = Arrays.copyOf(expiries, n);
+                owners = Arrays.copyOf(owners, n);
+            }
+            keys[size] = key;
+            expiries[size] = expiry;
+            owners[size] = owner;
+            size++;
+        }
+    }
+
+    /**
+     * One stripe of the inbox: producers append under a short lock; the scheduler thread swaps
+     * the buffer out.
+     */
+    private static final class InboxStripe {
+        final ReentrantLock lock = new ReentrantLock();
+        Entries pending = new Entries();
+        Entries spare = new Entries();
+
+        void add(long key, long expiry, int owner) {
+            lock.lock();
+            try {
+                pending.add(key, expiry, owner);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Entries swap() {
+            lock.lock();
+            try {
+                Entries taken = pending;
+                pending = spare;
+                spare = taken;
+                return taken;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final long tickMillis;
+    private final InboxStripe[] inbox;
+    private final int inboxMask;
+    private final Entries[][] wheel = new Entries[LEVELS][SLOTS];
+    private final Entries overflow = new Entries();
+    private final ReentrantLock tickLock = new ReentrantLock();
+    private final Object registrationLock = new Object();
+    private volatile ExpiryListener[] listeners = new ExpiryListener[0];
+    private long currentTick;
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Create a scheduler with the default tick. Call {@link #start()} or drive it manually
+     * with {@link #advance(long)}.
+     */
+    public ExpiryScheduler() {
+        this(DEFAULT_TICK);
+    }
+
+    /**
+     * Create a scheduler.
+     *
+     * @param tick wheel resolution (at least 1 ms)
+     */
+    public ExpiryScheduler(Duration tick) {
+        this(tick, System.currentTimeMillis());
+    }
+
+    ExpiryScheduler(Duration tick, long startEpochMilli) {
+        Objects.requireNonNull(tick, "tick");
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("tick must be at least 1 ms");
+        }
+        this.tickMillis = tick.toMillis();
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.inbox = new InboxStripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            inbox[i] = new InboxStripe();
+        }
+        this.inboxMask = stripes - 1;
+        for (Entries[] level : wheel) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Entries();
+            }
+        }
+        this.currentTick = startEpochMilli / tickMillis;
+    }
+
+    private static final class SharedHolder {
+        static final ExpiryScheduler INSTANCE = new ExpiryScheduler().start();
+    }
+
+    /**
+     * @return a process-wide, already started scheduler with the default tick
+     */
+    public static ExpiryScheduler shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Register a listener.
+     *
+     * @param listener callback for expired entries
+     * @return registration used to schedule entries
+     */
+    public Registration register(ExpiryListener listener) {
+        Objects.requireNonNull(listener, "listener");
+        synchronized (registrationLock) {
+            // ids are never reused, so entries of a closed registration cannot reach a new listener
+            ExpiryListener[] current = listeners;
+            ExpiryListener[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = listener;
+            listeners = next;
+            return new Registration(current.length);
+        }
+    }
+
+    private void unregister(int id) {
+        synchronized (registrationLock) {
+            ExpiryListener[] next = listeners.clone();
+            next[id] = null;
+            listeners = next;
+        }
+    }
+
+    /**
+     * Start the daemon scheduler thread. Calling it again has no effect.
+     *
+     * @return this scheduler
+     */
+    public synchronized ExpiryScheduler start() {
+        if (worker == null) {
+            running = true;
+            Thread t = new Thread(this::runLoop, "genpass-expiry-scheduler");
+            t.setDaemon(true);
+            worker = t;
+            t.start();
+        }
+        return this;
+    }
+
+    /**
+     * Stop the scheduler thread. Pending entries are not fired.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        Thread t = worker;
+        if (t != null) {
+            LockSupport.unpark(t);
+            worker = null;
+        }
+    }
+
+    private void runLoop() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        while (running) {
+            try {
+                advance(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Expiry scheduler tick failed", e);
+            }
+            LockSupport.parkNanos(this, tickNanos);
+        }
+    }
+
+    /**
+     * Move the wheel forward to {@code nowEpochMilli}, firing every entry that expired.
+     * Called by the scheduler thread; may also be called directly when no thread was started.
+     *
+     * @return number of listener invocations
+     */
+    public int advance(long nowEpochMilli) {
+        tickLock.lock();
+        try {
+            drainInbox();
+            int fired = 0;
+            long target = nowEpochMilli / tickMillis;
+            ExpiryListener[] snapshot = listeners;
+            while (currentTick < target) {
+                long tick = ++currentTick;
+                cascade(tick);
+                fired += fire(wheel[0][(int) (tick & SLOT_MASK)], snapshot);
+            }
+            return fired;
+        } finally {
+            tickLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of entries waiting in the wheel (excluding the inbox); for monitoring
+     */
+    public long pendingCount() {
+        tickLock.lock();
+        try {
+            long n = overflow.size;
+            for (Entries[] level : wheel) {
+                for (Entries slot : level) {
+                    n += slot.size;
+                }
+            }
+            return n;
+        } finally {
+            tickLock.unlock();
+        }
+    }
+
+    private InboxStripe inbox() {
+        long id = Thread.currentThread().threadId();
+        return inbox[(int) (id ^ (id >>> 16)) & inboxMask];
+    }
+
+    private void drainInbox() {
+        for (InboxStripe stripe : inbox) {
+            Entries taken = stripe.swap();
+            for (int i = 0; i < taken.size; i++) {
+                // anything already due fires on the next tick
+                place(taken.keys[i], taken.expiries[i], taken.owners[i], currentTick + 1);
+            }
+            taken.size = 0;
+        }
+    }
+
+    /**
+     * Put an entry in the lowest level whose span still reaches its due tick. The due tick is
+     * rounded up so that an entry never fires before its expiry.
+     *
+     * @param fromTick first tick that has not been processed yet
+     */
+    private void place(long key, long expiry, int owner, long fromTick) {
+        long due = Math.max(Math.floorDiv(expiry, tickMillis) + (Math.floorMod(expiry, tickMillis) == 0 ? 0 : 1),
+                fromTick);
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            if ((due >>> shift) - (fromTick >>> shift) < SLOTS) {
+                wheel[level][(int) ((due >>> shift) & SLOT_MASK)].add(key, expiry, owner);
+                return;
+            }
+        }
+        overflow.add(key, expiry, owner);
+    }
+
+    /**
+     * When {@code tick} starts a new rotation of a level, move that level's current slot
+     * down; entries then land in lower levels relative to {@code tick}.
+     */
+    private void cascade(long tick) {
+        for (int level = LEVELS; level >= 1; level--) {
+            long span = 1L << (level * SLOT_BITS);
+            if ((tick & (span - 1)) != 0) {
+                continue;
+            }
+            Entries source = level == LEVELS
+                    ? overflow
+                    : wheel[level][(int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK)];
+            if (source.size == 0) {
+                continue;
+            }
+            Entries moved = copyAndClear(source);
+            for (int i = 0; i < moved.size; i++) {
+                place(moved.keys[i], moved.expiries[i], moved.owners[i], tick);
+            }
+        }
+    }
+
+    private static Entries copyAndClear(Entries source) {
+        Entries copy = new Entries();
+        copy.keys = Arrays.copyOf(source.keys, source.size);
+        copy.expiries = Arrays.copyOf(source.expiries, source.size);
+        copy.owners = Arrays.copyOf(source.owners, source.size);
+        copy.size = source.size;
+        source.size = 0;
+        return copy;
+    }
+
+    private int fire(Entries slot, ExpiryListener[] snapshot) {
+        int fired = 0;
+        for (int i = 0; i < slot.size; i++) {
+            int owner = slot.owners[i];
+            ExpiryListener listener = owner < snapshot.length ? snapshot[owner] : null;
+            if (listener == null) {
+                continue;
+            }
+            try {
+                listener.onExpired(slot.keys[i], slot.expiries[i]);
+                fired++;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Expiry listener failed", e);
+            }
+        }
+        slot.size = 0;
+        return fired;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpiryScheduler{tickMillis=" + tickMillis + ", running=" + running + "}";
+    }
+}
@@ -0,0 +1,163 @@
+package com.genpass.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative {@code long} values (e.g. nanoseconds) with bounded
+ * relative error, in the style of HdrHistogram.
+ *
+ * <p>Values below 32 get a bucket each; above that, every power-of-two range is split into 32
+ * linear sub-buckets, so a reported percentile is at most about 3% above the true value over the
+ * whole {@code long} range, using a fixed 1,888 buckets. Recording is one array increment with no
+ * allocation. Buckets are striped over a few arrays chosen by thread id, so threads recording
+ * the same value rarely hit the same cache line; reads merge the stripes.</p>
+ *
+ * <p>Reads are not atomic with respect to concurrent recording, which is fine for monitoring.</p>
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Bucket index of {@link Long#MAX_VALUE}, plus one. */
+    static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Create a histogram with one stripe per available processor, up to 4.
+     */
+    public Histogram() {
+        this(Integer.highestOneBit(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()))));
+    }
+
+    /**
+     * @param stripes number of bucket arrays (a power of two)
+     */
+    Histogram(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two");
+        }
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Record one value; negative values count as 0.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        int stripe = (int) (Thread.currentThread().threadId() & stripeMask);
+        counts.getAndIncrement(stripe * BUCKETS + index(v));
+        long currentMax = max.get();
+        if (v > currentMax) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS; // 0 .. SUB_BUCKETS - 1
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the largest value that maps to bucket {@code index}
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+
+    private long[] merged() {
+        long[] merged = new long[BUCKETS];
+        int stripes = stripeMask + 1;
+        for (int s = 0; s < stripes; s++) {
+            int base = s * BUCKETS;
+            for (int i = 0; i < BUCKETS; i++) {
+                merged[i] += counts.get(base + i);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long count() {
+        long total = 0;
+        for (long c : merged()) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * @return largest recorded value, or 0 if empty
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile in {@code [0, 100]}
+     * @return a value at or slightly above (within the bucket precision) the given percentile of
+     *         recorded values, never above {@link #max()}; 0 if empty
+     */
+    public long valueAtPercentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        }
+        long[] merged = merged();
+        long total = 0;
+        for (long c : merged) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < merged.length; i++) {
+            seen += merged[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return approximate mean (bucket midpoints), or 0 if empty
+     */
+    public double mean() {
+        long[] merged = merged();
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (merged[i] != 0) {
+                long high = highestValue(i);
+                long low = i == 0 ? 0 : highestValue(i - 1) + 1;
+                total += merged[i];
+                sum += merged[i] * ((low + (double) high) / 2.0);
+            }
+        }
+        return total == 0 ? 0 : sum / total;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{count=" + count() + ", p50=" + valueAtPercentile(50) + ", p99="
+                + valueAtPercentile(99) + ", max=" + max() + "}";
+    }
+}
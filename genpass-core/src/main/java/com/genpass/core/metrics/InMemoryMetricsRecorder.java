@@ -0,0 +1,72 @@
+package com.genpass.core.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricsRecorder} keeping counters ({@link LongAdder}s, striped under contention) and
+ * timer {@link Histogram}s in memory, for tests, admin endpoints or a periodic exporter.
+ *
+ * <pre>
+ * InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+ * MetricsRecorder.setShared(metrics);
+ * // ...
+ * long expired = metrics.counterValue("genpass.token.verify.expired");
+ * long p99Nanos = metrics.histogram("genpass.token.verify").valueAtPercentile(99);
+ * </pre>
+ */
+public final class InMemoryMetricsRecorder implements MetricsRecorder {
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        LongAdder adder = counters.computeIfAbsent(name, n -> new LongAdder());
+        return adder::add;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram())::record;
+    }
+
+    /**
+     * @return current value of counter {@code name}, 0 if never created
+     */
+    public long counterValue(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * @return live histogram of timer {@code name} in nanoseconds, empty if never created
+     */
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram == null ? new Histogram(1) : histogram;
+    }
+
+    /**
+     * @return snapshot of all counter values, sorted by name
+     */
+    public Map<String, Long> counters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, adder) -> snapshot.put(name, adder.sum()));
+        return snapshot;
+    }
+
+    /**
+     * @return all timer histograms (live), sorted by name
+     */
+    public Map<String, Histogram> histograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryMetricsRecorder{counters=" + counters.size() + ", timers=" + histograms.size() + "}";
+    }
+}
@@ -0,0 +1,83 @@
+package com.genpass.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link MetricsRecorder} emitting Java Flight Recorder events, for profiling production.
+ *
+ * <p>Every timed operation becomes a {@code com.genpass.Operation} event carrying the metric
+ * name and its duration; counters become {@code com.genpass.Count} events, which are disabled
+ * by default because they are frequent. Without an active recording (or with the event
+ * disabled) a call costs a check of the event's enabled flag and nothing is recorded.</p>
+ *
+ * <pre>
+ * java -XX:StartFlightRecording:filename=genpass.jfr ...
+ * jfr print --events com.genpass.Operation genpass.jfr
+ * </pre>
+ */
+public final class JfrMetricsRecorder implements MetricsRecorder {
+
+    @Name("com.genpass.Operation")
+    @Label("GenPass Operation")
+    @Category("GenPass")
+    @Description("Duration of a timed GenPass operation")
+    @StackTrace(false)
+    static final class OperationEvent extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("com.genpass.Count")
+    @Label("GenPass Count")
+    @Category("GenPass")
+    @Description("Increment of a GenPass counter")
+    @StackTrace(false)
+    @Enabled(false)
+    static final class CountEvent extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Delta")
+        long delta;
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return delta -> {
+            CountEvent event = new CountEvent();
+            if (event.isEnabled()) {
+                event.metric = name;
+                event.delta = delta;
+                event.commit();
+            }
+        };
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return nanos -> {
+            OperationEvent event = new OperationEvent();
+            if (event.isEnabled()) {
+                event.metric = name;
+                event.elapsed = nanos;
+                event.commit();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "JfrMetricsRecorder";
+    }
+}
@@ -0,0 +1,188 @@
+package com.genpass.core.metrics;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Service-provider interface for counts and timings reported by GenPass components.
+ *
+ * <p>Components look up their {@link Counter}s and {@link Timer}s once, at construction, and
+ * then only call {@link Counter#increment()} or {@link Timer#record(long)} on the hot path,
+ * so an implementation can do its name lookup (and any allocation) up front.
+ * Components such as {@link com.genpass.core.token.MagicLinkTokenService} take
+ * {@link #shared()} unless another recorder is passed in; the shared recorder is {@link #noop()} until
+ * {@link #setShared(MetricsRecorder)} is called. When {@link #isEnabled()} is false,
+ * components skip taking timestamps altogether.</p>
+ *
+ * <p>Built in: {@link InMemoryMetricsRecorder} (counters and histograms to query or export)
+ * and {@link JfrMetricsRecorder} (Java Flight Recorder events). Combine them with
+ * {@link #compose(MetricsRecorder...)}. Implementations must be thread-safe.</p>
+ *
+ * <p>Metric names are dot-separated and start with {@code genpass.}, e.g.
+ * {@code genpass.token.verify} or {@code genpass.token.verify.expired}.</p>
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Monotonic event count.
+     */
+    interface Counter {
+
+        void add(long delta);
+
+        default void increment() {
+            add(1);
+        }
+    }
+
+    /**
+     * Distribution of operation durations.
+     */
+    interface Timer {
+
+        /**
+         * Record one operation that took {@code nanos} nanoseconds.
+         */
+        void record(long nanos);
+
+        /**
+         * Record one operation that started at {@code startNanos} ({@link System#nanoTime()}).
+         */
+        default void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @param name metric name
+     * @return the counter for {@code name}; the same instance for the same name is not required
+     */
+    Counter counter(String name);
+
+    /**
+     * @param name metric name
+     * @return the timer for {@code name}
+     */
+    Timer timer(String name);
+
+    /**
+     * @return {@code false} if recorded values are discarded, so callers may skip measuring
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return a recorder that discards everything
+     */
+    static MetricsRecorder noop() {
+        return Noop.INSTANCE;
+    }
+
+    /**
+     * @return a recorder forwarding to all {@code recorders}
+     */
+    static MetricsRecorder compose(MetricsRecorder... recorders) {
+        MetricsRecorder[] all = Arrays.stream(recorders)
+                .map(r -> Objects.requireNonNull(r, "recorder"))
+                .filter(MetricsRecorder::isEnabled)
+                .toArray(MetricsRecorder[]::new);
+        return switch (all.length) {
+            case 0 -> noop();
+            case 1 -> all[0];
+            default -> new Composite(all);
+        };
+    }
+
+    /**
+     * @return the process-wide default recorder ({@link #noop()} unless replaced)
+     */
+    static MetricsRecorder shared() {
+        return SharedMetricsRecorder.get();
+    }
+
+    /**
+     * Replace the process-wide default recorder. Components pick up the recorder that is
+     * current at construction time, so call this during startup.
+     */
+    static void setShared(MetricsRecorder recorder) {
+        SharedMetricsRecorder.set(Objects.requireNonNull(recorder, "recorder"));
+    }
+
+    /**
+     * Recorder that discards everything.
+     */
+    final class Noop implements MetricsRecorder {
+
+        static final Noop INSTANCE = new Noop();
+
+        private static final Counter COUNTER = delta -> { };
+        private static final Timer TIMER = nanos -> { };
+
+        private Noop() {
+        }
+
+        @Override
+        public Counter counter(String name) {
+            return COUNTER;
+        }
+
+        @Override
+        public Timer timer(String name) {
+            return TIMER;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "MetricsRecorder.Noop";
+        }
+    }
+
+    /**
+     * Recorder forwarding to several others.
+     */
+    final class Composite implements MetricsRecorder {
+
+        private final MetricsRecorder[] recorders;
+
+        private Composite(MetricsRecorder[] recorders) {
+            this.recorders = recorders;
+        }
+
+        @Override
+        public Counter counter(String name) {
+            Counter[] counters = new Counter[recorders.length];
+            for (int i = 0; i < recorders.length; i++) {
+                counters[i] = recorders[i].counter(name);
+            }
+            return delta -> {
+                for (Counter counter : counters) {
+                    counter.add(delta);
+                }
+            };
+        }
+
+        @Override
+        public Timer timer(String name) {
+            Timer[] timers = new Timer[recorders.length];
+            for (int i = 0; i < recorders.length; i++) {
+                timers[i] = recorders[i].timer(name);
+            }
+            return nanos -> {
+                for (Timer timer : timers) {
+                    timer.record(nanos);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "MetricsRecorder.Composite" + Arrays.toString(recorders);
+        }
+    }
+}
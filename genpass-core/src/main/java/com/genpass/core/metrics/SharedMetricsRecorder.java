@@ -0,0 +1,20 @@
+package com.genpass.core.metrics;
+
+/**
+ * Holder for {@link MetricsRecorder#shared()}.
+ */
+final class SharedMetricsRecorder {
+
+    private static volatile MetricsRecorder current = MetricsRecorder.noop();
+
+    private SharedMetricsRecorder() {
+    }
+
+    static MetricsRecorder get() {
+        return current;
+    }
+
+    static void set(MetricsRecorder recorder) {
+        current = recorder;
+    }
+}
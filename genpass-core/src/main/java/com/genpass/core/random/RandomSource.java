@@ -0,0 +1,104 @@
+package com.genpass.core.random;
+
+import java.util.Objects;
+
+/**
+ * Source of cryptographically secure random bytes used by the GenPass generators.
+ *
+ * <p>{@link com.genpass.core.token.TokenGenerator.Default},
+ * {@link com.genpass.core.token.OtpGenerator.Default} and
+ * {@link com.genpass.core.device.DeviceFingerprintUtil} draw from {@link #shared()} unless
+ * another source is passed in. The shared source is a {@link StripedRandomSource} using
+ * {@link Algorithm#DRBG}; replace it once at startup with {@link #setShared(RandomSource)}
+ * to use a different algorithm.</p>
+ *
+ * <p>Implementations must be thread-safe.</p>
+ */
+public interface RandomSource {
+
+    /**
+     * {@link java.security.SecureRandom} algorithms supported by {@link StripedRandomSource}.
+     */
+    enum Algorithm {
+        /** Whatever {@code new SecureRandom()} selects on this platform. */
+        PLATFORM_DEFAULT(null),
+        /** NIST SP 800-90A DRBG; one independent, separately locked instance per stripe. */
+        DRBG("DRBG"),
+        /**
+         * {@code /dev/urandom} without blocking (Linux and macOS only). The JDK shares one
+         * native reader between all instances, so buffering rather than striping is what helps.
+         */
+        NATIVE_PRNG_NON_BLOCKING("NativePRNGNonBlocking");
+
+        private final String jcaName;
+
+        Algorithm(String jcaName) {
+            this.jcaName = jcaName;
+        }
+
+        /**
+         * @return JCA algorithm name, or {@code null} for the platform default
+         */
+        public String jcaName() {
+            return jcaName;
+        }
+    }
+
+    /**
+     * Fill {@code out[off, off + len)} with random bytes.
+     */
+    void nextBytes(byte[] out, int off, int len);
+
+    /**
+     * Fill {@code out} with random bytes.
+     */
+    default void nextBytes(byte[] out) {
+        nextBytes(out, 0, out.length);
+    }
+
+    /**
+     * @return a uniformly distributed random {@code long}
+     */
+    default long nextLong() {
+        byte[] b = new byte[Long.BYTES];
+        nextBytes(b);
+        long v = 0;
+        for (byte x : b) {
+            v = (v << 8) | (x & 0xFF);
+        }
+        return v;
+    }
+
+    /**
+     * @param bound exclusive upper bound (must be positive)
+     * @return a uniformly distributed value in {@code [0, bound)}, without modulo bias
+     */
+    default int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        while (true) {
+            int r = (int) (nextLong() >>> 33);
+            int v = r % bound;
+            if (r - v + (bound - 1) >= 0) {
+                return v;
+            }
+        }
+    }
+
+    /**
+     * @return the process-wide default source
+     */
+    static RandomSource shared() {
+        return SharedRandomSource.get();
+    }
+
+    /**
+     * Replace the process-wide default source. Generators created with their no-argument
+     * constructors pick up the source that is current at construction time, so call this
+     * during startup.
+     */
+    static void setShared(RandomSource source) {
+        SharedRandomSource.set(Objects.requireNonNull(source, "source"));
+    }
+}
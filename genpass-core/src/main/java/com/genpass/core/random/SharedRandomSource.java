@@ -0,0 +1,30 @@
+package com.genpass.core.random;
+
+/**
+ * Holder for {@link RandomSource#shared()}; the default instance is created on first use.
+ */
+final class SharedRandomSource {
+
+    private static volatile RandomSource current;
+
+    private SharedRandomSource() {
+    }
+
+    static RandomSource get() {
+        RandomSource source = current;
+        if (source == null) {
+            synchronized (SharedRandomSource.class) {
+                source = current;
+                if (source == null) {
+                    source = new StripedRandomSource();
+                    current = source;
+                }
+            }
+        }
+        return source;
+    }
+
+    static void set(RandomSource source) {
+        current = source;
+    }
+}
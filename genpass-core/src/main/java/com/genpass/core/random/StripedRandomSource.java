@@ -0,0 +1,179 @@
+package com.genpass.core.random;
+
+import com.genpass.core.exception.GenPassCoreException;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link RandomSource} that spreads callers over several independent {@link SecureRandom}
+ * instances and serves small requests from prefetched buffers.
+ *
+ * <p>A single shared {@code SecureRandom} serializes every caller on its internal lock. Here
+ * each stripe owns its own instance and a buffer of {@code bufferSize} random bytes; a caller
+ * picks a stripe from its thread id, takes the next slice of the buffer, and only calls into
+ * the {@code SecureRandom} when the buffer runs out. Bytes are zeroed in the buffer once handed
+ * out. Stripes are guarded by {@link ReentrantLock}s (not monitors) so virtual threads are not
+ * pinned; a busy stripe is skipped in favour of its neighbour before a caller waits.</p>
+ */
+public final class StripedRandomSource implements RandomSource {
+
+    /** Default number of prefetched bytes per stripe. */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final Algorithm algorithm;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final SecureRandom random;
+        final byte[] buffer;
+        int position;
+
+        Stripe(SecureRandom random, int bufferSize) {
+            this.random = random;
+            this.buffer = new byte[bufferSize];
+            this.position = bufferSize; // filled on first use
+        }
+
+        void take(byte[] out, int off, int len) {
+            if (len >= buffer.length && off == 0 && len == out.length) {
+                random.nextBytes(out);
+                return;
+            }
+            while (len > 0) {
+                if (position == buffer.length) {
+                    random.nextBytes(buffer);
+                    position = 0;
+                }
+                int n = Math.min(len, buffer.length - position);
+                System.arraycopy(buffer, position, out, off, n);
+                Arrays.fill(buffer, position, position + n, (byte) 0);
+                position += n;
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    /**
+     * Create a source using {@link Algorithm#DRBG} with two stripes per processor.
+     */
+    public StripedRandomSource() {
+        this(Algorithm.DRBG);
+    }
+
+    /**
+     * Create a source using the given algorithm with two stripes per processor.
+     */
+    public StripedRandomSource(Algorithm algorithm) {
+        this(algorithm, Runtime.getRuntime().availableProcessors() * 2, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a source.
+     *
+     * @param algorithm  SecureRandom algorithm of every stripe
+     * @param stripes    number of stripes (rounded up to a power of two)
+     * @param bufferSize prefetched bytes per stripe (at least 8)
+     * @throws GenPassCoreException if the algorithm is not available on this platform
+     */
+    public StripedRandomSource(Algorithm algorithm, int stripes, int bufferSize) {
+        this.algorithm = Objects.requireNonNull(algorithm, "algorithm");
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be > 0");
+        }
+        if (bufferSize < Long.BYTES) {
+            throw new IllegalArgumentException("bufferSize must be at least " + Long.BYTES);
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(newSecureRandom(algorithm), bufferSize);
+        }
+        this.mask = size - 1;
+    }
+
+    private static SecureRandom newSecureRandom(Algorithm algorithm) {
+        if (algorithm.jcaName() == null) {
+            return new SecureRandom();
+        }
+        try {
+            return SecureRandom.getInstance(algorithm.jcaName());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new GenPassCoreException("SecureRandom algorithm not available: " + algorithm.jcaName(), ex);
+        }
+    }
+
+    @Override
+    public void nextBytes(byte[] out, int off, int len) {
+        Objects.checkFromIndexSize(off, len, out.length);
+        Stripe stripe = lockStripe();
+        try {
+            stripe.take(out, off, len);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public long nextLong() {
+        Stripe stripe = lockStripe();
+        try {
+            long v = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                if (stripe.position == stripe.buffer.length) {
+                    stripe.random.nextBytes(stripe.buffer);
+                    stripe.position = 0;
+                }
+                v = (v << 8) | (stripe.buffer[stripe.position] & 0xFF);
+                stripe.buffer[stripe.position++] = 0;
+            }
+            return v;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Lock the caller's home stripe, or its neighbour if the home stripe is busy.
+     */
+    private Stripe lockStripe() {
+        long id = Thread.currentThread().threadId();
+        int home = (((int) (id ^ (id >>> 32)) * 0x9E3779B9) >>> 16) & mask;
+        Stripe first = stripes[home];
+        if (first.lock.tryLock()) {
+            return first;
+        }
+        Stripe second = stripes[(home + 1) & mask];
+        if (second.lock.tryLock()) {
+            return second;
+        }
+        first.lock.lock();
+        return first;
+    }
+
+    /**
+     * @return algorithm used by every stripe
+     */
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return number of stripes
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    @Override
+    public String toString() {
+        return "StripedRandomSource{algorithm=" + algorithm + ", stripes=" + stripes.length
+                + ", bufferSize=" + stripes[0].buffer.length + "}";
+    }
+}
@@ -0,0 +1,14 @@
+package com.genpass.core.token;
+
+/**
+ * Order in which a batch operation streams per-item results to its callback.
+ *
+ * <p>Either way the callback runs on the calling thread only, never concurrently, and the
+ * returned batch result is indexed like the input.</p>
+ */
+public enum BatchOrder {
+    /** Items are delivered in input order; a slow chunk holds back the chunks after it. */
+    ORDERED,
+    /** Each chunk is delivered as soon as it is done, so the first results arrive earliest. */
+    UNORDERED
+}
@@ -0,0 +1,197 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a batch of items in chunks on an {@link Executor} and on the calling thread.
+ *
+ * <p>Every participant claims chunks from a shared counter until none are left and signs with
+ * one {@link TokenCodec.Macs} (a {@code Mac} per token format) for all of its chunks. The caller
+ * claims chunks too, so a batch always completes even when the executor is saturated or never runs the helper tasks
+ * (e.g. the caller itself is a pool thread); it only ever waits for chunks that another thread
+ * is already processing. Completed chunks are reported to a {@link Listener} on the calling
+ * thread, in input or completion order.</p>
+ */
+final class BatchRunner {
+
+    /** Smallest chunk handed to another thread; smaller batches run on the caller alone. */
+    static final int MIN_CHUNK = 64;
+
+    /**
+     * Processes items {@code [from, to)} signing with {@code macs}, held by the current participant.
+     */
+    interface Work {
+        void run(int from, int to, TokenCodec.Macs macs);
+    }
+
+    /**
+     * Called on the calling thread once items {@code [from, to)} are done.
+     */
+    interface Listener {
+        void done(int from, int to);
+    }
+
+    private final TokenCodec codec;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * @param codec       codec the participants' Macs are taken from and released to
+     * @param executor    runs helper tasks
+     * @param parallelism maximum number of threads working on one batch, caller included
+     */
+    BatchRunner(TokenCodec codec, Executor executor, int parallelism) {
+        this.codec = codec;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Process {@code size} items and return once all are done.
+     *
+     * @param listener notified of finished chunks, may be null
+     * @throws GenPassCoreException when interrupted while waiting for helpers
+     */
+    void run(int size, Work work, BatchOrder order, Listener listener) {
+        if (size == 0) {
+            return;
+        }
+        int chunkSize = Math.max(MIN_CHUNK, ceilDiv(size, parallelism * 4));
+        Job job = new Job(size, chunkSize, work);
+        int helpers = Math.min(parallelism, job.chunks) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(job::help);
+            } catch (RejectedExecutionException e) {
+                break; // the caller picks up the remaining chunks
+            }
+        }
+        job.lead(order, listener);
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    private final class Job {
+        final int size;
+        final int chunkSize;
+        final int chunks;
+        final Work work;
+        final AtomicInteger next = new AtomicInteger();
+        /** Chunks finished (or skipped after a failure) by helpers. */
+        final BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        volatile Throwable failure;
+
+        Job(int size, int chunkSize, Work work) {
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunks = ceilDiv(size, chunkSize);
+            this.work = work;
+        }
+
+        int claim() {
+            int chunk = next.getAndIncrement();
+            return chunk < chunks ? chunk : -1;
+        }
+
+        /**
+         * Run one claimed chunk unless the batch already failed.
+         */
+        void process(int chunk, TokenCodec.Macs macs) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                int from = chunk * chunkSize;
+                work.run(from, Math.min(size, from + chunkSize), macs);
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+            }
+        }
+
+        void help() {
+            TokenCodec.Macs macs = new TokenCodec.Macs();
+            int chunk;
+            while ((chunk = claim()) >= 0) {
+                process(chunk, macs);
+                completed.add(chunk);
+            }
+            codec.release(macs);
+        }
+
+        void lead(BatchOrder order, Listener listener) {
+            boolean[] done = new boolean[chunks];
+            int nextInOrder = 0;
+            int finished = 0;
+            TokenCodec.Macs macs = new TokenCodec.Macs();
+            try {
+                int chunk;
+                while ((chunk = claim()) >= 0) {
+                    process(chunk, macs);
+                    nextInOrder = finish(chunk, done, nextInOrder, order, listener);
+                    finished++;
+                    Integer other;
+                    while ((other = completed.poll()) != null) {
+                        nextInOrder = finish(other, done, nextInOrder, order, listener);
+                        finished++;
+                    }
+                }
+                codec.release(macs);
+                while (finished < chunks) {
+                    nextInOrder = finish(completed.take(), done, nextInOrder, order, listener);
+                    finished++;
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                Thread.currentThread().interrupt();
+                throw new GenPassCoreException("Interrupted while waiting for batch workers", e);
+            } catch (RuntimeException | Error e) {
+                fail(e); // stops the helpers
+                throw e;
+            }
+            Throwable t = failure;
+            if (t instanceof RuntimeException re) {
+                throw re;
+            }
+            if (t instanceof Error err) {
+                throw err;
+            }
+            if (t != null) {
+                throw new GenPassCoreException("Batch worker failed", t);
+            }
+        }
+
+        private int finish(int chunk, boolean[] done, int nextInOrder, BatchOrder order, Listener listener) {
+            if (listener == null || failure != null) {
+                return nextInOrder;
+            }
+            if (order == BatchOrder.UNORDERED) {
+                notify(listener, chunk);
+                return nextInOrder;
+            }
+            done[chunk] = true;
+            while (nextInOrder < chunks && done[nextInOrder]) {
+                notify(listener, nextInOrder++);
+            }
+            return nextInOrder;
+        }
+
+        private void notify(Listener listener, int chunk) {
+            int from = chunk * chunkSize;
+            listener.done(from, Math.min(size, from + chunkSize));
+        }
+    }
+}
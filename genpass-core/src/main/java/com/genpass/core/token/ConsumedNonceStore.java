@@ -0,0 +1,25 @@
+package com.genpass.core.token;
+
+/**
+ * SPI for remembering which magic-link nonces have already been used.
+ *
+ * <p>{@link MagicLinkTokenService#verifyAndConsume(String)} calls {@link #tryConsume(String, long)}
+ * after a token has been authenticated and found unexpired. Implementations only need to keep
+ * a nonce until its token expires; after that the token is rejected on expiry anyway.</p>
+ *
+ * <p>An in-memory implementation is provided by {@link InMemoryConsumedNonceStore}. Clustered
+ * deployments can implement this interface on top of a shared store (e.g. a database unique
+ * key or an atomic "set if absent" in a cache).</p>
+ */
+public interface ConsumedNonceStore {
+
+    /**
+     * Atomically mark a nonce as consumed.
+     *
+     * @param nonce            nonce taken from an authenticated token (never null)
+     * @param expiryEpochMilli expiry of the token; the entry may be dropped after this instant
+     * @return {@code true} if this call consumed the nonce, {@code false} if it had already been
+     * consumed (i.e. the token is being replayed)
+     */
+    boolean tryConsume(String nonce, long expiryEpochMilli);
+}
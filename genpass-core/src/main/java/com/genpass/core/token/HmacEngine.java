@@ -0,0 +1,222 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Objects;
+
+/**
+ * Computes HMAC-SHA256 signatures for a single, fixed key.
+ *
+ * <p>Engines hand out {@link Mac} instances that are already initialized with the key.
+ * Callers that sign several payloads in a row (e.g. batch jobs) may {@link #acquire()}
+ * a Mac once, use it repeatedly and {@link #release(Mac)} it afterwards; everyone else
+ * should use {@link #sign(byte[], int, int)}.</p>
+ *
+ * <p>Two strategies are provided:
+ * <ul>
+ *   <li>{@link PerCall}: looks up and initializes a fresh Mac on every call (the original behavior).</li>
+ *   <li>{@link Pooled}: keeps a bounded, lock-free pool of initialized Macs. It does not use
+ *       {@link ThreadLocal}, so it behaves well with virtual threads.</li>
+ * </ul>
+ * </p>
+ */
+public interface HmacEngine {
+
+    /** Algorithm used by every engine. */
+    String ALGORITHM = "HmacSHA256";
+
+    /** Length in bytes of an HMAC-SHA256 signature. */
+    int MAC_LENGTH = 32;
+
+    /**
+     * Selects the engine implementation used by a token service.
+     */
+    enum Mode {
+        /** Fresh {@link Mac} per operation. */
+        PER_CALL,
+        /** Pooled, pre-initialized {@link Mac} instances. */
+        POOLED;
+
+        /**
+         * Create an engine of this mode for the given key.
+         *
+         * @param key HMAC key (must not be null)
+         * @return new engine
+         */
+        public HmacEngine create(SecretKeySpec key) {
+            return switch (this) {
+                case PER_CALL -> new PerCall(key);
+                case POOLED -> new Pooled(key);
+            };
+        }
+    }
+
+    /**
+     * Obtain a Mac initialized with this engine's key and ready for {@code update}.
+     *
+     * @return initialized Mac
+     * @throws GenPassCoreException if the Mac cannot be created
+     */
+    Mac acquire();
+
+    /**
+     * Hand a Mac obtained from {@link #acquire()} back to the engine. The Mac must be in its
+     * reset state (i.e. after {@code doFinal}). Passing {@code null} is a no-op.
+     *
+     * @param mac Mac to release
+     */
+    void release(Mac mac);
+
+    /**
+     * Sign {@code length} bytes of {@code data} starting at {@code offset}.
+     *
+     * @return 32-byte signature
+     * @throws GenPassCoreException when HMAC computation fails
+     */
+    default byte[] sign(byte[] data, int offset, int length) {
+        byte[] out = new byte[MAC_LENGTH];
+        sign(data, offset, length, out, 0);
+        return out;
+    }
+
+    /**
+     * Sign the whole array.
+     *
+     * @param data payload
+     * @return 32-byte signature
+     */
+    default byte[] sign(byte[] data) {
+        return sign(data, 0, data.length);
+    }
+
+    /**
+     * Sign a byte range and write the 32-byte signature into {@code out} at {@code outOffset}.
+     *
+     * @throws GenPassCoreException when HMAC computation fails
+     */
+    default void sign(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        Mac mac = acquire();
+        try {
+            mac.update(data, offset, length);
+            mac.doFinal(out, outOffset);
+        } catch (Exception ex) {
+            // the Mac may be left mid-computation; do not hand it back
+            throw new GenPassCoreException("Failed to compute HMAC-SHA256", ex);
+        }
+        release(mac);
+    }
+
+    /**
+     * Engine keyed with {@code HMAC(key, label)}, so that messages of different formats signed
+     * with one secret never share a MAC key. The default returns a {@link Pooled} engine.
+     *
+     * @param label derivation label (must not be null)
+     * @return new engine for the derived key
+     */
+    default HmacEngine derive(byte[] label) {
+        return new Pooled(derivedKey(label));
+    }
+
+    /**
+     * @return {@code HMAC(key, label)} as a key spec
+     */
+    default SecretKeySpec derivedKey(byte[] label) {
+        return new SecretKeySpec(sign(Objects.requireNonNull(label, "label")), ALGORITHM);
+    }
+
+    /**
+     * Create a new Mac for the given key.
+     */
+    static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (Exception ex) {
+            throw new GenPassCoreException("Failed to initialize HMAC-SHA256", ex);
+        }
+    }
+
+    /**
+     * Engine that creates and initializes a new Mac for every operation.
+     */
+    final class PerCall implements HmacEngine {
+        private final SecretKeySpec key;
+
+        public PerCall(SecretKeySpec key) {
+            this.key = Objects.requireNonNull(key, "key");
+        }
+
+        @Override
+        public Mac acquire() {
+            return newMac(key);
+        }
+
+        @Override
+        public void release(Mac mac) {
+            // nothing to recycle
+        }
+
+        @Override
+        public HmacEngine derive(byte[] label) {
+            return new PerCall(derivedKey(label));
+        }
+
+        @Override
+        public String toString() {
+            return "HmacEngine.PerCall";
+        }
+    }
+
+    /**
+     * Engine backed by a bounded, lock-free pool of idle, initialized Macs.
+     *
+     * <p>{@link #acquire()} takes an idle Mac from the pool or creates a new one;
+     * {@link #release(Mac)} returns it, dropping it when the pool is full. No locks and no
+     * thread-locals are involved, so the pool is shared fairly between platform and virtual
+     * threads.</p>
+     */
+    final class Pooled implements HmacEngine {
+        private final SlotPool<Mac> pool;
+
+        /**
+         * Create a pooled engine sized for the number of available processors.
+         */
+        public Pooled(SecretKeySpec key) {
+            this(key, SlotPool.defaultCapacity());
+        }
+
+        /**
+         * Create a pooled engine.
+         *
+         * @param key      HMAC key
+         * @param capacity maximum number of idle Macs kept (rounded up to a power of two)
+         */
+        public Pooled(SecretKeySpec key, int capacity) {
+            Objects.requireNonNull(key, "key");
+            this.pool = new SlotPool<>(capacity, () -> newMac(key));
+        }
+
+        @Override
+        public Mac acquire() {
+            return pool.acquire();
+        }
+
+        @Override
+        public void release(Mac mac) {
+            pool.release(mac);
+        }
+
+        @Override
+        public HmacEngine derive(byte[] label) {
+            return new Pooled(derivedKey(label), pool.capacity());
+        }
+
+        @Override
+        public String toString() {
+            return "HmacEngine.Pooled(capacity=" + pool.capacity() + ")";
+        }
+    }
+}
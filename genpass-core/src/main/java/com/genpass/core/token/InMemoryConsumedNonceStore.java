@@ -0,0 +1,343 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.expiry.ExpiryScheduler;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free, in-memory {@link ConsumedNonceStore}.
+ *
+ * <p>Nonces are reduced to a 64-bit keyed fingerprint and stored in primitive arrays, two
+ * {@code long}s per slot (fingerprint and expiry), so there is no object per entry: one million
+ * live nonces at the default load factor take roughly 32 MB. The table is split into independent
+ * stripes; inside a stripe each fingerprint has two candidate buckets of
+ * {@value #BUCKET_SLOTS} slots and is placed in the emptier one.</p>
+ *
+ * <p>Entries are evicted by their expiry timestamp: a slot whose expiry has passed is free and
+ * is reused by the next insert, so no sweeper is needed. Optionally an {@link ExpiryScheduler}
+ * clears slots eagerly as they expire, which keeps {@link #size()} exact and probe buckets short. Claiming a slot is a single
+ * compare-and-set. The claimer first publishes its copy as tentative, then re-checks both
+ * buckets: a committed copy of the same nonce, or a tentative one in an earlier slot, makes it
+ * back out, and tentative copies in later slots are cancelled. It then commits its own copy with
+ * a compare-and-set that fails if it was cancelled meanwhile, so exactly one of several
+ * concurrent calls for a nonce wins. No call ever waits for another: a slot that is still being
+ * written is skipped, since its writer checks against every copy published before its own.</p>
+ *
+ * <p>Two different nonces collide only when their 64-bit fingerprints are equal; with a
+ * million live entries the chance of a false "already consumed" is about 10<sup>-7</sup>.
+ * If both candidate buckets are full of live entries {@link #tryConsume(String, long)} throws
+ * {@link GenPassCoreException}; size the store for the peak number of unexpired tokens.</p>
+ *
+ * <p>A store created with an {@link ExpiryScheduler} holds a registration on it; {@link #close()}
+ * the store when it is discarded, otherwise the scheduler keeps it reachable and keeps firing its
+ * expiries. Stores without a scheduler need no closing.</p>
+ */
+public final class InMemoryConsumedNonceStore implements ConsumedNonceStore, AutoCloseable {
+
+    static final int BUCKET_SLOTS = 8;
+
+    /** State word of a slot that is being written. Real expiries are always positive. */
+    private static final long RESERVED = -1L;
+    /** State word written when backing out of a claim; any value in the past marks a free slot. */
+    private static final long RELEASED = 1L;
+    /** Flag on the expiry of a copy that is published but not yet committed. */
+    private static final long TENTATIVE = 1L << 62;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int bucketMask;
+    private final long seed;
+    private final ExpiryScheduler.Registration expiryRegistration;
+    private volatile boolean closed;
+
+    /**
+     * Per-stripe slot array. Slot {@code i} uses words {@code 2i} (fingerprint) and
+     * {@code 2i+1} (state: 0 empty, {@link #RESERVED}, or expiry epoch millis, flagged with
+     * {@link #TENTATIVE} until committed).
+     */
+    private static final class Stripe {
+        final AtomicLongArray words;
+
+        Stripe(int slots) {
+            this.words = new AtomicLongArray(slots * 2);
+        }
+    }
+
+    /**
+     * Create a store sized for about one million live nonces.
+     */
+    public InMemoryConsumedNonceStore() {
+        this(1 << 20);
+    }
+
+    /**
+     * Create a store.
+     *
+     * @param expectedLiveNonces peak number of unexpired consumed nonces; the table is
+     *                           allocated with twice as many slots
+     */
+    public InMemoryConsumedNonceStore(int expectedLiveNonces) {
+        this(expectedLiveNonces, null);
+    }
+
+    /**
+     * Create a store whose entries are cleared by an {@link ExpiryScheduler} when they expire.
+     *
+     * @param expectedLiveNonces peak number of unexpired consumed nonces
+     * @param expiryScheduler    scheduler to register with (e.g. {@link ExpiryScheduler#shared()});
+     *                           {@code null} relies on lazy reuse of expired slots only. With a
+     *                           scheduler the store must be {@linkplain #close() closed} to unregister.
+     */
+    public InMemoryConsumedNonceStore(int expectedLiveNonces, ExpiryScheduler expiryScheduler) {
+        if (expectedLiveNonces <= 0) {
+            throw new IllegalArgumentException("expectedLiveNonces must be > 0");
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        long totalSlots = Math.max((long) expectedLiveNonces * 2, (long) stripeCount * BUCKET_SLOTS * 2);
+        int bucketsPerStripe = (int) Math.min(1 << 26,
+                Long.highestOneBit(Math.max(1, totalSlots / stripeCount / BUCKET_SLOTS - 1)) << 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(bucketsPerStripe * BUCKET_SLOTS);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.bucketMask = bucketsPerStripe - 1;
+        this.seed = new SecureRandom().nextLong();
+        this.expiryRegistration = expiryScheduler == null ? null : expiryScheduler.register(this::evict);
+    }
+
+    @Override
+    public boolean tryConsume(String nonce, long expiryEpochMilli) {
+        return tryConsume(fingerprint(nonce), expiryEpochMilli, System.currentTimeMillis());
+    }
+
+    /**
+     * Core insert, exposed for tests and for callers that already hold a fingerprint.
+     */
+    boolean tryConsume(long fp, long expiryEpochMilli, long now) {
+        if (expiryEpochMilli <= now) {
+            // nothing to protect: the token is rejected on expiry by the service anyway
+            return true;
+        }
+        long expiry = Math.min(expiryEpochMilli, TENTATIVE - 1);
+        AtomicLongArray words = stripeFor(fp).words;
+        int b1 = firstBucket(fp);
+        int b2 = secondBucket(fp);
+
+        while (true) {
+            int free1 = -1;
+            int free2 = -1;
+            int live1 = 0;
+            int live2 = 0;
+            long free1State = 0;
+            long free2State = 0;
+            for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+                boolean first = i < BUCKET_SLOTS;
+                int slot = first ? b1 + i : b2 + i - BUCKET_SLOTS;
+                if (!first && b2 == b1) {
+                    break;
+                }
+                long state = words.get(slot * 2 + 1);
+                long key = words.get(slot * 2);
+                if (state != RESERVED && words.get(slot * 2 + 1) != state) {
+                    i--; // slot changed under us, read it again
+                    continue;
+                }
+                // a slot being written counts as taken without waiting for it: if it is our
+                // nonce, its writer resolves the race against our copy once it publishes
+                if (state == RESERVED || expiryOf(state) > now) {
+                    if (key == fp && state != RESERVED) {
+                        return false;
+                    }
+                    if (first) {
+                        live1++;
+                    } else {
+                        live2++;
+                    }
+                } else if (first && free1 < 0) {
+                    free1 = slot;
+                    free1State = state;
+                } else if (!first && free2 < 0) {
+                    free2 = slot;
+                    free2State = state;
+                }
+            }
+
+            int target;
+            long expected;
+            if (free1 >= 0 && (free2 < 0 || live1 <= live2)) {
+                target = free1;
+                expected = free1State;
+            } else if (free2 >= 0) {
+                target = free2;
+                expected = free2State;
+            } else {
+                throw new GenPassCoreException("ConsumedNonceStore is full; increase expectedLiveNonces");
+            }
+
+            if (!words.compareAndSet(target * 2 + 1, expected, RESERVED)) {
+                continue; // lost the slot to another insert, rescan
+            }
+            words.set(target * 2, fp);
+            long tentative = expiry | TENTATIVE;
+            words.set(target * 2 + 1, tentative);
+
+            if (!winsAgainstOtherCopies(words, b1, b2, target, fp, now)
+                    || !words.compareAndSet(target * 2 + 1, tentative, expiry)) {
+                // a concurrent call consumed the same nonce: back out unless already cancelled
+                words.compareAndSet(target * 2 + 1, tentative, RELEASED);
+                return false;
+            }
+            if (expiryRegistration != null && !closed) {
+                try {
+                    expiryRegistration.schedule(fp, expiry);
+                } catch (IllegalStateException e) {
+                    // closed concurrently: the slot is reused lazily once it expires
+                }
+            }
+            return true;
+        }
+    }
+
+    private Stripe stripeFor(long fp) {
+        return stripes[(int) (fp >>> 32) & stripeMask];
+    }
+
+    private int firstBucket(long fp) {
+        return ((int) fp & bucketMask) * BUCKET_SLOTS;
+    }
+
+    private int secondBucket(long fp) {
+        int h = (int) (fp >>> 16) * 0x9E3779B9;
+        return ((h >>> 8) & bucketMask) * BUCKET_SLOTS;
+    }
+
+    /**
+     * Resolve a race with other copies of {@code fp} in the two buckets, ordered by scan position
+     * (first bucket, then second). The copy in the earliest slot wins: a committed copy anywhere
+     * or a tentative one before {@code own} means this call loses; tentative copies after
+     * {@code own} are cancelled, which makes their owners' commit fail.
+     *
+     * @return true if {@code own} may be committed
+     */
+    private static boolean winsAgainstOtherCopies(AtomicLongArray words, int b1, int b2, int own, long fp, long now) {
+        int ownPosition = position(own, b1);
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = i < BUCKET_SLOTS ? b1 + i : b2 + i - BUCKET_SLOTS;
+            if ((i >= BUCKET_SLOTS && b2 == b1) || slot == own) {
+                continue;
+            }
+            while (true) {
+                long state = words.get(slot * 2 + 1);
+                if (state == RESERVED) {
+                    break; // its writer publishes after our copy, so it sees ours and yields to it
+                }
+                long key = words.get(slot * 2);
+                if (words.get(slot * 2 + 1) != state) {
+                    continue; // slot changed under us, read it again
+                }
+                if (key != fp || expiryOf(state) <= now) {
+                    break;
+                }
+                if ((state & TENTATIVE) == 0 || i < ownPosition) {
+                    return false;
+                }
+                if (words.compareAndSet(slot * 2 + 1, state, RELEASED)) {
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return scan position of {@code slot}: 0 to 7 in the first bucket, 8 to 15 in the second
+     */
+    private static int position(int slot, int b1) {
+        int offset = slot - b1;
+        return offset >= 0 && offset < BUCKET_SLOTS ? offset : BUCKET_SLOTS + (slot & (BUCKET_SLOTS - 1));
+    }
+
+    private static long expiryOf(long state) {
+        return state & ~TENTATIVE;
+    }
+
+    /**
+     * Drop an entry if it is still stored with the given expiry. Called by the expiry scheduler;
+     * without one, expired slots are simply reused.
+     */
+    void evict(long fp, long expiryEpochMilli) {
+        AtomicLongArray words = stripeFor(fp).words;
+        int b1 = firstBucket(fp);
+        int b2 = secondBucket(fp);
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = i < BUCKET_SLOTS ? b1 + i : b2 + i - BUCKET_SLOTS;
+            if (words.get(slot * 2) == fp && words.compareAndSet(slot * 2 + 1, expiryEpochMilli, 0L)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count unexpired entries. This walks the whole table and is meant for monitoring only.
+     *
+     * @return number of live consumed nonces
+     */
+    public long size() {
+        long now = System.currentTimeMillis();
+        long live = 0;
+        for (Stripe stripe : stripes) {
+            AtomicLongArray words = stripe.words;
+            for (int i = 1; i < words.length(); i += 2) {
+                if (expiryOf(words.get(i)) > now) {
+                    live++;
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return total number of slots
+     */
+    public long capacity() {
+        return (long) stripes.length * (bucketMask + 1) * BUCKET_SLOTS;
+    }
+
+    /**
+     * Keyed 64-bit fingerprint of a nonce (FNV-1a over the chars, seeded per store, followed by
+     * a MurmurHash3 finalizer).
+     */
+    long fingerprint(CharSequence nonce) {
+        long h = seed ^ 0xcbf29ce484222325L;
+        for (int i = 0, n = nonce.length(); i < n; i++) {
+            h ^= nonce.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Unregister from the expiry scheduler, if any. The store stays usable and falls back to lazy
+     * reuse of expired slots.
+     */
+    @Override
+    public synchronized void close() {
+        if (expiryRegistration != null && !closed) {
+            closed = true;
+            expiryRegistration.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryConsumedNonceStore{stripes=" + stripes.length + ", capacity=" + capacity() + "}";
+    }
+}
@@ -0,0 +1,314 @@
+package com.genpass.core.token;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Set of HMAC keys identified by short key ids, used by {@link KeyRingTokenService}.
+ *
+ * <p>Exactly one key is <em>active</em> and signs new tokens. Other keys are either
+ * <em>standby</em> (added ahead of a rotation, already accepted for verification) or
+ * <em>retired</em> (still accepted for verification until removed, never used for signing).</p>
+ *
+ * <p>The ring is copy-on-write: every mutation builds a new immutable snapshot and publishes it
+ * with a compare-and-set, so readers never lock and always see a consistent set of keys.
+ * Lookups by key id are O(1) and do not allocate. Each key keeps its own pooled
+ * {@link HmacEngine}, so engines survive rotations.</p>
+ *
+ * <p>Key ids are 1 to {@value #MAX_KEY_ID_LENGTH} characters from {@code [A-Za-z0-9_-]}.</p>
+ */
+public final class KeyRing {
+
+    /** Maximum length of a key id. */
+    public static final int MAX_KEY_ID_LENGTH = 8;
+
+    /**
+     * Lifecycle state of a key.
+     */
+    public enum KeyState {
+        /** Signs new tokens and verifies. */
+        ACTIVE,
+        /** Verifies only; may be activated later. */
+        STANDBY,
+        /** Verifies only; kept until removed. */
+        RETIRED
+    }
+
+    /**
+     * A key in the ring. Immutable.
+     */
+    static final class Entry {
+        final String keyId;
+        final String tokenPrefix;
+        final KeyState state;
+        final TokenCodec codec;
+
+        Entry(String keyId, KeyState state, TokenCodec codec) {
+            this.keyId = keyId;
+            this.tokenPrefix = keyId + ".";
+            this.state = state;
+            this.codec = codec;
+        }
+
+        Entry withState(KeyState newState) {
+            return newState == state ? this : new Entry(keyId, newState, codec);
+        }
+    }
+
+    /**
+     * Immutable view of the ring: an open-addressed table for id lookups plus the active entry.
+     */
+    static final class Snapshot {
+        final Entry[] entries;
+        final Entry[] table;
+        final Entry active;
+
+        Snapshot(Entry[] entries) {
+            this.entries = entries;
+            int size = Integer.highestOneBit(Math.max(2, entries.length * 2 - 1)) << 1;
+            this.table = new Entry[size];
+            Entry activeEntry = null;
+            for (Entry e : entries) {
+                int idx = hash(e.keyId, 0, e.keyId.length()) & (size - 1);
+                while (table[idx] != null) {
+                    idx = (idx + 1) & (size - 1);
+                }
+                table[idx] = e;
+                if (e.state == KeyState.ACTIVE) {
+                    activeEntry = e;
+                }
+            }
+            this.active = activeEntry;
+        }
+
+        /**
+         * Look up the key whose id equals {@code chars[start, end)}.
+         */
+        Entry find(CharSequence chars, int start, int end) {
+            int len = end - start;
+            if (len <= 0 || len > MAX_KEY_ID_LENGTH) {
+                return null;
+            }
+            int mask = table.length - 1;
+            for (int idx = hash(chars, start, end) & mask; ; idx = (idx + 1) & mask) {
+                Entry e = table[idx];
+                if (e == null) {
+                    return null;
+                }
+                if (e.keyId.length() == len && regionEquals(e.keyId, chars, start)) {
+                    return e;
+                }
+            }
+        }
+
+        Entry find(String keyId) {
+            return find(keyId, 0, keyId.length());
+        }
+
+        private static boolean regionEquals(String keyId, CharSequence chars, int start) {
+            for (int i = 0; i < keyId.length(); i++) {
+                if (keyId.charAt(i) != chars.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(CharSequence chars, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + chars.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private final AtomicReference<Snapshot> snapshot;
+    private final HmacEngine.Mode hmacMode;
+
+    /**
+     * Create a ring with a single active key.
+     *
+     * @param keyId  id of the initial key
+     * @param secret HMAC secret of the initial key (must not be null/empty)
+     */
+    public KeyRing(String keyId, byte[] secret) {
+        this(keyId, secret, HmacEngine.Mode.POOLED);
+    }
+
+    /**
+     * Create a ring with a single active key and an explicit HMAC engine mode for all keys.
+     */
+    public KeyRing(String keyId, byte[] secret, HmacEngine.Mode hmacMode) {
+        this.hmacMode = Objects.requireNonNull(hmacMode, "hmacMode");
+        this.snapshot = new AtomicReference<>(
+                new Snapshot(new Entry[]{newEntry(keyId, secret, KeyState.ACTIVE)}));
+    }
+
+    /**
+     * Add a standby key. It is accepted for verification immediately and can be
+     * {@link #activate(String) activated} later (e.g. once all instances know it).
+     *
+     * @throws IllegalArgumentException if the id is invalid or already present
+     */
+    public void add(String keyId, byte[] secret) {
+        Entry entry = newEntry(keyId, secret, KeyState.STANDBY);
+        update(current -> {
+            if (current.find(keyId) != null) {
+                throw new IllegalArgumentException("key id already present: " + keyId);
+            }
+            Entry[] next = Arrays.copyOf(current.entries, current.entries.length + 1);
+            next[next.length - 1] = entry;
+            return new Snapshot(next);
+        });
+    }
+
+    /**
+     * Make {@code keyId} the signing key. The previously active key is retired.
+     *
+     * @throws IllegalArgumentException if the key is unknown
+     */
+    public void activate(String keyId) {
+        update(current -> {
+            requirePresent(current, keyId);
+            Entry[] next = current.entries.clone();
+            for (int i = 0; i < next.length; i++) {
+                Entry e = next[i];
+                if (e.keyId.equals(keyId)) {
+                    next[i] = e.withState(KeyState.ACTIVE);
+                } else if (e.state == KeyState.ACTIVE) {
+                    next[i] = e.withState(KeyState.RETIRED);
+                }
+            }
+            return new Snapshot(next);
+        });
+    }
+
+    /**
+     * Retire a key: it keeps verifying existing tokens but never signs.
+     *
+     * @throws IllegalArgumentException if the key is unknown
+     * @throws IllegalStateException    if the key is the active key
+     */
+    public void retire(String keyId) {
+        update(current -> {
+            Entry e = requirePresent(current, keyId);
+            if (e.state == KeyState.ACTIVE) {
+                throw new IllegalStateException("cannot retire the active key; activate another key first");
+            }
+            return replace(current, e.withState(KeyState.RETIRED));
+        });
+    }
+
+    /**
+     * Remove a key; tokens signed with it no longer verify.
+     *
+     * @throws IllegalArgumentException if the key is unknown
+     * @throws IllegalStateException    if the key is the active key
+     */
+    public void remove(String keyId) {
+        update(current -> {
+            Entry e = requirePresent(current, keyId);
+            if (e.state == KeyState.ACTIVE) {
+                throw new IllegalStateException("cannot remove the active key; activate another key first");
+            }
+            List<Entry> next = new ArrayList<>(List.of(current.entries));
+            next.remove(e);
+            return new Snapshot(next.toArray(new Entry[0]));
+        });
+    }
+
+    /**
+     * @return id of the key currently used for signing
+     */
+    public String activeKeyId() {
+        return snapshot.get().active.keyId;
+    }
+
+    /**
+     * @return state of the given key, or {@code null} if it is not in the ring
+     */
+    public KeyState state(String keyId) {
+        Entry e = snapshot.get().find(Objects.requireNonNull(keyId, "keyId"));
+        return e == null ? null : e.state;
+    }
+
+    /**
+     * @return ids of all keys currently in the ring
+     */
+    public List<String> keyIds() {
+        Entry[] entries = snapshot.get().entries;
+        List<String> ids = new ArrayList<>(entries.length);
+        for (Entry e : entries) {
+            ids.add(e.keyId);
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    private void update(UnaryOperator<Snapshot> change) {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Snapshot next = change.apply(current);
+            if (snapshot.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static Entry requirePresent(Snapshot s, String keyId) {
+        Entry e = s.find(Objects.requireNonNull(keyId, "keyId"));
+        if (e == null) {
+            throw new IllegalArgumentException("unknown key id: " + keyId);
+        }
+        return e;
+    }
+
+    private static Snapshot replace(Snapshot s, Entry replacement) {
+        Entry[] next = s.entries.clone();
+        for (int i = 0; i < next.length; i++) {
+            if (next[i].keyId.equals(replacement.keyId)) {
+                next[i] = replacement;
+            }
+        }
+        return new Snapshot(next);
+    }
+
+    private Entry newEntry(String keyId, byte[] secret, KeyState state) {
+        validateKeyId(keyId);
+        if (secret == null || secret.length == 0) {
+            throw new IllegalArgumentException("secret must not be null or empty");
+        }
+        HmacEngine engine = hmacMode.create(new SecretKeySpec(secret, HmacEngine.ALGORITHM));
+        return new Entry(keyId, state, new TokenCodec(engine));
+    }
+
+    private static void validateKeyId(String keyId) {
+        Objects.requireNonNull(keyId, "keyId");
+        if (keyId.isEmpty() || keyId.length() > MAX_KEY_ID_LENGTH) {
+            throw new IllegalArgumentException("keyId must be 1.." + MAX_KEY_ID_LENGTH + " characters");
+        }
+        for (int i = 0; i < keyId.length(); i++) {
+            char c = keyId.charAt(i);
+            boolean ok = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            if (!ok) {
+                throw new IllegalArgumentException("keyId may only contain [A-Za-z0-9_-]");
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "KeyRing{active=" + activeKeyId() + ", keys=" + keyIds() + "}";
+    }
+}
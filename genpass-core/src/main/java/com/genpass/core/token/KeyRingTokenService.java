@@ -0,0 +1,163 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.metrics.MetricsRecorder;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Magic-link token service backed by a {@link KeyRing}, for deployments that rotate keys.
+ *
+ * <p>Tokens carry the id of the key that signed them in front of the regular magic-link
+ * token: {@code keyId.base64url(subject:expiry:nonce).base64url(hmac)}. On verification
+ * the key id selects the key directly, so verification always costs exactly one HMAC
+ * regardless of how many keys are live. The key id is not part of the signed payload;
+ * pointing a token at a different key simply makes its signature fail.</p>
+ *
+ * <p>Rotation is done on the ring while the service is in use:
+ * {@link KeyRing#add(String, byte[]) add} the new key everywhere, then
+ * {@link KeyRing#activate(String) activate} it, and {@link KeyRing#remove(String) remove}
+ * the old key once its tokens have expired.</p>
+ *
+ * <p>Reports the same metrics as {@link MagicLinkTokenService} to the given
+ * {@link MetricsRecorder}, by default {@link MetricsRecorder#shared()} (as of construction); a
+ * token naming a key that is not in the ring counts as a bad signature.</p>
+ */
+public final class KeyRingTokenService {
+
+    private final KeyRing keyRing;
+    private final TokenGenerator tokenGenerator;
+    private final int nonceByteLength;
+    private final TokenMetrics metrics;
+
+    /**
+     * Create a new KeyRingTokenService.
+     *
+     * @param keyRing         keys used for signing and verification (must not be null)
+     * @param tokenGenerator  token generator used to produce the nonce (if null a sensible default is used)
+     * @param nonceByteLength number of random bytes to include as nonce (recommended 16 or 32)
+     */
+    public KeyRingTokenService(KeyRing keyRing, TokenGenerator tokenGenerator, int nonceByteLength) {
+        this(keyRing, tokenGenerator, nonceByteLength, null);
+    }
+
+    /**
+     * Create a new KeyRingTokenService reporting to a specific metrics recorder.
+     *
+     * @param keyRing         keys used for signing and verification (must not be null)
+     * @param tokenGenerator  token generator used to produce the nonce (if null a sensible default is used)
+     * @param nonceByteLength number of random bytes to include as nonce (recommended 16 or 32)
+     * @param metrics         recorder for timings and outcome counts; {@link MetricsRecorder#shared()} when null
+     */
+    public KeyRingTokenService(KeyRing keyRing, TokenGenerator tokenGenerator, int nonceByteLength,
+                               MetricsRecorder metrics) {
+        if (nonceByteLength <= 0) {
+            throw new IllegalArgumentException("nonceByteLength must be > 0");
+        }
+        if (nonceByteLength > TokenCodec.MAX_NONCE_BYTES) {
+            throw new IllegalArgumentException("nonceByteLength must be <= " + TokenCodec.MAX_NONCE_BYTES);
+        }
+        this.keyRing = Objects.requireNonNull(keyRing, "keyRing");
+        this.tokenGenerator = tokenGenerator != null ? tokenGenerator : new TokenGenerator.Default();
+        this.nonceByteLength = nonceByteLength;
+        this.metrics = new TokenMetrics(metrics != null ? metrics : MetricsRecorder.shared());
+    }
+
+    /**
+     * Convenience constructor using a default TokenGenerator and a 32-byte nonce length.
+     */
+    public KeyRingTokenService(KeyRing keyRing) {
+        this(keyRing, new TokenGenerator.Default(), 32);
+    }
+
+    /**
+     * Create a token for a subject, signed with the ring's active key.
+     *
+     * @param subject the subject (e.g., user id or email) — must not contain ':' character
+     *                and must not exceed 1024 UTF-8 bytes
+     * @param ttl     time-to-live (duration). Must be positive.
+     * @return token prefixed with the signing key id
+     */
+    public String createToken(String subject, Duration ttl) {
+        Objects.requireNonNull(subject, "subject");
+        Objects.requireNonNull(ttl, "ttl");
+        if (subject.indexOf(':') >= 0) {
+            throw new IllegalArgumentException("subject must not contain ':'");
+        }
+        TokenCodec.checkSubject(subject);
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+
+        long start = metrics.start();
+        KeyRing.Entry active = keyRing.snapshot().active;
+        long expiry = Math.addExact(System.currentTimeMillis(), ttl.toMillis());
+        String nonce = tokenGenerator.generateToken(nonceByteLength);
+        String token = active.codec.encode(active.tokenPrefix, subject, expiry, nonce);
+        metrics.created(start);
+        return token;
+    }
+
+    /**
+     * Verify a token created by {@link #createToken(String, Duration)} with any key that is
+     * still in the ring (active, standby or retired).
+     *
+     * @param token token string
+     * @return Optional containing subject if verification and expiry checks pass; empty Optional otherwise.
+     * @throws GenPassCoreException when HMAC computation fails unexpectedly
+     * @see #verify(String)
+     */
+    public Optional<String> verifyToken(String token) {
+        return verify(token).validSubject();
+    }
+
+    /**
+     * Verify a token and report why it was rejected, see
+     * {@link MagicLinkTokenService#verify(String)}. A token naming a key that is not in the ring
+     * is {@link VerificationResult.Status#BAD_SIGNATURE}.
+     *
+     * @param token token string (may be null)
+     * @return {@link VerificationResult.Status#VALID}, {@code BAD_FORMAT}, {@code BAD_SIGNATURE}
+     * or {@code EXPIRED}
+     * @throws GenPassCoreException when HMAC computation fails unexpectedly
+     */
+    public VerificationResult verify(String token) {
+        long start = metrics.start();
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        int outcome = decode(token, decoded);
+        if (outcome == TokenCodec.OK && System.currentTimeMillis() > decoded.expiryEpochMilli) {
+            outcome = TokenMetrics.EXPIRED;
+        }
+        metrics.verified(start, outcome);
+        return VerificationResult.of(outcome, decoded);
+    }
+
+    private int decode(String token, TokenCodec.Decoded decoded) {
+        if (token == null) {
+            return TokenCodec.BAD_FORMAT;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return TokenCodec.BAD_FORMAT;
+        }
+        KeyRing.Entry entry = keyRing.snapshot().find(token, 0, dot);
+        if (entry == null) {
+            return TokenCodec.BAD_SIGNATURE; // unknown or removed key
+        }
+        return entry.codec.decode(token, dot + 1, decoded);
+    }
+
+    /**
+     * @return the key ring used by this service
+     */
+    public KeyRing keyRing() {
+        return keyRing;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyRingTokenService{nonceBytes=" + nonceByteLength + ", " + keyRing + "}";
+    }
+}
@@ -1,44 +1,75 @@
 package com.genpass.core.token;
 
 import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.metrics.MetricsRecorder;
+import com.genpass.core.random.RandomSource;
 
-import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjIntConsumer;
 
 /**
- * Simple stateless magic-link token service.
+ * Magic-link token service: stateless tokens, with optional single-use enforcement.
  *
  * <p>This service creates compact, URL-safe magic link tokens that contain a payload
  * and an HMAC-SHA256 signature. The payload is a UTF-8 string in the format:
  * {@code subject:expiryEpochMilli:nonce}, encoded using URL-safe Base64 (no padding),
- * then appended with '.' and the signature (URL-safe Base64 no padding).</p>
+ * then appended with '.' and the signature (URL-safe Base64 no padding). Encoding and
+ * parsing are done at the byte level by an internal codec that avoids intermediate strings.</p>
+ *
+ * <p>With {@link TokenFormat#V2} (see {@link Builder#format(TokenFormat)}) tokens are instead a
+ * single URL-safe Base64 string of a binary layout with a varint expiry in seconds, raw nonce
+ * bytes, a length-prefixed subject and an HMAC truncated to {@link Builder#macLength(int)} bytes.
+ * Verification dispatches by format, so V1 and V2 tokens are both accepted.</p>
  *
  * <p>Construction requires a secret key (byte array) used for HMAC-SHA256 signing.
+ * Signatures are computed by an {@link HmacEngine}; by default a pooled engine that reuses
+ * initialized {@code Mac} instances is used, see {@link HmacEngine.Mode}.
  * The service exposes {@link #createToken(String, Duration)} and
  * {@link #verifyToken(String)} which returns the subject if verification succeeds
- * and the token has not expired.</p>
+ * and the token has not expired; {@link #verify(String)} returns a
+ * {@link VerificationResult} telling expired, forged and malformed tokens apart.</p>
+ *
+ * <p>Issued tokens are never stored: everything needed to verify a token is inside it, so
+ * {@link #verify(String)} and {@link #verifyToken(String)} accept a valid token any number of
+ * times. For single-use links configure a {@link ConsumedNonceStore} with
+ * {@link Builder#consumedNonceStore(ConsumedNonceStore)}; {@link #verifyOnce(String)} and
+ * {@link #verifyAndConsume(String)} then record the nonce of each valid token until it expires
+ * and report a second use as {@link VerificationResult.Status#REPLAYED}. The store only holds
+ * consumed nonces, e.g. {@link InMemoryConsumedNonceStore} for a single instance; revocation of
+ * unused tokens still needs persistent storage in another module.</p>
  *
- * <p>Notes:
- * - This class is intentionally tiny and stateless: it does not store issued tokens.
- * - If you need revocation or single-use tokens, pair this with persistent storage
- *   in another module.</p>
+ * <p>Large batches go through {@link #createAll(Collection, Duration)} and
+ * {@link #verifyAll(Collection)}, which split the work into chunks processed in parallel on the
+ * builder's {@link Builder#batchExecutor(Executor) batch executor} (the common
+ * {@link ForkJoinPool} by default, or e.g. a virtual-thread executor), each worker signing with
+ * one {@code Mac} for all of its chunks.</p>
+ *
+ * <p>Creation and verification are timed and verification outcomes counted by reason
+ * (valid, bad format, bad signature, expired, replayed) through the builder's
+ * {@link MetricsRecorder}, by default {@link MetricsRecorder#shared()}.</p>
  */
 public final class MagicLinkTokenService {
 
-    private static final String HMAC_ALGORITHM = "HmacSHA256";
-    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
-    private static final Base64.Decoder URL_DECODER = Base64.getUrlDecoder();
-
-    private final SecretKeySpec hmacKey;
+    private final HmacEngine hmacEngine;
+    private final TokenCodec codec;
     private final TokenGenerator tokenGenerator;
+    /** Source of raw v2 nonces when no generator was configured, otherwise null. */
+    private final RandomSource nonceRandom;
     private final int nonceByteLength;
+    private final TokenFormat format;
+    private final ConsumedNonceStore consumedNonceStore;
+    private final TokenMetrics metrics;
+    private final BatchRunner batchRunner;
 
     /**
      * Create a new MagicLinkTokenService.
@@ -48,15 +79,24 @@ public final class MagicLinkTokenService {
      * @param nonceByteLength number of random bytes to include as nonce (recommended 16 or 32)
      */
     public MagicLinkTokenService(byte[] hmacSecret, TokenGenerator tokenGenerator, int nonceByteLength) {
-        if (hmacSecret == null || hmacSecret.length == 0) {
-            throw new IllegalArgumentException("hmacSecret must not be null or empty");
-        }
-        if (nonceByteLength <= 0) {
-            throw new IllegalArgumentException("nonceByteLength must be > 0");
-        }
-        this.hmacKey = new SecretKeySpec(hmacSecret, HMAC_ALGORITHM);
-        this.tokenGenerator = tokenGenerator != null ? tokenGenerator : new TokenGenerator.Default();
-        this.nonceByteLength = nonceByteLength;
+        this(hmacSecret, tokenGenerator, nonceByteLength, HmacEngine.Mode.POOLED);
+    }
+
+    /**
+     * Create a new MagicLinkTokenService with an explicit HMAC engine mode.
+     *
+     * @param hmacSecret      secret bytes used for HMAC-SHA256 signing (must not be null/empty)
+     * @param tokenGenerator  token generator used to produce the nonce (if null a sensible default is used)
+     * @param nonceByteLength number of random bytes to include as nonce (recommended 16 or 32)
+     * @param hmacMode        how {@code Mac} instances are obtained (must not be null)
+     */
+    public MagicLinkTokenService(byte[] hmacSecret, TokenGenerator tokenGenerator, int nonceByteLength,
+                                 HmacEngine.Mode hmacMode) {
+        this(builder()
+                .hmacSecret(hmacSecret)
+                .tokenGenerator(tokenGenerator)
+                .nonceByteLength(nonceByteLength)
+                .hmacMode(hmacMode));
     }
 
     /**
@@ -68,10 +108,43 @@ public final class MagicLinkTokenService {
         this(hmacSecret, new TokenGenerator.Default(), 32);
     }
 
+    private MagicLinkTokenService(Builder b) {
+        Objects.requireNonNull(b.hmacMode, "hmacMode");
+        if (b.hmacSecret == null || b.hmacSecret.length == 0) {
+            throw new IllegalArgumentException("hmacSecret must not be null or empty");
+        }
+        if (b.nonceByteLength <= 0) {
+            throw new IllegalArgumentException("nonceByteLength must be > 0");
+        }
+        if (b.nonceByteLength > TokenCodec.MAX_NONCE_BYTES) {
+            throw new IllegalArgumentException("nonceByteLength must be <= " + TokenCodec.MAX_NONCE_BYTES);
+        }
+        Objects.requireNonNull(b.format, "format");
+        if (b.batchParallelism < 0) {
+            throw new IllegalArgumentException("batchParallelism must be >= 0");
+        }
+        this.hmacEngine = b.hmacMode.create(new SecretKeySpec(b.hmacSecret, HmacEngine.ALGORITHM));
+        this.codec = new TokenCodec(hmacEngine, b.macLength);
+        this.tokenGenerator = b.tokenGenerator != null ? b.tokenGenerator : new TokenGenerator.Default();
+        this.nonceRandom = b.tokenGenerator == null ? RandomSource.shared() : null;
+        this.nonceByteLength = b.nonceByteLength;
+        this.format = b.format;
+        this.consumedNonceStore = b.consumedNonceStore;
+        this.metrics = new TokenMetrics(b.metrics != null ? b.metrics : MetricsRecorder.shared());
+        this.batchRunner = new BatchRunner(codec,
+                b.batchExecutor != null ? b.batchExecutor : ForkJoinPool.commonPool(),
+                b.batchParallelism > 0 ? b.batchParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
     /**
      * Create a token for a subject with a time-to-live.
      *
      * @param subject the subject (e.g., user id or email) — must not contain ':' character
+     *                and must not exceed 1024 UTF-8 bytes
      * @param ttl     time-to-live (duration). Must be positive.
      * @return a compact URL-safe token string
      */
@@ -81,22 +154,102 @@ public final class MagicLinkTokenService {
         if (subject.indexOf(':') >= 0) {
             throw new IllegalArgumentException("subject must not contain ':'");
         }
+        TokenCodec.checkSubject(subject);
         if (ttl.isNegative() || ttl.isZero()) {
             throw new IllegalArgumentException("ttl must be positive");
         }
 
-        long expiry = Instant.now().plus(ttl).toEpochMilli();
+        long start = metrics.start();
+        long expiry = Math.addExact(System.currentTimeMillis(), ttl.toMillis());
+        String token = encode(subject, expiry, null);
+        metrics.created(start);
+        return token;
+    }
+
+    private String encode(String subject, long expiry, TokenCodec.Macs macs) {
+        if (format == TokenFormat.V2) {
+            return codec.encodeV2(null, subject, expiry, rawNonce(), macs);
+        }
         // nonce: produce a URL-safe Base64 string with the desired entropy
-        String nonce = tokenGenerator.generateToken(nonceByteLength);
+        return codec.encode(null, subject, expiry, tokenGenerator.generateToken(nonceByteLength), macs);
+    }
 
-        String payloadPlain = subject + ":" + expiry + ":" + nonce;
-        byte[] payloadBytes = payloadPlain.getBytes(StandardCharsets.UTF_8);
-        String payloadEncoded = URL_ENCODER.encodeToString(payloadBytes);
+    /**
+     * Nonce bytes for v2 tokens: drawn directly when the default generator is in use, otherwise
+     * the configured generator's token, Base64-decoded when it is canonical Base64url.
+     */
+    private byte[] rawNonce() {
+        if (nonceRandom != null) {
+            byte[] nonce = new byte[nonceByteLength];
+            nonceRandom.nextBytes(nonce);
+            return nonce;
+        }
+        String token = tokenGenerator.generateToken(nonceByteLength);
+        int len = TokenCodec.decodedLength(token.length());
+        if (len > 0) {
+            byte[] nonce = new byte[len];
+            if (TokenCodec.decode(token, 0, token.length(), nonce, 0) == len) {
+                return nonce;
+            }
+        }
+        return token.getBytes(StandardCharsets.UTF_8);
+    }
 
-        byte[] signature = hmac(payloadBytes);
-        String signatureEncoded = URL_ENCODER.encodeToString(signature);
+    /**
+     * Create one token per subject, all with the same expiry, in parallel.
+     *
+     * @param subjects subjects (none null or containing ':')
+     * @param ttl      time-to-live, must be positive
+     * @return tokens in the iteration order of {@code subjects} (unmodifiable)
+     * @see #createAll(Collection, Duration, BatchOrder, ObjIntConsumer)
+     */
+    public List<String> createAll(Collection<String> subjects, Duration ttl) {
+        return createAll(subjects, ttl, BatchOrder.UNORDERED, null);
+    }
+
+    /**
+     * Create one token per subject, streaming each token to {@code sink} together with the
+     * index of its subject as soon as its chunk is done. Subjects are validated before any
+     * token is created.
+     *
+     * @param subjects subjects (none null or containing ':')
+     * @param ttl      time-to-live, must be positive
+     * @param order    order in which tokens reach {@code sink}
+     * @param sink     receives {@code (token, index)} on the calling thread; may be null
+     * @return tokens in the iteration order of {@code subjects} (unmodifiable)
+     * @throws GenPassCoreException when HMAC computation fails or the calling thread is interrupted
+     */
+    public List<String> createAll(Collection<String> subjects, Duration ttl, BatchOrder order,
+                                  ObjIntConsumer<String> sink) {
+        Objects.requireNonNull(subjects, "subjects");
+        Objects.requireNonNull(ttl, "ttl");
+        Objects.requireNonNull(order, "order");
+        String[] input = subjects.toArray(new String[0]);
+        for (String subject : input) {
+            Objects.requireNonNull(subject, "subject");
+            if (subject.indexOf(':') >= 0) {
+                throw new IllegalArgumentException("subject must not contain ':'");
+            }
+            TokenCodec.checkSubject(subject);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
 
-        return payloadEncoded + "." + signatureEncoded;
+        long start = metrics.start();
+        long expiry = Math.addExact(System.currentTimeMillis(), ttl.toMillis());
+        String[] tokens = new String[input.length];
+        batchRunner.run(input.length, (from, to, macs) -> {
+            for (int i = from; i < to; i++) {
+                tokens[i] = encode(input[i], expiry, macs);
+            }
+        }, order, sink == null ? null : (from, to) -> {
+            for (int i = from; i < to; i++) {
+                sink.accept(tokens[i], i);
+            }
+        });
+        metrics.createdAll(start, input.length);
+        return Collections.unmodifiableList(Arrays.asList(tokens));
     }
 
     /**
@@ -104,69 +257,237 @@ public final class MagicLinkTokenService {
      *
      * @param token token string
      * @return Optional containing subject if verification and expiry checks pass; empty Optional otherwise.
-     * @throws GenPassCoreException when a token is malformed or HMAC computation fails unexpectedly
+     * @throws GenPassCoreException when HMAC computation fails unexpectedly
+     * @see #verify(String)
      */
     public Optional<String> verifyToken(String token) {
-        if (token == null || token.isBlank()) {
-            return Optional.empty();
+        return verify(token).validSubject();
+    }
+
+    /**
+     * Verify a token created by {@link #createToken(String, Duration)} and report why it was
+     * rejected. Length, separators, Base64 and the expiry field are checked before the HMAC is
+     * computed, and the signature comparison is constant-time; the expiry itself is only
+     * compared after the signature, so {@link VerificationResult.Status#EXPIRED} always refers
+     * to an authentic token.
+     *
+     * @param token token string (may be null)
+     * @return {@link VerificationResult.Status#VALID}, {@code BAD_FORMAT}, {@code BAD_SIGNATURE}
+     * or {@code EXPIRED}
+     * @throws GenPassCoreException when HMAC computation fails unexpectedly
+     */
+    public VerificationResult verify(String token) {
+        long start = metrics.start();
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        int outcome = codec.decode(token, decoded);
+        if (outcome == TokenCodec.OK && System.currentTimeMillis() > decoded.expiryEpochMilli) {
+            outcome = TokenMetrics.EXPIRED;
+        }
+        metrics.verified(start, outcome);
+        return VerificationResult.of(outcome, decoded);
+    }
+
+    /**
+     * Verify many tokens in parallel, as {@link #verify(String)} does for one.
+     *
+     * @param tokens tokens (elements may be null)
+     * @return results indexed in the iteration order of {@code tokens}
+     * @see #verifyAll(Collection, BatchOrder, ObjIntConsumer)
+     */
+    public VerificationBatch verifyAll(Collection<String> tokens) {
+        return verifyAll(tokens, BatchOrder.UNORDERED, null);
+    }
+
+    /**
+     * Verify many tokens in parallel, streaming each result to {@code sink} together with the
+     * index of its token as soon as its chunk is done.
+     *
+     * @param tokens tokens (elements may be null)
+     * @param order  order in which results reach {@code sink}
+     * @param sink   receives {@code (result, index)} on the calling thread; may be null
+     * @return results indexed in the iteration order of {@code tokens}
+     * @throws GenPassCoreException when HMAC computation fails or the calling thread is interrupted
+     */
+    public VerificationBatch verifyAll(Collection<String> tokens, BatchOrder order,
+                                       ObjIntConsumer<VerificationResult> sink) {
+        Objects.requireNonNull(tokens, "tokens");
+        Objects.requireNonNull(order, "order");
+        String[] input = tokens.toArray(new String[0]);
+
+        long start = metrics.start();
+        VerificationBatch batch = new VerificationBatch(input.length);
+        batchRunner.run(input.length, (from, to, macs) -> verifyRange(input, from, to, macs, batch),
+                order, sink == null ? null : (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        sink.accept(batch.result(i), i);
+                    }
+                });
+        metrics.verifiedAll(start, batch);
+        return batch;
+    }
+
+    private void verifyRange(String[] tokens, int from, int to, TokenCodec.Macs macs, VerificationBatch batch) {
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        long now = System.currentTimeMillis();
+        for (int i = from; i < to; i++) {
+            int outcome = codec.decode(tokens[i], 0, decoded, macs);
+            if (outcome == TokenCodec.OK && now > decoded.expiryEpochMilli) {
+                outcome = TokenMetrics.EXPIRED;
+            }
+            batch.set(i, outcome, decoded);
+        }
+    }
+
+    /**
+     * Verify a token and consume its nonce in one step, so that each token is accepted at most
+     * once. Requires a {@link ConsumedNonceStore} to be configured on the builder.
+     *
+     * @param token token string
+     * @return Optional containing subject if the token is authentic, unexpired and seen for the
+     * first time; empty Optional otherwise (including replays and tokens without a nonce).
+     * @throws IllegalStateException when no consumed-nonce store is configured
+     * @throws GenPassCoreException  when HMAC computation or the store fails unexpectedly
+     * @see #verifyOnce(String)
+     */
+    public Optional<String> verifyAndConsume(String token) {
+        return verifyOnce(token).validSubject();
+    }
+
+    /**
+     * Like {@link #verifyAndConsume(String)}, reporting why a token was rejected. The nonce is
+     * consumed only when the token is authentic and unexpired; a token without a nonce is
+     * {@code BAD_FORMAT}.
+     *
+     * @param token token string (may be null)
+     * @return any {@link VerificationResult.Status}
+     * @throws IllegalStateException when no consumed-nonce store is configured
+     * @throws GenPassCoreException  when HMAC computation or the store fails unexpectedly
+     */
+    public VerificationResult verifyOnce(String token) {
+        if (consumedNonceStore == null) {
+            throw new IllegalStateException("verifyAndConsume requires a ConsumedNonceStore");
+        }
+        long start = metrics.start();
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        decoded.captureNonce = true;
+        int outcome = codec.decode(token, decoded);
+        if (outcome == TokenCodec.OK) {
+            if (decoded.nonce == null) {
+                outcome = TokenCodec.BAD_FORMAT;
+            } else if (System.currentTimeMillis() > decoded.expiryEpochMilli) {
+                outcome = TokenMetrics.EXPIRED;
+            } else if (!consumedNonceStore.tryConsume(decoded.nonce, decoded.expiryEpochMilli)) {
+                outcome = TokenMetrics.REPLAYED;
+            }
         }
-        int dot = token.indexOf('.');
-        if (dot < 0) {
-            return Optional.empty();
+        metrics.verified(start, outcome);
+        return VerificationResult.of(outcome, decoded);
+    }
+
+    @Override
+    public String toString() {
+        return "MagicLinkTokenService{format=" + format + ", nonceBytes=" + nonceByteLength + ", hmac=" + hmacEngine + "}";
+    }
+
+    /**
+     * Fluent builder for MagicLinkTokenService.
+     */
+    public static final class Builder {
+
+        private byte[] hmacSecret;
+        private TokenGenerator tokenGenerator;
+        private int nonceByteLength = 32;
+        private TokenFormat format = TokenFormat.V1;
+        private int macLength = TokenCodec.MIN_MAC_LENGTH;
+        private HmacEngine.Mode hmacMode = HmacEngine.Mode.POOLED;
+        private ConsumedNonceStore consumedNonceStore;
+        private MetricsRecorder metrics;
+        private Executor batchExecutor;
+        private int batchParallelism;
+
+        private Builder() {
         }
-        String payloadEncoded = token.substring(0, dot);
-        String signatureEncoded = token.substring(dot + 1);
 
-        byte[] payloadBytes;
-        byte[] signatureBytes;
-        try {
-            payloadBytes = URL_DECODER.decode(payloadEncoded);
-            signatureBytes = URL_DECODER.decode(signatureEncoded);
-        } catch (IllegalArgumentException e) {
-            // invalid Base64 input
-            return Optional.empty();
+        /** Secret bytes used for HMAC-SHA256 signing (required). */
+        public Builder hmacSecret(byte[] hmacSecret) {
+            this.hmacSecret = hmacSecret;
+            return this;
         }
 
-        // Verify signature using constant-time comparison
-        byte[] expectedSig = hmac(payloadBytes);
-        if (!MessageDigest.isEqual(expectedSig, signatureBytes)) {
-            return Optional.empty();
+        /**
+         * Nonce generator; a default one is used when null. A started {@link TokenPool} with
+         * the same byte length as {@link #nonceByteLength(int)} serves nonces pre-generated.
+         */
+        public Builder tokenGenerator(TokenGenerator tokenGenerator) {
+            this.tokenGenerator = tokenGenerator;
+            return this;
         }
 
-        // Parse payload: subject:expiry:nonce
-        String payload = new String(payloadBytes, StandardCharsets.UTF_8);
-        String[] parts = payload.split(":", 3);
-        if (parts.length < 2) { // must have at least subject:expiry
-            return Optional.empty();
+        /** Number of random nonce bytes, at most 256 (default 32). */
+        public Builder nonceByteLength(int nonceByteLength) {
+            this.nonceByteLength = nonceByteLength;
+            return this;
         }
-        String subject = parts[0];
-        String expiryStr = parts[1];
-        long expiryMillis;
-        try {
-            expiryMillis = Long.parseLong(expiryStr);
-        } catch (NumberFormatException e) {
-            return Optional.empty();
+
+        /** Format of created tokens (default {@link TokenFormat#V1}); all formats verify. */
+        public Builder format(TokenFormat format) {
+            this.format = format;
+            return this;
         }
-        long now = Instant.now().toEpochMilli();
-        if (now > expiryMillis) {
-            return Optional.empty(); // expired
+
+        /**
+         * Bytes of the HMAC kept in {@link TokenFormat#V2} tokens, 16 to 32 (default 16);
+         * V1 tokens always carry all 32. V2 tokens verify only with the MAC length they were
+         * created with, so changing it invalidates outstanding V2 links.
+         */
+        public Builder macLength(int macLength) {
+            this.macLength = macLength;
+            return this;
         }
-        return Optional.of(subject);
-    }
 
-    private byte[] hmac(byte[] payload) {
-        try {
-            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-            mac.init(hmacKey);
-            return mac.doFinal(payload);
-        } catch (Exception ex) {
-            throw new GenPassCoreException("Failed to compute HMAC-SHA256", ex);
+        /** How {@code Mac} instances are obtained (default {@link HmacEngine.Mode#POOLED}). */
+        public Builder hmacMode(HmacEngine.Mode hmacMode) {
+            this.hmacMode = hmacMode;
+            return this;
         }
-    }
 
-    @Override
-    public String toString() {
-        return "MagicLinkTokenService{nonceBytes=" + nonceByteLength + "}";
+        /**
+         * Store enabling {@link MagicLinkTokenService#verifyAndConsume(String)} and
+         * {@link MagicLinkTokenService#verifyOnce(String)}; optional.
+         */
+        public Builder consumedNonceStore(ConsumedNonceStore consumedNonceStore) {
+            this.consumedNonceStore = consumedNonceStore;
+            return this;
+        }
+
+        /** Recorder for timings and outcome counts; {@link MetricsRecorder#shared()} when null. */
+        public Builder metrics(MetricsRecorder metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Executor running the helper tasks of {@link MagicLinkTokenService#createAll} and
+         * {@link MagicLinkTokenService#verifyAll}; the common {@link ForkJoinPool} when null.
+         * A virtual-thread-per-task executor works as well. The calling thread always takes
+         * part, so a busy executor only reduces parallelism.
+         */
+        public Builder batchExecutor(Executor batchExecutor) {
+            this.batchExecutor = batchExecutor;
+            return this;
+        }
+
+        /**
+         * Maximum number of threads, caller included, working on one batch; 0 (default) means
+         * the number of available processors.
+         */
+        public Builder batchParallelism(int batchParallelism) {
+            this.batchParallelism = batchParallelism;
+            return this;
+        }
+
+        public MagicLinkTokenService build() {
+            return new MagicLinkTokenService(this);
+        }
     }
 }
-
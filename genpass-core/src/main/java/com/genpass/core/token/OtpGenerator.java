@@ -1,42 +1,86 @@
 package com.genpass.core.token;
 
-import java.security.SecureRandom;
+import com.genpass.core.metrics.MetricsRecorder;
+import com.genpass.core.random.RandomSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Interface for generating one-time passwords (OTPs).
  *
- * <p>Implementations should return numeric-only OTP strings suitable for sending
- * over SMS or email. The default generator included here returns 6-digit numeric
- * OTPs with leading zeros when necessary.</p>
+ * <p>Implementations should return OTP strings suitable for sending over SMS or email.
+ * The default generator included here returns 6-digit numeric OTPs with leading zeros
+ * when necessary; {@link Configurable} supports other lengths and alphabets.</p>
+ *
+ * <p>Both implementations time generation and count codes through the
+ * {@link MetricsRecorder#shared()} recorder that is current when they are constructed.</p>
  */
 public interface OtpGenerator {
 
     /**
      * Generate a one-time password (OTP) as a string.
      *
-     * @return OTP string (numeric). Implementations in this module produce 6-digit codes.
+     * @return OTP string. {@link Default} produces 6-digit numeric codes.
      */
     String generateOtp();
 
     /**
-     * Default implementation producing numeric 6-digit OTPs using {@link SecureRandom}.
+     * Generate several OTPs at once, e.g. to pre-generate codes ahead of a send burst.
+     *
+     * @param n number of codes (must be &gt;= 0)
+     * @return list of {@code n} codes
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    default List<String> generateOtps(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be >= 0");
+        }
+        List<String> codes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            codes.add(generateOtp());
+        }
+        return codes;
+    }
+
+    /**
+     * Default implementation producing numeric 6-digit OTPs from a {@link RandomSource}
+     * (by default {@link RandomSource#shared()}).
      */
     final class Default implements OtpGenerator {
-        private static final SecureRandom RANDOM = new SecureRandom();
         private static final int DIGITS = 6;
-        private static final int UPPER_BOUND = (int) Math.pow(10, DIGITS); // 1_000_000
+        private static final int UPPER_BOUND = 1_000_000;
+
+        private final RandomSource random;
+        private final OtpMetrics metrics = new OtpMetrics(MetricsRecorder.shared());
 
         /**
-         * Construct a default OTP generator.
+         * Construct a default OTP generator using the shared random source.
          */
         public Default() {
-            // no-op
+            this(RandomSource.shared());
+        }
+
+        /**
+         * Construct a default OTP generator drawing from the given random source.
+         */
+        public Default(RandomSource random) {
+            this.random = Objects.requireNonNull(random, "random");
         }
 
         @Override
         public String generateOtp() {
-            int value = RANDOM.nextInt(UPPER_BOUND); // 0 .. 999_999
-            return String.format("%0" + DIGITS + "d", value);
+            long start = metrics.start();
+            int value = random.nextInt(UPPER_BOUND); // 0 .. 999_999
+            char[] code = new char[DIGITS];
+            for (int i = DIGITS - 1; i >= 0; i--) {
+                code[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+            String otp = new String(code);
+            metrics.generated(start, 1);
+            return otp;
         }
 
         @Override
@@ -44,5 +88,155 @@ public interface OtpGenerator {
             return "OtpGenerator.Default(6-digit)";
         }
     }
-}
 
+    /**
+     * OTP generator with a configurable length and alphabet.
+     *
+     * <p>Codes are written character by character into a {@code char[]}. Each character is
+     * drawn from one random byte using rejection sampling: bytes at or above the largest
+     * multiple of the alphabet size are discarded, so every character is equally likely
+     * (no modulo bias).</p>
+     *
+     * <p>Instances are immutable and thread-safe.</p>
+     */
+    final class Configurable implements OtpGenerator {
+
+        /** Decimal digits. */
+        public static final String DIGITS = "0123456789";
+
+        /**
+         * Upper-case letters and digits without the easily confused {@code 0 O 1 I}.
+         */
+        public static final String ALPHANUMERIC = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ";
+
+        /** Shortest numeric code accepted by {@link #numeric(int)}. */
+        public static final int MIN_NUMERIC_LENGTH = 4;
+        /** Longest numeric code accepted by {@link #numeric(int)}. */
+        public static final int MAX_NUMERIC_LENGTH = 10;
+        /** Longest code accepted for any alphabet. */
+        public static final int MAX_LENGTH = 64;
+
+        private final RandomSource random;
+        private final char[] alphabet;
+        private final int length;
+        /** Random bytes at or above this value are rejected. */
+        private final int limit;
+        private final OtpMetrics metrics = new OtpMetrics(MetricsRecorder.shared());
+
+        /**
+         * Create a generator using the shared random source.
+         *
+         * @param alphabet characters to draw from: 2 to 256 distinct characters
+         * @param length   code length (1 to {@value #MAX_LENGTH})
+         */
+        public Configurable(String alphabet, int length) {
+            this(alphabet, length, RandomSource.shared());
+        }
+
+        /**
+         * Create a generator drawing from the given random source.
+         */
+        public Configurable(String alphabet, int length, RandomSource random) {
+            this.random = Objects.requireNonNull(random, "random");
+            Objects.requireNonNull(alphabet, "alphabet");
+            if (alphabet.length() < 2 || alphabet.length() > 256) {
+                throw new IllegalArgumentException("alphabet must contain 2..256 characters");
+            }
+            if (alphabet.chars().distinct().count() != alphabet.length()) {
+                throw new IllegalArgumentException("alphabet must not contain duplicate characters");
+            }
+            if (length <= 0 || length > MAX_LENGTH) {
+                throw new IllegalArgumentException("length must be between 1 and " + MAX_LENGTH);
+            }
+            this.alphabet = alphabet.toCharArray();
+            this.length = length;
+            this.limit = 256 - 256 % alphabet.length();
+        }
+
+        /**
+         * @param digits code length, {@value #MIN_NUMERIC_LENGTH} to {@value #MAX_NUMERIC_LENGTH}
+         * @return generator for numeric codes
+         */
+        public static Configurable numeric(int digits) {
+            if (digits < MIN_NUMERIC_LENGTH || digits > MAX_NUMERIC_LENGTH) {
+                throw new IllegalArgumentException(
+                        "digits must be between " + MIN_NUMERIC_LENGTH + " and " + MAX_NUMERIC_LENGTH);
+            }
+            return new Configurable(DIGITS, digits);
+        }
+
+        /**
+         * @param length code length
+         * @return generator for codes from {@link #ALPHANUMERIC}
+         */
+        public static Configurable alphanumeric(int length) {
+            return new Configurable(ALPHANUMERIC, length);
+        }
+
+        @Override
+        public String generateOtp() {
+            long start = metrics.start();
+            char[] code = new char[length];
+            fill(code, 0, length, newRandomBytes(length));
+            String otp = new String(code);
+            metrics.generated(start, 1);
+            return otp;
+        }
+
+        /**
+         * Generates all codes from one shared random buffer and character array.
+         */
+        @Override
+        public List<String> generateOtps(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("n must be >= 0");
+            }
+            long start = metrics.start();
+            int total = Math.multiplyExact(n, length);
+            char[] chars = new char[total];
+            fill(chars, 0, total, newRandomBytes(total));
+            List<String> codes = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                codes.add(new String(chars, i * length, length));
+            }
+            metrics.generated(start, n);
+            return codes;
+        }
+
+        /**
+         * Random bytes for {@code count} characters, plus headroom for the expected rejections.
+         */
+        private byte[] newRandomBytes(int count) {
+            byte[] bytes = new byte[count + count * (256 - limit) / limit + 8];
+            random.nextBytes(bytes);
+            return bytes;
+        }
+
+        private void fill(char[] out, int from, int to, byte[] buffer) {
+            int n = alphabet.length;
+            int r = 0;
+            for (int i = from; i < to; ) {
+                if (r == buffer.length) {
+                    random.nextBytes(buffer);
+                    r = 0;
+                }
+                int b = buffer[r++] & 0xFF;
+                if (b < limit) {
+                    out[i++] = alphabet[b % n];
+                }
+            }
+        }
+
+        /**
+         * @return code length
+         */
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return "OtpGenerator.Configurable(" + length + " chars, alphabet size " + alphabet.length + ")";
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.genpass.core.token;
+
+import com.genpass.core.metrics.MetricsRecorder;
+
+/**
+ * Timer {@code genpass.otp.generate} (one record per call, batches included) and counter
+ * {@code genpass.otp.generated} (codes produced) of the {@link OtpGenerator} implementations.
+ */
+final class OtpMetrics {
+
+    private final boolean enabled;
+    private final MetricsRecorder.Timer timer;
+    private final MetricsRecorder.Counter generated;
+
+    OtpMetrics(MetricsRecorder recorder) {
+        this.enabled = recorder.isEnabled();
+        this.timer = recorder.timer("genpass.otp.generate");
+        this.generated = recorder.counter("genpass.otp.generated");
+    }
+
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void generated(long start, int codes) {
+        if (enabled) {
+            timer.recordSince(start);
+            generated.add(codes);
+        }
+    }
+}
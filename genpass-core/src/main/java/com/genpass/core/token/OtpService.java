@@ -0,0 +1,528 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.expiry.ExpiryScheduler;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Server-side OTP issuing and verification with per-code attempt limits.
+ *
+ * <p>Codes are keyed by {@code (subject, purpose)}: issuing a new code for the same pair replaces
+ * the previous one. Only a peppered 64-bit HMAC of each code is stored, and codes are compared
+ * in constant time. A successful verification consumes the code; every failed attempt counts
+ * against {@code maxAttempts}, after which the code is unusable.</p>
+ *
+ * <p>State lives in striped primitive arrays (three {@code long}s per slot: key fingerprint,
+ * code hash and a packed expiry/attempt word), so about one million outstanding codes take
+ * roughly 48 MB and no object is allocated per code. Verification never locks: attempts are
+ * counted and codes consumed with compare-and-set on the packed word. No call waits for a slot
+ * another thread is writing; it is treated as taken, and a code being replaced reads as
+ * {@link Result#NOT_FOUND}. Expired slots are reused by later issues; an optional
+ * {@link ExpiryScheduler} clears them eagerly.</p>
+ *
+ * <p>Two concurrent {@link #issue} calls for the same pair may invalidate each other; the caller
+ * simply issues again. The store is bounded: if both candidate buckets of a key are full of live
+ * codes, {@link #issue} throws {@link GenPassCoreException}.</p>
+ *
+ * <p>A service built with an {@link ExpiryScheduler} holds a registration on it; {@link #close()}
+ * the service when it is discarded, otherwise the scheduler keeps it and its slot arrays reachable
+ * and keeps firing its expiries. Services without a scheduler need no closing.</p>
+ */
+public final class OtpService implements AutoCloseable {
+
+    /**
+     * Outcome of {@link #verify(String, String, String)}.
+     */
+    public enum Result {
+        /** Code matched and has been consumed. */
+        VALID,
+        /** Code did not match; one attempt was used. */
+        INVALID,
+        /** The code for this subject/purpose has expired. */
+        EXPIRED,
+        /** The attempt limit was reached; a new code must be issued. */
+        TOO_MANY_ATTEMPTS,
+        /** No code is outstanding for this subject/purpose (never issued, used or invalidated). */
+        NOT_FOUND
+    }
+
+    private static final int BUCKET_SLOTS = 8;
+    private static final int WORDS = 3;
+    private static final long RESERVED = -1L;
+    private static final long RELEASED = 1L;
+    private static final int ATTEMPT_BITS = 8;
+    private static final long ATTEMPT_MASK = (1L << ATTEMPT_BITS) - 1;
+
+    private final OtpGenerator generator;
+    private final long ttlMillis;
+    private final int maxAttempts;
+    private final HmacEngine pepper;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final int bucketMask;
+    private final ExpiryScheduler.Registration expiryRegistration;
+    private volatile boolean closed;
+
+    private OtpService(Builder b) {
+        Objects.requireNonNull(b.ttl, "ttl");
+        if (b.ttl.isNegative() || b.ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (b.maxAttempts <= 0 || b.maxAttempts > ATTEMPT_MASK) {
+            throw new IllegalArgumentException("maxAttempts must be between 1 and " + ATTEMPT_MASK);
+        }
+        if (b.expectedOutstandingCodes <= 0) {
+            throw new IllegalArgumentException("expectedOutstandingCodes must be > 0");
+        }
+        byte[] secret = b.pepper;
+        if (secret == null) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else if (secret.length == 0) {
+            throw new IllegalArgumentException("pepper must not be empty");
+        }
+        this.generator = b.generator != null ? b.generator : new OtpGenerator.Default();
+        this.ttlMillis = b.ttl.toMillis();
+        this.maxAttempts = b.maxAttempts;
+        this.pepper = new HmacEngine.Pooled(new SecretKeySpec(secret, HmacEngine.ALGORITHM));
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        long totalSlots = Math.max((long) b.expectedOutstandingCodes * 2, (long) stripeCount * BUCKET_SLOTS * 2);
+        int bucketsPerStripe = (int) Math.min(1 << 24,
+                Long.highestOneBit(Math.max(1, totalSlots / stripeCount / BUCKET_SLOTS - 1)) << 1);
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(bucketsPerStripe * BUCKET_SLOTS * WORDS);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.bucketMask = bucketsPerStripe - 1;
+        this.expiryRegistration = b.expiryScheduler == null ? null : b.expiryScheduler.register(this::evict);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Issue a new code for {@code (subject, purpose)}, replacing any outstanding one.
+     *
+     * @param subject user id or address (must not be null)
+     * @param purpose what the code is for, e.g. {@code "login"} (must not be null)
+     * @return the plain code to deliver to the user
+     * @throws GenPassCoreException if the store is full
+     */
+    public String issue(String subject, String purpose) {
+        long key = keyFingerprint(subject, purpose);
+        String code = generator.generateOtp();
+        long hash = codeHash(key, code);
+        long now = System.currentTimeMillis();
+        long expiry = Math.addExact(now, ttlMillis);
+        long state = expiry << ATTEMPT_BITS;
+
+        AtomicLongArray words = stripe(key);
+        int b1 = firstBucket(key);
+        int b2 = secondBucket(key);
+        while (true) {
+            // replace the outstanding code for this key in place
+            int existing = findLive(words, b1, b2, key, now);
+            if (existing >= 0) {
+                long current = stateAt(words, existing);
+                if (isLive(current, now) && words.get(existing * WORDS) == key
+                        && words.compareAndSet(existing * WORDS + 2, current, RESERVED)) {
+                    words.set(existing * WORDS + 1, hash);
+                    words.set(existing * WORDS + 2, state);
+                    // a concurrent issue may have skipped this slot while it was reserved
+                    releaseOtherCopies(words, b1, b2, existing, key, now);
+                    schedule(key, expiry);
+                    return code;
+                }
+                continue;
+            }
+
+            int target = findFree(words, b1, b2, now);
+            if (target < 0) {
+                throw new GenPassCoreException("OtpService is full; increase expectedOutstandingCodes");
+            }
+            long free = stateAt(words, target);
+            if (free == RESERVED || isLive(free, now) || !words.compareAndSet(target * WORDS + 2, free, RESERVED)) {
+                continue;
+            }
+            words.set(target * WORDS, key);
+            words.set(target * WORDS + 1, hash);
+            words.set(target * WORDS + 2, state);
+            releaseOtherCopies(words, b1, b2, target, key, now);
+            schedule(key, expiry);
+            return code;
+        }
+    }
+
+    /**
+     * Verify a code. A match consumes the code; a mismatch uses up one attempt.
+     *
+     * @return verification outcome
+     */
+    public Result verify(String subject, String purpose, String code) {
+        Objects.requireNonNull(code, "code");
+        long key = keyFingerprint(subject, purpose);
+        AtomicLongArray words = stripe(key);
+        long now = System.currentTimeMillis();
+
+        int slot = findKey(words, firstBucket(key), secondBucket(key), key, now);
+        if (slot < 0) {
+            return Result.NOT_FOUND;
+        }
+        long hash = codeHash(key, code);
+        while (true) {
+            long state = stateAt(words, slot);
+            if (words.get(slot * WORDS) != key || state == 0 || state == RELEASED || state == RESERVED) {
+                return Result.NOT_FOUND; // gone, or being replaced by a new code
+            }
+            if (!isLive(state, now)) {
+                return Result.EXPIRED;
+            }
+            if ((state & ATTEMPT_MASK) >= maxAttempts) {
+                return Result.TOO_MANY_ATTEMPTS;
+            }
+            // count the attempt before comparing so that parallel guesses cannot exceed the limit
+            long counted = state + 1;
+            if (!words.compareAndSet(slot * WORDS + 2, state, counted)) {
+                continue;
+            }
+            if ((words.get(slot * WORDS + 1) ^ hash) != 0) {
+                return Result.INVALID;
+            }
+            return consume(words, slot, counted) ? Result.VALID : Result.INVALID;
+        }
+    }
+
+    /**
+     * Drop the outstanding code for {@code (subject, purpose)}, if any.
+     */
+    public void invalidate(String subject, String purpose) {
+        long key = keyFingerprint(subject, purpose);
+        AtomicLongArray words = stripe(key);
+        int b1 = firstBucket(key);
+        int b2 = secondBucket(key);
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = slotAt(b1, b2, i);
+            if (slot < 0) {
+                continue;
+            }
+            long state = stateAt(words, slot);
+            if (state > RELEASED && words.get(slot * WORDS) == key) {
+                words.compareAndSet(slot * WORDS + 2, state, RELEASED);
+            }
+        }
+    }
+
+    /**
+     * Mark the code consumed unless it was replaced in the meantime. Concurrent failed attempts
+     * may bump the attempt counter, so retry while the expiry part is unchanged.
+     */
+    private static boolean consume(AtomicLongArray words, int slot, long seen) {
+        long state = seen;
+        while ((state >>> ATTEMPT_BITS) == (seen >>> ATTEMPT_BITS)) {
+            if (words.compareAndSet(slot * WORDS + 2, state, RELEASED)) {
+                return true;
+            }
+            state = stateAt(words, slot);
+        }
+        return false;
+    }
+
+    private void schedule(long key, long expiry) {
+        if (expiryRegistration != null && !closed) {
+            try {
+                expiryRegistration.schedule(key, expiry);
+            } catch (IllegalStateException e) {
+                // closed concurrently: the slot is reused lazily once it expires
+            }
+        }
+    }
+
+    /**
+     * Unregister from the expiry scheduler, if any. The service stays usable and falls back to
+     * lazy reuse of expired slots.
+     */
+    @Override
+    public synchronized void close() {
+        if (expiryRegistration != null && !closed) {
+            closed = true;
+            expiryRegistration.close();
+        }
+    }
+
+    /**
+     * Clear the slot of {@code key} if it still holds the code that expires at {@code expiry}.
+     */
+    void evict(long key, long expiry) {
+        AtomicLongArray words = stripe(key);
+        int b1 = firstBucket(key);
+        int b2 = secondBucket(key);
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = slotAt(b1, b2, i);
+            if (slot < 0) {
+                continue;
+            }
+            long state = stateAt(words, slot);
+            if (words.get(slot * WORDS) == key && state > RELEASED && (state >>> ATTEMPT_BITS) == expiry) {
+                words.compareAndSet(slot * WORDS + 2, state, 0L);
+            }
+        }
+    }
+
+    /**
+     * Count outstanding, unexpired codes. Walks the whole table; for monitoring only.
+     */
+    public long size() {
+        long now = System.currentTimeMillis();
+        long live = 0;
+        for (AtomicLongArray words : stripes) {
+            for (int i = 2; i < words.length(); i += WORDS) {
+                if (isLive(words.get(i), now)) {
+                    live++;
+                }
+            }
+        }
+        return live;
+    }
+
+    // ---- table helpers ----
+
+    private static boolean isLive(long state, long now) {
+        return state > RELEASED && (state >>> ATTEMPT_BITS) > now;
+    }
+
+    private AtomicLongArray stripe(long key) {
+        return stripes[(int) (key >>> 32) & stripeMask];
+    }
+
+    private int firstBucket(long key) {
+        return ((int) key & bucketMask) * BUCKET_SLOTS;
+    }
+
+    private int secondBucket(long key) {
+        int h = (int) (key >>> 16) * 0x9E3779B9;
+        return ((h >>> 8) & bucketMask) * BUCKET_SLOTS;
+    }
+
+    /**
+     * Slot index for probe position {@code i} over both buckets, or -1 for duplicate positions
+     * when both buckets coincide.
+     */
+    private static int slotAt(int b1, int b2, int i) {
+        if (i < BUCKET_SLOTS) {
+            return b1 + i;
+        }
+        return b2 == b1 ? -1 : b2 + i - BUCKET_SLOTS;
+    }
+
+    private static int findLive(AtomicLongArray words, int b1, int b2, long key, long now) {
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = slotAt(b1, b2, i);
+            if (slot >= 0 && isLive(stateAt(words, slot), now) && words.get(slot * WORDS) == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the slot that holds {@code key} in any non-empty state, preferring a live one.
+     */
+    private static int findKey(AtomicLongArray words, int b1, int b2, long key, long now) {
+        int fallback = -1;
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = slotAt(b1, b2, i);
+            if (slot < 0) {
+                continue;
+            }
+            long state = stateAt(words, slot);
+            if (state > RELEASED && words.get(slot * WORDS) == key) {
+                if ((state >>> ATTEMPT_BITS) > now) {
+                    return slot;
+                }
+                fallback = slot;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Pick a free slot from the emptier of the two buckets.
+     */
+    private static int findFree(AtomicLongArray words, int b1, int b2, long now) {
+        int free1 = -1;
+        int free2 = -1;
+        int live1 = 0;
+        int live2 = 0;
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = slotAt(b1, b2, i);
+            if (slot < 0) {
+                continue;
+            }
+            boolean first = i < BUCKET_SLOTS;
+            long state = stateAt(words, slot);
+            if (state == RESERVED || isLive(state, now)) {
+                if (first) {
+                    live1++;
+                } else {
+                    live2++;
+                }
+            } else if (first && free1 < 0) {
+                free1 = slot;
+            } else if (!first && free2 < 0) {
+                free2 = slot;
+            }
+        }
+        if (free1 >= 0 && (free2 < 0 || live1 <= live2)) {
+            return free1;
+        }
+        return free2;
+    }
+
+    private static void releaseOtherCopies(AtomicLongArray words, int b1, int b2, int own, long key, long now) {
+        for (int i = 0; i < BUCKET_SLOTS * 2; i++) {
+            int slot = slotAt(b1, b2, i);
+            if (slot < 0 || slot == own) {
+                continue;
+            }
+            long state = stateAt(words, slot);
+            if (isLive(state, now) && words.get(slot * WORDS) == key) {
+                words.compareAndSet(slot * WORDS + 2, state, RELEASED);
+            }
+        }
+    }
+
+    /**
+     * Packed state word of {@code slot}; {@link #RESERVED} while another thread writes the slot.
+     */
+    private static long stateAt(AtomicLongArray words, int slot) {
+        return words.get(slot * WORDS + 2);
+    }
+
+    // ---- hashing ----
+
+    private long keyFingerprint(String subject, String purpose) {
+        Objects.requireNonNull(subject, "subject");
+        Objects.requireNonNull(purpose, "purpose");
+        Mac mac = pepper.acquire();
+        long fp;
+        try {
+            updateLengthPrefixed(mac, subject);
+            updateLengthPrefixed(mac, purpose);
+            fp = firstLong(mac.doFinal());
+        } catch (RuntimeException ex) {
+            throw new GenPassCoreException("Failed to compute HMAC-SHA256", ex);
+        }
+        pepper.release(mac);
+        return fp;
+    }
+
+    /**
+     * Feed {@code value} as its UTF-8 length (4 bytes, big-endian) followed by the bytes, so that
+     * no two distinct {@code (subject, purpose)} pairs produce the same input.
+     */
+    private static void updateLengthPrefixed(Mac mac, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            mac.update((byte) (bytes.length >>> shift));
+        }
+        mac.update(bytes);
+    }
+
+    private long codeHash(long key, String code) {
+        Mac mac = pepper.acquire();
+        long hash;
+        try {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                mac.update((byte) (key >>> shift));
+            }
+            mac.update(code.getBytes(StandardCharsets.UTF_8));
+            hash = firstLong(mac.doFinal());
+        } catch (RuntimeException ex) {
+            throw new GenPassCoreException("Failed to compute HMAC-SHA256", ex);
+        }
+        pepper.release(mac);
+        return hash;
+    }
+
+    private static long firstLong(byte[] b) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[i] & 0xff);
+        }
+        return v;
+    }
+
+    @Override
+    public String toString() {
+        return "OtpService{ttlMillis=" + ttlMillis + ", maxAttempts=" + maxAttempts + "}";
+    }
+
+    /**
+     * Fluent builder for OtpService.
+     */
+    public static final class Builder {
+
+        private OtpGenerator generator;
+        private Duration ttl = Duration.ofMinutes(5);
+        private int maxAttempts = 5;
+        private int expectedOutstandingCodes = 1 << 16;
+        private byte[] pepper;
+        private ExpiryScheduler expiryScheduler;
+
+        private Builder() {
+        }
+
+        /** Code generator; {@link OtpGenerator.Default} when null. */
+        public Builder generator(OtpGenerator generator) {
+            this.generator = generator;
+            return this;
+        }
+
+        /** Lifetime of an issued code (default 5 minutes). */
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /** Verification attempts allowed per code (default 5, at most 255). */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /** Peak number of outstanding codes; the table gets twice as many slots (default 65536). */
+        public Builder expectedOutstandingCodes(int expectedOutstandingCodes) {
+            this.expectedOutstandingCodes = expectedOutstandingCodes;
+            return this;
+        }
+
+        /** Secret used to hash keys and codes; a random one is generated when null. */
+        public Builder pepper(byte[] pepper) {
+            this.pepper = pepper;
+            return this;
+        }
+
+        /**
+         * Scheduler that clears expired codes eagerly; optional. A service built with one must be
+         * {@linkplain OtpService#close() closed} to unregister from it.
+         */
+        public Builder expiryScheduler(ExpiryScheduler expiryScheduler) {
+            this.expiryScheduler = expiryScheduler;
+            return this;
+        }
+
+        public OtpService build() {
+            return new OtpService(this);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.genpass.core.token;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Small, bounded, lock-free object pool.
+ *
+ * <p>Idle objects live in a power-of-two slot array. {@link #acquire()} probes a few slots
+ * starting at a position derived from the calling thread's id and takes the first idle object
+ * with a single atomic swap; if none is found a new object is created. {@link #release(Object)}
+ * parks the object in the first free probed slot and drops it when they are all taken.
+ * No locks or thread-locals are used, so the pool is safe to share with virtual threads.</p>
+ *
+ * @param <T> pooled type
+ */
+final class SlotPool<T> {
+
+    private static final int MAX_PROBES = 4;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final Supplier<? extends T> factory;
+
+    /**
+     * @param capacity maximum number of idle objects (rounded up to a power of two)
+     * @param factory  creates a new object when the pool has none idle
+     */
+    SlotPool(int capacity, Supplier<? extends T> factory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.factory = factory;
+    }
+
+    /**
+     * Default capacity: twice the number of available processors.
+     */
+    static int defaultCapacity() {
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    T acquire() {
+        int start = startIndex();
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int idx = (start + i) & mask;
+            if (slots.getPlain(idx) != null) {
+                T value = slots.getAndSet(idx, null);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return factory.get();
+    }
+
+    void release(T value) {
+        if (value == null) {
+            return;
+        }
+        int start = startIndex();
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int idx = (start + i) & mask;
+            if (slots.getPlain(idx) == null && slots.compareAndSet(idx, null, value)) {
+                return;
+            }
+        }
+        // pool is full around this index: let the object be garbage collected
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    private static int startIndex() {
+        long id = Thread.currentThread().threadId();
+        return ((int) (id ^ (id >>> 32)) * 0x9E3779B9) >>> 16;
+    }
+}
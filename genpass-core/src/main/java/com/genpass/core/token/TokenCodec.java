@@ -0,0 +1,769 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level encoder/decoder for the magic-link wire formats.
+ *
+ * <ul>
+ *   <li>v1: {@code base64url(subject:expiryEpochMilli:nonce) . base64url(hmac)}, the format the
+ *       service has always emitted.</li>
+ *   <li>v2: {@code base64url(0x02 | varint(expirySeconds) | varint(n) nonce[n] |
+ *       varint(m) utf8(subject)[m] | hmac[0..k))}, one Base64 pass over a binary layout with raw
+ *       nonce bytes and an HMAC truncated to {@code k} bytes ({@value #MIN_MAC_LENGTH} to 32,
+ *       fixed per codec). Varints are unsigned LEB128. The MAC covers everything before it and
+ *       uses a key derived from the secret for v2 only, so a v1 payload can never pass as v2.</li>
+ * </ul>
+ *
+ * <p>{@link #decode(String, Decoded)} dispatches by format: Base64 never contains {@code '.'},
+ * so a token with a separator is v1 and one without must start with the v2 version byte.
+ * Both formats keep verifying, whichever one a service creates.</p>
+ *
+ * <p>The codec works directly on the token characters and on per-call scratch buffers
+ * taken from a {@link SlotPool}: it never splits strings, never builds intermediate
+ * strings and parses the expiry in place. Encoding allocates only the resulting token and
+ * decoding allocates only the subject string. The v1 output is byte-for-byte identical
+ * to the one the service has always emitted, so previously issued tokens remain valid.</p>
+ *
+ * <p>Base64 handling is strict: padding characters and non-zero trailing bits are rejected,
+ * which means each payload/signature has exactly one accepted encoding.</p>
+ */
+final class TokenCodec {
+
+    /** Decode succeeded; subject and expiry are populated. */
+    static final int OK = 0;
+    /** Token structure, Base64 or payload layout is invalid. */
+    static final int BAD_FORMAT = 1;
+    /** Structure is valid but the signature does not match. */
+    static final int BAD_SIGNATURE = 2;
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REVERSE = new byte[128];
+
+    static {
+        Arrays.fill(REVERSE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            REVERSE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    /** Encoded length of an HMAC-SHA256 signature (32 bytes, no padding). */
+    static final int SIGNATURE_CHARS = encodedLength(HmacEngine.MAC_LENGTH);
+
+    /** Length of the longest decimal {@code long} including sign. */
+    private static final int MAX_LONG_CHARS = 20;
+
+    /** Longest accepted subject, in UTF-8 bytes. */
+    static final int MAX_SUBJECT_BYTES = 1024;
+
+    /** Longest nonce: raw bytes in v2, that many bytes Base64-encoded in v1. */
+    static final int MAX_NONCE_BYTES = 256;
+
+    /** Longest payload of either format, signature excluded. */
+    static final int MAX_PAYLOAD_BYTES = MAX_SUBJECT_BYTES + 1 + MAX_LONG_CHARS + 1 + encodedLength(MAX_NONCE_BYTES);
+
+    /**
+     * Longest token (after any prefix) of either format; longer input is rejected before any
+     * buffer is taken or any character decoded.
+     */
+    static final int MAX_TOKEN_CHARS = encodedLength(MAX_PAYLOAD_BYTES) + 1 + SIGNATURE_CHARS;
+
+    /** Scratch whose buffers grew beyond this many bytes is dropped instead of pooled. */
+    private static final int MAX_POOLED_BUFFER = 4096;
+
+    /** Version byte leading every decoded v2 token. */
+    static final byte VERSION_2 = 2;
+
+    /** Shortest accepted v2 MAC in bytes (128 bits). */
+    static final int MIN_MAC_LENGTH = 16;
+
+    /** Label of the key derived for v2 MACs, see {@link HmacEngine#derive(byte[])}. */
+    private static final byte[] V2_KEY_LABEL = "genpass-token-v2".getBytes(StandardCharsets.US_ASCII);
+
+    /** Length of the longest unsigned LEB128 encoding of a non-negative {@code long}. */
+    private static final int MAX_VARINT_BYTES = 9;
+
+    private final HmacEngine hmacEngine;
+    private final HmacEngine v2Engine;
+    private final int macLength;
+    private final SlotPool<Scratch> scratchPool;
+
+    /**
+     * Codec whose v2 tokens carry {@value #MIN_MAC_LENGTH}-byte MACs.
+     */
+    TokenCodec(HmacEngine hmacEngine) {
+        this(hmacEngine, MIN_MAC_LENGTH);
+    }
+
+    /**
+     * @param hmacEngine engine of the secret; v1 MACs use it directly, v2 MACs a derived key
+     * @param macLength  bytes of the HMAC written to and required in v2 tokens
+     */
+    TokenCodec(HmacEngine hmacEngine, int macLength) {
+        if (macLength < MIN_MAC_LENGTH || macLength > HmacEngine.MAC_LENGTH) {
+            throw new IllegalArgumentException("macLength must be between " + MIN_MAC_LENGTH
+                    + " and " + HmacEngine.MAC_LENGTH);
+        }
+        this.hmacEngine = hmacEngine;
+        this.v2Engine = hmacEngine.derive(V2_KEY_LABEL);
+        this.macLength = macLength;
+        this.scratchPool = new SlotPool<>(SlotPool.defaultCapacity(), Scratch::new);
+    }
+
+    /**
+     * Initialized Macs one batch worker holds across calls, taken lazily per format. Pass
+     * {@code null} instead to sign through the engines.
+     */
+    static final class Macs {
+        Mac v1;
+        Mac v2;
+    }
+
+    /**
+     * Hand the Macs held by {@code macs} back to their engines.
+     */
+    void release(Macs macs) {
+        hmacEngine.release(macs.v1);
+        v2Engine.release(macs.v2);
+        macs.v1 = null;
+        macs.v2 = null;
+    }
+
+    /**
+     * Mutable holder for decode output. Callers may reuse one instance per thread of work.
+     */
+    static final class Decoded {
+        /** When set, {@link #nonce} is populated on success (costs one extra string). */
+        boolean captureNonce;
+        String subject;
+        long expiryEpochMilli;
+        /** Nonce part of the payload, or {@code null} if absent or not captured. */
+        String nonce;
+    }
+
+    /**
+     * Reusable per-call buffers.
+     */
+    private static final class Scratch {
+        byte[] payload = new byte[128];
+        byte[] out = new byte[256];
+        final byte[] signature = new byte[HmacEngine.MAC_LENGTH];
+        final byte[] expected = new byte[HmacEngine.MAC_LENGTH];
+
+        byte[] payload(int capacity) {
+            if (payload.length < capacity) {
+                payload = new byte[Math.max(capacity, payload.length * 2)];
+            }
+            return payload;
+        }
+
+        byte[] out(int capacity) {
+            if (out.length < capacity) {
+                out = new byte[Math.max(capacity, out.length * 2)];
+            }
+            return out;
+        }
+    }
+
+    private void recycle(Scratch scratch) {
+        if (scratch.payload.length <= MAX_POOLED_BUFFER && scratch.out.length <= MAX_POOLED_BUFFER) {
+            scratchPool.release(scratch);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code subject} exceeds {@link #MAX_SUBJECT_BYTES}
+     */
+    static void checkSubject(String subject) {
+        if (utf8Length(subject) > MAX_SUBJECT_BYTES) {
+            throw new IllegalArgumentException("subject must not exceed " + MAX_SUBJECT_BYTES + " UTF-8 bytes");
+        }
+    }
+
+    /**
+     * Build and sign a token.
+     *
+     * @param subject          subject (must not contain ':')
+     * @param expiryEpochMilli expiry timestamp
+     * @param nonce            URL-safe nonce
+     * @return encoded token
+     */
+    String encode(String subject, long expiryEpochMilli, String nonce) {
+        return encode(null, subject, expiryEpochMilli, nonce);
+    }
+
+    /**
+     * Build and sign a token, optionally preceded by an ASCII {@code prefix} that is copied
+     * verbatim in front of the token (not covered by the signature).
+     */
+    String encode(String prefix, String subject, long expiryEpochMilli, String nonce) {
+        return encode(prefix, subject, expiryEpochMilli, nonce, null);
+    }
+
+    /**
+     * Build and sign a token with Macs held by the caller across calls; {@code null} signs
+     * through the engine.
+     */
+    String encode(String prefix, String subject, long expiryEpochMilli, String nonce, Macs macs) {
+        checkSubject(subject);
+        if (utf8Length(nonce) > encodedLength(MAX_NONCE_BYTES)) {
+            throw new IllegalArgumentException("nonce must not exceed " + encodedLength(MAX_NONCE_BYTES) + " UTF-8 bytes");
+        }
+        Scratch scratch = scratchPool.acquire();
+        try {
+            int maxPayload = (subject.length() + nonce.length()) * 3 + MAX_LONG_CHARS + 2;
+            byte[] payload = scratch.payload(maxPayload);
+
+            int len = writeUtf8(subject, payload, 0);
+            payload[len++] = ':';
+            len = writeLong(expiryEpochMilli, payload, len);
+            payload[len++] = ':';
+            len = writeUtf8(nonce, payload, len);
+
+            sign(false, macs, payload, len, scratch.expected);
+
+            int prefixLen = prefix == null ? 0 : prefix.length();
+            byte[] out = scratch.out(prefixLen + encodedLength(len) + 1 + SIGNATURE_CHARS);
+            for (int i = 0; i < prefixLen; i++) {
+                out[i] = (byte) prefix.charAt(i);
+            }
+            int pos = encode(payload, 0, len, out, prefixLen);
+            out[pos++] = '.';
+            pos = encode(scratch.expected, 0, HmacEngine.MAC_LENGTH, out, pos);
+            return new String(out, 0, pos, StandardCharsets.ISO_8859_1);
+        } finally {
+            recycle(scratch);
+        }
+    }
+
+    /**
+     * Build and sign a v2 token, optionally preceded by an ASCII {@code prefix} as in
+     * {@link #encode(String, String, long, String)}. The expiry is rounded up to whole seconds.
+     *
+     * @param nonce raw nonce bytes
+     * @param macs  Macs held by the caller, or {@code null} to sign through the engine
+     */
+    String encodeV2(String prefix, String subject, long expiryEpochMilli, byte[] nonce, Macs macs) {
+        if (expiryEpochMilli < 0) {
+            throw new IllegalArgumentException("expiry must not be negative");
+        }
+        checkSubject(subject);
+        if (nonce.length > MAX_NONCE_BYTES) {
+            throw new IllegalArgumentException("nonce must not exceed " + MAX_NONCE_BYTES + " bytes");
+        }
+        Scratch scratch = scratchPool.acquire();
+        try {
+            int subjectLen = utf8Length(subject);
+            int maxPayload = 1 + 3 * MAX_VARINT_BYTES + nonce.length + subjectLen + HmacEngine.MAC_LENGTH;
+            byte[] payload = scratch.payload(maxPayload);
+
+            int len = 0;
+            payload[len++] = VERSION_2;
+            len = writeVarint(Math.ceilDiv(expiryEpochMilli, 1000L), payload, len);
+            len = writeVarint(nonce.length, payload, len);
+            System.arraycopy(nonce, 0, payload, len, nonce.length);
+            len += nonce.length;
+            len = writeVarint(subjectLen, payload, len);
+            len = writeUtf8(subject, payload, len);
+
+            sign(true, macs, payload, len, scratch.expected);
+            System.arraycopy(scratch.expected, 0, payload, len, macLength);
+            len += macLength;
+
+            int prefixLen = prefix == null ? 0 : prefix.length();
+            byte[] out = scratch.out(prefixLen + encodedLength(len));
+            for (int i = 0; i < prefixLen; i++) {
+                out[i] = (byte) prefix.charAt(i);
+            }
+            int pos = encode(payload, 0, len, out, prefixLen);
+            return new String(out, 0, pos, StandardCharsets.ISO_8859_1);
+        } finally {
+            recycle(scratch);
+        }
+    }
+
+    /**
+     * Decode and authenticate a token. All checks that need no key run first, cheapest first:
+     * total length (at most {@link #MAX_TOKEN_CHARS}), separator and signature length, payload Base64, payload separators and expiry digits,
+     * signature Base64. Only then is the HMAC computed; the signature comparison is
+     * constant-time and no string is allocated for rejected tokens.
+     *
+     * @param token token string (may be null)
+     * @param out   receives subject and expiry when {@link #OK} is returned
+     * @return {@link #OK}, {@link #BAD_FORMAT} or {@link #BAD_SIGNATURE}
+     */
+    int decode(String token, Decoded out) {
+        return decode(token, 0, out);
+    }
+
+    /**
+     * Decode the token that starts at index {@code start} of {@code token}.
+     *
+     * @see #decode(String, Decoded)
+     */
+    int decode(String token, int start, Decoded out) {
+        return decode(token, start, out, null);
+    }
+
+    /**
+     * Decode the token that starts at index {@code start} of {@code token}, verifying with
+     * {@code macs} as in {@link #encode(String, String, long, String, Macs)}.
+     *
+     * @see #decode(String, Decoded)
+     */
+    int decode(String token, int start, Decoded out, Macs macs) {
+        if (token == null || token.length() - start > MAX_TOKEN_CHARS) {
+            return BAD_FORMAT;
+        }
+        int dot = token.indexOf('.', start);
+        if (dot < 0) {
+            return decodeV2(token, start, out, macs);
+        }
+        if (dot <= start || token.length() - dot - 1 != SIGNATURE_CHARS) {
+            return BAD_FORMAT;
+        }
+        Scratch scratch = scratchPool.acquire();
+        try {
+            int payloadLen = decodedLength(dot - start);
+            if (payloadLen < 0) {
+                return BAD_FORMAT;
+            }
+            byte[] payload = scratch.payload(payloadLen);
+            if (decode(token, start, dot, payload, 0) < 0) {
+                return BAD_FORMAT;
+            }
+
+            // subject:expiry[:nonce]
+            int firstColon = indexOf(payload, 0, payloadLen, (byte) ':');
+            if (firstColon < 0) {
+                return BAD_FORMAT;
+            }
+            int secondColon = indexOf(payload, firstColon + 1, payloadLen, (byte) ':');
+            int expiryEnd = secondColon < 0 ? payloadLen : secondColon;
+            long expiry = parseLong(payload, firstColon + 1, expiryEnd);
+            if (expiry == Long.MIN_VALUE && !isMinLong(payload, firstColon + 1, expiryEnd)) {
+                return BAD_FORMAT;
+            }
+            if (decode(token, dot + 1, token.length(), scratch.signature, 0) < 0) {
+                return BAD_FORMAT;
+            }
+
+            sign(false, macs, payload, payloadLen, scratch.expected);
+            if (!constantTimeEquals(scratch.expected, scratch.signature)) {
+                return BAD_SIGNATURE;
+            }
+
+            out.subject = new String(payload, 0, firstColon, StandardCharsets.UTF_8);
+            out.expiryEpochMilli = expiry;
+            out.nonce = out.captureNonce && secondColon >= 0
+                    ? new String(payload, secondColon + 1, payloadLen - secondColon - 1, StandardCharsets.UTF_8)
+                    : null;
+            return OK;
+        } finally {
+            recycle(scratch);
+        }
+    }
+
+    /**
+     * Decode a v2 token; the same key-free checks run first (length, Base64, version byte,
+     * varint and length fields, MAC length), then the HMAC, compared in constant time. Only
+     * the configured MAC length is accepted, so a truncated token is malformed.
+     */
+    private int decodeV2(String token, int start, Decoded out, Macs macs) {
+        // version byte, three varints and the MAC
+        int total = decodedLength(token.length() - start);
+        if (total < 4 + macLength) {
+            return BAD_FORMAT;
+        }
+        Scratch scratch = scratchPool.acquire();
+        try {
+            byte[] payload = scratch.payload(total);
+            if (decode(token, start, token.length(), payload, 0) < 0 || payload[0] != VERSION_2) {
+                return BAD_FORMAT;
+            }
+            int pos = 1;
+            long expirySeconds = readVarint(payload, pos, total);
+            if (expirySeconds < 0 || expirySeconds > Long.MAX_VALUE / 1000) {
+                return BAD_FORMAT;
+            }
+            pos += varintLength(expirySeconds);
+            long nonceLen = readVarint(payload, pos, total);
+            if (nonceLen < 0) {
+                return BAD_FORMAT;
+            }
+            pos += varintLength(nonceLen);
+            int nonceStart = pos;
+            if (nonceLen > total - pos) {
+                return BAD_FORMAT;
+            }
+            pos += (int) nonceLen;
+            long subjectLen = readVarint(payload, pos, total);
+            if (subjectLen < 0) {
+                return BAD_FORMAT;
+            }
+            pos += varintLength(subjectLen);
+            int subjectStart = pos;
+            if (subjectLen > total - pos) {
+                return BAD_FORMAT;
+            }
+            pos += (int) subjectLen;
+            if (total - pos != macLength) {
+                return BAD_FORMAT;
+            }
+
+            sign(true, macs, payload, pos, scratch.expected);
+            if (!constantTimeEquals(scratch.expected, 0, payload, pos, macLength)) {
+                return BAD_SIGNATURE;
+            }
+
+            out.subject = new String(payload, subjectStart, (int) subjectLen, StandardCharsets.UTF_8);
+            out.expiryEpochMilli = expirySeconds * 1000;
+            if (out.captureNonce && nonceLen > 0) {
+                byte[] ascii = scratch.out(encodedLength((int) nonceLen));
+                int end = encode(payload, nonceStart, (int) nonceLen, ascii, 0);
+                out.nonce = new String(ascii, 0, end, StandardCharsets.ISO_8859_1);
+            } else {
+                out.nonce = null;
+            }
+            return OK;
+        } finally {
+            recycle(scratch);
+        }
+    }
+
+    private void sign(boolean v2, Macs macs, byte[] payload, int len, byte[] out) {
+        HmacEngine engine = v2 ? v2Engine : hmacEngine;
+        if (macs == null) {
+            engine.sign(payload, 0, len, out, 0);
+            return;
+        }
+        Mac mac = v2 ? macs.v2 : macs.v1;
+        if (mac == null) {
+            mac = engine.acquire();
+        }
+        try {
+            mac.update(payload, 0, len);
+            mac.doFinal(out, 0);
+        } catch (Exception ex) {
+            // the Mac may be left mid-computation; do not keep it
+            if (v2) {
+                macs.v2 = null;
+            } else {
+                macs.v1 = null;
+            }
+            throw new GenPassCoreException("Failed to compute HMAC-SHA256", ex);
+        }
+        if (v2) {
+            macs.v2 = mac;
+        } else {
+            macs.v1 = mac;
+        }
+    }
+
+    // ---- Base64 (URL-safe alphabet, no padding) ----
+
+    /**
+     * Number of characters needed to encode {@code byteLength} bytes without padding.
+     */
+    static int encodedLength(int byteLength) {
+        return (byteLength / 3) * 4 + switch (byteLength % 3) {
+            case 1 -> 2;
+            case 2 -> 3;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Number of bytes encoded by {@code charLength} unpadded characters, or -1 if no
+     * canonical encoding has that length.
+     */
+    static int decodedLength(int charLength) {
+        return switch (charLength % 4) {
+            case 0 -> (charLength / 4) * 3;
+            case 2 -> (charLength / 4) * 3 + 1;
+            case 3 -> (charLength / 4) * 3 + 2;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Encode {@code len} bytes of {@code src} into {@code dst} as ASCII.
+     *
+     * @return position in {@code dst} after the last written character
+     */
+    static int encode(byte[] src, int off, int len, byte[] dst, int dp) {
+        int end = off + len;
+        int sp = off;
+        for (int full = off + (len / 3) * 3; sp < full; sp += 3) {
+            int bits = (src[sp] & 0xff) << 16 | (src[sp + 1] & 0xff) << 8 | (src[sp + 2] & 0xff);
+            dst[dp++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 12) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 6) & 0x3f];
+            dst[dp++] = ALPHABET[bits & 0x3f];
+        }
+        int rest = end - sp;
+        if (rest == 1) {
+            int b0 = src[sp] & 0xff;
+            dst[dp++] = ALPHABET[b0 >>> 2];
+            dst[dp++] = ALPHABET[(b0 << 4) & 0x3f];
+        } else if (rest == 2) {
+            int b0 = src[sp] & 0xff;
+            int b1 = src[sp + 1] & 0xff;
+            dst[dp++] = ALPHABET[b0 >>> 2];
+            dst[dp++] = ALPHABET[(b0 << 4 | b1 >>> 4) & 0x3f];
+            dst[dp++] = ALPHABET[(b1 << 2) & 0x3f];
+        }
+        return dp;
+    }
+
+    /**
+     * Decode characters {@code [start, end)} of {@code src} into {@code dst}.
+     *
+     * @return number of bytes written, or -1 if the input is not canonical unpadded Base64url
+     */
+    static int decode(CharSequence src, int start, int end, byte[] dst, int dp) {
+        int begin = dp;
+        int sp = start;
+        for (int full = start + ((end - start) / 4) * 4; sp < full; sp += 4) {
+            int c0 = value(src.charAt(sp));
+            int c1 = value(src.charAt(sp + 1));
+            int c2 = value(src.charAt(sp + 2));
+            int c3 = value(src.charAt(sp + 3));
+            if ((c0 | c1 | c2 | c3) < 0) {
+                return -1;
+            }
+            int bits = c0 << 18 | c1 << 12 | c2 << 6 | c3;
+            dst[dp++] = (byte) (bits >>> 16);
+            dst[dp++] = (byte) (bits >>> 8);
+            dst[dp++] = (byte) bits;
+        }
+        int rest = end - sp;
+        if (rest == 2) {
+            int c0 = value(src.charAt(sp));
+            int c1 = value(src.charAt(sp + 1));
+            if ((c0 | c1) < 0 || (c1 & 0x0f) != 0) {
+                return -1;
+            }
+            dst[dp++] = (byte) (c0 << 2 | c1 >>> 4);
+        } else if (rest == 3) {
+            int c0 = value(src.charAt(sp));
+            int c1 = value(src.charAt(sp + 1));
+            int c2 = value(src.charAt(sp + 2));
+            if ((c0 | c1 | c2) < 0 || (c2 & 0x03) != 0) {
+                return -1;
+            }
+            dst[dp++] = (byte) (c0 << 2 | c1 >>> 4);
+            dst[dp++] = (byte) (c1 << 4 | c2 >>> 2);
+        } else if (rest == 1) {
+            return -1;
+        }
+        return dp - begin;
+    }
+
+    private static int value(char c) {
+        return c < 128 ? REVERSE[c] : -1;
+    }
+
+    // ---- payload helpers ----
+
+    /**
+     * Write {@code s} as UTF-8. Unpaired surrogates become '?', matching {@link String#getBytes}.
+     */
+    static int writeUtf8(String s, byte[] dst, int dp) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[dp++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[dp++] = (byte) (0xc0 | c >> 6);
+                dst[dp++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                dst[dp++] = (byte) (0xf0 | cp >> 18);
+                dst[dp++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                dst[dp++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                dst[dp++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                dst[dp++] = '?';
+            } else {
+                dst[dp++] = (byte) (0xe0 | c >> 12);
+                dst[dp++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dst[dp++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * @return number of bytes {@link #writeUtf8} writes for {@code s}
+     */
+    static int utf8Length(String s) {
+        int len = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                len++;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                len++;
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Write non-negative {@code value} as unsigned LEB128 (7 bits per byte, low bits first).
+     */
+    static int writeVarint(long value, byte[] dst, int dp) {
+        while ((value & ~0x7fL) != 0) {
+            dst[dp++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        dst[dp++] = (byte) value;
+        return dp;
+    }
+
+    /**
+     * @return number of bytes {@link #writeVarint} writes for non-negative {@code value}
+     */
+    static int varintLength(long value) {
+        int len = 1;
+        while ((value & ~0x7fL) != 0) {
+            value >>>= 7;
+            len++;
+        }
+        return len;
+    }
+
+    /**
+     * Read an unsigned LEB128 value starting at {@code start}, ending before {@code end}.
+     *
+     * @return the value, or -1 if it is truncated, longer than {@value #MAX_VARINT_BYTES} bytes,
+     * not minimally encoded or does not fit a non-negative {@code long}
+     */
+    static long readVarint(byte[] src, int start, int end) {
+        long result = 0;
+        for (int i = 0; i < MAX_VARINT_BYTES && start + i < end; i++) {
+            int b = src[start + i];
+            result |= (long) (b & 0x7f) << (7 * i);
+            if (b >= 0) {
+                // a trailing zero byte would make the encoding non-canonical
+                return b == 0 && i > 0 ? -1 : result;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Write the decimal representation of {@code value} (as {@link Long#toString(long)} would).
+     */
+    static int writeLong(long value, byte[] dst, int dp) {
+        if (value == Long.MIN_VALUE) {
+            byte[] min = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(min, 0, dst, dp, min.length);
+            return dp + min.length;
+        }
+        if (value < 0) {
+            dst[dp++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int end = dp + digits;
+        for (int p = end - 1; p >= dp; p--) {
+            dst[p] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Parse a decimal long from ASCII bytes with the same grammar as {@link Long#parseLong(String)}.
+     *
+     * @return parsed value, or {@link Long#MIN_VALUE} when the input is invalid (use
+     * {@link #isMinLong} to tell the two apart)
+     */
+    static long parseLong(byte[] src, int start, int end) {
+        if (start >= end) {
+            return Long.MIN_VALUE;
+        }
+        boolean negative = false;
+        int p = start;
+        byte first = src[p];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++p == end) {
+                return Long.MIN_VALUE;
+            }
+        }
+        // accumulate negatively so that Long.MIN_VALUE fits
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multMin = limit / 10;
+        long result = 0;
+        for (; p < end; p++) {
+            int digit = src[p] - '0';
+            if (digit < 0 || digit > 9 || result < multMin) {
+                return Long.MIN_VALUE;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return Long.MIN_VALUE;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static boolean isMinLong(byte[] src, int start, int end) {
+        byte[] min = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+        if (end - start != min.length) {
+            return false;
+        }
+        for (int i = 0; i < min.length; i++) {
+            if (src[start + i] != min[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int indexOf(byte[] src, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (src[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Constant-time comparison of two equally sized arrays.
+     */
+    static boolean constantTimeEquals(byte[] a, byte[] b) {
+        return a.length == b.length && constantTimeEquals(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Constant-time comparison of {@code len} bytes of {@code a} and {@code b}.
+     */
+    static boolean constantTimeEquals(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        int diff = 0;
+        for (int i = 0; i < len; i++) {
+            diff |= a[aOff + i] ^ b[bOff + i];
+        }
+        return diff == 0;
+    }
+}
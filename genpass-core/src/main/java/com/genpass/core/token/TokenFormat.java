@@ -0,0 +1,21 @@
+package com.genpass.core.token;
+
+/**
+ * Wire format of newly created magic-link tokens. Verification accepts every format, so a
+ * service can switch formats without invalidating outstanding links.
+ */
+public enum TokenFormat {
+    /**
+     * {@code base64url(subject:expiryEpochMilli:nonce).base64url(hmac)}: decimal expiry, Base64
+     * nonce inside the Base64 payload and a full 32-byte HMAC. The default, understood by every
+     * release.
+     */
+    V1,
+    /**
+     * A single Base64url pass over a binary layout: version byte, varint expiry in seconds,
+     * raw nonce bytes, length-prefixed subject and an HMAC truncated to the configured MAC length.
+     * About a third shorter than {@link #V1}; switch to it once every verifying instance runs a
+     * release that understands it.
+     */
+    V2
+}
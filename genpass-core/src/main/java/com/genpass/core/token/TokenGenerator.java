@@ -1,7 +1,14 @@
 package com.genpass.core.token;
 
+import com.genpass.core.random.RandomSource;
+
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Lightweight interface for generating secure tokens.
@@ -24,21 +31,51 @@ public interface TokenGenerator {
     String generateToken(int byteLength);
 
     /**
-     * A simple, secure default implementation that uses {@link SecureRandom}
-     * and URL-safe Base64 (without padding).
+     * Generate {@code count} tokens at once, e.g. to pre-mint nonces for a campaign.
+     *
+     * @param count      number of tokens (must be &gt;= 0)
+     * @param byteLength number of random bytes per token
+     * @return list of {@code count} tokens
+     * @throws IllegalArgumentException if count &lt; 0 or byteLength &lt;= 0
+     */
+    default List<String> generateTokens(int count, int byteLength) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0");
+        }
+        if (byteLength <= 0) {
+            throw new IllegalArgumentException("byteLength must be > 0");
+        }
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(generateToken(byteLength));
+        }
+        return tokens;
+    }
+
+    /**
+     * A simple, secure default implementation that draws from a {@link RandomSource}
+     * (by default {@link RandomSource#shared()}) and encodes URL-safe Base64 (without padding).
      *
      * <p>It is provided as a static nested class here, so modules can use it
      * without requiring an additional file.</p>
      */
     final class Default implements TokenGenerator {
-        private static final SecureRandom RANDOM = new SecureRandom();
         private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
 
+        private final RandomSource random;
+
         /**
-         * Create a new Default token generator. No configuration required.
+         * Create a new Default token generator using the shared random source.
          */
         public Default() {
-            // no-op
+            this(RandomSource.shared());
+        }
+
+        /**
+         * Create a Default token generator drawing from the given random source.
+         */
+        public Default(RandomSource random) {
+            this.random = Objects.requireNonNull(random, "random");
         }
 
         @Override
@@ -47,10 +84,35 @@ public interface TokenGenerator {
                 throw new IllegalArgumentException("byteLength must be > 0");
             }
             byte[] buf = new byte[byteLength];
-            RANDOM.nextBytes(buf);
+            random.nextBytes(buf);
             return URL_ENCODER.encodeToString(buf);
         }
 
+        /**
+         * Draws the entropy for all tokens with one call and encodes it into one ASCII buffer;
+         * each token is a slice of that buffer.
+         */
+        @Override
+        public List<String> generateTokens(int count, int byteLength) {
+            if (count < 0) {
+                throw new IllegalArgumentException("count must be >= 0");
+            }
+            if (byteLength <= 0) {
+                throw new IllegalArgumentException("byteLength must be > 0");
+            }
+            int chars = TokenCodec.encodedLength(byteLength);
+            byte[] entropy = new byte[Math.multiplyExact(count, byteLength)];
+            byte[] ascii = new byte[Math.multiplyExact(count, chars)];
+            random.nextBytes(entropy);
+            List<String> tokens = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                TokenCodec.encode(entropy, i * byteLength, byteLength, ascii, i * chars);
+                tokens.add(new String(ascii, i * chars, chars, StandardCharsets.ISO_8859_1));
+            }
+            Arrays.fill(entropy, (byte) 0);
+            return tokens;
+        }
+
         @Override
         public String toString() {
             return "TokenGenerator.Default";
@@ -0,0 +1,81 @@
+package com.genpass.core.token;
+
+import com.genpass.core.metrics.MetricsRecorder;
+
+/**
+ * Counters and timers of the token services, resolved once per service.
+ *
+ * <p>Metric names: timers {@code genpass.token.create} and {@code genpass.token.verify}, and
+ * {@code genpass.token.create.batch} and {@code genpass.token.verify.batch} for whole batches;
+ * counters {@code genpass.token.created} and one {@code genpass.token.verify.<outcome>} per
+ * outcome ({@code valid}, {@code bad_format}, {@code bad_signature}, {@code expired},
+ * {@code replayed}), batch items included.</p>
+ */
+final class TokenMetrics {
+
+    /** Outcome codes continuing {@link TokenCodec#OK}, {@link TokenCodec#BAD_FORMAT}, {@link TokenCodec#BAD_SIGNATURE}. */
+    static final int EXPIRED = 3;
+    static final int REPLAYED = 4;
+
+    private static final String[] OUTCOMES = {"valid", "bad_format", "bad_signature", "expired", "replayed"};
+
+    private final boolean enabled;
+    private final MetricsRecorder.Timer createTimer;
+    private final MetricsRecorder.Timer verifyTimer;
+    private final MetricsRecorder.Timer createBatchTimer;
+    private final MetricsRecorder.Timer verifyBatchTimer;
+    private final MetricsRecorder.Counter created;
+    private final MetricsRecorder.Counter[] outcomes = new MetricsRecorder.Counter[OUTCOMES.length];
+
+    TokenMetrics(MetricsRecorder recorder) {
+        this.enabled = recorder.isEnabled();
+        this.createTimer = recorder.timer("genpass.token.create");
+        this.verifyTimer = recorder.timer("genpass.token.verify");
+        this.createBatchTimer = recorder.timer("genpass.token.create.batch");
+        this.verifyBatchTimer = recorder.timer("genpass.token.verify.batch");
+        this.created = recorder.counter("genpass.token.created");
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            outcomes[i] = recorder.counter("genpass.token.verify." + OUTCOMES[i]);
+        }
+    }
+
+    /**
+     * @return start timestamp for {@link #created(long)} / {@link #verified(long, int)}
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void created(long start) {
+        if (enabled) {
+            createTimer.recordSince(start);
+            created.increment();
+        }
+    }
+
+    void verified(long start, int outcome) {
+        if (enabled) {
+            verifyTimer.recordSince(start);
+            outcomes[outcome].increment();
+        }
+    }
+
+    void createdAll(long start, int count) {
+        if (enabled) {
+            createBatchTimer.recordSince(start);
+            created.add(count);
+        }
+    }
+
+    void verifiedAll(long start, VerificationBatch batch) {
+        if (enabled) {
+            verifyBatchTimer.recordSince(start);
+            int[] counts = batch.counts();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    outcomes[i].add(counts[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.genpass.core.token;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link TokenGenerator} that hands out pre-generated tokens of one fixed byte length.
+ *
+ * <p>Tokens are minted in bulk with {@link TokenGenerator#generateTokens(int, int)} and kept in
+ * a ring of slots. Taking a token is a counter increment and one atomic swap, so callers such as
+ * {@link MagicLinkTokenService#createToken} get a nonce in O(1) without locking. When fewer than
+ * half of the slots are filled a background thread (see {@link #start()}) refills them; if the
+ * pool runs dry, or a different byte length is requested, the token is generated on the caller's
+ * thread instead, so the pool never blocks.</p>
+ *
+ * <p>Every pooled token is handed out at most once. Pre-generated tokens sit in memory until
+ * used; size the pool for a burst, not for hours of traffic.</p>
+ *
+ * <pre>
+ * TokenPool pool = new TokenPool(new TokenGenerator.Default(), 32, 65_536).start();
+ * MagicLinkTokenService service = MagicLinkTokenService.builder()
+ *         .hmacSecret(secret)
+ *         .tokenGenerator(pool)
+ *         .nonceByteLength(32)
+ *         .build();
+ * </pre>
+ */
+public final class TokenPool implements TokenGenerator, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(TokenPool.class.getName());
+
+    /** Maximum number of tokens minted per bulk call while refilling. */
+    private static final int REFILL_BATCH = 4096;
+
+    private final TokenGenerator source;
+    private final int byteLength;
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final int lowWaterMark;
+    private final AtomicLong takeCursor = new AtomicLong();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicBoolean refillRequested = new AtomicBoolean();
+    private long fillCursor;
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Create a pool. It starts empty; call {@link #refill()} or {@link #start()} to fill it.
+     *
+     * @param source     generator used to mint tokens in bulk (must not be null)
+     * @param byteLength random bytes per pooled token
+     * @param capacity   number of pooled tokens (rounded up to a power of two)
+     */
+    public TokenPool(TokenGenerator source, int byteLength, int capacity) {
+        this.source = Objects.requireNonNull(source, "source");
+        if (byteLength <= 0) {
+            throw new IllegalArgumentException("byteLength must be > 0");
+        }
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.byteLength = byteLength;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.lowWaterMark = size / 2;
+    }
+
+    /**
+     * Start the daemon refill thread and fill the pool. Calling it again has no effect.
+     *
+     * @return this pool
+     */
+    public synchronized TokenPool start() {
+        if (worker == null) {
+            running = true;
+            Thread t = new Thread(this::runLoop, "genpass-token-pool");
+            t.setDaemon(true);
+            worker = t;
+            t.start();
+        }
+        return this;
+    }
+
+    /**
+     * Stop the refill thread. Tokens still pooled are handed out until the pool is empty.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        Thread t = worker;
+        if (t != null) {
+            LockSupport.unpark(t);
+            worker = null;
+        }
+    }
+
+    @Override
+    public String generateToken(int byteLength) {
+        if (byteLength == this.byteLength) {
+            String token = slots.getAndSet((int) takeCursor.getAndIncrement() & mask, null);
+            if (token != null) {
+                if (available.decrementAndGet() < lowWaterMark) {
+                    requestRefill();
+                }
+                return token;
+            }
+            requestRefill();
+        }
+        return source.generateToken(byteLength);
+    }
+
+    /**
+     * Fill every empty slot on the calling thread.
+     *
+     * @return number of tokens added
+     */
+    public synchronized int refill() {
+        refillRequested.set(false);
+        int added = 0;
+        int missing;
+        while ((missing = slots.length() - available.get()) > 0) {
+            List<String> minted = source.generateTokens(Math.min(missing, REFILL_BATCH), byteLength);
+            int placed = place(minted);
+            added += placed;
+            if (placed < minted.size()) {
+                break; // consumers were faster than the scan; the next request fills the rest
+            }
+        }
+        return added;
+    }
+
+    private int place(List<String> minted) {
+        int placed = 0;
+        int scanned = 0;
+        int size = slots.length();
+        while (placed < minted.size() && scanned < size) {
+            int idx = (int) fillCursor++ & mask;
+            scanned++;
+            if (slots.get(idx) == null && slots.compareAndSet(idx, null, minted.get(placed))) {
+                placed++;
+                available.incrementAndGet();
+            }
+        }
+        return placed;
+    }
+
+    private void requestRefill() {
+        Thread t = worker;
+        if (t != null && refillRequested.compareAndSet(false, true)) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                refill();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Token pool refill failed", e);
+            }
+            if (!refillRequested.get()) {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * @return number of tokens currently pooled (approximate under concurrency)
+     */
+    public int available() {
+        return Math.max(0, available.get());
+    }
+
+    /**
+     * @return number of slots
+     */
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * @return random bytes per pooled token
+     */
+    public int byteLength() {
+        return byteLength;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenPool{byteLength=" + byteLength + ", capacity=" + slots.length()
+                + ", available=" + available() + ", source=" + source + "}";
+    }
+}
@@ -0,0 +1,119 @@
+package com.genpass.core.token;
+
+/**
+ * Columnar result of a batch verification: one status, subject and expiry per input token,
+ * stored in parallel arrays indexed like the input.
+ *
+ * <p>A batch of {@code n} results costs three arrays plus the subject strings of authentic
+ * tokens instead of {@code n} result objects; {@link #result(int)} builds a
+ * {@link VerificationResult} for one index on demand.</p>
+ */
+public final class VerificationBatch {
+
+    private static final VerificationResult.Status[] STATUSES = VerificationResult.Status.values();
+
+    private final byte[] statuses;
+    private final String[] subjects;
+    private final long[] expiries;
+
+    VerificationBatch(int size) {
+        this.statuses = new byte[size];
+        this.subjects = new String[size];
+        this.expiries = new long[size];
+    }
+
+    /**
+     * Store the outcome code and decoded token of item {@code index}.
+     */
+    void set(int index, int outcome, TokenCodec.Decoded decoded) {
+        statuses[index] = (byte) outcome;
+        if (outcome != TokenCodec.BAD_FORMAT && outcome != TokenCodec.BAD_SIGNATURE) {
+            subjects[index] = decoded.subject;
+            expiries[index] = decoded.expiryEpochMilli;
+        }
+    }
+
+    int outcome(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * @return number of verified tokens
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    public VerificationResult.Status status(int index) {
+        return STATUSES[statuses[index]];
+    }
+
+    /**
+     * @return true if token {@code index} is {@link VerificationResult.Status#VALID}
+     */
+    public boolean isValid(int index) {
+        return statuses[index] == TokenCodec.OK;
+    }
+
+    /**
+     * @return subject of authentic token {@code index}, {@code null} for format and signature failures
+     */
+    public String subject(int index) {
+        return subjects[index];
+    }
+
+    /**
+     * @return expiry of authentic token {@code index}, 0 for format and signature failures
+     */
+    public long expiryEpochMilli(int index) {
+        return expiries[index];
+    }
+
+    /**
+     * @return the result of token {@code index}; shared instances for format and signature failures
+     */
+    public VerificationResult result(int index) {
+        return switch (statuses[index]) {
+            case TokenCodec.BAD_FORMAT -> VerificationResult.badFormat();
+            case TokenCodec.BAD_SIGNATURE -> VerificationResult.badSignature();
+            default -> VerificationResult.authentic(status(index), subjects[index], expiries[index]);
+        };
+    }
+
+    /**
+     * @return number of tokens with the given status
+     */
+    public int count(VerificationResult.Status status) {
+        int code = status.ordinal();
+        int count = 0;
+        for (byte s : statuses) {
+            if (s == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of tokens per outcome code, indexed by {@link VerificationResult.Status#ordinal()}
+     */
+    int[] counts() {
+        int[] counts = new int[STATUSES.length];
+        for (byte s : statuses) {
+            counts[s]++;
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("VerificationBatch{size=").append(statuses.length);
+        int[] counts = counts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                sb.append(", ").append(STATUSES[i]).append('=').append(counts[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
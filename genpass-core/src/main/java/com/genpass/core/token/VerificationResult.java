@@ -0,0 +1,138 @@
+package com.genpass.core.token;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Outcome of a token verification: a {@link Status} plus, once the signature has been checked,
+ * the token's subject and expiry.
+ *
+ * <p>Rejections of unauthenticated input ({@link Status#BAD_FORMAT}, {@link Status#BAD_SIGNATURE})
+ * are shared preallocated instances without subject, so turning away garbage allocates nothing.
+ * {@link Status#VALID}, {@link Status#EXPIRED} and {@link Status#REPLAYED} results carry the
+ * subject and expiry of an authentic token, e.g. to offer a fresh link to the same subject.</p>
+ *
+ * <pre>
+ * VerificationResult result = service.verify(token);
+ * switch (result.status()) {
+ *     case VALID -&gt; login(result.subject());
+ *     case EXPIRED -&gt; offerNewLink(result.subject());
+ *     default -&gt; reject();
+ * }
+ * </pre>
+ */
+public final class VerificationResult {
+
+    /**
+     * Verification outcome. Ordinals match the internal outcome codes of the token codec.
+     */
+    public enum Status {
+        /** Authentic, unexpired and (for single-use verification) seen for the first time. */
+        VALID,
+        /** Not a token: wrong structure, Base64 or payload layout. */
+        BAD_FORMAT,
+        /** Well-formed but the signature does not match (forged, altered or signed by an unknown key). */
+        BAD_SIGNATURE,
+        /** Authentic but past its expiry. */
+        EXPIRED,
+        /** Authentic and unexpired, but its nonce was already consumed. */
+        REPLAYED
+    }
+
+    private static final Status[] STATUSES = Status.values();
+    private static final VerificationResult BAD_FORMAT = new VerificationResult(Status.BAD_FORMAT, null, 0);
+    private static final VerificationResult BAD_SIGNATURE = new VerificationResult(Status.BAD_SIGNATURE, null, 0);
+
+    private final Status status;
+    private final String subject;
+    private final long expiryEpochMilli;
+
+    private VerificationResult(Status status, String subject, long expiryEpochMilli) {
+        this.status = status;
+        this.subject = subject;
+        this.expiryEpochMilli = expiryEpochMilli;
+    }
+
+    /**
+     * @return the shared result for {@link Status#BAD_FORMAT}
+     */
+    public static VerificationResult badFormat() {
+        return BAD_FORMAT;
+    }
+
+    /**
+     * @return the shared result for {@link Status#BAD_SIGNATURE}
+     */
+    public static VerificationResult badSignature() {
+        return BAD_SIGNATURE;
+    }
+
+    /**
+     * Result for an authentic token.
+     *
+     * @param status           {@link Status#VALID}, {@link Status#EXPIRED} or {@link Status#REPLAYED}
+     * @param subject          token subject (must not be null)
+     * @param expiryEpochMilli token expiry
+     */
+    public static VerificationResult authentic(Status status, String subject, long expiryEpochMilli) {
+        Objects.requireNonNull(status, "status must not be null");
+        Objects.requireNonNull(subject, "subject must not be null");
+        if (status == Status.BAD_FORMAT || status == Status.BAD_SIGNATURE) {
+            throw new IllegalArgumentException("status must be VALID, EXPIRED or REPLAYED");
+        }
+        return new VerificationResult(status, subject, expiryEpochMilli);
+    }
+
+    /**
+     * Map an outcome code ({@link TokenCodec#OK}, {@link TokenCodec#BAD_FORMAT},
+     * {@link TokenCodec#BAD_SIGNATURE}, {@link TokenMetrics#EXPIRED}, {@link TokenMetrics#REPLAYED})
+     * and the decoded token to a result.
+     */
+    static VerificationResult of(int outcome, TokenCodec.Decoded decoded) {
+        return switch (outcome) {
+            case TokenCodec.BAD_FORMAT -> BAD_FORMAT;
+            case TokenCodec.BAD_SIGNATURE -> BAD_SIGNATURE;
+            default -> new VerificationResult(STATUSES[outcome], decoded.subject, decoded.expiryEpochMilli);
+        };
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return true if the status is {@link Status#VALID}
+     */
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    /**
+     * @return subject of an authentic token ({@link Status#VALID}, {@link Status#EXPIRED},
+     *         {@link Status#REPLAYED}); {@code null} for format and signature failures
+     */
+    public String subject() {
+        return subject;
+    }
+
+    /**
+     * @return expiry of an authentic token, 0 for format and signature failures
+     */
+    public long expiryEpochMilli() {
+        return expiryEpochMilli;
+    }
+
+    /**
+     * @return the subject if {@link #isValid()}, otherwise empty
+     */
+    public Optional<String> validSubject() {
+        return status == Status.VALID ? Optional.of(subject) : Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        // subject left out: it is often an email address
+        return subject == null ? "VerificationResult{" + status + "}"
+                : "VerificationResult{" + status + ", expiry=" + expiryEpochMilli + "}";
+    }
+}
@@ -1,5 +1,7 @@
 package com.genpass.core.device;
 
+import com.genpass.core.metrics.InMemoryMetricsRecorder;
+import com.genpass.core.metrics.MetricsRecorder;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -46,4 +48,20 @@ class DeviceFingerprintUtilTest {
         // Because random salt is included in the hash
         assertNotEquals(fp1, fp2);
     }
+
+    @Test
+    void fingerprintIsTimedOnTheSharedRecorder() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MetricsRecorder previous = MetricsRecorder.shared();
+        MetricsRecorder.setShared(metrics);
+        try {
+            DeviceFingerprintUtil.generateFingerprint("ua", "127.0.0.1", 1L);
+            DeviceFingerprintUtil.generateFingerprint("ua", "127.0.0.1", 2L);
+        } finally {
+            MetricsRecorder.setShared(previous);
+        }
+        DeviceFingerprintUtil.generateFingerprint("ua", "127.0.0.1", 3L);
+
+        assertEquals(2, metrics.histogram("genpass.fingerprint.generate").count());
+    }
 }
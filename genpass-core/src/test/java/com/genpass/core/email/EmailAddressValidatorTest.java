@@ -0,0 +1,61 @@
+package com.genpass.core.email;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailAddressValidatorTest {
+
+    @Test
+    void acceptsCommonAddresses() {
+        assertTrue(EmailAddressValidator.isValid("user@example.com"));
+        assertTrue(EmailAddressValidator.isValid("first.last+tag@mail.example.co.uk"));
+        assertTrue(EmailAddressValidator.isValid("o'brien_{x}~!#$%&*/=?^`|-@sub-domain.example"));
+        assertTrue(EmailAddressValidator.isValid("user@localhost"));
+        assertTrue(EmailAddressValidator.isValid("  user@example.com\t"));
+    }
+
+    @Test
+    void rejectsMalformedAddresses() {
+        assertFalse(EmailAddressValidator.isValid(null));
+        assertFalse(EmailAddressValidator.isValid(""));
+        assertFalse(EmailAddressValidator.isValid("not-an-email"));
+        assertFalse(EmailAddressValidator.isValid("@example.com"));
+        assertFalse(EmailAddressValidator.isValid("user@"));
+        assertFalse(EmailAddressValidator.isValid("a@b@example.com"));
+        assertFalse(EmailAddressValidator.isValid(".user@example.com"));
+        assertFalse(EmailAddressValidator.isValid("user.@example.com"));
+        assertFalse(EmailAddressValidator.isValid("us..er@example.com"));
+        assertFalse(EmailAddressValidator.isValid("user name@example.com"));
+        assertFalse(EmailAddressValidator.isValid("\"quoted\"@example.com"));
+        assertFalse(EmailAddressValidator.isValid("user@-example.com"));
+        assertFalse(EmailAddressValidator.isValid("user@example-.com"));
+        assertFalse(EmailAddressValidator.isValid("user@example..com"));
+        assertFalse(EmailAddressValidator.isValid("user@example.com."));
+        assertFalse(EmailAddressValidator.isValid("user@[192.0.2.1]"));
+        assertFalse(EmailAddressValidator.isValid("üser@example.com"));
+        assertFalse(EmailAddressValidator.isValid("Name <user@example.com>"));
+    }
+
+    @Test
+    void enforcesLengthLimits() {
+        String local64 = "a".repeat(64);
+        String label63 = "b".repeat(63);
+        assertTrue(EmailAddressValidator.isValid(local64 + "@example.com"));
+        assertFalse(EmailAddressValidator.isValid(local64 + "a@example.com"));
+        assertTrue(EmailAddressValidator.isValid("user@" + label63 + ".com"));
+        assertFalse(EmailAddressValidator.isValid("user@" + label63 + "b.com"));
+
+        String domain = label63 + "." + label63 + "." + label63 + "." + "c".repeat(57); // 249 chars
+        assertTrue(EmailAddressValidator.isValid("a@" + domain));
+        assertFalse(EmailAddressValidator.isValid(local64 + "@" + domain));
+    }
+
+    @Test
+    void normalizeTrimsAndLowerCasesDomain() {
+        assertEquals("User.Name@example.com", EmailAddressValidator.normalize(" User.Name@Example.COM "));
+        String normal = "user@example.com";
+        assertSame(normal, EmailAddressValidator.normalize(normal));
+        assertThrows(IllegalArgumentException.class, () -> EmailAddressValidator.normalize("bad@"));
+    }
+}
@@ -43,4 +43,23 @@ class EmailMessageTest {
 
         assertEquals(List.of("a@example.com", "b@example.com"), msg.getTo());
     }
+
+    @Test
+    void validateRecipientsNormalizesAddresses() {
+        EmailMessage msg = new EmailMessage.Builder()
+                .validateRecipients(true)
+                .addTo(" User@Example.COM ")
+                .to(List.of("b@example.com"))
+                .build();
+
+        assertEquals(List.of("User@example.com", "b@example.com"), msg.getTo());
+    }
+
+    @Test
+    void validateRecipientsRejectsInvalidAddresses() {
+        EmailMessage.Builder builder = new EmailMessage.Builder().validateRecipients(true);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.addTo("not-an-email"));
+        assertThrows(IllegalArgumentException.class, () -> builder.to(List.of("a@example.com", "a..b@example.com")));
+    }
 }
@@ -0,0 +1,110 @@
+package com.genpass.core.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpirySchedulerTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void firesEntriesOnlyAfterTheirExpiry() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(100), START);
+        List<Long> expired = new ArrayList<>();
+        ExpiryScheduler.Registration reg = scheduler.register((key, expiry) -> expired.add(key));
+
+        reg.schedule(1L, START + 250);
+        reg.schedule(2L, START + 1_000);
+
+        scheduler.advance(START + 200);
+        assertTrue(expired.isEmpty());
+
+        scheduler.advance(START + 300);
+        assertEquals(List.of(1L), expired);
+
+        scheduler.advance(START + 1_000);
+        assertEquals(List.of(1L, 2L), expired);
+    }
+
+    @Test
+    void cascadesFromHigherLevels() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(10), START);
+        List<long[]> expired = new ArrayList<>();
+        ExpiryScheduler.Registration reg = scheduler.register((key, expiry) -> expired.add(new long[]{key, expiry}));
+
+        long[] delays = {5, 640, 655, 41_000, 2_700_000, 170_000_000L * 2};
+        for (int i = 0; i < delays.length; i++) {
+            reg.schedule(i, START + delays[i]);
+        }
+
+        for (int i = 0; i < delays.length; i++) {
+            long expiry = START + delays[i];
+            scheduler.advance(expiry - 1);
+            assertEquals(i, expired.size(), "fired early: " + delays[i]);
+            scheduler.advance(expiry + 10);
+            assertEquals(i + 1, expired.size(), "not fired within a tick: " + delays[i]);
+            assertEquals(expiry, expired.get(i)[1]);
+        }
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void alreadyExpiredEntryFiresOnNextTick() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(100), START);
+        List<Long> expired = new ArrayList<>();
+        scheduler.register((key, expiry) -> expired.add(key)).schedule(7L, START - 5_000);
+
+        scheduler.advance(START + 100);
+
+        assertEquals(List.of(7L), expired);
+    }
+
+    @Test
+    void closedRegistrationStopsDelivery() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(100), START);
+        List<Long> expired = new ArrayList<>();
+        ExpiryScheduler.Registration reg = scheduler.register((key, expiry) -> expired.add(key));
+        reg.schedule(1L, START + 100);
+
+        reg.close();
+        scheduler.advance(START + 500);
+
+        assertTrue(expired.isEmpty());
+        assertThrows(IllegalStateException.class, () -> reg.schedule(2L, START + 100));
+    }
+
+    @Test
+    void listenerFailureDoesNotStopOtherEntries() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(100), START);
+        List<Long> expired = new ArrayList<>();
+        ExpiryScheduler.Registration reg = scheduler.register((key, expiry) -> {
+            if (key == 1L) {
+                throw new IllegalStateException("boom");
+            }
+            expired.add(key);
+        });
+        reg.schedule(1L, START + 100);
+        reg.schedule(2L, START + 100);
+
+        assertEquals(1, scheduler.advance(START + 100));
+        assertEquals(List.of(2L), expired);
+    }
+
+    @Test
+    void backgroundThreadFiresEntries() throws InterruptedException {
+        try (ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(5)).start()) {
+            CountDownLatch latch = new CountDownLatch(1);
+            scheduler.register((key, expiry) -> latch.countDown())
+                    .schedule(1L, System.currentTimeMillis() + 20);
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+        }
+    }
+}
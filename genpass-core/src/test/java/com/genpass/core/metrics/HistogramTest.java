@@ -0,0 +1,75 @@
+package com.genpass.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void bucketsCoverTheLongRangeContiguously() {
+        assertEquals(0, Histogram.index(0));
+        assertEquals(31, Histogram.index(31));
+        assertEquals(32, Histogram.index(32));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.index(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.BUCKETS - 1));
+        for (int i = 1; i < Histogram.BUCKETS; i++) {
+            long low = Histogram.highestValue(i - 1) + 1;
+            assertEquals(i, Histogram.index(low), "lowest value of bucket " + i);
+            assertEquals(i, Histogram.index(Histogram.highestValue(i)), "highest value of bucket " + i);
+        }
+    }
+
+    @Test
+    void percentilesStayWithinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1_000); // 1 us .. 100 ms
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+        assertWithin(50_000_000, histogram.valueAtPercentile(50));
+        assertWithin(99_000_000, histogram.valueAtPercentile(99));
+        assertEquals(100_000_000, histogram.valueAtPercentile(100));
+        assertEquals(50_000_500, histogram.mean(), 50_000_500 * 0.04);
+    }
+
+    @Test
+    void emptyAndNegativeValues() {
+        Histogram histogram = new Histogram(1);
+        assertEquals(0, histogram.valueAtPercentile(99));
+        assertEquals(0, histogram.mean());
+
+        histogram.record(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.max());
+        assertThrows(IllegalArgumentException.class, () -> histogram.valueAtPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(3));
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws InterruptedException {
+        Histogram histogram = new Histogram(4);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(ThreadLocalRandom.current().nextLong(1_000_000));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(80_000, histogram.count());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.035, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,61 @@
+package com.genpass.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryMetricsRecorderTest {
+
+    @Test
+    void countersAndTimersAccumulateByName() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MetricsRecorder.Counter a = metrics.counter("genpass.test.a");
+        a.increment();
+        a.add(4);
+        metrics.counter("genpass.test.a").increment();
+        metrics.counter("genpass.test.b").increment();
+        metrics.timer("genpass.test.t").record(1_000);
+        metrics.timer("genpass.test.t").recordSince(System.nanoTime());
+
+        assertEquals(6, metrics.counterValue("genpass.test.a"));
+        assertEquals(0, metrics.counterValue("genpass.test.missing"));
+        assertEquals(Map.of("genpass.test.a", 6L, "genpass.test.b", 1L), metrics.counters());
+        assertEquals(List.of("genpass.test.a", "genpass.test.b"), List.copyOf(metrics.counters().keySet()));
+        assertEquals(2, metrics.histogram("genpass.test.t").count());
+        assertEquals(0, metrics.histogram("genpass.test.missing").count());
+        assertEquals(1, metrics.histograms().size());
+    }
+
+    @Test
+    void composeForwardsToEnabledRecorders() {
+        InMemoryMetricsRecorder first = new InMemoryMetricsRecorder();
+        InMemoryMetricsRecorder second = new InMemoryMetricsRecorder();
+        MetricsRecorder both = MetricsRecorder.compose(first, MetricsRecorder.noop(), second);
+
+        both.counter("genpass.test.c").add(3);
+        both.timer("genpass.test.t").record(10);
+
+        assertEquals(3, first.counterValue("genpass.test.c"));
+        assertEquals(3, second.counterValue("genpass.test.c"));
+        assertEquals(1, second.histogram("genpass.test.t").count());
+        assertSame(first, MetricsRecorder.compose(first, MetricsRecorder.noop()));
+        assertFalse(MetricsRecorder.compose().isEnabled());
+    }
+
+    @Test
+    void sharedRecorderDefaultsToNoop() {
+        assertFalse(MetricsRecorder.noop().isEnabled());
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MetricsRecorder previous = MetricsRecorder.shared();
+        MetricsRecorder.setShared(metrics);
+        try {
+            assertSame(metrics, MetricsRecorder.shared());
+        } finally {
+            MetricsRecorder.setShared(previous);
+        }
+        assertThrows(NullPointerException.class, () -> MetricsRecorder.setShared(null));
+    }
+}
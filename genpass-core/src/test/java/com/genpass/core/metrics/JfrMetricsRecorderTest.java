@@ -0,0 +1,49 @@
+package com.genpass.core.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrMetricsRecorderTest {
+
+    @Test
+    void emitsOperationAndCountEvents(@TempDir Path dir) throws Exception {
+        JfrMetricsRecorder metrics = new JfrMetricsRecorder();
+        MetricsRecorder.Timer timer = metrics.timer("genpass.test.op");
+        MetricsRecorder.Counter counter = metrics.counter("genpass.test.count");
+
+        timer.record(5_000); // no recording yet: dropped
+        Path file = dir.resolve("metrics.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.genpass.Operation");
+            recording.enable("com.genpass.Count");
+            recording.start();
+            timer.record(1_234_567);
+            counter.add(3);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent operation = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.genpass.Operation"))
+                .findFirst().orElseThrow();
+        assertEquals("genpass.test.op", operation.getString("metric"));
+        assertEquals(Duration.ofNanos(1_234_567), operation.getDuration("elapsed"));
+        RecordedEvent count = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.genpass.Count"))
+                .findFirst().orElseThrow();
+        assertEquals("genpass.test.count", count.getString("metric"));
+        assertEquals(3, count.getLong("delta"));
+        assertEquals(1, events.stream().filter(e -> e.getEventType().getName().startsWith("com.genpass.")
+                && e.getString("metric").equals("genpass.test.op")).count());
+    }
+}
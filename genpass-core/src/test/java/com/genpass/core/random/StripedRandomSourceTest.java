@@ -0,0 +1,110 @@
+package com.genpass.core.random;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedRandomSourceTest {
+
+    @Test
+    void fillsRequestedRangeOnly() {
+        StripedRandomSource source = new StripedRandomSource(RandomSource.Algorithm.DRBG, 2, 16);
+        byte[] out = new byte[64];
+
+        source.nextBytes(out, 8, 40);
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(0, out[i]);
+        }
+        for (int i = 48; i < 64; i++) {
+            assertEquals(0, out[i]);
+        }
+        int nonZero = 0;
+        for (int i = 8; i < 48; i++) {
+            if (out[i] != 0) {
+                nonZero++;
+            }
+        }
+        assertTrue(nonZero > 20);
+    }
+
+    @Test
+    void successiveSlicesDiffer() {
+        StripedRandomSource source = new StripedRandomSource(RandomSource.Algorithm.DRBG, 1, 64);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(seen.add(source.nextLong()));
+        }
+    }
+
+    @Test
+    void nextIntStaysInBounds() {
+        RandomSource source = new StripedRandomSource();
+        int[] counts = new int[7];
+        for (int i = 0; i < 7000; i++) {
+            counts[source.nextInt(7)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 700 && count < 1300);
+        }
+        assertThrows(IllegalArgumentException.class, () -> source.nextInt(0));
+    }
+
+    @Test
+    void supportsConfiguredAlgorithms() {
+        for (RandomSource.Algorithm algorithm : RandomSource.Algorithm.values()) {
+            if (algorithm == RandomSource.Algorithm.NATIVE_PRNG_NON_BLOCKING
+                    && System.getProperty("os.name").startsWith("Windows")) {
+                continue;
+            }
+            StripedRandomSource source = new StripedRandomSource(algorithm, 3, 32);
+            assertEquals(4, source.stripeCount());
+            assertEquals(algorithm, source.algorithm());
+            source.nextBytes(new byte[100]);
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StripedRandomSource(RandomSource.Algorithm.DRBG, 0, 64));
+        assertThrows(IllegalArgumentException.class,
+                () -> new StripedRandomSource(RandomSource.Algorithm.DRBG, 2, 4));
+        StripedRandomSource source = new StripedRandomSource();
+        assertThrows(IndexOutOfBoundsException.class, () -> source.nextBytes(new byte[4], 2, 4));
+    }
+
+    @Test
+    void concurrentCallersGetDistinctBytes() throws Exception {
+        StripedRandomSource source = new StripedRandomSource(RandomSource.Algorithm.DRBG, 2, 64);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        seen.add(source.nextLong());
+                    }
+                });
+            }
+        }
+        assertEquals(16_000, seen.size());
+    }
+
+    @Test
+    void sharedSourceCanBeReplaced() {
+        RandomSource original = RandomSource.shared();
+        try {
+            RandomSource custom = (out, off, len) -> { };
+            RandomSource.setShared(custom);
+            assertSame(custom, RandomSource.shared());
+        } finally {
+            RandomSource.setShared(original);
+        }
+        assertThrows(NullPointerException.class, () -> RandomSource.setShared(null));
+    }
+}
@@ -0,0 +1,81 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    private final TokenCodec codec = new TokenCodec(
+            HmacEngine.Mode.POOLED.create(new SecretKeySpec("k".getBytes(), HmacEngine.ALGORITHM)));
+
+    @Test
+    void everyItemIsProcessedOnceAndOrderedChunksArriveInOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            BatchRunner runner = new BatchRunner(codec, executor, 4);
+            AtomicIntegerArray hits = new AtomicIntegerArray(10_000);
+            List<Integer> starts = new ArrayList<>();
+            int[] next = {0};
+
+            runner.run(hits.length(), (from, to, macs) -> {
+                assertNotNull(macs);
+                for (int i = from; i < to; i++) {
+                    hits.incrementAndGet(i);
+                }
+            }, BatchOrder.ORDERED, (from, to) -> {
+                assertEquals(next[0], from);
+                next[0] = to;
+                starts.add(from);
+            });
+
+            for (int i = 0; i < hits.length(); i++) {
+                assertEquals(1, hits.get(i));
+            }
+            assertEquals(hits.length(), next[0]);
+            assertTrue(starts.size() > 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void callerFinishesBatchWhenExecutorRejectsOrNeverRuns() {
+        BatchRunner rejecting = new BatchRunner(codec, task -> {
+            throw new RejectedExecutionException();
+        }, 8);
+        BatchRunner idle = new BatchRunner(codec, task -> { }, 8);
+        for (BatchRunner runner : List.of(rejecting, idle)) {
+            int[] processed = {0};
+            runner.run(1000, (from, to, macs) -> processed[0] += to - from, BatchOrder.UNORDERED, null);
+            assertEquals(1000, processed[0]);
+        }
+    }
+
+    @Test
+    void workerFailureIsRethrownOnCaller() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BatchRunner runner = new BatchRunner(codec, executor, 4);
+            GenPassCoreException failure = new GenPassCoreException("boom");
+            GenPassCoreException thrown = assertThrows(GenPassCoreException.class,
+                    () -> runner.run(5000, (from, to, macs) -> {
+                        if (from >= 2000) {
+                            throw failure;
+                        }
+                    }, BatchOrder.ORDERED, null));
+            assertSame(failure, thrown);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
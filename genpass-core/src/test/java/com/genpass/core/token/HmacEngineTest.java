@@ -0,0 +1,107 @@
+package com.genpass.core.token;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HmacEngineTest {
+
+    private static final SecretKeySpec KEY =
+            new SecretKeySpec("engine-secret".getBytes(StandardCharsets.UTF_8), HmacEngine.ALGORITHM);
+
+    @Test
+    void pooledAndPerCallProduceSameSignature() {
+        byte[] payload = "subject:123:nonce".getBytes(StandardCharsets.UTF_8);
+
+        byte[] perCall = HmacEngine.Mode.PER_CALL.create(KEY).sign(payload);
+        byte[] pooled = HmacEngine.Mode.POOLED.create(KEY).sign(payload);
+
+        assertEquals(HmacEngine.MAC_LENGTH, perCall.length);
+        assertArrayEquals(perCall, pooled);
+    }
+
+    @Test
+    void derivedEnginesKeepTheirKindAndUseHmacOfTheLabelAsKey() {
+        byte[] label = "label".getBytes(StandardCharsets.UTF_8);
+        byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        HmacEngine parent = HmacEngine.Mode.POOLED.create(KEY);
+
+        HmacEngine pooled = parent.derive(label);
+        HmacEngine perCall = HmacEngine.Mode.PER_CALL.create(KEY).derive(label);
+        HmacEngine expected = HmacEngine.Mode.PER_CALL.create(
+                new SecretKeySpec(parent.sign(label), HmacEngine.ALGORITHM));
+
+        assertInstanceOf(HmacEngine.Pooled.class, pooled);
+        assertInstanceOf(HmacEngine.PerCall.class, perCall);
+        assertArrayEquals(expected.sign(payload), pooled.sign(payload));
+        assertArrayEquals(expected.sign(payload), perCall.sign(payload));
+        assertFalse(Arrays.equals(parent.sign(payload), pooled.sign(payload)));
+    }
+
+    @Test
+    void pooledEngineReusesReleasedMac() {
+        HmacEngine engine = new HmacEngine.Pooled(KEY, 4);
+
+        Mac first = engine.acquire();
+        engine.release(first);
+        Mac second = engine.acquire();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void signRangeMatchesSignOfCopy() {
+        HmacEngine engine = new HmacEngine.Pooled(KEY);
+        byte[] buf = "xxpayloadyy".getBytes(StandardCharsets.UTF_8);
+
+        byte[] out = new byte[HmacEngine.MAC_LENGTH + 2];
+        engine.sign(buf, 2, 7, out, 2);
+
+        byte[] expected = engine.sign("payload".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], out[i + 2]);
+        }
+    }
+
+    @Test
+    void pooledEngineIsSafeAcrossVirtualThreads() throws Exception {
+        HmacEngine engine = new HmacEngine.Pooled(KEY, 2);
+        byte[] payload = "concurrent".getBytes(StandardCharsets.UTF_8);
+        byte[] expected = new HmacEngine.PerCall(KEY).sign(payload);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                futures.add(executor.submit(() -> engine.sign(payload)));
+            }
+            for (Future<byte[]> f : futures) {
+                assertArrayEquals(expected, f.get());
+            }
+        }
+    }
+
+    @Test
+    void serviceWorksWithPerCallMode() {
+        MagicLinkTokenService service = new MagicLinkTokenService(
+                "secret".getBytes(StandardCharsets.UTF_8), null, 16, HmacEngine.Mode.PER_CALL);
+
+        String token = service.createToken("user", Duration.ofMinutes(1));
+
+        assertEquals("user", service.verifyToken(token).orElseThrow());
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new HmacEngine.Pooled(KEY, 0));
+    }
+}
@@ -0,0 +1,207 @@
+package com.genpass.core.token;
+
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.expiry.ExpiryScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryConsumedNonceStoreTest {
+
+    @Test
+    void nonceCanBeConsumedOnlyOnce() {
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(1_000);
+        long expiry = System.currentTimeMillis() + 60_000;
+
+        assertTrue(store.tryConsume("nonce-a", expiry));
+        assertFalse(store.tryConsume("nonce-a", expiry));
+        assertTrue(store.tryConsume("nonce-b", expiry));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void expiredEntriesAreReused() {
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(16);
+        long now = 1_000_000L;
+        long fp = store.fingerprint("n");
+
+        assertTrue(store.tryConsume(fp, now + 10, now));
+        assertFalse(store.tryConsume(fp, now + 10, now + 5));
+        // once the first entry has expired the slot is free again
+        assertTrue(store.tryConsume(fp, now + 100, now + 11));
+    }
+
+    @Test
+    void alreadyExpiredNonceIsNotStored() {
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(16);
+
+        assertTrue(store.tryConsume("old", 1L));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void throwsWhenBucketsAreFull() {
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(1);
+        long expiry = System.currentTimeMillis() + 60_000;
+
+        assertThrows(GenPassCoreException.class, () -> {
+            for (long i = 0; i < store.capacity() + 1; i++) {
+                store.tryConsume("nonce-" + i, expiry);
+            }
+        });
+    }
+
+    @Test
+    void concurrentConsumersOfSameNonceHaveSingleWinner() throws Exception {
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(10_000);
+        long expiry = System.currentTimeMillis() + 60_000;
+
+        for (int round = 0; round < 200; round++) {
+            String nonce = "race-" + round;
+            CountDownLatch start = new CountDownLatch(1);
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return store.tryConsume(nonce, expiry);
+                    }));
+                }
+                start.countDown();
+                int winners = 0;
+                for (Future<Boolean> f : results) {
+                    if (f.get()) {
+                        winners++;
+                    }
+                }
+                assertEquals(1, winners, "winners for " + nonce);
+            }
+        }
+    }
+
+    @Test
+    void twoThreadRaceOnSameNonceHasExactlyOneWinner() throws Exception {
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(100_000);
+        long expiry = System.currentTimeMillis() + 3_600_000;
+        int rounds = 20_000;
+        AtomicIntegerArray arrived = new AtomicIntegerArray(rounds);
+        boolean[][] wins = new boolean[2][rounds];
+
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            List<Future<?>> threads = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                boolean[] mine = wins[t];
+                threads.add(executor.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        long fp = store.fingerprint("pair-" + round);
+                        // wait until both threads are ready so they enter tryConsume together
+                        arrived.incrementAndGet(round);
+                        while (arrived.get(round) < 2) {
+                            Thread.yield();
+                        }
+                        mine[round] = store.tryConsume(fp, expiry, System.currentTimeMillis());
+                    }
+                }));
+            }
+            for (Future<?> f : threads) {
+                f.get();
+            }
+        }
+        for (int round = 0; round < rounds; round++) {
+            assertTrue(wins[0][round] ^ wins[1][round], "expected exactly one winner in round " + round);
+        }
+    }
+
+    @Test
+    void serviceRejectsReplayedToken() {
+        MagicLinkTokenService service = MagicLinkTokenService.builder()
+                .hmacSecret("secret".getBytes())
+                .nonceByteLength(16)
+                .consumedNonceStore(new InMemoryConsumedNonceStore(1_000))
+                .build();
+
+        String token = service.createToken("user", Duration.ofMinutes(5));
+
+        assertEquals("user", service.verifyAndConsume(token).orElseThrow());
+        assertTrue(service.verifyAndConsume(token).isEmpty());
+        // plain verification stays stateless
+        assertTrue(service.verifyToken(token).isPresent());
+    }
+
+    @Test
+    void verifyAndConsumeRequiresStore() {
+        MagicLinkTokenService service = new MagicLinkTokenService("secret".getBytes());
+
+        assertThrows(IllegalStateException.class, () -> service.verifyAndConsume("x.y"));
+    }
+
+    @Test
+    void expirySchedulerClearsEntries() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(10));
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(100, scheduler);
+        long expiry = System.currentTimeMillis() + 50;
+
+        assertTrue(store.tryConsume("scheduled", expiry));
+        assertEquals(1, store.size());
+
+        scheduler.advance(expiry + 20);
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void closeUnregistersFromScheduler() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(10));
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(100, scheduler);
+        long expiry = System.currentTimeMillis() + 60_000;
+        assertTrue(store.tryConsume("before-close", expiry));
+
+        store.close();
+        store.close();
+        scheduler.advance(expiry + 20);
+
+        // the entry is no longer cleared by the scheduler, and the store keeps working
+        assertEquals(1, store.size());
+        assertTrue(store.tryConsume("after-close", expiry));
+        assertFalse(store.tryConsume("after-close", expiry));
+    }
+
+    @Test
+    void closeWhileConsumersRunNeverFailsAConsume() throws Exception {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(10));
+        InMemoryConsumedNonceStore store = new InMemoryConsumedNonceStore(100_000, scheduler);
+        long expiry = System.currentTimeMillis() + 3_600_000;
+        CountDownLatch running = new CountDownLatch(4);
+
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            List<Future<Integer>> consumers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                consumers.add(executor.submit(() -> {
+                    running.countDown();
+                    int consumed = 0;
+                    for (int i = 0; i < 5_000; i++) {
+                        if (store.tryConsume("close-" + thread + "-" + i, expiry)) {
+                            consumed++;
+                        }
+                    }
+                    return consumed;
+                }));
+            }
+            running.await();
+            store.close();
+            for (Future<Integer> f : consumers) {
+                assertEquals(5_000, f.get());
+            }
+        }
+        assertEquals(20_000, store.size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.genpass.core.token;
+
+import com.genpass.core.metrics.InMemoryMetricsRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyRingTokenServiceTest {
+
+    private KeyRing ring;
+    private KeyRingTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        ring = new KeyRing("k1", "first-secret".getBytes());
+        service = new KeyRingTokenService(ring, new TokenGenerator.Default(), 16);
+    }
+
+    @Test
+    void tokenCarriesActiveKeyIdAndVerifies() {
+        String token = service.createToken("user", Duration.ofMinutes(5));
+
+        assertTrue(token.startsWith("k1."));
+        assertEquals("user", service.verifyToken(token).orElseThrow());
+    }
+
+    @Test
+    void rotationKeepsOldTokensValidUntilKeyIsRemoved() {
+        String oldToken = service.createToken("user", Duration.ofMinutes(5));
+
+        ring.add("k2", "second-secret".getBytes());
+        ring.activate("k2");
+        String newToken = service.createToken("user", Duration.ofMinutes(5));
+
+        assertTrue(newToken.startsWith("k2."));
+        assertEquals(KeyRing.KeyState.RETIRED, ring.state("k1"));
+        assertTrue(service.verifyToken(oldToken).isPresent());
+        assertTrue(service.verifyToken(newToken).isPresent());
+
+        ring.remove("k1");
+
+        assertTrue(service.verifyToken(oldToken).isEmpty());
+        assertTrue(service.verifyToken(newToken).isPresent());
+        assertEquals(List.of("k2"), ring.keyIds());
+    }
+
+    @Test
+    void swappingKeyIdBreaksSignature() {
+        ring.add("k2", "second-secret".getBytes());
+        String token = service.createToken("user", Duration.ofMinutes(5));
+
+        assertTrue(service.verifyToken("k2" + token.substring(2)).isEmpty());
+        assertTrue(service.verifyToken("zz" + token.substring(2)).isEmpty());
+        assertEquals(VerificationResult.Status.BAD_SIGNATURE, service.verify("k2" + token.substring(2)).status());
+        assertEquals(VerificationResult.Status.BAD_SIGNATURE, service.verify("zz" + token.substring(2)).status());
+        assertEquals(VerificationResult.Status.VALID, service.verify(token).status());
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertTrue(service.verifyToken(null).isEmpty());
+        assertTrue(service.verifyToken("").isEmpty());
+        assertTrue(service.verifyToken(".abc.def").isEmpty());
+        assertTrue(service.verifyToken("k1.garbage").isEmpty());
+        assertTrue(service.verifyToken("waytoolongkeyid.a.b").isEmpty());
+        assertEquals(VerificationResult.Status.BAD_FORMAT, service.verify("k1.garbage").status());
+    }
+
+    @Test
+    void activeKeyCannotBeRetiredOrRemoved() {
+        assertThrows(IllegalStateException.class, () -> ring.retire("k1"));
+        assertThrows(IllegalStateException.class, () -> ring.remove("k1"));
+    }
+
+    @Test
+    void rejectsInvalidAndDuplicateKeyIds() {
+        assertThrows(IllegalArgumentException.class, () -> ring.add("k1", "x".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> ring.add("bad.id", "x".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> ring.add("", "x".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> ring.add("k3", new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> ring.activate("missing"));
+    }
+
+    @Test
+    void manyKeysStillVerify() {
+        for (int i = 0; i < 50; i++) {
+            ring.add("r" + i, ("secret-" + i).getBytes());
+        }
+        ring.activate("r37");
+        String token = service.createToken("user", Duration.ofMinutes(5));
+
+        assertTrue(token.startsWith("r37."));
+        assertTrue(service.verifyToken(token).isPresent());
+    }
+
+    @Test
+    void reportsToGivenMetricsRecorder() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        KeyRingTokenService metered = new KeyRingTokenService(ring, null, 16, metrics);
+
+        String token = metered.createToken("user", Duration.ofMinutes(5));
+        metered.verifyToken(token);
+        metered.verifyToken("k9." + token.substring(3));
+
+        assertEquals(1, metrics.counterValue("genpass.token.created"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.valid"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.bad_signature"));
+    }
+}
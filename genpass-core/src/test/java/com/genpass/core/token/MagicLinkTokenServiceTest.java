@@ -1,10 +1,16 @@
 package com.genpass.core.token;
 
+import com.genpass.core.metrics.InMemoryMetricsRecorder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -12,6 +18,16 @@ class MagicLinkTokenServiceTest {
 
     private MagicLinkTokenService service;
 
+    /**
+     * Same token with one signature character changed; not the last one, whose low bits must
+     * stay zero for the Base64 to remain canonical.
+     */
+    private static String forge(String token) {
+        int i = token.lastIndexOf('.') + 5;
+        char replacement = token.charAt(i) == 'A' ? 'B' : 'A';
+        return token.substring(0, i) + replacement + token.substring(i + 1);
+    }
+
     @BeforeEach
     void setUp() {
         byte[] key = "super-secret-key-123456789".getBytes();
@@ -89,4 +105,249 @@ class MagicLinkTokenServiceTest {
     void shouldReturnEmptyForInvalidBase64Token() {
         assertTrue(service.verifyToken("invalid!!..base64").isEmpty());
     }
+
+    @Test
+    void verifyTellsRejectionReasonsApart() throws InterruptedException {
+        String token = service.createToken("user@example.com", Duration.ofMinutes(5));
+        String shortLived = service.createToken("late@example.com", Duration.ofMillis(1));
+        Thread.sleep(5);
+        String forged = forge(token);
+
+        VerificationResult valid = service.verify(token);
+        assertEquals(VerificationResult.Status.VALID, valid.status());
+        assertTrue(valid.isValid());
+        assertEquals("user@example.com", valid.subject());
+        assertTrue(valid.expiryEpochMilli() > System.currentTimeMillis());
+        assertEquals(Optional.of("user@example.com"), valid.validSubject());
+
+        VerificationResult expired = service.verify(shortLived);
+        assertEquals(VerificationResult.Status.EXPIRED, expired.status());
+        assertEquals("late@example.com", expired.subject());
+        assertTrue(expired.validSubject().isEmpty());
+
+        assertSame(VerificationResult.badSignature(), service.verify(forged));
+        assertSame(VerificationResult.badFormat(), service.verify("not-a-token"));
+        assertSame(VerificationResult.badFormat(), service.verify(null));
+        assertNull(service.verify(forged).subject());
+    }
+
+    @Test
+    void forgedExpiredTokenIsBadSignatureNotExpired() throws InterruptedException {
+        MagicLinkTokenService other = new MagicLinkTokenService("another-secret-key".getBytes());
+        String foreign = other.createToken("user", Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        assertEquals(VerificationResult.Status.BAD_SIGNATURE, service.verify(foreign).status());
+    }
+
+    @Test
+    void verifyOnceReportsReplays() {
+        MagicLinkTokenService singleUse = MagicLinkTokenService.builder()
+                .hmacSecret("super-secret-key-123456789".getBytes())
+                .consumedNonceStore(new InMemoryConsumedNonceStore(16))
+                .build();
+        String token = singleUse.createToken("user", Duration.ofMinutes(5));
+
+        assertEquals(VerificationResult.Status.VALID, singleUse.verifyOnce(token).status());
+        VerificationResult replay = singleUse.verifyOnce(token);
+        assertEquals(VerificationResult.Status.REPLAYED, replay.status());
+        assertEquals("user", replay.subject());
+        assertThrows(IllegalStateException.class, () -> service.verifyOnce(token));
+    }
+
+    @Test
+    void createAllAndVerifyAllRoundTripInParallel() throws InterruptedException {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MagicLinkTokenService batched = MagicLinkTokenService.builder()
+                .hmacSecret("super-secret-key-123456789".getBytes())
+                .batchParallelism(4)
+                .metrics(metrics)
+                .build();
+        List<String> subjects = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            subjects.add("user" + i);
+        }
+
+        List<String> tokens = batched.createAll(subjects, Duration.ofMinutes(5));
+        assertEquals(1000, tokens.size());
+        assertEquals(1000, tokens.stream().distinct().count());
+        assertThrows(UnsupportedOperationException.class, () -> tokens.set(0, "x"));
+
+        String expired = batched.createToken("late", Duration.ofMillis(1));
+        Thread.sleep(5);
+        List<String> input = new ArrayList<>(tokens);
+        input.add("not-a-token");
+        input.add(null);
+        input.add(new MagicLinkTokenService("another-secret-key".getBytes()).createToken("other", Duration.ofMinutes(5)));
+        input.add(expired);
+
+        VerificationBatch batch = batched.verifyAll(input);
+        assertEquals(1004, batch.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(batch.isValid(i));
+            assertEquals("user" + i, batch.subject(i));
+        }
+        assertEquals(VerificationResult.Status.BAD_FORMAT, batch.status(1000));
+        assertSame(VerificationResult.badFormat(), batch.result(1001));
+        assertEquals(VerificationResult.Status.BAD_SIGNATURE, batch.status(1002));
+        assertNull(batch.subject(1002));
+        assertEquals(VerificationResult.Status.EXPIRED, batch.result(1003).status());
+        assertEquals("late", batch.subject(1003));
+        assertEquals(1000, batch.count(VerificationResult.Status.VALID));
+        assertEquals(2, batch.count(VerificationResult.Status.BAD_FORMAT));
+
+        assertEquals(1001, metrics.counterValue("genpass.token.created"));
+        assertEquals(1000, metrics.counterValue("genpass.token.verify.valid"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.expired"));
+        assertEquals(1, metrics.histogram("genpass.token.verify.batch").count());
+        assertEquals(1, metrics.histogram("genpass.token.create.batch").count());
+    }
+
+    @Test
+    void batchesStreamInRequestedOrderOnCallingThread() {
+        ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            MagicLinkTokenService batched = MagicLinkTokenService.builder()
+                    .hmacSecret("super-secret-key-123456789".getBytes())
+                    .batchExecutor(virtualThreads)
+                    .batchParallelism(4)
+                    .build();
+            List<String> subjects = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                subjects.add("user" + i);
+            }
+            Thread caller = Thread.currentThread();
+
+            List<Integer> created = new ArrayList<>();
+            List<String> tokens = batched.createAll(subjects, Duration.ofMinutes(5), BatchOrder.ORDERED, (token, i) -> {
+                assertSame(caller, Thread.currentThread());
+                created.add(i);
+            });
+            for (int i = 0; i < created.size(); i++) {
+                assertEquals(i, created.get(i));
+            }
+            assertEquals(2000, created.size());
+
+            boolean[] seen = new boolean[tokens.size()];
+            int[] delivered = {0};
+            batched.verifyAll(tokens, BatchOrder.UNORDERED, (result, i) -> {
+                assertSame(caller, Thread.currentThread());
+                assertEquals("user" + i, result.subject());
+                assertFalse(seen[i]);
+                seen[i] = true;
+                delivered[0]++;
+            });
+            assertEquals(2000, delivered[0]);
+        } finally {
+            virtualThreads.shutdown();
+        }
+    }
+
+    @Test
+    void createAllValidatesSubjectsBeforeCreatingTokens() {
+        int[] delivered = {0};
+        assertThrows(IllegalArgumentException.class, () -> service.createAll(
+                Arrays.asList("ok", "bad:subject"), Duration.ofMinutes(5), BatchOrder.ORDERED, (t, i) -> delivered[0]++));
+        assertThrows(NullPointerException.class,
+                () -> service.createAll(Arrays.asList("ok", null), Duration.ofMinutes(5)));
+        assertThrows(IllegalArgumentException.class, () -> service.createAll(List.of("ok"), Duration.ZERO));
+        assertEquals(0, delivered[0]);
+        assertTrue(service.createAll(List.of(), Duration.ofMinutes(5)).isEmpty());
+        assertEquals(0, service.verifyAll(List.of()).size());
+    }
+
+    @Test
+    void v2TokensAreShorterAndBothFormatsVerify() throws InterruptedException {
+        byte[] key = "super-secret-key-123456789".getBytes();
+        MagicLinkTokenService v2 = MagicLinkTokenService.builder()
+                .hmacSecret(key)
+                .nonceByteLength(16)
+                .format(TokenFormat.V2)
+                .build();
+
+        String v1Token = service.createToken("user@example.com", Duration.ofMinutes(5));
+        String v2Token = v2.createToken("user@example.com", Duration.ofMinutes(5));
+        assertEquals(-1, v2Token.indexOf('.'));
+        assertTrue(v2Token.length() < v1Token.length() * 3 / 4, v2Token + " vs " + v1Token);
+
+        assertEquals(Optional.of("user@example.com"), v2.verifyToken(v2Token));
+        assertEquals(Optional.of("user@example.com"), v2.verifyToken(v1Token));
+        assertEquals(Optional.of("user@example.com"), service.verifyToken(v2Token));
+
+        String shortLived = v2.createToken("late", Duration.ofMillis(1));
+        Thread.sleep(1100); // v2 expiry has one-second resolution
+        assertEquals(VerificationResult.Status.EXPIRED, v2.verify(shortLived).status());
+        assertEquals(VerificationResult.Status.BAD_SIGNATURE,
+                new MagicLinkTokenService("another-secret-key".getBytes()).verify(v2Token).status());
+    }
+
+    @Test
+    void v2SupportsSingleUseBatchesAndCustomGenerators() {
+        MagicLinkTokenService v2 = MagicLinkTokenService.builder()
+                .hmacSecret("super-secret-key-123456789".getBytes())
+                .tokenGenerator(new TokenGenerator.Default())
+                .format(TokenFormat.V2)
+                .macLength(32)
+                .consumedNonceStore(new InMemoryConsumedNonceStore(16))
+                .build();
+
+        String token = v2.createToken("user", Duration.ofMinutes(5));
+        assertEquals(VerificationResult.Status.VALID, v2.verifyOnce(token).status());
+        assertEquals(VerificationResult.Status.REPLAYED, v2.verifyOnce(token).status());
+
+        List<String> tokens = v2.createAll(List.of("a", "b", "c"), Duration.ofMinutes(5));
+        VerificationBatch batch = v2.verifyAll(tokens);
+        assertEquals(3, batch.count(VerificationResult.Status.VALID));
+        assertEquals("c", batch.subject(2));
+
+        assertThrows(IllegalArgumentException.class, () -> MagicLinkTokenService.builder()
+                .hmacSecret("k".getBytes()).macLength(15).build());
+        assertThrows(IllegalArgumentException.class, () -> MagicLinkTokenService.builder()
+                .hmacSecret("k".getBytes()).macLength(33).build());
+    }
+
+    @Test
+    void rejectsOneMegabyteTokenAndOversizedInput() {
+        String huge = "A".repeat(1 << 20);
+        assertSame(VerificationResult.badFormat(), service.verify(huge));
+        assertSame(VerificationResult.badFormat(), service.verify(huge + ".sig"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createToken("u".repeat(1025), Duration.ofMinutes(5)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createAll(List.of("ok", "u".repeat(1025)), Duration.ofMinutes(5)));
+        assertThrows(IllegalArgumentException.class, () -> MagicLinkTokenService.builder()
+                .hmacSecret("k".getBytes()).nonceByteLength(257).build());
+        assertTrue(service.verifyToken(service.createToken("u".repeat(1024), Duration.ofMinutes(5))).isPresent());
+    }
+
+    @Test
+    void metricsCountVerificationOutcomesByReason() throws InterruptedException {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MagicLinkTokenService metered = MagicLinkTokenService.builder()
+                .hmacSecret("super-secret-key-123456789".getBytes())
+                .consumedNonceStore(new InMemoryConsumedNonceStore(16))
+                .metrics(metrics)
+                .build();
+
+        String token = metered.createToken("user", Duration.ofMinutes(5));
+        String shortLived = metered.createToken("user", Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        metered.verifyToken(token);
+        metered.verifyToken("not-a-token");
+        metered.verifyToken(forge(token));
+        metered.verifyToken(shortLived);
+        metered.verifyAndConsume(token);
+        metered.verifyAndConsume(token);
+
+        assertEquals(2, metrics.counterValue("genpass.token.created"));
+        assertEquals(2, metrics.counterValue("genpass.token.verify.valid"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.bad_format"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.bad_signature"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.expired"));
+        assertEquals(1, metrics.counterValue("genpass.token.verify.replayed"));
+        assertEquals(6, metrics.histogram("genpass.token.verify").count());
+        assertEquals(2, metrics.histogram("genpass.token.create").count());
+    }
 }
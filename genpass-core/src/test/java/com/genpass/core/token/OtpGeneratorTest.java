@@ -1,7 +1,14 @@
 package com.genpass.core.token;
 
+import com.genpass.core.metrics.InMemoryMetricsRecorder;
+import com.genpass.core.metrics.MetricsRecorder;
+import com.genpass.core.random.RandomSource;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class OtpGeneratorTest {
@@ -24,4 +31,81 @@ class OtpGeneratorTest {
 
         assertNotEquals(first, second);
     }
+
+    @Test
+    void configurableNumeric_respectsLength() {
+        for (int digits = 4; digits <= 10; digits++) {
+            String code = OtpGenerator.Configurable.numeric(digits).generateOtp();
+            assertTrue(code.matches("\\d{" + digits + "}"), code);
+        }
+        assertThrows(IllegalArgumentException.class, () -> OtpGenerator.Configurable.numeric(3));
+        assertThrows(IllegalArgumentException.class, () -> OtpGenerator.Configurable.numeric(11));
+    }
+
+    @Test
+    void configurableAlphanumeric_usesAlphabet() {
+        String code = OtpGenerator.Configurable.alphanumeric(12).generateOtp();
+
+        assertEquals(12, code.length());
+        for (char c : code.toCharArray()) {
+            assertTrue(OtpGenerator.Configurable.ALPHANUMERIC.indexOf(c) >= 0, code);
+        }
+    }
+
+    @Test
+    void configurable_rejectsInvalidAlphabet() {
+        assertThrows(IllegalArgumentException.class, () -> new OtpGenerator.Configurable("a", 6));
+        assertThrows(IllegalArgumentException.class, () -> new OtpGenerator.Configurable("abca", 6));
+        assertThrows(IllegalArgumentException.class, () -> new OtpGenerator.Configurable("abc", 0));
+    }
+
+    @Test
+    void generateOtps_returnsRequestedCount() {
+        List<String> codes = OtpGenerator.Configurable.numeric(8).generateOtps(1000);
+
+        assertEquals(1000, codes.size());
+        codes.forEach(code -> assertTrue(code.matches("\\d{8}"), code));
+        assertTrue(new HashSet<>(codes).size() > 990);
+        assertEquals(3, new OtpGenerator.Default().generateOtps(3).size());
+    }
+
+    @Test
+    void configurable_isUnbiased() {
+        // 3 does not divide 256, so this exercises the rejection path
+        List<String> codes = new OtpGenerator.Configurable("abc", 64).generateOtps(3000);
+        int[] counts = new int[3];
+        for (String code : codes) {
+            for (char c : code.toCharArray()) {
+                counts[c - 'a']++;
+            }
+        }
+        int expected = 3000 * 64 / 3;
+        for (int count : counts) {
+            assertEquals(expected, count, expected * 0.02);
+        }
+    }
+
+    @Test
+    void usesGivenRandomSource() {
+        RandomSource zeros = (out, off, len) -> Arrays.fill(out, off, off + len, (byte) 0);
+
+        assertEquals("000000", new OtpGenerator.Default(zeros).generateOtp());
+        assertEquals("aaaa", new OtpGenerator.Configurable("ab", 4, zeros).generateOtp());
+    }
+
+    @Test
+    void generatorsReportToTheSharedRecorder() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MetricsRecorder previous = MetricsRecorder.shared();
+        MetricsRecorder.setShared(metrics);
+        try {
+            new OtpGenerator.Default().generateOtp();
+            OtpGenerator.Configurable.numeric(8).generateOtps(5);
+        } finally {
+            MetricsRecorder.setShared(previous);
+        }
+
+        assertEquals(6, metrics.counterValue("genpass.otp.generated"));
+        assertEquals(2, metrics.histogram("genpass.otp.generate").count());
+    }
 }
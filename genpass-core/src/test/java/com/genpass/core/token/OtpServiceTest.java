@@ -0,0 +1,159 @@
+package com.genpass.core.token;
+
+import com.genpass.core.expiry.ExpiryScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OtpServiceTest {
+
+    private OtpService service(int maxAttempts) {
+        return OtpService.builder()
+                .ttl(Duration.ofMinutes(5))
+                .maxAttempts(maxAttempts)
+                .expectedOutstandingCodes(1_000)
+                .build();
+    }
+
+    private static String wrong(String code) {
+        return code.equals("000000") ? "111111" : "000000";
+    }
+
+    @Test
+    void issuedCodeVerifiesOnce() {
+        OtpService service = service(3);
+        String code = service.issue("alice", "login");
+
+        assertEquals(OtpService.Result.VALID, service.verify("alice", "login", code));
+        assertEquals(OtpService.Result.NOT_FOUND, service.verify("alice", "login", code));
+    }
+
+    @Test
+    void codesAreScopedBySubjectAndPurpose() {
+        OtpService service = service(3);
+        String code = service.issue("alice", "login");
+
+        assertEquals(OtpService.Result.NOT_FOUND, service.verify("bob", "login", code));
+        assertEquals(OtpService.Result.NOT_FOUND, service.verify("alice", "reset", code));
+        assertEquals(OtpService.Result.VALID, service.verify("alice", "login", code));
+    }
+
+    @Test
+    void subjectAndPurposeBoundaryCannotBeShifted() {
+        OtpService service = service(3);
+        String code = service.issue("alice\0login", "x");
+
+        assertEquals(OtpService.Result.NOT_FOUND, service.verify("alice", "login\0x", code));
+        assertEquals(OtpService.Result.VALID, service.verify("alice\0login", "x", code));
+    }
+
+    @Test
+    void attemptsAreLimited() {
+        OtpService service = service(2);
+        String code = service.issue("alice", "login");
+
+        assertEquals(OtpService.Result.INVALID, service.verify("alice", "login", wrong(code)));
+        assertEquals(OtpService.Result.INVALID, service.verify("alice", "login", wrong(code)));
+        assertEquals(OtpService.Result.TOO_MANY_ATTEMPTS, service.verify("alice", "login", code));
+    }
+
+    @Test
+    void reissueReplacesPreviousCodeAndResetsAttempts() {
+        OtpService service = service(1);
+        String first = service.issue("alice", "login");
+        service.verify("alice", "login", wrong(first));
+
+        String second = service.issue("alice", "login");
+
+        assertEquals(1, service.size());
+        assertEquals(OtpService.Result.VALID, service.verify("alice", "login", second));
+        assertEquals(OtpService.Result.NOT_FOUND, service.verify("alice", "login", first));
+    }
+
+    @Test
+    void invalidateRemovesCode() {
+        OtpService service = service(3);
+        String code = service.issue("alice", "login");
+
+        service.invalidate("alice", "login");
+
+        assertEquals(OtpService.Result.NOT_FOUND, service.verify("alice", "login", code));
+    }
+
+    @Test
+    void expiredCodeIsReported() throws InterruptedException {
+        OtpService service = OtpService.builder().ttl(Duration.ofMillis(5)).build();
+        String code = service.issue("alice", "login");
+
+        Thread.sleep(20);
+
+        assertEquals(OtpService.Result.EXPIRED, service.verify("alice", "login", code));
+    }
+
+    @Test
+    void expirySchedulerClearsCodes() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(10));
+        OtpService service = OtpService.builder()
+                .ttl(Duration.ofMillis(50))
+                .expiryScheduler(scheduler)
+                .build();
+        service.issue("alice", "login");
+
+        scheduler.advance(System.currentTimeMillis() + 100);
+
+        assertEquals(0, service.size());
+    }
+
+    @Test
+    void closedServiceGetsNoEvictions() {
+        ExpiryScheduler scheduler = new ExpiryScheduler(Duration.ofMillis(10));
+        OtpService service = OtpService.builder()
+                .ttl(Duration.ofHours(1))
+                .expiryScheduler(scheduler)
+                .build();
+        service.issue("alice", "login");
+
+        service.close();
+        service.close();
+        scheduler.advance(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+
+        // the code was not cleared by the scheduler, and the service keeps working
+        assertEquals(1, service.size());
+        String code = service.issue("bob", "login");
+        assertEquals(OtpService.Result.VALID, service.verify("bob", "login", code));
+    }
+
+    @Test
+    void parallelGuessesCannotExceedAttemptLimit() throws Exception {
+        OtpService service = service(3);
+        String code = service.issue("alice", "login");
+        String bad = wrong(code);
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            List<Future<OtpService.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(() -> service.verify("alice", "login", bad)));
+            }
+            int invalid = 0;
+            for (Future<OtpService.Result> f : results) {
+                if (f.get() == OtpService.Result.INVALID) {
+                    invalid++;
+                }
+            }
+            assertEquals(3, invalid);
+        }
+    }
+
+    @Test
+    void builderValidatesArguments() {
+        assertThrows(IllegalArgumentException.class, () -> OtpService.builder().maxAttempts(0).build());
+        assertThrows(IllegalArgumentException.class, () -> OtpService.builder().ttl(Duration.ZERO).build());
+        assertThrows(IllegalArgumentException.class, () -> OtpService.builder().pepper(new byte[0]).build());
+    }
+}
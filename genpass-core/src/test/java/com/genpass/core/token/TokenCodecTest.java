@@ -0,0 +1,266 @@
+package com.genpass.core.token;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCodecTest {
+
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final HmacEngine engine = new HmacEngine.Pooled(
+            new SecretKeySpec("codec-secret".getBytes(StandardCharsets.UTF_8), HmacEngine.ALGORITHM));
+    private final TokenCodec codec = new TokenCodec(engine);
+
+    private HmacEngine v2Engine() {
+        return engine.derive("genpass-token-v2".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** The token layout as it was built before the codec existed. */
+    private String legacyToken(String subject, long expiry, String nonce) {
+        byte[] payload = (subject + ":" + expiry + ":" + nonce).getBytes(StandardCharsets.UTF_8);
+        return URL_ENCODER.encodeToString(payload) + "." + URL_ENCODER.encodeToString(engine.sign(payload));
+    }
+
+    @Test
+    void encodeMatchesLegacyWireFormat() {
+        String[] subjects = {"user", "user@example.com", "ünïcødé", "emoji-😀", "a", "ab", "abc"};
+        for (String subject : subjects) {
+            for (long expiry : new long[]{0L, 7L, 1_700_000_000_123L, -42L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+                assertEquals(legacyToken(subject, expiry, "n0nce_-x"), codec.encode(subject, expiry, "n0nce_-x"));
+            }
+        }
+    }
+
+    @Test
+    void decodesLegacyToken() {
+        String token = legacyToken("alice", 1_900_000_000_000L, "abcDEF");
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+
+        assertEquals(TokenCodec.OK, codec.decode(token, decoded));
+        assertEquals("alice", decoded.subject);
+        assertEquals(1_900_000_000_000L, decoded.expiryEpochMilli);
+    }
+
+    @Test
+    void decodesPayloadWithoutNonce() {
+        byte[] payload = "bob:123".getBytes(StandardCharsets.UTF_8);
+        String token = URL_ENCODER.encodeToString(payload) + "." + URL_ENCODER.encodeToString(engine.sign(payload));
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+
+        assertEquals(TokenCodec.OK, codec.decode(token, decoded));
+        assertEquals("bob", decoded.subject);
+        assertEquals(123L, decoded.expiryEpochMilli);
+    }
+
+    @Test
+    void rejectsStructuralProblemsAsBadFormat() {
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        String valid = codec.encode("user", 1000L, "nonce");
+        String sig = valid.substring(valid.indexOf('.') + 1);
+
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(null, decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode("", decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode("no-dot-here", decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode("." + sig, decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(valid + "A", decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode("!!!!." + sig, decoded));
+        // no ':' separator in payload
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(URL_ENCODER.encodeToString("abc".getBytes()) + "." + sig, decoded));
+        // expiry not a number
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(URL_ENCODER.encodeToString("a:x1:n".getBytes()) + "." + sig, decoded));
+    }
+
+    @Test
+    void rejectsForgedSignature() {
+        String token = codec.encode("user", 1000L, "nonce");
+        String forged = URL_ENCODER.encodeToString("admin:1000:nonce".getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.indexOf('.'));
+
+        assertEquals(TokenCodec.BAD_SIGNATURE, codec.decode(forged, new TokenCodec.Decoded()));
+    }
+
+    @Test
+    void rejectsNonCanonicalTrailingBits() {
+        String token = codec.encode("user", 1000L, "nonce");
+        char last = token.charAt(token.length() - 1);
+        // flip one of the two unused low bits of the final signature character
+        int value = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".indexOf(last);
+        char flipped = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".charAt(value ^ 1);
+
+        String tampered = token.substring(0, token.length() - 1) + flipped;
+
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(tampered, new TokenCodec.Decoded()));
+    }
+
+    @Test
+    void parseLongFollowsLongParseLong() {
+        String[] inputs = {"0", "-0", "+5", "123", "-123", "9223372036854775807", "-9223372036854775808"};
+        for (String in : inputs) {
+            byte[] b = in.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Long.parseLong(in), TokenCodec.parseLong(b, 0, b.length), in);
+        }
+        String[] invalid = {"", "-", "+", "12a", "9223372036854775808", "99999999999999999999"};
+        for (String in : invalid) {
+            byte[] b = in.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Long.MIN_VALUE, TokenCodec.parseLong(b, 0, b.length), in);
+        }
+    }
+
+    @Test
+    void base64RoundTripsAllLengths() {
+        byte[] src = new byte[40];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (byte) (i * 37 + 11);
+        }
+        for (int len = 0; len <= src.length; len++) {
+            byte[] out = new byte[TokenCodec.encodedLength(len)];
+            int n = TokenCodec.encode(src, 0, len, out, 0);
+            String encoded = new String(out, 0, n, StandardCharsets.US_ASCII);
+            byte[] copy = Arrays.copyOf(src, len);
+            assertEquals(URL_ENCODER.encodeToString(copy), encoded);
+
+            byte[] decoded = new byte[len];
+            assertEquals(len, TokenCodec.decode(encoded, 0, encoded.length(), decoded, 0));
+            assertArrayEquals(copy, decoded);
+        }
+    }
+
+    @Test
+    void v2RoundTripsAndMatchesDocumentedLayout() {
+        byte[] nonce = {1, 2, 3, (byte) 0xff};
+        String token = codec.encodeV2(null, "ünï", 1_700_000_000_001L, nonce, null);
+        assertEquals(-1, token.indexOf('.'));
+
+        byte[] raw = Base64.getUrlDecoder().decode(token);
+        byte[] utf8 = "ünï".getBytes(StandardCharsets.UTF_8);
+        assertEquals(TokenCodec.VERSION_2, raw[0]);
+        assertEquals(1_700_000_001L, TokenCodec.readVarint(raw, 1, raw.length)); // rounded up to seconds
+        int pos = 1 + TokenCodec.varintLength(1_700_000_001L);
+        assertEquals(4, raw[pos++]);
+        pos += 4;
+        assertEquals(utf8.length, raw[pos++]);
+        pos += utf8.length;
+        assertEquals(16, raw.length - pos);
+        byte[] mac = v2Engine().sign(raw, 0, pos);
+        for (int i = 0; i < 16; i++) {
+            assertEquals(mac[i], raw[pos + i]);
+        }
+
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        decoded.captureNonce = true;
+        assertEquals(TokenCodec.OK, codec.decode(token, decoded));
+        assertEquals("ünï", decoded.subject);
+        assertEquals(1_700_000_001_000L, decoded.expiryEpochMilli);
+        assertEquals(URL_ENCODER.encodeToString(nonce), decoded.nonce);
+    }
+
+    @Test
+    void v2RequiresTheConfiguredMacLengthAndDecodesAfterPrefix() {
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        for (int macLength = TokenCodec.MIN_MAC_LENGTH; macLength <= HmacEngine.MAC_LENGTH; macLength++) {
+            TokenCodec sized = new TokenCodec(engine, macLength);
+            String token = sized.encodeV2("k1.", "user", 5_000L, new byte[16], null);
+            assertEquals(TokenCodec.OK, sized.decode(token, 3, decoded));
+            assertEquals("user", decoded.subject);
+            if (macLength != TokenCodec.MIN_MAC_LENGTH) {
+                assertEquals(TokenCodec.BAD_FORMAT, codec.decode(token, 3, decoded));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new TokenCodec(engine, TokenCodec.MIN_MAC_LENGTH - 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenCodec(engine, HmacEngine.MAC_LENGTH + 1));
+    }
+
+    @Test
+    void v2RejectsTruncatedMac() {
+        TokenCodec full = new TokenCodec(engine, HmacEngine.MAC_LENGTH);
+        byte[] raw = Base64.getUrlDecoder().decode(full.encodeV2(null, "user", 5_000L, new byte[16], null));
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        for (int cut = 1; cut <= HmacEngine.MAC_LENGTH - TokenCodec.MIN_MAC_LENGTH; cut++) {
+            String truncated = URL_ENCODER.encodeToString(Arrays.copyOf(raw, raw.length - cut));
+            assertEquals(TokenCodec.BAD_FORMAT, full.decode(truncated, decoded));
+        }
+    }
+
+    @Test
+    void v2MacsUseADerivedKeySoV1SignaturesDoNotVerify() {
+        // a v2-shaped payload signed the v1 way, e.g. a v1 subject starting with 0x02
+        byte[] payload = Base64.getUrlDecoder().decode(codec.encodeV2(null, "user", 5_000L, new byte[16], null));
+        int payloadLen = payload.length - TokenCodec.MIN_MAC_LENGTH;
+        System.arraycopy(engine.sign(payload, 0, payloadLen), 0, payload, payloadLen, TokenCodec.MIN_MAC_LENGTH);
+
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        assertEquals(TokenCodec.BAD_SIGNATURE, codec.decode(URL_ENCODER.encodeToString(payload), decoded));
+    }
+
+    @Test
+    void v2RejectsMalformedAndForgedTokens() {
+        String token = codec.encodeV2(null, "user", 5_000L, new byte[8], null);
+        byte[] raw = Base64.getUrlDecoder().decode(token);
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+
+        byte[] wrongVersion = raw.clone();
+        wrongVersion[0] = 3;
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(URL_ENCODER.encodeToString(wrongVersion), decoded));
+
+        byte[] macTooShort = Arrays.copyOf(raw, raw.length - 1);
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(URL_ENCODER.encodeToString(macTooShort), decoded));
+
+        byte[] subjectTooLong = raw.clone();
+        subjectTooLong[1 + TokenCodec.varintLength(5) + 1 + 8] = 127;
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(URL_ENCODER.encodeToString(subjectTooLong), decoded));
+
+        byte[] forged = raw.clone();
+        forged[forged.length - 1] ^= 1;
+        assertEquals(TokenCodec.BAD_SIGNATURE, codec.decode(URL_ENCODER.encodeToString(forged), decoded));
+
+        TokenCodec other = new TokenCodec(HmacEngine.Mode.PER_CALL.create(
+                new SecretKeySpec("other-secret".getBytes(StandardCharsets.UTF_8), HmacEngine.ALGORITHM)));
+        assertEquals(TokenCodec.BAD_SIGNATURE, other.decode(token, decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode("AAAA", decoded));
+    }
+
+    @Test
+    void varintsRoundTripAndRejectNonCanonicalInput() {
+        byte[] buf = new byte[16];
+        for (long value : new long[]{0, 1, 127, 128, 16_383, 16_384, 1_700_000_000L, Long.MAX_VALUE}) {
+            int end = TokenCodec.writeVarint(value, buf, 0);
+            assertEquals(TokenCodec.varintLength(value), end);
+            assertEquals(value, TokenCodec.readVarint(buf, 0, end));
+            if (end > 1) {
+                assertEquals(-1, TokenCodec.readVarint(buf, 0, end - 1)); // truncated
+            }
+        }
+        assertEquals(-1, TokenCodec.readVarint(new byte[]{(byte) 0x81, 0}, 0, 2)); // trailing zero
+        byte[] tooLong = new byte[10];
+        Arrays.fill(tooLong, (byte) 0x80);
+        assertEquals(-1, TokenCodec.readVarint(tooLong, 0, tooLong.length));
+    }
+
+    @Test
+    void rejectsOversizedTokensBeforeDecodingAndCapsEncodeInput() {
+        TokenCodec.Decoded decoded = new TokenCodec.Decoded();
+        String megabyte = "A".repeat(1 << 20);
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(megabyte, decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode(megabyte + "." + "A".repeat(TokenCodec.SIGNATURE_CHARS), decoded));
+        assertEquals(TokenCodec.BAD_FORMAT, codec.decode("k1." + megabyte, 3, decoded));
+
+        // the largest tokens either format can produce still fit
+        String subject = "s".repeat(TokenCodec.MAX_SUBJECT_BYTES);
+        String v1 = codec.encode(subject, Long.MIN_VALUE, "n".repeat(TokenCodec.encodedLength(TokenCodec.MAX_NONCE_BYTES)));
+        String v2 = new TokenCodec(engine, HmacEngine.MAC_LENGTH)
+                .encodeV2(null, subject, Long.MAX_VALUE, new byte[TokenCodec.MAX_NONCE_BYTES], null);
+        assertTrue(v1.length() <= TokenCodec.MAX_TOKEN_CHARS);
+        assertTrue(v2.length() <= TokenCodec.MAX_TOKEN_CHARS);
+        assertEquals(TokenCodec.OK, codec.decode(v1, decoded));
+
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(subject + "s", 0L, "n"));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.encodeV2(null, "user", 0L, new byte[TokenCodec.MAX_NONCE_BYTES + 1], null));
+    }
+}
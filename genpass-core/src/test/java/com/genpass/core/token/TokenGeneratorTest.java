@@ -1,7 +1,12 @@
 package com.genpass.core.token;
 
+import com.genpass.core.random.RandomSource;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TokenGeneratorTest {
@@ -46,5 +51,34 @@ class TokenGeneratorTest {
                 generator.generateToken(-5)
         );
     }
-}
 
+    @Test
+    void usesGivenRandomSource() {
+        RandomSource ones = (out, off, len) -> Arrays.fill(out, off, off + len, (byte) 0xFF);
+
+        assertEquals("____", new TokenGenerator.Default(ones).generateToken(3));
+    }
+
+    @Test
+    void generateTokens_returnsDistinctUrlSafeTokens() {
+        List<String> tokens = new TokenGenerator.Default().generateTokens(1000, 32);
+
+        assertEquals(1000, tokens.size());
+        assertEquals(1000, new HashSet<>(tokens).size());
+        for (String token : tokens) {
+            assertEquals(43, token.length());
+            assertTrue(token.matches("^[A-Za-z0-9_-]+$"));
+        }
+    }
+
+    @Test
+    void generateTokens_matchesSingleTokenEncoding() {
+        RandomSource ones = (out, off, len) -> Arrays.fill(out, off, off + len, (byte) 0xFF);
+        TokenGenerator generator = new TokenGenerator.Default(ones);
+
+        assertEquals(List.of(generator.generateToken(5), generator.generateToken(5)), generator.generateTokens(2, 5));
+        assertTrue(generator.generateTokens(0, 16).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> generator.generateTokens(-1, 16));
+        assertThrows(IllegalArgumentException.class, () -> generator.generateTokens(1, 0));
+    }
+}
@@ -0,0 +1,121 @@
+package com.genpass.core.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenPoolTest {
+
+    /** Counts how many tokens were minted through the bulk path. */
+    private static final class CountingGenerator implements TokenGenerator {
+        final TokenGenerator delegate = new TokenGenerator.Default();
+        final AtomicInteger single = new AtomicInteger();
+        final AtomicInteger bulk = new AtomicInteger();
+
+        @Override
+        public String generateToken(int byteLength) {
+            single.incrementAndGet();
+            return delegate.generateToken(byteLength);
+        }
+
+        @Override
+        public List<String> generateTokens(int count, int byteLength) {
+            bulk.addAndGet(count);
+            return delegate.generateTokens(count, byteLength);
+        }
+    }
+
+    @Test
+    void servesPooledTokensThenFallsBack() {
+        CountingGenerator source = new CountingGenerator();
+        TokenPool pool = new TokenPool(source, 16, 8);
+
+        assertEquals(8, pool.refill());
+        assertEquals(8, pool.available());
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(seen.add(pool.generateToken(16)));
+        }
+        assertEquals(0, source.single.get());
+        assertEquals(0, pool.available());
+
+        assertTrue(seen.add(pool.generateToken(16)));
+        assertEquals(1, source.single.get());
+    }
+
+    @Test
+    void otherByteLengthsBypassThePool() {
+        CountingGenerator source = new CountingGenerator();
+        TokenPool pool = new TokenPool(source, 16, 8);
+        pool.refill();
+
+        assertEquals(43, pool.generateToken(32).length());
+        assertEquals(8, pool.available());
+        assertEquals(1, source.single.get());
+    }
+
+    @Test
+    void backgroundThreadRefillsAndTokensAreNeverReused() throws Exception {
+        try (TokenPool pool = new TokenPool(new TokenGenerator.Default(), 16, 256).start()) {
+            Set<String> seen = ConcurrentHashMap.newKeySet();
+            AtomicInteger duplicates = new AtomicInteger();
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                for (int t = 0; t < 8; t++) {
+                    executor.submit(() -> {
+                        for (int i = 0; i < 5_000; i++) {
+                            if (!seen.add(pool.generateToken(16))) {
+                                duplicates.incrementAndGet();
+                            }
+                        }
+                    });
+                }
+            }
+            assertEquals(0, duplicates.get());
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (pool.available() < pool.capacity() / 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(pool.available() >= pool.capacity() / 2);
+        }
+    }
+
+    @Test
+    void worksAsMagicLinkNonceSource() {
+        TokenPool pool = new TokenPool(new TokenGenerator.Default(), 32, 64);
+        pool.refill();
+        MagicLinkTokenService service = MagicLinkTokenService.builder()
+                .hmacSecret("pool-secret".getBytes())
+                .tokenGenerator(pool)
+                .nonceByteLength(32)
+                .build();
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(service.createToken("user" + i, Duration.ofMinutes(5)));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("user" + i, service.verifyToken(tokens.get(i)).orElseThrow());
+        }
+        assertEquals(54, pool.available());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        TokenGenerator source = new TokenGenerator.Default();
+        assertThrows(NullPointerException.class, () -> new TokenPool(null, 16, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TokenPool(source, 0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TokenPool(source, 16, 0));
+        assertEquals(16, new TokenPool(source, 16, 9).capacity());
+    }
+}
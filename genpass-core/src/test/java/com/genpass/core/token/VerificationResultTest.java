@@ -0,0 +1,48 @@
+package com.genpass.core.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationResultTest {
+
+    @Test
+    void rejectionsAreSharedAndCarryNoSubject() {
+        assertSame(VerificationResult.badFormat(), VerificationResult.badFormat());
+        assertEquals(VerificationResult.Status.BAD_FORMAT, VerificationResult.badFormat().status());
+        assertEquals(VerificationResult.Status.BAD_SIGNATURE, VerificationResult.badSignature().status());
+        assertNull(VerificationResult.badSignature().subject());
+        assertEquals(0, VerificationResult.badSignature().expiryEpochMilli());
+        assertTrue(VerificationResult.badFormat().validSubject().isEmpty());
+    }
+
+    @Test
+    void authenticResultsCarrySubjectAndExpiry() {
+        VerificationResult valid = VerificationResult.authentic(VerificationResult.Status.VALID, "user", 42L);
+        assertTrue(valid.isValid());
+        assertEquals("user", valid.subject());
+        assertEquals(42L, valid.expiryEpochMilli());
+        assertEquals(Optional.of("user"), valid.validSubject());
+        assertFalse(valid.toString().contains("user"));
+
+        VerificationResult expired = VerificationResult.authentic(VerificationResult.Status.EXPIRED, "user", 42L);
+        assertFalse(expired.isValid());
+        assertEquals("user", expired.subject());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> VerificationResult.authentic(VerificationResult.Status.BAD_SIGNATURE, "user", 42L));
+        assertThrows(NullPointerException.class,
+                () -> VerificationResult.authentic(VerificationResult.Status.VALID, null, 42L));
+    }
+
+    @Test
+    void statusOrdinalsMatchOutcomeCodes() {
+        assertEquals(TokenCodec.OK, VerificationResult.Status.VALID.ordinal());
+        assertEquals(TokenCodec.BAD_FORMAT, VerificationResult.Status.BAD_FORMAT.ordinal());
+        assertEquals(TokenCodec.BAD_SIGNATURE, VerificationResult.Status.BAD_SIGNATURE.ordinal());
+        assertEquals(TokenMetrics.EXPIRED, VerificationResult.Status.EXPIRED.ordinal());
+        assertEquals(TokenMetrics.REPLAYED, VerificationResult.Status.REPLAYED.ordinal());
+    }
+}
@@ -0,0 +1,36 @@
+package com.genpass.email.api;
+
+import com.genpass.core.email.EmailMessage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link EmailClient}.
+ *
+ * <p>{@link #sendAsync(EmailMessage)} hands the message off and returns immediately. The
+ * returned future always completes normally with a {@link SendResult}; failures are reported
+ * through {@link SendResult#status()} rather than exceptionally.</p>
+ *
+ * Implementations:
+ * <ul>
+ *   <li>Queued adapter over any {@link EmailClient}: {@link com.genpass.email.async.QueuedAsyncEmailClient}</li>
+ *   <li>Retrying decorator: {@link com.genpass.email.resilience.ResilientEmailClient}</li>
+ *   <li>Per-domain rate limiting: {@link com.genpass.email.ratelimit.RateLimitedEmailClient}</li>
+ * </ul>
+ */
+public interface AsyncEmailClient extends AutoCloseable {
+
+    /**
+     * Queue the given email message for sending.
+     *
+     * @param message email payload (immutable)
+     * @return future completed once the message was sent, failed, rejected or dropped
+     */
+    CompletableFuture<SendResult> sendAsync(EmailMessage message);
+
+    /**
+     * Stop accepting messages, send what is already queued and release worker threads.
+     */
+    @Override
+    void close();
+}
@@ -3,6 +3,10 @@ package com.genpass.email.api;
 import com.genpass.core.email.EmailMessage;
 import com.genpass.core.exception.GenPassCoreException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Public email sending interface of the genpass-email module.
  *
@@ -22,5 +26,30 @@ public interface EmailClient {
      * @throws GenPassCoreException in case of failure
      */
     void send(EmailMessage message) throws GenPassCoreException;
+
+    /**
+     * Sends several messages. One failing message does not stop the others.
+     *
+     * <p>The default implementation calls {@link #send(EmailMessage)} for each message;
+     * implementations override it when they can batch more efficiently.</p>
+     *
+     * @param messages messages to send (must not be null or contain null)
+     * @return one result per message, in the same order; only {@code SENT} and
+     * {@code FAILED} are used
+     */
+    default List<SendResult> sendBatch(List<EmailMessage> messages) {
+        Objects.requireNonNull(messages, "messages must not be null");
+        List<SendResult> results = new ArrayList<>(messages.size());
+        for (EmailMessage message : messages) {
+            Objects.requireNonNull(message, "message must not be null");
+            try {
+                send(message);
+                results.add(SendResult.sent(message));
+            } catch (RuntimeException e) {
+                results.add(SendResult.failed(message, e));
+            }
+        }
+        return results;
+    }
 }
 
@@ -1,8 +1,11 @@
 package com.genpass.email.api;
 
+import com.genpass.email.async.QueuedAsyncEmailClient;
 import com.genpass.email.config.EmailConfig;
 import com.genpass.email.console.ConsoleEmailClient;
+import com.genpass.email.metrics.MeteredEmailClient;
 import com.genpass.email.mock.MockEmailClient;
+import com.genpass.email.resilience.ResilientEmailClient;
 import com.genpass.email.smtp.SmtpEmailClient;
 
 import java.util.Objects;
@@ -40,6 +43,34 @@ public final class EmailClientFactory {
         return new MockEmailClient();
     }
 
+    /**
+     * Wraps a blocking client in a queued asynchronous client with default settings.
+     * Use {@link QueuedAsyncEmailClient#builder(EmailClient)} to tune queue size,
+     * workers and backpressure.
+     */
+    public static AsyncEmailClient async(EmailClient delegate) {
+        Objects.requireNonNull(delegate, "delegate must not be null");
+        return QueuedAsyncEmailClient.builder(delegate).build();
+    }
+
+    /**
+     * Wraps a client with retries for transient SMTP failures and a circuit breaker, using
+     * default settings. Use {@link ResilientEmailClient#builder(EmailClient)} to tune them.
+     */
+    public static ResilientEmailClient resilient(EmailClient delegate) {
+        Objects.requireNonNull(delegate, "delegate must not be null");
+        return ResilientEmailClient.builder(delegate).build();
+    }
+
+    /**
+     * Wraps a client so that its sends are timed and counted on the shared
+     * {@link com.genpass.core.metrics.MetricsRecorder}; see {@link MeteredEmailClient}.
+     */
+    public static EmailClient metered(EmailClient delegate) {
+        Objects.requireNonNull(delegate, "delegate must not be null");
+        return new MeteredEmailClient(delegate);
+    }
+
     /**
      * Convenience method for creating a client from an enum.
      *
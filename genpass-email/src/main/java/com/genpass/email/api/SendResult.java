@@ -0,0 +1,49 @@
+package com.genpass.email.api;
+
+import com.genpass.core.email.EmailMessage;
+
+import java.util.Objects;
+
+/**
+ * Outcome of sending one {@link EmailMessage}.
+ *
+ * @param message the message this result belongs to
+ * @param status  what happened to it
+ * @param error   failure cause for {@link Status#FAILED}; {@code null} otherwise
+ */
+public record SendResult(EmailMessage message, Status status, Throwable error) {
+
+    /**
+     * Delivery status.
+     */
+    public enum Status {
+        /** Accepted by the underlying client. */
+        SENT,
+        /** The underlying client threw; see {@link SendResult#error()}. */
+        FAILED,
+        /** Not queued because the queue was full (reject policy) or the client was closed. */
+        REJECTED,
+        /** Queued, then evicted to make room for a newer message (drop-oldest policy). */
+        DROPPED
+    }
+
+    public SendResult {
+        Objects.requireNonNull(message, "message must not be null");
+        Objects.requireNonNull(status, "status must not be null");
+    }
+
+    public static SendResult sent(EmailMessage message) {
+        return new SendResult(message, Status.SENT, null);
+    }
+
+    public static SendResult failed(EmailMessage message, Throwable error) {
+        return new SendResult(message, Status.FAILED, error);
+    }
+
+    /**
+     * @return {@code true} if the message was sent
+     */
+    public boolean isSent() {
+        return status == Status.SENT;
+    }
+}
@@ -0,0 +1,13 @@
+package com.genpass.email.async;
+
+/**
+ * What {@link QueuedAsyncEmailClient#sendAsync} does when its queue is full.
+ */
+public enum BackpressurePolicy {
+    /** Wait until there is room; the caller blocks. */
+    BLOCK,
+    /** Complete the new message's future immediately with {@code REJECTED}. */
+    REJECT,
+    /** Evict the oldest queued message (completed with {@code DROPPED}) and queue the new one. */
+    DROP_OLDEST
+}
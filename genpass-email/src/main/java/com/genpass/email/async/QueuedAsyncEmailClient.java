@@ -0,0 +1,208 @@
+package com.genpass.email.async;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.email.api.AsyncEmailClient;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link AsyncEmailClient} that queues messages for any blocking {@link EmailClient}
+ * ({@code SmtpEmailClient}, {@code ConsoleEmailClient}, {@code MockEmailClient}, ...).
+ *
+ * <p>Messages go into a bounded queue drained by a fixed number of worker threads, virtual by
+ * default, each calling {@link EmailClient#send(EmailMessage)}. When the queue is full the
+ * configured {@link BackpressurePolicy} applies. Futures are completed on the worker threads, so
+ * dependent stages should not block; use the {@code *Async} variants for slow follow-up work.</p>
+ *
+ * <p>{@link #close()} stops accepting messages, waits until everything already queued has been
+ * handed to the delegate and then stops the workers. The delegate itself is not closed.</p>
+ */
+public final class QueuedAsyncEmailClient implements AsyncEmailClient {
+
+    private static final Logger LOGGER = Logger.getLogger(QueuedAsyncEmailClient.class.getName());
+
+    private static final long POLL_MILLIS = 100;
+
+    private record Task(EmailMessage message, CompletableFuture<SendResult> future) {
+    }
+
+    private final EmailClient delegate;
+    private final BlockingQueue<Task> queue;
+    private final BackpressurePolicy policy;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private volatile boolean closed;
+
+    private QueuedAsyncEmailClient(Builder b) {
+        if (b.queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be > 0");
+        }
+        if (b.workers <= 0) {
+            throw new IllegalArgumentException("workers must be > 0");
+        }
+        this.delegate = b.delegate;
+        this.queue = new ArrayBlockingQueue<>(b.queueCapacity);
+        this.policy = Objects.requireNonNull(b.backpressurePolicy, "backpressurePolicy must not be null");
+        this.workerCount = b.workers;
+        ThreadFactory factory = b.virtualThreads
+                ? Thread.ofVirtual().name("genpass-email-async-", 0).factory()
+                : Thread.ofPlatform().daemon().name("genpass-email-async-", 0).factory();
+        this.workers = Executors.newThreadPerTaskExecutor(factory);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::workerLoop);
+        }
+    }
+
+    /**
+     * @param delegate blocking client that performs the actual sends (must not be null)
+     */
+    public static Builder builder(EmailClient delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public CompletableFuture<SendResult> sendAsync(EmailMessage message) {
+        Objects.requireNonNull(message, "message must not be null");
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        if (closed) {
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+            return future;
+        }
+        Task task = new Task(message, future);
+        boolean queued = switch (policy) {
+            case BLOCK -> put(task);
+            case REJECT -> queue.offer(task);
+            case DROP_OLDEST -> offerDroppingOldest(task);
+        };
+        // a task queued after close() may have missed the workers' last look at the queue
+        if (!queued || (closed && queue.remove(task))) {
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+        }
+        return future;
+    }
+
+    private boolean put(Task task) {
+        try {
+            queue.put(task);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerDroppingOldest(Task task) {
+        while (!queue.offer(task)) {
+            Task oldest = queue.poll();
+            if (oldest != null) {
+                oldest.future.complete(new SendResult(oldest.message, SendResult.Status.DROPPED, null));
+            }
+        }
+        return true;
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Task task;
+            try {
+                task = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                delegate.send(task.message);
+                task.future.complete(SendResult.sent(task.message));
+            } catch (Throwable t) {
+                // Errors too: the future must complete and the worker must keep serving the queue
+                LOGGER.log(t instanceof Error ? Level.WARNING : Level.FINE, "Asynchronous email send failed", t);
+                task.future.complete(SendResult.failed(task.message, t));
+                if (t instanceof VirtualMachineError vmError) {
+                    throw vmError;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of messages waiting in the queue
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        workers.close();
+    }
+
+    @Override
+    public String toString() {
+        return "QueuedAsyncEmailClient{delegate=" + delegate + ", workers=" + workerCount
+                + ", policy=" + policy + ", pending=" + queue.size() + "}";
+    }
+
+    /**
+     * Fluent builder for QueuedAsyncEmailClient.
+     */
+    public static final class Builder {
+
+        private final EmailClient delegate;
+        private int queueCapacity = 1024;
+        private int workers = 4;
+        private boolean virtualThreads = true;
+        private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+        private Builder(EmailClient delegate) {
+            this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        }
+
+        /** Maximum number of queued messages (default 1024). */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Number of concurrent sends (default 4). For {@code SmtpEmailClient} this is best
+         * matched to {@code EmailConfig.maxConnections()}.
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /** Run workers on virtual threads (default) or on daemon platform threads. */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /** Behaviour when the queue is full (default {@link BackpressurePolicy#BLOCK}). */
+        public Builder backpressurePolicy(BackpressurePolicy backpressurePolicy) {
+            this.backpressurePolicy = backpressurePolicy;
+            return this;
+        }
+
+        public QueuedAsyncEmailClient build() {
+            return new QueuedAsyncEmailClient(this);
+        }
+    }
+}
@@ -6,6 +6,10 @@ import java.util.Objects;
  * Immutable configuration used by the SMTP email client.
  *
  * This is intentionally simple but enough for most use-cases.
+ * {@code maxConnections} and {@code idleTimeoutMillis} size the pool of persistent SMTP
+ * connections kept by {@link com.genpass.email.smtp.SmtpEmailClient}.
+ * {@code encodedBodyCacheSize} enables reuse of encoded message bodies for repeated sends
+ * (0, the default, disables it).
  */
 public record EmailConfig(
         String host,
@@ -14,9 +18,18 @@ public record EmailConfig(
         String password,
         boolean useTls,
         String fromAddress,
-        int timeoutMillis
+        int timeoutMillis,
+        int maxConnections,
+        int idleTimeoutMillis,
+        int encodedBodyCacheSize
 ) {
 
+    /** Default maximum number of pooled SMTP connections. */
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    /** Default time an unused pooled connection is kept open. */
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30_000;
+
     public EmailConfig {
         Objects.requireNonNull(host, "host must not be null");
         Objects.requireNonNull(fromAddress, "fromAddress must not be null");
@@ -33,6 +46,33 @@ public record EmailConfig(
         if (timeoutMillis < 0) {
             throw new IllegalArgumentException("timeoutMillis must be >= 0");
         }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be > 0");
+        }
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis must be >= 0");
+        }
+        if (encodedBodyCacheSize < 0) {
+            throw new IllegalArgumentException("encodedBodyCacheSize must be >= 0");
+        }
+    }
+
+    /**
+     * Configuration without the encoded body cache.
+     */
+    public EmailConfig(String host, int port, String username, String password, boolean useTls,
+                       String fromAddress, int timeoutMillis, int maxConnections, int idleTimeoutMillis) {
+        this(host, port, username, password, useTls, fromAddress, timeoutMillis,
+                maxConnections, idleTimeoutMillis, 0);
+    }
+
+    /**
+     * Configuration with the default connection pool settings.
+     */
+    public EmailConfig(String host, int port, String username, String password,
+                       boolean useTls, String fromAddress, int timeoutMillis) {
+        this(host, port, username, password, useTls, fromAddress, timeoutMillis,
+                DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT_MILLIS);
     }
 
     public static Builder builder() {
@@ -51,6 +91,9 @@ public record EmailConfig(
         private boolean useTls = true;
         private String fromAddress;
         private int timeoutMillis = 10_000;
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+        private int idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+        private int encodedBodyCacheSize;
 
         public Builder host(String host) {
             this.host = host;
@@ -87,6 +130,32 @@ public record EmailConfig(
             return this;
         }
 
+        /**
+         * Maximum number of open SMTP connections kept by the client (default 4).
+         */
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * How long an unused connection stays open before it is closed (default 30 s);
+         * 0 closes connections after every send.
+         */
+        public Builder idleTimeoutMillis(int idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Number of distinct subject/body combinations whose MIME encoding is cached and reused
+         * (default 0, disabled). Useful when the same notification goes to many recipients.
+         */
+        public Builder encodedBodyCacheSize(int encodedBodyCacheSize) {
+            this.encodedBodyCacheSize = encodedBodyCacheSize;
+            return this;
+        }
+
         public EmailConfig build() {
             return new EmailConfig(
                     host,
@@ -95,7 +164,10 @@ public record EmailConfig(
                     password,
                     useTls,
                     fromAddress,
-                    timeoutMillis
+                    timeoutMillis,
+                    maxConnections,
+                    idleTimeoutMillis,
+                    encodedBodyCacheSize
             );
         }
     }
@@ -3,8 +3,11 @@ package com.genpass.email.console;
 import com.genpass.core.email.EmailMessage;
 import com.genpass.core.exception.GenPassCoreException;
 import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,27 +26,7 @@ public final class ConsoleEmailClient implements EmailClient {
         Objects.requireNonNull(message, "message must not be null");
 
         try {
-            String output = """
-                    ================== GenPass Console Email ==================
-                    Time     : %s
-                    To       : %s
-                    Subject  : %s
-                    -----------------------------------------------------------
-                    TEXT BODY:
-                    %s
-                    -----------------------------------------------------------
-                    HTML BODY:
-                    %s
-                    ===========================================================
-                    """.formatted(
-                    Instant.now(),
-                    message.getTo(),
-                    message.getSubject(),
-                    safe(message.getTextBody()),
-                    safe(message.getHtmlBody())
-            );
-
-            System.out.println(output);
+            System.out.println(format(message));
             LOGGER.info("Email printed to console for recipient: " + message.getTo());
         } catch (RuntimeException e) {
             LOGGER.log(Level.SEVERE, "Unexpected error while printing email to console", e);
@@ -51,6 +34,51 @@ public final class ConsoleEmailClient implements EmailClient {
         }
     }
 
+    /**
+     * Prints all messages with a single write to stdout.
+     */
+    @Override
+    public List<SendResult> sendBatch(List<EmailMessage> messages) {
+        Objects.requireNonNull(messages, "messages must not be null");
+        List<SendResult> results = new ArrayList<>(messages.size());
+        StringBuilder output = new StringBuilder();
+        for (EmailMessage message : messages) {
+            Objects.requireNonNull(message, "message must not be null");
+            try {
+                output.append(format(message)).append(System.lineSeparator());
+                results.add(SendResult.sent(message));
+            } catch (RuntimeException e) {
+                results.add(SendResult.failed(message,
+                        new GenPassCoreException("Unexpected error while printing email to console", e)));
+            }
+        }
+        System.out.print(output);
+        LOGGER.info("Batch of " + messages.size() + " emails printed to console");
+        return results;
+    }
+
+    private static String format(EmailMessage message) {
+        return """
+                ================== GenPass Console Email ==================
+                Time     : %s
+                To       : %s
+                Subject  : %s
+                -----------------------------------------------------------
+                TEXT BODY:
+                %s
+                -----------------------------------------------------------
+                HTML BODY:
+                %s
+                ===========================================================
+                """.formatted(
+                Instant.now(),
+                message.getTo(),
+                message.getSubject(),
+                safe(message.getTextBody()),
+                safe(message.getHtmlBody())
+        );
+    }
+
     private static String safe(String value) {
         return value == null ? "" : value;
     }
@@ -0,0 +1,105 @@
+package com.genpass.email.metrics;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.metrics.MetricsRecorder;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link EmailClient} decorator that times and counts sends of any client.
+ *
+ * <p>With prefix {@code p} (default {@code genpass.email}) it reports timers {@code p.send}
+ * (one {@link #send(EmailMessage)}) and {@code p.batch} (one {@link #sendBatch(List)}), and
+ * counters {@code p.sent} and {@code p.failed} (messages, batches included; every message of a
+ * batch that throws counts as failed). Give each wrapped client its own prefix to tell them
+ * apart. The delegate is not closed.</p>
+ */
+public final class MeteredEmailClient implements EmailClient {
+
+    /** Default metric name prefix. */
+    public static final String DEFAULT_PREFIX = "genpass.email";
+
+    private final EmailClient delegate;
+    private final boolean enabled;
+    private final MetricsRecorder.Timer sendTimer;
+    private final MetricsRecorder.Timer batchTimer;
+    private final MetricsRecorder.Counter sent;
+    private final MetricsRecorder.Counter failed;
+
+    /**
+     * Report to {@link MetricsRecorder#shared()} with {@link #DEFAULT_PREFIX}.
+     */
+    public MeteredEmailClient(EmailClient delegate) {
+        this(delegate, MetricsRecorder.shared(), DEFAULT_PREFIX);
+    }
+
+    /**
+     * @param delegate client to wrap (must not be null)
+     * @param metrics  recorder (must not be null)
+     * @param prefix   metric name prefix (must not be null)
+     */
+    public MeteredEmailClient(EmailClient delegate, MetricsRecorder metrics, String prefix) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        Objects.requireNonNull(metrics, "metrics must not be null");
+        Objects.requireNonNull(prefix, "prefix must not be null");
+        this.enabled = metrics.isEnabled();
+        this.sendTimer = metrics.timer(prefix + ".send");
+        this.batchTimer = metrics.timer(prefix + ".batch");
+        this.sent = metrics.counter(prefix + ".sent");
+        this.failed = metrics.counter(prefix + ".failed");
+    }
+
+    @Override
+    public void send(EmailMessage message) {
+        if (!enabled) {
+            delegate.send(message);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.send(message);
+        } catch (RuntimeException e) {
+            failed.increment();
+            throw e;
+        } finally {
+            sendTimer.recordSince(start);
+        }
+        sent.increment();
+    }
+
+    @Override
+    public List<SendResult> sendBatch(List<EmailMessage> messages) {
+        Objects.requireNonNull(messages, "messages must not be null");
+        if (!enabled) {
+            return delegate.sendBatch(messages);
+        }
+        long start = System.nanoTime();
+        List<SendResult> results;
+        try {
+            results = delegate.sendBatch(messages);
+        } catch (RuntimeException e) {
+            // a batch that throws delivered none of its messages as far as the caller can tell
+            failed.add(messages.size());
+            throw e;
+        } finally {
+            batchTimer.recordSince(start);
+        }
+        long ok = 0;
+        for (SendResult result : results) {
+            if (result.isSent()) {
+                ok++;
+            }
+        }
+        sent.add(ok);
+        failed.add(results.size() - ok);
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredEmailClient{" + delegate + "}";
+    }
+}
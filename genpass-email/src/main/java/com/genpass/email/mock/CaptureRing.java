@@ -0,0 +1,81 @@
+package com.genpass.email.mock;
+
+import com.genpass.core.email.EmailMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free ring buffer keeping the most recent {@code capacity} messages.
+ *
+ * <p>Each add claims a sequence number with one {@code getAndIncrement} and publishes the
+ * message into slot {@code seq % capacity}; older messages are overwritten. A slot is only
+ * replaced by a newer sequence, so a slow writer cannot clobber a message that lapped it.
+ * Snapshots are weakly consistent: a message whose sequence is claimed but not yet published
+ * is skipped.</p>
+ */
+final class CaptureRing {
+
+    private record Slot(long seq, EmailMessage message) {
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int capacity;
+    private final AtomicLong next = new AtomicLong();
+    /** Sequences below this were cleared. */
+    private volatile long floor;
+
+    CaptureRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(EmailMessage message) {
+        long seq = next.getAndIncrement();
+        int index = (int) (seq % capacity);
+        Slot slot = new Slot(seq, message);
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.seq > seq) {
+                return; // lapped by a faster writer; this message is already dropped
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+
+    /**
+     * @return retained messages, oldest first
+     */
+    List<EmailMessage> snapshot() {
+        long end = next.get();
+        long start = Math.max(floor, end - capacity);
+        List<EmailMessage> result = new ArrayList<>((int) Math.max(0, end - start));
+        for (long seq = start; seq < end; seq++) {
+            Slot slot = slots.get((int) (seq % capacity));
+            if (slot != null && slot.seq == seq) {
+                result.add(slot.message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of messages overwritten since the last {@link #clear()}
+     */
+    long dropped() {
+        return Math.max(0, next.get() - floor - capacity);
+    }
+
+    void clear() {
+        floor = next.get();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -3,52 +3,257 @@ package com.genpass.email.mock;
 import com.genpass.core.email.EmailMessage;
 import com.genpass.core.exception.GenPassCoreException;
 import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * Mock implementation of {@link EmailClient}.
  *
  * Stores sent emails in-memory for testing.
+ *
+ * The default constructor keeps every email. For load tests use
+ * {@link #MockEmailClient(int)}: only the most recent {@code capacity} emails are kept in a
+ * lock-free ring buffer, so memory stays bounded over long runs and senders never block each
+ * other. In both modes the client counts emails per recipient and lets tests wait for them:
+ *
+ * <pre>
+ * MockEmailClient mock = new MockEmailClient(10_000);
+ * // ... drive load ...
+ * assertTrue(mock.awaitSent("user@example.com", 3, Duration.ofSeconds(5)));
+ * </pre>
+ *
+ * Recipients are counted exactly as given in {@link EmailMessage#getTo()}.
  */
 public final class MockEmailClient implements EmailClient {
 
     private static final Logger LOGGER = Logger.getLogger(MockEmailClient.class.getName());
 
-    private final List<EmailMessage> sentEmails =
-            Collections.synchronizedList(new ArrayList<>());
+    /** Unbounded store, or null in ring-buffer mode. */
+    private final List<EmailMessage> sentEmails;
+    /** Bounded store, or null in unbounded mode. */
+    private final CaptureRing ring;
+    private final LongAdder sentCount = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> sentCountByRecipient = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Create a client that keeps every sent email.
+     */
+    public MockEmailClient() {
+        this.sentEmails = Collections.synchronizedList(new ArrayList<>());
+        this.ring = null;
+    }
+
+    /**
+     * Create a client that keeps only the most recent {@code capacity} emails. Counters still
+     * cover every email sent.
+     *
+     * @param capacity number of emails retained (must be &gt; 0)
+     */
+    public MockEmailClient(int capacity) {
+        this.sentEmails = null;
+        this.ring = new CaptureRing(capacity);
+    }
 
     @Override
     public void send(EmailMessage message) {
         Objects.requireNonNull(message, "message must not be null");
         try {
-            sentEmails.add(message);
-            LOGGER.info("Mock email stored. Total stored emails: " + sentEmails.size());
+            store(message);
         } catch (RuntimeException e) {
             throw new GenPassCoreException("Failed to store mock email", e);
         }
+        signalWaiters();
+        if (sentEmails != null) {
+            LOGGER.fine(() -> "Mock email stored. Total stored emails: " + sentEmails.size());
+        }
     }
 
     /**
-     * Returns an immutable snapshot of sent emails.
+     * Stores all messages at once.
+     */
+    @Override
+    public List<SendResult> sendBatch(List<EmailMessage> messages) {
+        Objects.requireNonNull(messages, "messages must not be null");
+        List<SendResult> results = new ArrayList<>(messages.size());
+        for (EmailMessage message : messages) {
+            results.add(SendResult.sent(Objects.requireNonNull(message, "message must not be null")));
+        }
+        if (sentEmails != null) {
+            sentEmails.addAll(messages);
+        }
+        for (EmailMessage message : messages) {
+            record(message);
+        }
+        signalWaiters();
+        if (sentEmails != null) {
+            LOGGER.fine(() -> "Mock batch of " + messages.size() + " emails stored. Total stored emails: "
+                    + sentEmails.size());
+        }
+        return results;
+    }
+
+    private void store(EmailMessage message) {
+        if (sentEmails != null) {
+            sentEmails.add(message);
+        }
+        record(message);
+    }
+
+    /**
+     * Add to the ring (if any) and the counters.
+     */
+    private void record(EmailMessage message) {
+        if (ring != null) {
+            ring.add(message);
+        }
+        for (String recipient : message.getTo()) {
+            sentCountByRecipient.computeIfAbsent(recipient, r -> new LongAdder()).increment();
+        }
+        sentCount.increment();
+    }
+
+    /**
+     * Returns an immutable snapshot of sent emails, oldest first. In ring-buffer mode only the
+     * retained emails are returned.
      */
     public List<EmailMessage> getSentEmails() {
+        if (ring != null) {
+            return List.copyOf(ring.snapshot());
+        }
         synchronized (sentEmails) {
             return List.copyOf(sentEmails);
         }
     }
 
     /**
-     * Clears all stored emails.
+     * @return stream over a snapshot of the retained emails, oldest first
+     */
+    public Stream<EmailMessage> sentEmails() {
+        return ring != null ? ring.snapshot().stream() : getSentEmails().stream();
+    }
+
+    /**
+     * @return stream over the retained emails addressed to {@code recipient}, oldest first
+     */
+    public Stream<EmailMessage> sentTo(String recipient) {
+        Objects.requireNonNull(recipient, "recipient must not be null");
+        return sentEmails().filter(message -> message.getTo().contains(recipient));
+    }
+
+    /**
+     * @return number of emails sent since creation or the last {@link #clear()}, including
+     *         emails no longer retained
+     */
+    public long sentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * @return number of emails sent to {@code recipient} since creation or the last {@link #clear()}
+     */
+    public long sentCount(String recipient) {
+        LongAdder count = sentCountByRecipient.get(recipient);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return number of emails overwritten in ring-buffer mode; always 0 otherwise
+     */
+    public long droppedCount() {
+        return ring == null ? 0 : ring.dropped();
+    }
+
+    /**
+     * @return ring-buffer capacity, or -1 if every email is kept
+     */
+    public int capacity() {
+        return ring == null ? -1 : ring.capacity();
+    }
+
+    /**
+     * Wait until at least {@code count} emails have been sent.
+     *
+     * @return {@code true} if reached, {@code false} on timeout
+     */
+    public boolean awaitSent(long count, Duration timeout) throws InterruptedException {
+        return await(new Waiter(null, count), timeout);
+    }
+
+    /**
+     * Wait until at least {@code count} emails have been sent to {@code recipient}.
+     *
+     * @return {@code true} if reached, {@code false} on timeout
+     */
+    public boolean awaitSent(String recipient, long count, Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(recipient, "recipient must not be null");
+        return await(new Waiter(recipient, count), timeout);
+    }
+
+    private boolean await(Waiter waiter, Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(timeout, "timeout must not be null");
+        if (waiter.satisfied()) {
+            return true;
+        }
+        waiters.add(waiter);
+        try {
+            // re-check after registering: a send in between may not have seen this waiter
+            return waiter.satisfied() || waiter.latch.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            waiters.remove(waiter);
+        }
+    }
+
+    private void signalWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        for (Waiter waiter : waiters) {
+            if (waiter.satisfied()) {
+                waiter.latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * Clears all stored emails and counters.
      */
     public void clear() {
-        synchronized (sentEmails) {
-            sentEmails.clear();
+        if (ring != null) {
+            ring.clear();
+        } else {
+            synchronized (sentEmails) {
+                sentEmails.clear();
+            }
         }
+        sentCountByRecipient.clear();
+        sentCount.reset();
     }
-}
 
+    private final class Waiter {
+        private final String recipient;
+        private final long count;
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private Waiter(String recipient, long count) {
+            this.recipient = recipient;
+            this.count = count;
+        }
+
+        boolean satisfied() {
+            return (recipient == null ? sentCount() : sentCount(recipient)) >= count;
+        }
+    }
+}
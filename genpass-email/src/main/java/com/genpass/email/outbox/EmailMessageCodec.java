@@ -0,0 +1,93 @@
+package com.genpass.email.outbox;
+
+import com.genpass.core.email.EmailMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of an {@link EmailMessage} as stored in the outbox log.
+ *
+ * <p>Layout: a format byte, then {@code from}, the recipient count and each recipient,
+ * {@code subject}, {@code textBody} and {@code htmlBody}. Strings are written as an
+ * {@code int} byte length followed by UTF-8 bytes; {@code -1} stands for {@code null}.</p>
+ */
+final class EmailMessageCodec {
+
+    private static final byte FORMAT_V1 = 1;
+
+    private EmailMessageCodec() {
+    }
+
+    static byte[] encode(EmailMessage message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_V1);
+            writeString(out, message.getFrom());
+            out.writeInt(message.getTo().size());
+            for (String to : message.getTo()) {
+                writeString(out, to);
+            }
+            writeString(out, message.getSubject());
+            writeString(out, message.getTextBody());
+            writeString(out, message.getHtmlBody());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen for an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the bytes are not a message written by {@link #encode}
+     */
+    static EmailMessage decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte format = in.readByte();
+        if (format != FORMAT_V1) {
+            throw new IOException("Unknown outbox record format " + format);
+        }
+        EmailMessage.Builder builder = new EmailMessage.Builder().from(readString(in));
+        int recipients = in.readInt();
+        if (recipients <= 0) {
+            throw new IOException("Invalid recipient count " + recipients);
+        }
+        for (int i = 0; i < recipients; i++) {
+            String to = readString(in);
+            if (to == null) {
+                throw new IOException("Missing recipient");
+            }
+            builder.addTo(to);
+        }
+        return builder.subject(readString(in))
+                .textBody(readString(in))
+                .htmlBody(readString(in))
+                .build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] utf8 = in.readNBytes(length);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,388 @@
+package com.genpass.email.outbox;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Durable outbox in front of any {@link EmailClient}.
+ *
+ * <p>{@link #send(EmailMessage)} appends the message to a log of memory-mapped segment files in
+ * a local directory and returns once the record is on disk; concurrent senders share one
+ * {@code fsync} (group commit). A dispatcher thread, started with {@link #start()}, drains the log
+ * into the delegate in batches via {@link EmailClient#sendBatch(List)} and marks each delivered
+ * record done. Failed messages are retried after {@code retryDelay}, up to {@code maxAttempts}
+ * times, then marked failed and logged. Segment files whose records are all closed are deleted.</p>
+ *
+ * <p>When the outbox is opened again after a crash or restart, records that were not marked done
+ * are queued for delivery again. Done marks are forced after every batch, but a crash between a
+ * successful send and that force re-sends the message: delivery is at least once.</p>
+ *
+ * <pre>
+ * EmailOutbox outbox = EmailOutbox.builder(Path.of("/var/lib/app/outbox"), smtpClient).build().start();
+ * outbox.send(message); // durable on return
+ * </pre>
+ *
+ * <p>{@link #close()} stops the dispatcher after its current batch and closes the log; messages
+ * not yet delivered stay in the log for the next start. The delegate itself is not closed.
+ * Only one outbox may use a directory at a time: an open outbox holds a lock on
+ * {@code outbox.lock} there, and opening the directory again fails with
+ * {@link GenPassCoreException} until it is closed.</p>
+ */
+public final class EmailOutbox implements EmailClient, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(EmailOutbox.class.getName());
+
+    private static final long POLL_MILLIS = 100;
+
+    /** Default size of a segment file. */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * A record waiting for delivery, ordered by when it may next be attempted.
+     */
+    private static final class Pending implements Delayed {
+        final SegmentLog.Entry entry;
+        int attempts;
+        long dueNanos;
+
+        Pending(SegmentLog.Entry entry) {
+            this.entry = entry;
+            this.dueNanos = System.nanoTime();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            Pending o = (Pending) other;
+            int byDue = Long.compare(dueNanos - o.dueNanos, 0);
+            return byDue != 0 ? byDue : Long.compare(entry.id(), o.entry.id());
+        }
+    }
+
+    private final Path directory;
+    private final EmailClient delegate;
+    private final SegmentLog log;
+    private final boolean syncOnSend;
+    private final int batchSize;
+    private final long retryDelayNanos;
+    private final int maxAttempts;
+    private final DelayQueue<Pending> queue = new DelayQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    private EmailOutbox(Builder b) {
+        if (b.segmentSize <= SegmentLog.HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be > " + SegmentLog.HEADER_SIZE);
+        }
+        if (b.batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        if (b.maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be > 0");
+        }
+        Objects.requireNonNull(b.retryDelay, "retryDelay must not be null");
+        if (b.retryDelay.isNegative()) {
+            throw new IllegalArgumentException("retryDelay must not be negative");
+        }
+        this.directory = b.directory;
+        this.delegate = b.delegate;
+        this.syncOnSend = b.syncOnSend;
+        this.batchSize = b.batchSize;
+        this.retryDelayNanos = b.retryDelay.toNanos();
+        this.maxAttempts = b.maxAttempts;
+        try {
+            this.log = SegmentLog.open(directory, b.segmentSize);
+        } catch (IOException | UncheckedIOException e) {
+            throw new GenPassCoreException("Failed to open email outbox in " + directory, e);
+        }
+        List<SegmentLog.Entry> recovered = log.pendingEntries();
+        for (SegmentLog.Entry entry : recovered) {
+            queue.add(new Pending(entry));
+        }
+        pending.set(recovered.size());
+        if (!recovered.isEmpty()) {
+            LOGGER.info(() -> "Replaying " + recovered.size() + " undelivered email(s) from " + directory);
+        }
+    }
+
+    /**
+     * @param directory directory holding the segment files; created if missing (must not be null)
+     * @param delegate  client that performs the actual sends (must not be null)
+     */
+    public static Builder builder(Path directory, EmailClient delegate) {
+        return new Builder(directory, delegate);
+    }
+
+    /**
+     * Start the daemon dispatcher thread. Calling it again has no effect.
+     *
+     * @return this outbox
+     */
+    public synchronized EmailOutbox start() {
+        if (worker == null) {
+            running = true;
+            Thread t = new Thread(this::runLoop, "genpass-email-outbox");
+            t.setDaemon(true);
+            worker = t;
+            t.start();
+        }
+        return this;
+    }
+
+    /**
+     * Store the message for delivery. Returns once it is durable (unless {@code syncOnSend} is
+     * off); the delegate is called later by the dispatcher.
+     *
+     * <p>If the record was written but forcing it to disk fails, this throws, yet the message is
+     * already queued and may still be delivered; a caller that retries can send it twice.</p>
+     *
+     * @throws IllegalArgumentException if the message does not fit in a segment
+     * @throws GenPassCoreException     if the outbox is closed or the write or sync fails
+     */
+    @Override
+    public void send(EmailMessage message) throws GenPassCoreException {
+        Objects.requireNonNull(message, "message must not be null");
+        byte[] payload = EmailMessageCodec.encode(message);
+        SegmentLog.Entry entry;
+        try {
+            entry = log.append(payload);
+        } catch (UncheckedIOException e) {
+            throw new GenPassCoreException("Failed to write email to outbox in " + directory, e);
+        }
+        // queue before syncing: the record is in the log either way and would be replayed on reopen
+        pending.incrementAndGet();
+        queue.add(new Pending(entry));
+        if (syncOnSend) {
+            try {
+                log.sync(log.writeSeq());
+            } catch (UncheckedIOException e) {
+                throw new GenPassCoreException("Failed to sync email to outbox in " + directory
+                        + "; it may still be delivered", e);
+            }
+        }
+    }
+
+    /**
+     * Deliver every message that is due, on the calling thread.
+     *
+     * @return number of messages the delegate accepted
+     */
+    public int dispatch() {
+        int sent = 0;
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                return sent;
+            }
+            sent += deliver(batch);
+            batch.clear();
+        }
+    }
+
+    private int deliver(List<Pending> batch) {
+        List<Pending> attempted = new ArrayList<>(batch.size());
+        List<EmailMessage> messages = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            try {
+                messages.add(EmailMessageCodec.decode(log.read(p.entry)));
+                attempted.add(p);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Dropping unreadable outbox record " + p.entry.id(), e);
+                closeEntry(p, SegmentLog.FAILED);
+            }
+        }
+        int sent = 0;
+        if (!messages.isEmpty()) {
+            List<SendResult> results;
+            try {
+                results = delegate.sendBatch(messages);
+            } catch (RuntimeException | Error e) {
+                results = new ArrayList<>(messages.size());
+                for (EmailMessage message : messages) {
+                    results.add(SendResult.failed(message, e));
+                }
+            }
+            for (int i = 0; i < attempted.size(); i++) {
+                Pending p = attempted.get(i);
+                SendResult result = results.get(i);
+                if (result.isSent()) {
+                    closeEntry(p, SegmentLog.DONE);
+                    sent++;
+                } else {
+                    retryOrFail(p, result);
+                }
+            }
+        }
+        try {
+            log.sync(log.writeSeq());
+        } catch (UncheckedIOException e) {
+            LOGGER.log(Level.WARNING, "Failed to persist outbox delivery marks", e);
+        }
+        return sent;
+    }
+
+    private void retryOrFail(Pending p, SendResult result) {
+        if (++p.attempts >= maxAttempts) {
+            LOGGER.log(Level.SEVERE, "Giving up on email to " + result.message().getTo()
+                    + " after " + p.attempts + " attempts", result.error());
+            closeEntry(p, SegmentLog.FAILED);
+        } else {
+            LOGGER.log(Level.FINE, "Outbox delivery failed, will retry", result.error());
+            p.dueNanos = System.nanoTime() + retryDelayNanos;
+            queue.add(p);
+        }
+    }
+
+    private void closeEntry(Pending p, byte state) {
+        log.close(p.entry, state);
+        pending.decrementAndGet();
+    }
+
+    private void runLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (Throwable t) {
+                // keep the only dispatcher alive; undelivered records stay in the log
+                LOGGER.log(Level.SEVERE, "Email outbox dispatch failed", t);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return number of messages stored but not yet delivered or given up on
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * @return number of segment files currently in the directory
+     */
+    public int segmentCount() {
+        return log.segmentCount();
+    }
+
+    /**
+     * Stop the dispatcher and close the log. Undelivered messages are kept for the next open.
+     */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = worker;
+            worker = null;
+        }
+        if (t != null) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.close();
+    }
+
+    @Override
+    public String toString() {
+        return "EmailOutbox{directory=" + directory + ", delegate=" + delegate
+                + ", pending=" + pending.get() + "}";
+    }
+
+    /**
+     * Fluent builder for EmailOutbox.
+     */
+    public static final class Builder {
+
+        private final Path directory;
+        private final EmailClient delegate;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private boolean syncOnSend = true;
+        private int batchSize = 64;
+        private Duration retryDelay = Duration.ofSeconds(5);
+        private int maxAttempts = 10;
+
+        private Builder(Path directory, EmailClient delegate) {
+            this.directory = Objects.requireNonNull(directory, "directory must not be null");
+            this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        }
+
+        /** Size of each segment file in bytes (default 16 MiB); bounds the largest message. */
+        public Builder segmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Force each message to disk before {@code send} returns (default). When off, messages
+         * reach the disk with the next batch or when the operating system writes them back.
+         */
+        public Builder syncOnSend(boolean syncOnSend) {
+            this.syncOnSend = syncOnSend;
+            return this;
+        }
+
+        /** Maximum number of messages handed to the delegate per batch (default 64). */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /** Wait before retrying a failed message (default 5 seconds). */
+        public Builder retryDelay(Duration retryDelay) {
+            this.retryDelay = retryDelay;
+            return this;
+        }
+
+        /** Delivery attempts before a message is marked failed (default 10). */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Open the outbox and queue any undelivered messages found in the directory.
+         *
+         * @throws GenPassCoreException if the directory cannot be opened or another outbox has it open
+         */
+        public EmailOutbox build() {
+            return new EmailOutbox(this);
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.genpass.email.outbox;
+
+import com.genpass.core.exception.GenPassCoreException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records stored in memory-mapped segment files.
+ *
+ * <p>Each segment is a fixed-size file named {@code segment-<number>.log}. A record is laid out as
+ * {@code [int length][int crc32c][long id][byte state][payload]}; the length is written last, so a
+ * zero length marks the end of a segment. The CRC covers the id and the payload, not the state
+ * byte, which is flipped in place from {@link #PENDING} to {@link #DONE} or {@link #FAILED}.</p>
+ *
+ * <p>Appends and state changes only touch the page cache. {@link #sync(long)} makes them
+ * durable with group commit: one caller forces every dirty segment while concurrent callers wait
+ * and are released together once their write is covered. A segment whose records are all closed
+ * is deleted as soon as writing has moved on to a newer segment.</p>
+ *
+ * <p>On {@link #open} every segment is scanned. Scanning stops at the first record with a bad
+ * length or checksum, a write torn by a crash; the rest of that segment is zeroed so later scans
+ * cannot pick up stale bytes. Records still {@link #PENDING} are returned by
+ * {@link #pendingEntries()}.</p>
+ *
+ * <p>An open log holds an exclusive lock on {@value #LOCK_FILE} in its directory, so a second
+ * log, in this or another process, cannot open the same directory until it is closed.</p>
+ */
+final class SegmentLog implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SegmentLog.class.getName());
+
+    static final byte PENDING = 0;
+    static final byte DONE = 1;
+    static final byte FAILED = 2;
+
+    static final int HEADER_SIZE = 17;
+    private static final int CRC_OFFSET = 4;
+    private static final int ID_OFFSET = 8;
+    private static final int STATE_OFFSET = 16;
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    static final String LOCK_FILE = "outbox.lock";
+
+    /**
+     * One mapped segment file. Mutable fields are guarded by the log's append lock.
+     */
+    static final class Segment {
+        final long number;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        int open;
+        boolean dirty;
+
+        Segment(long number, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Location of one record.
+     */
+    record Entry(Segment segment, int offset, long id) {
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final List<Entry> recovered = new ArrayList<>();
+    private Segment active;
+    private long nextId = 1;
+    private long writeSeq;
+    private boolean closed;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long durableSeq;
+    private boolean syncing;
+
+    private SegmentLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Open or create the log in {@code directory} and recover its pending records.
+     *
+     * @param segmentSize size of newly created segment files in bytes
+     * @throws GenPassCoreException if another log has the directory open
+     */
+    static SegmentLog open(Path directory, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        SegmentLog log = new SegmentLog(directory, segmentSize);
+        try {
+            log.lockDirectory();
+            log.recover();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    private void lockDirectory() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            directoryLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            directoryLock = null; // held by another log in this JVM
+        }
+        if (directoryLock == null) {
+            throw new GenPassCoreException("Email outbox directory " + directory + " is in use by another outbox", null);
+        }
+    }
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long number;
+                try {
+                    number = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                segments.put(number, map(number, file, Files.size(file)));
+            }
+        }
+        for (Segment segment : segments.values()) {
+            scan(segment);
+        }
+        if (segments.isEmpty()) {
+            active = create(0);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment.open == 0 && segment != active) {
+                delete(segment);
+            }
+        }
+    }
+
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int position = 0;
+        boolean torn = false;
+        while (position + HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > capacity - position - HEADER_SIZE) {
+                torn = true;
+                break;
+            }
+            long id = buffer.getLong(position + ID_OFFSET);
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            if (checksum(id, payload) != buffer.getInt(position + CRC_OFFSET)) {
+                torn = true;
+                break;
+            }
+            if (buffer.get(position + STATE_OFFSET) == PENDING) {
+                recovered.add(new Entry(segment, position, id));
+                segment.open++;
+            }
+            nextId = Math.max(nextId, id + 1);
+            position += HEADER_SIZE + length;
+        }
+        segment.writePosition = position;
+        if (torn) {
+            LOGGER.warning(() -> "Discarding incomplete outbox record at offset " + segment.writePosition
+                    + " of " + segment.path);
+            byte[] zeros = new byte[Math.min(64 * 1024, capacity - position)];
+            for (int p = position; p < capacity; p += zeros.length) {
+                buffer.put(p, zeros, 0, Math.min(zeros.length, capacity - p));
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return records that were still pending when the log was opened, oldest first
+     */
+    List<Entry> pendingEntries() {
+        return List.copyOf(recovered);
+    }
+
+    /**
+     * Append a pending record.
+     *
+     * @throws IllegalArgumentException if the record does not fit in one segment
+     */
+    Entry append(byte[] payload) {
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Outbox record of " + size
+                    + " bytes does not fit in a segment of " + segmentSize + " bytes");
+        }
+        appendLock.lock();
+        try {
+            ensureOpen();
+            if (size > active.buffer.capacity() - active.writePosition) {
+                roll();
+            }
+            long id = nextId++;
+            MappedByteBuffer buffer = active.buffer;
+            int offset = active.writePosition;
+            buffer.putLong(offset + ID_OFFSET, id);
+            buffer.put(offset + STATE_OFFSET, PENDING);
+            buffer.put(offset + HEADER_SIZE, payload);
+            buffer.putInt(offset + CRC_OFFSET, checksum(id, payload));
+            buffer.putInt(offset, payload.length);
+            active.writePosition += size;
+            active.open++;
+            active.dirty = true;
+            writeSeq++;
+            return new Entry(active, offset, id);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the record's payload
+     */
+    byte[] read(Entry entry) {
+        MappedByteBuffer buffer = entry.segment.buffer;
+        byte[] payload = new byte[buffer.getInt(entry.offset)];
+        buffer.get(entry.offset + HEADER_SIZE, payload);
+        return payload;
+    }
+
+    /**
+     * Close a pending record with {@link #DONE} or {@link #FAILED}. Deletes its segment if this
+     * was the segment's last pending record and the segment is no longer written to.
+     */
+    void close(Entry entry, byte state) {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            Segment segment = entry.segment;
+            segment.buffer.put(entry.offset + STATE_OFFSET, state);
+            segment.dirty = true;
+            writeSeq++;
+            if (--segment.open == 0 && segment != active) {
+                delete(segment);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return sequence number of the latest append or state change, for {@link #sync(long)}
+     */
+    long writeSeq() {
+        appendLock.lock();
+        try {
+            return writeSeq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Block until every write up to {@code seq} has been forced to disk. Callers arriving while
+     * a force is running wait for it and then share the next one.
+     *
+     * @param seq value of {@link #writeSeq()} after the caller's write
+     * @throws UncheckedIOException if forcing a segment fails
+     */
+    void sync(long seq) {
+        syncLock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                syncLock.unlock();
+                long covered = -1;
+                try {
+                    covered = forceDirty();
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durableSeq = Math.max(durableSeq, covered);
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Force all dirty segments.
+     *
+     * @return write sequence number covered by the force
+     */
+    private long forceDirty() {
+        List<Segment> dirty = new ArrayList<>();
+        long seq;
+        appendLock.lock();
+        try {
+            seq = writeSeq;
+            for (Segment segment : segments.values()) {
+                if (segment.dirty) {
+                    segment.dirty = false;
+                    dirty.add(segment);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            for (Segment segment : dirty) {
+                segment.buffer.force();
+            }
+        } catch (UncheckedIOException e) {
+            appendLock.lock();
+            try {
+                dirty.forEach(segment -> segment.dirty = true);
+            } finally {
+                appendLock.unlock();
+            }
+            throw e;
+        }
+        return seq;
+    }
+
+    /**
+     * @return number of segment files
+     */
+    int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Force outstanding writes and close all segment files.
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        for (Segment segment : segments.values()) {
+            try {
+                segment.buffer.force();
+                segment.channel.close();
+            } catch (IOException | UncheckedIOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close outbox segment " + segment.path, e);
+            }
+        }
+        if (lockChannel != null) {
+            try {
+                // closing the channel releases the directory lock
+                lockChannel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to release outbox lock in " + directory, e);
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new GenPassCoreException("Email outbox is closed", null);
+        }
+    }
+
+    /**
+     * Start a new segment. Called with the append lock held.
+     */
+    private void roll() {
+        Segment previous = active;
+        try {
+            active = create(previous.number + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (previous.open == 0) {
+            delete(previous);
+        }
+    }
+
+    private Segment create(long number) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, number, SUFFIX));
+        Segment segment = map(number, file, segmentSize);
+        segments.put(number, segment);
+        return segment;
+    }
+
+    private static Segment map(long number, Path file, long size) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(number, file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Remove a segment with no pending records. Called with the append lock held or during
+     * recovery.
+     */
+    private void delete(Segment segment) {
+        segments.remove(segment.number);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete outbox segment " + segment.path, e);
+        }
+    }
+
+    private static int checksum(long id, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (id >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,439 @@
+package com.genpass.email.ratelimit;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.AsyncEmailClient;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sending scheduler that rate-limits outgoing mail per recipient domain and per relay.
+ *
+ * <p>Each message is split by recipient domain (a message to {@code a@x.com} and {@code b@y.com}
+ * becomes one message per domain). Every domain has its own queue and {@link TokenBucket}; the
+ * relay has one more bucket shared by all domains. A single dispatcher thread visits the domains
+ * that have queued mail in round-robin order and sends one message per visit when both the
+ * domain's and the relay's bucket allow it, so a burst to one provider waits for its own bucket
+ * while other domains keep flowing. Sends run on virtual threads, at most
+ * {@code maxConcurrentSends} at a time.</p>
+ *
+ * <p>Per-domain state (queue, counters, bucket) is lock-free: callers enqueue with CAS
+ * operations only and never contend with the dispatcher. Domains with nothing queued and a full
+ * bucket are dropped, so the number of domains tracked stays bounded by current traffic.</p>
+ *
+ * <p>A message split across domains counts as sent only if every part was sent; otherwise the
+ * result reports the first failed part. {@link #close()} stops accepting messages, sends what is
+ * queued (still rate-limited) and stops the dispatcher. The delegate itself is not closed.</p>
+ */
+public final class RateLimitedEmailClient implements EmailClient, AsyncEmailClient {
+
+    private static final Logger LOGGER = Logger.getLogger(RateLimitedEmailClient.class.getName());
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** {@link DomainState#pending} value of a domain that has been dropped. */
+    private static final int RETIRED = -1;
+
+    private record Task(EmailMessage message, CompletableFuture<SendResult> future) {
+    }
+
+    private static final class DomainState {
+        final String domain;
+        final TokenBucket bucket;
+        final ConcurrentLinkedQueue<Task> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger();
+        /** Set while the domain is in the dispatcher's round-robin ring. */
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        DomainState(String domain, TokenBucket bucket) {
+            this.domain = domain;
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * Per-domain rate.
+     */
+    private record Rate(double permitsPerSecond, int burst) {
+    }
+
+    private final EmailClient delegate;
+    private final Rate defaultRate;
+    private final Map<String, Rate> domainRates;
+    private final TokenBucket relayBucket;
+    private final int maxQueuedPerDomain;
+    private final int maxConcurrentSends;
+    private final ConcurrentHashMap<String, DomainState> domains = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<DomainState> ring = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger totalPending = new AtomicInteger();
+    private final Semaphore sendPermits;
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private RateLimitedEmailClient(Builder b) {
+        if (b.maxQueuedPerDomain <= 0) {
+            throw new IllegalArgumentException("maxQueuedPerDomain must be > 0");
+        }
+        if (b.maxConcurrentSends <= 0) {
+            throw new IllegalArgumentException("maxConcurrentSends must be > 0");
+        }
+        this.delegate = b.delegate;
+        this.defaultRate = b.defaultRate;
+        this.domainRates = Map.copyOf(b.domainRates);
+        this.relayBucket = b.relayBucket != null
+                ? b.relayBucket : new TokenBucket(b.relayRate.permitsPerSecond, b.relayRate.burst);
+        this.maxQueuedPerDomain = b.maxQueuedPerDomain;
+        this.maxConcurrentSends = b.maxConcurrentSends;
+        this.sendPermits = new Semaphore(b.maxConcurrentSends);
+        this.senders = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("genpass-email-ratelimit-send-", 0).factory());
+        this.dispatcher = Thread.ofPlatform().daemon().name("genpass-email-ratelimit")
+                .start(this::dispatchLoop);
+    }
+
+    /**
+     * @param delegate client that performs the actual sends (must not be null)
+     */
+    public static Builder builder(EmailClient delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Send and wait until every part has been sent or failed.
+     *
+     * @throws GenPassCoreException if a part failed, was rejected or the client is closed
+     */
+    @Override
+    public void send(EmailMessage message) throws GenPassCoreException {
+        SendResult result = sendAsync(message).join();
+        if (result.isSent()) {
+            return;
+        }
+        if (result.error() instanceof GenPassCoreException e) {
+            throw e;
+        }
+        if (result.error() == null) {
+            throw new GenPassCoreException("Email not sent: " + result.status(), null);
+        }
+        throw new GenPassCoreException("Failed to send email", result.error());
+    }
+
+    @Override
+    public CompletableFuture<SendResult> sendAsync(EmailMessage message) {
+        Objects.requireNonNull(message, "message must not be null");
+        Map<String, List<String>> byDomain = new LinkedHashMap<>();
+        for (String to : message.getTo()) {
+            byDomain.computeIfAbsent(domainOf(to), d -> new ArrayList<>()).add(to);
+        }
+        if (byDomain.size() == 1) {
+            return enqueue(byDomain.keySet().iterator().next(), message);
+        }
+        List<CompletableFuture<SendResult>> parts = new ArrayList<>(byDomain.size());
+        byDomain.forEach((domain, recipients) -> parts.add(enqueue(domain, new EmailMessage.Builder()
+                .from(message.getFrom())
+                .to(recipients)
+                .subject(message.getSubject())
+                .textBody(message.getTextBody())
+                .htmlBody(message.getHtmlBody())
+                .build())));
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            for (CompletableFuture<SendResult> part : parts) {
+                SendResult r = part.join();
+                if (!r.isSent()) {
+                    return new SendResult(message, r.status(), r.error());
+                }
+            }
+            return SendResult.sent(message);
+        });
+    }
+
+    static String domainOf(String address) {
+        int at = address.lastIndexOf('@');
+        String domain = at < 0 ? "" : address.substring(at + 1);
+        int end = domain.length();
+        while (end > 0 && (domain.charAt(end - 1) == '>' || Character.isWhitespace(domain.charAt(end - 1)))) {
+            end--;
+        }
+        return domain.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private CompletableFuture<SendResult> enqueue(String domain, EmailMessage message) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        if (closed) {
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+            return future;
+        }
+        DomainState state = reserve(domain);
+        if (state == null) {
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+            return future;
+        }
+        totalPending.incrementAndGet();
+        Task task = new Task(message, future);
+        state.queue.add(task);
+        // a task queued after close() may have missed the dispatcher's last pass
+        if (closed && state.queue.remove(task)) {
+            state.pending.decrementAndGet();
+            totalPending.decrementAndGet();
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+            return future;
+        }
+        if (state.scheduled.compareAndSet(false, true)) {
+            ring.add(state);
+        }
+        LockSupport.unpark(dispatcher);
+        return future;
+    }
+
+    /**
+     * Count one more queued message for the domain.
+     *
+     * @return the domain's state, or {@code null} if its queue is full
+     */
+    private DomainState reserve(String domain) {
+        while (true) {
+            DomainState state = domains.computeIfAbsent(domain, this::newDomain);
+            int p = state.pending.get();
+            if (p == RETIRED) {
+                Thread.onSpinWait(); // being removed by the dispatcher; the next lookup creates a fresh one
+                continue;
+            }
+            if (p >= maxQueuedPerDomain) {
+                return null;
+            }
+            if (state.pending.compareAndSet(p, p + 1)) {
+                return state;
+            }
+        }
+    }
+
+    private DomainState newDomain(String domain) {
+        Rate rate = domainRates.getOrDefault(domain, defaultRate);
+        return new DomainState(domain, new TokenBucket(rate.permitsPerSecond, rate.burst));
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            long parkNanos = dispatchPass();
+            if (parkNanos == 0) {
+                continue;
+            }
+            if (closed && totalPending.get() == 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, parkNanos);
+        }
+        // wait for sends still in flight
+        sendPermits.acquireUninterruptibly(maxConcurrentSends);
+        sendPermits.release(maxConcurrentSends);
+    }
+
+    /**
+     * Visit every domain in the ring once.
+     *
+     * @return 0 if a message was sent, otherwise how long to park before the next pass
+     */
+    private long dispatchPass() {
+        long parkNanos = MAX_PARK_NANOS;
+        boolean sent = false;
+        for (int visits = ring.size(); visits > 0; visits--) {
+            DomainState state = ring.poll();
+            if (state == null) {
+                break;
+            }
+            long now = System.nanoTime();
+            if (state.queue.isEmpty()) {
+                long untilFull = state.bucket.nanosUntilFull(now);
+                if (untilFull > 0) {
+                    // keep visiting until the bucket has refilled, then the domain can be dropped
+                    parkNanos = Math.min(parkNanos, untilFull);
+                    ring.add(state);
+                } else {
+                    unschedule(state);
+                }
+                continue;
+            }
+            long domainWait = state.bucket.delayNanos(now);
+            if (domainWait > 0) {
+                parkNanos = Math.min(parkNanos, domainWait);
+                ring.add(state);
+                continue;
+            }
+            long relayWait = relayBucket.tryAcquire(now);
+            if (relayWait > 0) {
+                // relay exhausted: no domain can send until it refills
+                ring.add(state);
+                return Math.min(parkNanos, relayWait);
+            }
+            state.bucket.tryAcquire(now); // only this thread takes domain permits, so this succeeds
+            sendPermits.acquireUninterruptibly();
+            Task task = state.queue.poll();
+            state.pending.decrementAndGet();
+            totalPending.decrementAndGet();
+            ring.add(state);
+            sent = true;
+            senders.execute(() -> deliver(task));
+        }
+        return sent ? 0 : parkNanos;
+    }
+
+    /**
+     * Take an empty domain with a full bucket out of the ring and drop it.
+     */
+    private void unschedule(DomainState state) {
+        state.scheduled.set(false);
+        if (!state.queue.isEmpty()) {
+            // a message arrived after the emptiness check; put the domain back if nobody else did
+            if (state.scheduled.compareAndSet(false, true)) {
+                ring.add(state);
+            }
+            return;
+        }
+        if (state.pending.compareAndSet(0, RETIRED)) {
+            domains.remove(state.domain, state);
+        }
+    }
+
+    private void deliver(Task task) {
+        try {
+            delegate.send(task.message);
+            task.future.complete(SendResult.sent(task.message));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Rate-limited email send failed", e);
+            task.future.complete(SendResult.failed(task.message, e));
+        } finally {
+            sendPermits.release();
+        }
+    }
+
+    /**
+     * @return number of messages queued and not yet handed to the delegate
+     */
+    public int pendingCount() {
+        return totalPending.get();
+    }
+
+    /**
+     * @return number of messages queued for one domain
+     */
+    public int pendingCount(String domain) {
+        DomainState state = domains.get(domain.toLowerCase(Locale.ROOT));
+        return state == null ? 0 : Math.max(0, state.pending.get());
+    }
+
+    /**
+     * @return number of domains currently tracked
+     */
+    int domainCount() {
+        return domains.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.close();
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitedEmailClient{delegate=" + delegate + ", perDomain=" + defaultRate
+                + ", relay=" + relayBucket + ", pending=" + totalPending.get() + "}";
+    }
+
+    /**
+     * Fluent builder for RateLimitedEmailClient.
+     */
+    public static final class Builder {
+
+        private final EmailClient delegate;
+        private Rate defaultRate = new Rate(10, 20);
+        private final Map<String, Rate> domainRates = new HashMap<>();
+        private Rate relayRate = new Rate(100, 100);
+        private TokenBucket relayBucket;
+        private int maxQueuedPerDomain = 10_000;
+        private int maxConcurrentSends = 4;
+
+        private Builder(EmailClient delegate) {
+            this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        }
+
+        /** Rate and burst for every domain without an override (default 10/s, burst 20). */
+        public Builder perDomainRate(double permitsPerSecond, int burst) {
+            this.defaultRate = rate(permitsPerSecond, burst);
+            return this;
+        }
+
+        /** Rate and burst for one domain, e.g. a provider with a stricter published limit. */
+        public Builder domainRate(String domain, double permitsPerSecond, int burst) {
+            Objects.requireNonNull(domain, "domain must not be null");
+            domainRates.put(domain.toLowerCase(Locale.ROOT), rate(permitsPerSecond, burst));
+            return this;
+        }
+
+        /** Rate and burst across all domains (default 100/s, burst 100). */
+        public Builder relayRate(double permitsPerSecond, int burst) {
+            this.relayRate = rate(permitsPerSecond, burst);
+            this.relayBucket = null;
+            return this;
+        }
+
+        /**
+         * Use an existing bucket for the relay limit, so that several clients sending through the
+         * same relay share it. Overrides {@link #relayRate(double, int)}.
+         */
+        public Builder relayBucket(TokenBucket relayBucket) {
+            this.relayBucket = Objects.requireNonNull(relayBucket, "relayBucket must not be null");
+            return this;
+        }
+
+        /** Messages queued per domain before further ones are rejected (default 10 000). */
+        public Builder maxQueuedPerDomain(int maxQueuedPerDomain) {
+            this.maxQueuedPerDomain = maxQueuedPerDomain;
+            return this;
+        }
+
+        /**
+         * Sends in flight at once (default 4). For {@code SmtpEmailClient} this is best matched to
+         * {@code EmailConfig.maxConnections()}.
+         */
+        public Builder maxConcurrentSends(int maxConcurrentSends) {
+            this.maxConcurrentSends = maxConcurrentSends;
+            return this;
+        }
+
+        private static Rate rate(double permitsPerSecond, int burst) {
+            new TokenBucket(permitsPerSecond, burst, 0); // validates the arguments
+            return new Rate(permitsPerSecond, burst);
+        }
+
+        public RateLimitedEmailClient build() {
+            return new RateLimitedEmailClient(this);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.genpass.email.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ *
+ * <p>The bucket refills at {@code permitsPerSecond} and holds at most {@code burst} permits. It
+ * is kept in the equivalent "virtual scheduling" form: a single {@link AtomicLong} holds the time
+ * at which the bucket would be full again, and taking a permit pushes that time forward by one
+ * refill interval with a compare-and-set. There is no lock and no refill thread.</p>
+ *
+ * <p>A new bucket starts full.</p>
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    /** Time at which the bucket is full again; at or before "now" means it is full. */
+    private final AtomicLong fullAt;
+
+    /**
+     * @param permitsPerSecond refill rate (must be &gt; 0)
+     * @param burst            bucket size (must be &gt;= 1)
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System.nanoTime());
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be >= 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000d / permitsPerSecond));
+        this.capacityNanos = Math.multiplyExact(intervalNanos, (long) burst);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Take a permit if one is available.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime()) == 0;
+    }
+
+    /**
+     * Take a permit if one is available at {@code nowNanos}.
+     *
+     * @return 0 if a permit was taken, otherwise nanoseconds until one is available
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current - nowNanos, 0) + nowNanos + intervalNanos;
+            long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return 0 if a permit is available at {@code nowNanos}, otherwise nanoseconds until one is;
+     * does not take a permit
+     */
+    long delayNanos(long nowNanos) {
+        long next = Math.max(fullAt.get() - nowNanos, 0) + nowNanos + intervalNanos;
+        return Math.max(0, next - nowNanos - capacityNanos);
+    }
+
+    /**
+     * @return 0 if the bucket is full at {@code nowNanos}, otherwise nanoseconds until it is
+     */
+    long nanosUntilFull(long nowNanos) {
+        return Math.max(0, fullAt.get() - nowNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket{permitsPerSecond=" + (1_000_000_000d / intervalNanos)
+                + ", burst=" + capacityNanos / intervalNanos + "}";
+    }
+}
@@ -0,0 +1,226 @@
+package com.genpass.email.resilience;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker guarding a mail relay.
+ *
+ * <p>The outcomes of the last {@code windowSize} calls are kept in a ring. Once at least
+ * {@code minimumCalls} outcomes are recorded and the share of failures reaches
+ * {@code failureRateThreshold}, the breaker opens and {@link #tryAcquire()} refuses calls for
+ * {@code openDuration}. After that a single trial call is let through (half-open): success closes
+ * the breaker with a fresh window, failure opens it again.</p>
+ *
+ * <p>Only failures that say something about the relay (timeouts, refused connections, 4xx
+ * replies) should be recorded as failures; a 5xx rejection of one recipient means the relay is
+ * up. Thread-safe; uses a {@link ReentrantLock} so virtual threads are not pinned.</p>
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Breaker state.
+     */
+    public enum State {
+        /** Calls pass; outcomes are recorded. */
+        CLOSED,
+        /** Calls are refused until the open duration has passed. */
+        OPEN,
+        /** One trial call is in flight; other calls are refused. */
+        HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+    private int windowIndex;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+
+    private CircuitBreaker(Builder b) {
+        if (!(b.failureRateThreshold > 0 && b.failureRateThreshold <= 1)) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        if (b.windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be > 0");
+        }
+        if (b.minimumCalls <= 0 || b.minimumCalls > b.windowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize");
+        }
+        Objects.requireNonNull(b.openDuration, "openDuration must not be null");
+        if (b.openDuration.isNegative()) {
+            throw new IllegalArgumentException("openDuration must not be negative");
+        }
+        this.failureRateThreshold = b.failureRateThreshold;
+        this.minimumCalls = b.minimumCalls;
+        this.openNanos = b.openDuration.toNanos();
+        this.nanoClock = b.nanoClock;
+        this.window = new boolean[b.windowSize];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Ask for permission to make a call. Every permitted call must be followed by
+     * {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @return {@code false} if the breaker is open
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            return switch (state) {
+                case CLOSED -> true;
+                case HALF_OPEN -> false;
+                case OPEN -> {
+                    if (nanoClock.getAsLong() - openedAtNanos < openNanos) {
+                        yield false;
+                    }
+                    state = State.HALF_OPEN;
+                    yield true;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record a call that reached a healthy relay.
+     */
+    public void recordSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                reset();
+                state = State.CLOSED;
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record a call that failed because of the relay or the connection to it.
+     */
+    public void recordFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return current state; an open breaker whose open duration has passed still reports
+     * {@link State#OPEN} until the next {@link #tryAcquire()}
+     */
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[windowIndex]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            failures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        reset();
+    }
+
+    private void reset() {
+        windowIndex = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{state=" + state() + ", threshold=" + failureRateThreshold
+                + ", window=" + window.length + "}";
+    }
+
+    /**
+     * Fluent builder for CircuitBreaker.
+     */
+    public static final class Builder {
+
+        private double failureRateThreshold = 0.5;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /** Failure share that opens the breaker, in (0, 1] (default 0.5). */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /** Number of recent calls the failure rate is computed over (default 20). */
+        public Builder windowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /** Calls needed in the window before the breaker may open (default 10). */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /** How long the breaker refuses calls before trying one (default 30 seconds). */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
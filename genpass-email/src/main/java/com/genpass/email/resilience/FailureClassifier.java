@@ -0,0 +1,81 @@
+package com.genpass.email.resilience;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decides whether a failed send is worth retrying.
+ */
+@FunctionalInterface
+public interface FailureClassifier {
+
+    /**
+     * @param error exception thrown by {@link com.genpass.email.api.EmailClient#send}
+     * @return {@code true} if the same message may succeed later, {@code false} if retrying
+     * cannot help
+     */
+    boolean isTransient(Throwable error);
+
+    /**
+     * Classifier for {@link com.genpass.email.smtp.SmtpEmailClient} failures.
+     *
+     * <p>Walks the cause chain, which for a {@link MessagingException} includes the per-recipient
+     * failures linked through {@link MessagingException#getNextException()}:</p>
+     * <ul>
+     *   <li>SMTP replies: any 5xx code is permanent; otherwise any 4xx code is transient.</li>
+     *   <li>Malformed addresses ({@link AddressException}) are permanent.</li>
+     *   <li>I/O errors, timeouts and other {@link MessagingException}s (connection refused,
+     *       dropped connection, ...) are transient.</li>
+     *   <li>Everything else, e.g. an invalid message or a closed client, is permanent.</li>
+     * </ul>
+     */
+    final class Smtp implements FailureClassifier {
+
+        @Override
+        public boolean isTransient(Throwable error) {
+            boolean retryable = false;
+            Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Throwable t = error; t != null && seen.add(t); t = t.getCause()) {
+                int code = replyCode(t);
+                if (code >= 500) {
+                    return false;
+                }
+                if (t instanceof AddressException) {
+                    return false;
+                }
+                if (code >= 400 || t instanceof MessagingException
+                        || t instanceof IOException || t instanceof TimeoutException) {
+                    retryable = true;
+                }
+            }
+            return retryable;
+        }
+
+        private static int replyCode(Throwable t) {
+            if (t instanceof SMTPSendFailedException e) {
+                return e.getReturnCode();
+            }
+            if (t instanceof SMTPAddressFailedException e) {
+                return e.getReturnCode();
+            }
+            if (t instanceof SMTPSenderFailedException e) {
+                return e.getReturnCode();
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return "FailureClassifier.Smtp";
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.genpass.email.resilience;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.AsyncEmailClient;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link EmailClient} decorator that retries transient failures and stops calling a failing
+ * relay.
+ *
+ * <p>Each failure is classified by a {@link FailureClassifier} (by default
+ * {@link FailureClassifier.Smtp}: 4xx replies, timeouts and connection errors are transient, 5xx
+ * replies and bad addresses are permanent). Transient failures are retried up to
+ * {@code maxAttempts} times with exponential backoff; each delay is reduced by a random share of
+ * up to {@code jitter}, so clients that failed together do not retry together. Retries are
+ * scheduled on a {@link ScheduledExecutorService} (one shared daemon thread by default) and run on
+ * an executor (virtual threads by default); no thread sleeps between attempts.</p>
+ *
+ * <p>Every attempt first asks a {@link CircuitBreaker}. Transient failures count against it;
+ * successes and permanent failures show the relay is reachable and count for it. While the
+ * breaker is open, sends fail immediately without reaching the delegate.</p>
+ *
+ * <p>{@link #send(EmailMessage)} blocks until the message is sent or given up on and throws the
+ * last failure; {@link #sendAsync(EmailMessage)} returns at once. {@link #close()} completes
+ * pending retries as {@link SendResult.Status#REJECTED}; the delegate itself is not closed.</p>
+ */
+public final class ResilientEmailClient implements EmailClient, AsyncEmailClient {
+
+    private static final Logger LOGGER = Logger.getLogger(ResilientEmailClient.class.getName());
+
+    private static final class Shared {
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("genpass-email-retry-scheduler").factory());
+        static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("genpass-email-retry-", 0).factory());
+    }
+
+    private final EmailClient delegate;
+    private final FailureClassifier classifier;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double multiplier;
+    private final double jitter;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    /** Futures of messages waiting for a scheduled retry. */
+    private final Map<CompletableFuture<SendResult>, EmailMessage> waitingRetries = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private ResilientEmailClient(Builder b) {
+        if (b.maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be > 0");
+        }
+        Objects.requireNonNull(b.initialBackoff, "initialBackoff must not be null");
+        Objects.requireNonNull(b.maxBackoff, "maxBackoff must not be null");
+        if (b.initialBackoff.isNegative() || b.maxBackoff.compareTo(b.initialBackoff) < 0) {
+            throw new IllegalArgumentException("backoff must satisfy 0 <= initialBackoff <= maxBackoff");
+        }
+        if (!(b.multiplier >= 1)) {
+            throw new IllegalArgumentException("multiplier must be >= 1");
+        }
+        if (!(b.jitter >= 0 && b.jitter <= 1)) {
+            throw new IllegalArgumentException("jitter must be in [0, 1]");
+        }
+        this.delegate = b.delegate;
+        this.classifier = Objects.requireNonNull(b.classifier, "classifier must not be null");
+        this.circuitBreaker = Objects.requireNonNull(b.circuitBreaker, "circuitBreaker must not be null");
+        this.maxAttempts = b.maxAttempts;
+        this.initialBackoffNanos = b.initialBackoff.toNanos();
+        this.maxBackoffNanos = b.maxBackoff.toNanos();
+        this.multiplier = b.multiplier;
+        this.jitter = b.jitter;
+        this.scheduler = b.scheduler != null ? b.scheduler : Shared.SCHEDULER;
+        this.executor = b.executor != null ? b.executor : Shared.EXECUTOR;
+    }
+
+    /**
+     * @param delegate client that performs the actual sends (must not be null)
+     */
+    public static Builder builder(EmailClient delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Send with retries, blocking until the message is sent or given up on. The first attempt
+     * runs on the calling thread.
+     *
+     * @throws GenPassCoreException the last failure, or if the circuit breaker is open or the
+     *                              client was closed
+     */
+    @Override
+    public void send(EmailMessage message) throws GenPassCoreException {
+        Objects.requireNonNull(message, "message must not be null");
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        attempt(message, 1, future);
+        SendResult result = future.join();
+        if (result.isSent()) {
+            return;
+        }
+        if (result.error() instanceof GenPassCoreException e) {
+            throw e;
+        }
+        if (result.error() == null) {
+            throw new GenPassCoreException("Email client is closed", null);
+        }
+        throw new GenPassCoreException("Failed to send email", result.error());
+    }
+
+    @Override
+    public CompletableFuture<SendResult> sendAsync(EmailMessage message) {
+        Objects.requireNonNull(message, "message must not be null");
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        submit(() -> attempt(message, 1, future), message, future);
+        return future;
+    }
+
+    private void attempt(EmailMessage message, int attempt, CompletableFuture<SendResult> future) {
+        if (closed) {
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            future.complete(SendResult.failed(message,
+                    new GenPassCoreException("Circuit breaker is open; email not sent", null)));
+            return;
+        }
+        try {
+            delegate.send(message);
+        } catch (RuntimeException e) {
+            boolean retryable = classifier.isTransient(e);
+            if (retryable) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+            if (!retryable || attempt >= maxAttempts) {
+                future.complete(SendResult.failed(message, e));
+                return;
+            }
+            long delay = backoffNanos(attempt);
+            LOGGER.log(Level.FINE, "Transient email failure on attempt " + attempt + ", retrying in "
+                    + TimeUnit.NANOSECONDS.toMillis(delay) + " ms", e);
+            waitingRetries.put(future, message);
+            try {
+                scheduler.schedule(() -> {
+                    // skip if close() already rejected it
+                    if (waitingRetries.remove(future) != null) {
+                        submit(() -> attempt(message, attempt + 1, future), message, future);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException rejected) {
+                waitingRetries.remove(future);
+                future.complete(SendResult.failed(message, e));
+                return;
+            }
+            if (closed) {
+                rejectWaitingRetries(); // closed while scheduling
+            }
+            return;
+        }
+        circuitBreaker.recordSuccess();
+        future.complete(SendResult.sent(message));
+    }
+
+    private void submit(Runnable task, EmailMessage message, CompletableFuture<SendResult> future) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+        }
+    }
+
+    /**
+     * Delay before attempt {@code attempt + 1}: {@code initialBackoff * multiplier^(attempt-1)},
+     * capped at {@code maxBackoff}, minus a random share of up to {@code jitter}.
+     */
+    long backoffNanos(int attempt) {
+        double base = Math.min(maxBackoffNanos, initialBackoffNanos * Math.pow(multiplier, attempt - 1));
+        return (long) (base * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * @return the circuit breaker guarding the delegate
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Reject new messages and complete retries waiting for their backoff as
+     * {@link SendResult.Status#REJECTED} right away. Attempts already running finish normally.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        rejectWaitingRetries();
+    }
+
+    private void rejectWaitingRetries() {
+        for (CompletableFuture<SendResult> future : waitingRetries.keySet()) {
+            EmailMessage message = waitingRetries.remove(future);
+            if (message != null) {
+                future.complete(new SendResult(message, SendResult.Status.REJECTED, null));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResilientEmailClient{delegate=" + delegate + ", maxAttempts=" + maxAttempts
+                + ", circuitBreaker=" + circuitBreaker + "}";
+    }
+
+    /**
+     * Fluent builder for ResilientEmailClient.
+     */
+    public static final class Builder {
+
+        private final EmailClient delegate;
+        private FailureClassifier classifier = new FailureClassifier.Smtp();
+        private CircuitBreaker circuitBreaker;
+        private int maxAttempts = 4;
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(10);
+        private double multiplier = 2.0;
+        private double jitter = 0.5;
+        private ScheduledExecutorService scheduler;
+        private Executor executor;
+
+        private Builder(EmailClient delegate) {
+            this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        }
+
+        /** Decides which failures are retried (default {@link FailureClassifier.Smtp}). */
+        public Builder classifier(FailureClassifier classifier) {
+            this.classifier = classifier;
+            return this;
+        }
+
+        /**
+         * Breaker guarding the delegate (default: {@link CircuitBreaker#builder()} defaults).
+         * Share one breaker between clients that use the same relay.
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /** Total attempts per message, including the first (default 4). */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /** Delay before the first retry (default 200 ms). */
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /** Upper bound for any retry delay (default 10 seconds). */
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /** Factor applied to the delay after each retry (default 2). */
+        public Builder multiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Largest share of each delay removed at random, 0 to 1 (default 0.5). 1 gives "full
+         * jitter": delays are uniform between zero and the exponential value.
+         */
+        public Builder jitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /** Scheduler that times retries (default: one shared daemon thread). */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /** Executor that runs retries (default: shared virtual-thread-per-task executor). */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ResilientEmailClient build() {
+            if (circuitBreaker == null) {
+                circuitBreaker = CircuitBreaker.builder().build();
+            }
+            return new ResilientEmailClient(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.genpass.email.smtp;
+
+import com.genpass.core.email.EmailAddressValidator;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded concurrent cache of parsed recipient addresses.
+ *
+ * <p>Keys are the address strings as given in the {@code EmailMessage}, so repeat recipients
+ * (e.g. users signing in again) skip trimming and parsing entirely. On a miss, addresses accepted
+ * by {@link EmailAddressValidator} are built directly without going through the Jakarta Mail
+ * parser; anything else is parsed leniently as before.</p>
+ *
+ * <p>Cached {@link InternetAddress} instances are shared between messages and must not be
+ * modified. When the cache is full it is cleared rather than tracking recency; hot addresses
+ * are back after their next use.</p>
+ */
+final class AddressCache {
+
+    /** Default maximum number of cached addresses. */
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final ConcurrentHashMap<String, InternetAddress> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    AddressCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param address recipient as given by the caller (not null, not blank)
+     * @return the parsed address
+     * @throws AddressException if the address is invalid
+     */
+    InternetAddress get(String address) throws AddressException {
+        InternetAddress cached = entries.get(address);
+        if (cached != null) {
+            return cached;
+        }
+        InternetAddress parsed = parse(address);
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(address, parsed);
+        return parsed;
+    }
+
+    static InternetAddress parse(String address) throws AddressException {
+        String trimmed = address.trim();
+        if (EmailAddressValidator.isValid(trimmed)) {
+            InternetAddress parsed = new InternetAddress();
+            parsed.setAddress(trimmed);
+            return parsed;
+        }
+        return new InternetAddress(trimmed, false);
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.genpass.email.smtp;
+
+import jakarta.mail.MessagingException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU cache of encoded subject/body blocks used by {@link PreEncodedMimeMessage}.
+ *
+ * <p>Keys compare the subject and body strings. Callers that reuse the same {@code String}
+ * instances (e.g. one {@code EmailMessage} body sent to many recipients) hit the cache with one
+ * cached hash code and an identity comparison per field. Encoding happens outside the lock; two
+ * threads missing on the same key at once may both encode it.</p>
+ */
+final class EncodedBodyCache {
+
+    /**
+     * Produces the encoded block for a key.
+     */
+    @FunctionalInterface
+    interface Encoder {
+        byte[] encode(String subject, String textBody, String htmlBody) throws MessagingException;
+    }
+
+    private record Key(String subject, String textBody, String htmlBody) {
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, byte[]> entries;
+
+    EncodedBodyCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the cached encoding, computed with {@code encoder} on a miss
+     */
+    byte[] get(String subject, String textBody, String htmlBody, Encoder encoder) throws MessagingException {
+        Key key = new Key(subject, textBody, htmlBody);
+        lock.lock();
+        try {
+            byte[] cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+        byte[] encoded = encoder.encode(subject, textBody, htmlBody);
+        lock.lock();
+        try {
+            entries.put(key, encoded);
+        } finally {
+            lock.unlock();
+        }
+        return encoded;
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.genpass.email.smtp;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Enumeration;
+
+/**
+ * {@link MimeMessage} whose subject, MIME headers and body are already encoded.
+ *
+ * <p>Only the per-message headers (From, To, Date, Message-ID) are kept as regular headers.
+ * {@link #writeTo(OutputStream, String[])} writes them and then streams the shared pre-encoded
+ * bytes from {@link EncodedBodyCache} unchanged, so the subject and body are not encoded again
+ * for every recipient. Call {@link #prepare()} instead of {@code saveChanges()}.</p>
+ */
+final class PreEncodedMimeMessage extends MimeMessage {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /** Shared headers, a blank line and the encoded body. */
+    private final byte[] encoded;
+
+    PreEncodedMimeMessage(Session session, byte[] encoded) {
+        super(session);
+        this.encoded = encoded;
+    }
+
+    /**
+     * Set the Date and Message-ID headers.
+     */
+    void prepare() throws MessagingException {
+        setSentDate(new Date());
+        updateMessageID();
+    }
+
+    @Override
+    public void writeTo(OutputStream os, String[] ignoreList) throws IOException, MessagingException {
+        Enumeration<String> lines = getNonMatchingHeaderLines(ignoreList);
+        while (lines.hasMoreElements()) {
+            os.write(lines.nextElement().getBytes(StandardCharsets.UTF_8));
+            os.write(CRLF);
+        }
+        os.write(encoded);
+        os.flush();
+    }
+}
@@ -0,0 +1,236 @@
+package com.genpass.email.smtp;
+
+import com.genpass.core.exception.GenPassCoreException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of connected SMTP {@link Transport}s used by {@link SmtpEmailClient}.
+ *
+ * <p>At most {@code maxConnections} transports are open or in use at once; callers beyond that
+ * wait up to the configured timeout. Idle transports are reused most-recently-used first, so
+ * surplus connections age out: anything idle longer than {@code idleTimeoutMillis} is closed,
+ * either when a connection is returned or by a shared daemon reaper that runs every half
+ * timeout, so idle connections are also closed when traffic stops. A transport that has been idle for more than a second is checked with {@code NOOP}
+ * ({@link Transport#isConnected()}) before reuse, and replaced if the server dropped it.</p>
+ *
+ * <p>Locks are {@link ReentrantLock}/{@link Semaphore} based, so virtual threads are not pinned
+ * while they wait for a connection.</p>
+ */
+final class SmtpConnectionPool implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SmtpConnectionPool.class.getName());
+
+    /** Idle time after which a connection is health-checked before reuse. */
+    private static final long VALIDATE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class Shared {
+        static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("genpass-smtp-idle-reaper").factory());
+    }
+
+    /**
+     * A pooled transport plus its bookkeeping.
+     */
+    static final class Connection {
+        final Transport transport;
+        long lastUsedNanos;
+        boolean reused;
+
+        Connection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private final Session session;
+    private final long idleTimeoutNanos;
+    private final int acquireTimeoutMillis;
+    private final Semaphore permits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private final ScheduledFuture<?> reaper;
+    private volatile boolean closed;
+
+    /**
+     * @param session              session the transports are created from
+     * @param maxConnections       maximum number of connections open or in use
+     * @param idleTimeoutMillis    how long an unused connection is kept; 0 closes it after each use
+     * @param acquireTimeoutMillis how long to wait for a free connection; 0 waits indefinitely
+     */
+    SmtpConnectionPool(Session session, int maxConnections, int idleTimeoutMillis, int acquireTimeoutMillis) {
+        this.session = session;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(maxConnections, true);
+        long reapPeriodNanos = Math.max(idleTimeoutNanos / 2, TimeUnit.MILLISECONDS.toNanos(10));
+        this.reaper = idleTimeoutNanos == 0 ? null : Shared.REAPER.scheduleWithFixedDelay(
+                this::closeExpired, reapPeriodNanos, reapPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Borrow a connected transport. Every successful call must be paired with
+     * {@link #release(Connection)} or {@link #discard(Connection)}.
+     *
+     * @throws MessagingException   if a new connection cannot be opened
+     * @throws GenPassCoreException if the pool is closed or no connection became free in time
+     */
+    Connection acquire() throws MessagingException {
+        if (closed) {
+            throw new GenPassCoreException("SMTP client is closed", null);
+        }
+        waitForPermit();
+        try {
+            long now = System.nanoTime();
+            Connection c;
+            while ((c = pollIdle()) != null) {
+                long idleFor = now - c.lastUsedNanos;
+                if (idleFor < idleTimeoutNanos && (idleFor < VALIDATE_AFTER_NANOS || c.transport.isConnected())) {
+                    c.reused = true;
+                    return c;
+                }
+                closeQuietly(c);
+            }
+            Transport transport = session.getTransport("smtp");
+            transport.connect();
+            return new Connection(transport);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a healthy connection to the pool.
+     */
+    void release(Connection c) {
+        c.lastUsedNanos = System.nanoTime();
+        if (closed || idleTimeoutNanos == 0) {
+            closeQuietly(c);
+        } else {
+            Connection expired;
+            lock.lock();
+            try {
+                idle.addFirst(c);
+                expired = pollExpired(c.lastUsedNanos);
+            } finally {
+                lock.unlock();
+            }
+            // close outside the lock: QUIT is a network round trip
+            for (; expired != null; expired = pollExpiredLocked(c.lastUsedNanos)) {
+                closeQuietly(expired);
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * Close a connection that failed instead of returning it.
+     */
+    void discard(Connection c) {
+        closeQuietly(c);
+        permits.release();
+    }
+
+    /**
+     * @return number of idle connections currently held
+     */
+    int idleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close idle connections that outlived the idle timeout. Runs on the reaper thread.
+     */
+    void closeExpired() {
+        long now = System.nanoTime();
+        Connection expired;
+        while ((expired = pollExpiredLocked(now)) != null) {
+            closeQuietly(expired);
+        }
+    }
+
+    /**
+     * Close all idle connections and stop the reaper; connections in use are closed when they
+     * are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (reaper != null) {
+            reaper.cancel(false);
+        }
+        Connection c;
+        while ((c = pollIdle()) != null) {
+            closeQuietly(c);
+        }
+    }
+
+    private void waitForPermit() {
+        try {
+            if (acquireTimeoutMillis == 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new GenPassCoreException("Timed out waiting for a free SMTP connection",
+                        new TimeoutException(acquireTimeoutMillis + " ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenPassCoreException("Interrupted while waiting for a free SMTP connection", e);
+        }
+    }
+
+    private Connection pollIdle() {
+        lock.lock();
+        try {
+            return idle.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the connection at the cold end of the deque if it outlived the idle timeout.
+     * Called with the lock held.
+     */
+    private Connection pollExpired(long now) {
+        Connection oldest = idle.peekLast();
+        if (oldest != null && now - oldest.lastUsedNanos >= idleTimeoutNanos) {
+            return idle.pollLast();
+        }
+        return null;
+    }
+
+    private Connection pollExpiredLocked(long now) {
+        lock.lock();
+        try {
+            return pollExpired(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.transport.close();
+        } catch (MessagingException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Ignoring error while closing SMTP connection", e);
+        }
+    }
+}
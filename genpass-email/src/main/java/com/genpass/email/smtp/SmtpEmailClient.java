@@ -2,16 +2,23 @@ package com.genpass.email.smtp;
 
 import com.genpass.core.email.EmailMessage;
 import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.metrics.MetricsRecorder;
 import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
 import com.genpass.email.config.EmailConfig;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.Session;
-import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
@@ -21,17 +28,60 @@ import java.util.logging.Logger;
  * SMTP implementation of {@link EmailClient} using Jakarta Mail.
  *
  * Supports TLS and optional username/password authentication.
+ * Connections are kept open and reused across sends (see {@link EmailConfig#maxConnections()}
+ * and {@link EmailConfig#idleTimeoutMillis()}), so the TCP, STARTTLS and AUTH handshakes are
+ * paid once per connection rather than once per email. Close the client to release them.
+ *
+ * With {@link EmailConfig#encodedBodyCacheSize()} &gt; 0, the encoded subject, MIME headers and
+ * body of each distinct message content are cached; sending the same content to further
+ * recipients only builds the From, To, Date and Message-ID headers.
+ *
+ * Parsed recipient addresses are kept in a bounded cache, so repeat recipients are not parsed
+ * again.
+ *
+ * Reports to a {@link MetricsRecorder} ({@link MetricsRecorder#shared()} unless given):
+ * timer {@code genpass.smtp.send} per message (connection wait included), timer
+ * {@code genpass.smtp.acquire} for taking a pooled connection (including connecting), and
+ * counters {@code genpass.smtp.sent} and {@code genpass.smtp.failed}.
  */
-public final class SmtpEmailClient implements EmailClient {
+public final class SmtpEmailClient implements EmailClient, AutoCloseable {
 
     private static final Logger LOGGER = Logger.getLogger(SmtpEmailClient.class.getName());
 
+    /** Headers set per message; everything else is shared when bodies are pre-encoded. */
+    private static final String[] PER_MESSAGE_HEADERS = {"From", "To", "Date", "Message-ID"};
+
     private final EmailConfig config;
     private final Session session;
+    private final SmtpConnectionPool pool;
+    private final EncodedBodyCache bodyCache;
+    private final AddressCache addressCache = new AddressCache(AddressCache.DEFAULT_MAX_ENTRIES);
+    private final boolean metricsEnabled;
+    private final MetricsRecorder.Timer sendTimer;
+    private final MetricsRecorder.Timer acquireTimer;
+    private final MetricsRecorder.Counter sentCounter;
+    private final MetricsRecorder.Counter failedCounter;
 
     public SmtpEmailClient(EmailConfig config) {
+        this(config, MetricsRecorder.shared());
+    }
+
+    /**
+     * @param metrics recorder for send timings and outcomes (must not be null)
+     */
+    public SmtpEmailClient(EmailConfig config, MetricsRecorder metrics) {
+        Objects.requireNonNull(metrics, "metrics must not be null");
+        this.metricsEnabled = metrics.isEnabled();
+        this.sendTimer = metrics.timer("genpass.smtp.send");
+        this.acquireTimer = metrics.timer("genpass.smtp.acquire");
+        this.sentCounter = metrics.counter("genpass.smtp.sent");
+        this.failedCounter = metrics.counter("genpass.smtp.failed");
         this.config = Objects.requireNonNull(config, "config must not be null");
         this.session = createSession(config);
+        this.pool = new SmtpConnectionPool(session, config.maxConnections(), config.idleTimeoutMillis(),
+                config.timeoutMillis());
+        this.bodyCache = config.encodedBodyCacheSize() > 0
+                ? new EncodedBodyCache(config.encodedBodyCacheSize()) : null;
     }
 
     private Session createSession(EmailConfig cfg) {
@@ -73,6 +123,122 @@ public final class SmtpEmailClient implements EmailClient {
     public void send(EmailMessage message) {
         Objects.requireNonNull(message, "message must not be null");
 
+        long start = metricsEnabled ? System.nanoTime() : 0;
+        try {
+            deliver(createMimeMessage(message));
+        } catch (MessagingException e) {
+            failedCounter.increment();
+            throw new GenPassCoreException("Failed to send SMTP email", e);
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            throw e;
+        }
+        recordSent(start);
+    }
+
+    private void recordSent(long start) {
+        if (metricsEnabled) {
+            sendTimer.recordSince(start);
+            sentCounter.increment();
+        }
+    }
+
+    private SmtpConnectionPool.Connection acquire() throws MessagingException {
+        if (!metricsEnabled) {
+            return pool.acquire();
+        }
+        long start = System.nanoTime();
+        SmtpConnectionPool.Connection connection = pool.acquire();
+        acquireTimer.recordSince(start);
+        return connection;
+    }
+
+    /**
+     * Sends all messages over one pooled connection, reusing the SMTP session between
+     * messages. A message whose recipients are rejected or whose address is invalid fails on
+     * its own; a broken connection is replaced and the batch continues. If no connection can be
+     * opened at all, the remaining messages fail with that error.
+     */
+    @Override
+    public List<SendResult> sendBatch(List<EmailMessage> messages) {
+        Objects.requireNonNull(messages, "messages must not be null");
+
+        List<SendResult> results = new ArrayList<>(messages.size());
+        SmtpConnectionPool.Connection connection = null;
+        try {
+            for (EmailMessage message : messages) {
+                Objects.requireNonNull(message, "message must not be null");
+                long start = metricsEnabled ? System.nanoTime() : 0;
+                MimeMessage mimeMessage;
+                try {
+                    mimeMessage = createMimeMessage(message);
+                } catch (MessagingException e) {
+                    failedCounter.increment();
+                    results.add(SendResult.failed(message, new GenPassCoreException("Failed to send SMTP email", e)));
+                    continue;
+                } catch (GenPassCoreException e) {
+                    failedCounter.increment();
+                    results.add(SendResult.failed(message, e));
+                    continue;
+                }
+
+                boolean retried = false;
+                while (true) {
+                    if (connection == null) {
+                        try {
+                            connection = acquire();
+                        } catch (MessagingException | GenPassCoreException e) {
+                            failedCounter.add(messages.size() - results.size());
+                            failRemaining(messages, results, e);
+                            return results;
+                        }
+                    }
+                    try {
+                        connection.transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                        connection.reused = true;
+                        results.add(SendResult.sent(message));
+                        recordSent(start);
+                        break;
+                    } catch (SendFailedException e) {
+                        failedCounter.increment();
+                        results.add(SendResult.failed(message, new GenPassCoreException("Failed to send SMTP email", e)));
+                        if (!connection.transport.isConnected()) {
+                            pool.discard(connection);
+                            connection = null;
+                        }
+                        break;
+                    } catch (MessagingException | IllegalStateException e) {
+                        boolean stale = connection.reused;
+                        pool.discard(connection);
+                        connection = null;
+                        if (stale && !retried) {
+                            // connection died between messages: reconnect and try this one again
+                            retried = true;
+                            continue;
+                        }
+                        failedCounter.increment();
+                        results.add(SendResult.failed(message, new GenPassCoreException("Failed to send SMTP email", e)));
+                        break;
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+        return results;
+    }
+
+    private static void failRemaining(List<EmailMessage> messages, List<SendResult> results, Exception cause) {
+        GenPassCoreException error = cause instanceof GenPassCoreException g
+                ? g : new GenPassCoreException("Failed to connect to SMTP server", cause);
+        for (int i = results.size(); i < messages.size(); i++) {
+            results.add(SendResult.failed(messages.get(i), error));
+        }
+    }
+
+    private MimeMessage createMimeMessage(EmailMessage message) throws MessagingException {
         List<String> toList = message.getTo();
 
         if (toList == null || toList.isEmpty()) {
@@ -83,43 +249,116 @@ public final class SmtpEmailClient implements EmailClient {
         String textBody = safeDefault(message.getTextBody(), "");
         String htmlBody = message.getHtmlBody(); // may be null
 
-        try {
-            MimeMessage mimeMessage = new MimeMessage(session);
+        InternetAddress[] recipients = new InternetAddress[toList.size()];
+        int count = 0;
+        for (String address : toList) {
+            if (address == null || address.isBlank()) {
+                continue;
+            }
+            try {
+                recipients[count++] = addressCache.get(address);
+            } catch (AddressException e) {
+                throw new GenPassCoreException("Invalid email address: " + address.trim(), e);
+            }
+        }
+        if (count < recipients.length) {
+            recipients = Arrays.copyOf(recipients, count);
+        }
 
+        if (recipients.length == 0) {
+            throw new GenPassCoreException("No valid recipient addresses provided", null);
+        }
+
+        if (bodyCache != null) {
+            PreEncodedMimeMessage mimeMessage = new PreEncodedMimeMessage(session,
+                    bodyCache.get(subject, textBody, htmlBody, this::encodeBody));
             mimeMessage.setFrom(new InternetAddress(config.fromAddress(), false));
+            mimeMessage.setRecipients(Message.RecipientType.TO, recipients);
+            mimeMessage.prepare();
+            return mimeMessage;
+        }
 
-            InternetAddress[] recipients = toList.stream()
-                    .filter(Objects::nonNull)
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .map(address -> {
-                        try {
-                            return new InternetAddress(address, false);
-                        } catch (Exception e) {
-                            throw new GenPassCoreException("Invalid email address: " + address, e);
-                        }
-                    })
-                    .toArray(InternetAddress[]::new);
+        MimeMessage mimeMessage = new MimeMessage(session);
+        mimeMessage.setFrom(new InternetAddress(config.fromAddress(), false));
+        mimeMessage.setRecipients(Message.RecipientType.TO, recipients);
+        setContent(mimeMessage, subject, textBody, htmlBody);
+        mimeMessage.saveChanges();
+        return mimeMessage;
+    }
 
-            if (recipients.length == 0) {
-                throw new GenPassCoreException("No valid recipient addresses provided", null);
-            }
+    private static void setContent(MimeMessage mimeMessage, String subject, String textBody, String htmlBody)
+            throws MessagingException {
+        mimeMessage.setSubject(subject, StandardCharsets.UTF_8.name());
 
-            mimeMessage.setRecipients(Message.RecipientType.TO, recipients);
-            mimeMessage.setSubject(subject, StandardCharsets.UTF_8.name());
+        if (htmlBody != null && !htmlBody.isBlank()) {
+            mimeMessage.setContent(htmlBody, "text/html; charset=UTF-8");
+        } else {
+            mimeMessage.setText(textBody, StandardCharsets.UTF_8.name());
+        }
+    }
 
-            if (htmlBody != null && !htmlBody.isBlank()) {
-                mimeMessage.setContent(htmlBody, "text/html; charset=UTF-8");
-            } else {
-                mimeMessage.setText(textBody, StandardCharsets.UTF_8.name());
-            }
+    /**
+     * Encode everything that does not depend on the recipient: subject, MIME headers and body.
+     */
+    private byte[] encodeBody(String subject, String textBody, String htmlBody) throws MessagingException {
+        MimeMessage shared = new MimeMessage(session);
+        setContent(shared, subject, textBody, htmlBody);
+        shared.saveChanges();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + textBody.length()
+                + (htmlBody == null ? 0 : htmlBody.length()));
+        try {
+            shared.writeTo(out, PER_MESSAGE_HEADERS);
+        } catch (IOException e) {
+            throw new MessagingException("Failed to encode message body", e);
+        }
+        return out.toByteArray();
+    }
 
-            Transport.send(mimeMessage);
-        } catch (MessagingException e) {
-            throw new GenPassCoreException("Failed to send SMTP email", e);
+    /**
+     * Send over a pooled connection. A reused connection that turns out to be broken is
+     * replaced once; rejected recipients are reported without retrying.
+     */
+    private void deliver(MimeMessage mimeMessage) throws MessagingException {
+        while (true) {
+            SmtpConnectionPool.Connection connection = acquire();
+            try {
+                connection.transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+            } catch (SendFailedException e) {
+                // rejected recipients leave the session usable, as in sendBatch
+                if (connection.transport.isConnected()) {
+                    pool.release(connection);
+                } else {
+                    pool.discard(connection);
+                }
+                throw e;
+            } catch (MessagingException | IllegalStateException e) {
+                pool.discard(connection);
+                if (connection.reused) {
+                    LOGGER.fine(() -> "Pooled SMTP connection failed, reconnecting: " + e.getMessage());
+                    continue;
+                }
+                throw e;
+            }
+            pool.release(connection);
+            return;
         }
     }
 
+    /**
+     * Close all pooled SMTP connections. Further sends fail.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * @return number of cached encoded bodies; 0 when the cache is disabled
+     */
+    int bodyCacheSize() {
+        return bodyCache == null ? 0 : bodyCache.size();
+    }
+
     private static String safeDefault(String value, String fallback) {
         return (value == null || value.isBlank()) ? fallback : value;
     }
@@ -0,0 +1,108 @@
+package com.genpass.email.template;
+
+import com.genpass.core.email.EmailMessage;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compiled subject, text body and HTML body of one kind of email, e.g. a magic-link login.
+ *
+ * <pre>
+ * EmailTemplate magicLink = EmailTemplate.of(
+ *         "Your sign-in link",
+ *         "Hi {{name}}, sign in here: {{link}}",
+ *         "&lt;p&gt;Hi {{name}}, &lt;a href=\"{{link}}\"&gt;sign in&lt;/a&gt;&lt;/p&gt;");
+ * EmailMessage message = magicLink.render(Map.of("name", name, "link", link))
+ *         .addTo(address)
+ *         .build();
+ * </pre>
+ *
+ * <p>Instances are immutable and thread-safe; compile once and reuse.</p>
+ */
+public final class EmailTemplate {
+
+    private final Template subject;
+    private final Template textBody;
+    private final Template htmlBody;
+    private final int initialCapacity;
+
+    /**
+     * @param subject  subject template (must not be null)
+     * @param textBody plain-text body template; may be null if {@code htmlBody} is set
+     * @param htmlBody HTML body template; may be null if {@code textBody} is set
+     */
+    public EmailTemplate(Template subject, Template textBody, Template htmlBody) {
+        this.subject = Objects.requireNonNull(subject, "subject must not be null");
+        if (textBody == null && htmlBody == null) {
+            throw new IllegalArgumentException("textBody or htmlBody is required");
+        }
+        this.textBody = textBody;
+        this.htmlBody = htmlBody;
+        int longest = Math.max(subject.literalLength(),
+                Math.max(textBody == null ? 0 : textBody.literalLength(),
+                        htmlBody == null ? 0 : htmlBody.literalLength()));
+        this.initialCapacity = longest + 256;
+    }
+
+    /**
+     * Compile the given sources.
+     *
+     * @param htmlSource HTML body source, or null for a text-only email
+     * @throws IllegalArgumentException if a source is malformed
+     */
+    public static EmailTemplate of(String subjectSource, String textSource, String htmlSource) {
+        return new EmailTemplate(Template.text(subjectSource),
+                textSource == null ? null : Template.text(textSource),
+                htmlSource == null ? null : Template.html(htmlSource));
+    }
+
+    /**
+     * Render subject and bodies into a message builder. All parts are rendered through one
+     * {@link StringBuilder}.
+     *
+     * @return builder with subject and bodies set; add recipients (and sender) before building
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    public EmailMessage.Builder render(Map<String, ?> values) {
+        StringBuilder buffer = new StringBuilder(initialCapacity);
+        EmailMessage.Builder builder = new EmailMessage.Builder().subject(render(subject, values, buffer));
+        if (textBody != null) {
+            builder.textBody(render(textBody, values, buffer));
+        }
+        if (htmlBody != null) {
+            builder.htmlBody(render(htmlBody, values, buffer));
+        }
+        return builder;
+    }
+
+    private static String render(Template template, Map<String, ?> values, StringBuilder buffer) {
+        buffer.setLength(0);
+        template.renderTo(values, buffer);
+        return buffer.toString();
+    }
+
+    public Template subject() {
+        return subject;
+    }
+
+    /**
+     * @return plain-text body template, or null
+     */
+    public Template textBody() {
+        return textBody;
+    }
+
+    /**
+     * @return HTML body template, or null
+     */
+    public Template htmlBody() {
+        return htmlBody;
+    }
+
+    @Override
+    public String toString() {
+        return "EmailTemplate{subject=" + subject + ", text=" + (textBody != null)
+                + ", html=" + (htmlBody != null) + "}";
+    }
+}
@@ -0,0 +1,199 @@
+package com.genpass.email.template;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A template compiled into alternating literal segments and placeholders.
+ *
+ * <p>Syntax: {@code {{name}}} inserts the value of {@code name}; in HTML templates the value is
+ * HTML-escaped, and {@code {{{name}}}} inserts it unescaped (for pre-built markup). Names may
+ * contain letters, digits, {@code _}, {@code -} and {@code .}; whitespace inside the braces is
+ * ignored. Text templates never escape.</p>
+ *
+ * <p>The source is parsed once by {@link #compile}. Rendering walks the precomputed segments and
+ * appends to a {@link StringBuilder}; it does no parsing, regex matching or reflection. Values
+ * are looked up in a {@code Map} and converted with {@link String#valueOf(Object)}; a missing
+ * value is an error rather than an empty string, so a link is never silently dropped.</p>
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ */
+public final class Template {
+
+    private final String source;
+    private final boolean html;
+    /** {@code literals.length == names.length + 1}. */
+    private final String[] literals;
+    private final String[] names;
+    private final boolean[] escape;
+    private final int literalLength;
+
+    private Template(String source, boolean html, String[] literals, String[] names, boolean[] escape) {
+        this.source = source;
+        this.html = html;
+        this.literals = literals;
+        this.names = names;
+        this.escape = escape;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compile a plain-text template.
+     *
+     * @throws IllegalArgumentException if a placeholder is unclosed or has an invalid name
+     */
+    public static Template text(String source) {
+        return compile(source, false);
+    }
+
+    /**
+     * Compile an HTML template; {@code {{name}}} values are HTML-escaped.
+     *
+     * @throws IllegalArgumentException if a placeholder is unclosed or has an invalid name
+     */
+    public static Template html(String source) {
+        return compile(source, true);
+    }
+
+    private static Template compile(String source, boolean html) {
+        Objects.requireNonNull(source, "source must not be null");
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> escape = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (true) {
+            int open = source.indexOf("{{", i);
+            if (open < 0) {
+                literal.append(source, i, source.length());
+                break;
+            }
+            literal.append(source, i, open);
+            boolean raw = source.startsWith("{{{", open);
+            String closing = raw ? "}}}" : "}}";
+            int start = open + (raw ? 3 : 2);
+            int close = source.indexOf(closing, start);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at index " + open);
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+            names.add(checkName(source.substring(start, close).strip(), open));
+            escape.add(html && !raw);
+            i = close + closing.length();
+        }
+        literals.add(literal.toString());
+        boolean[] escapeFlags = new boolean[escape.size()];
+        for (int k = 0; k < escapeFlags.length; k++) {
+            escapeFlags[k] = escape.get(k);
+        }
+        return new Template(source, html, literals.toArray(String[]::new), names.toArray(String[]::new), escapeFlags);
+    }
+
+    private static String checkName(String name, int index) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Empty placeholder at index " + index);
+        }
+        for (int k = 0; k < name.length(); k++) {
+            char c = name.charAt(k);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.')) {
+                throw new IllegalArgumentException("Invalid placeholder name '" + name + "' at index " + index);
+            }
+        }
+        return name.intern();
+    }
+
+    /**
+     * Render into a new string.
+     *
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + 32 * names.length);
+        renderTo(values, out);
+        return out.toString();
+    }
+
+    /**
+     * Append the rendered template to {@code out}, e.g. a builder reused across renders.
+     *
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    public void renderTo(Map<String, ?> values, StringBuilder out) {
+        Objects.requireNonNull(values, "values must not be null");
+        out.append(literals[0]);
+        for (int k = 0; k < names.length; k++) {
+            Object value = values.get(names[k]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for template placeholder '" + names[k] + "'");
+            }
+            String s = String.valueOf(value);
+            if (escape[k]) {
+                appendHtmlEscaped(out, s);
+            } else {
+                out.append(s);
+            }
+            out.append(literals[k + 1]);
+        }
+    }
+
+    private static void appendHtmlEscaped(StringBuilder out, String s) {
+        int from = 0;
+        for (int k = 0; k < s.length(); k++) {
+            String replacement = switch (s.charAt(k)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(s, from, k).append(replacement);
+                from = k + 1;
+            }
+        }
+        out.append(s, from, s.length());
+    }
+
+    /**
+     * @return placeholder names in order of first use
+     */
+    public Set<String> placeholders() {
+        return new LinkedHashSet<>(List.of(names));
+    }
+
+    /**
+     * @return total length of the literal text, a lower bound for the rendered length
+     */
+    public int literalLength() {
+        return literalLength;
+    }
+
+    /**
+     * @return {@code true} for HTML templates
+     */
+    public boolean isHtml() {
+        return html;
+    }
+
+    /**
+     * @return the template source
+     */
+    public String source() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return "Template{" + (html ? "html" : "text") + ", placeholders=" + placeholders() + "}";
+    }
+}
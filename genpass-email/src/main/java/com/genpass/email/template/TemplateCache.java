@@ -0,0 +1,253 @@
+package com.genpass.email.template;
+
+import com.genpass.core.exception.GenPassCoreException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache of {@link EmailTemplate}s loaded from a directory.
+ *
+ * <p>Template {@code name} is read from {@code name.subject}, {@code name.txt} and
+ * {@code name.html} (UTF-8) in the directory; the subject and at least one body are required.
+ * Templates are compiled on first use and kept until evicted as least recently used once
+ * {@code maxEntries} is exceeded.</p>
+ *
+ * <p>After {@link #start()}, a daemon thread watches the directory and drops a template from the
+ * cache whenever one of its files is created, changed or deleted, so the next
+ * {@link #get(String)} compiles the new version. Without {@code start()} use
+ * {@link #invalidate(String)}. Thread-safe.</p>
+ */
+public final class TemplateCache implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(TemplateCache.class.getName());
+
+    /** Default maximum number of cached templates. */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, EmailTemplate> entries;
+    /** Bumped by every invalidation, so a load that raced with one is not cached. */
+    private long generation;
+    private volatile WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Create a cache with {@link #DEFAULT_MAX_ENTRIES}.
+     */
+    public TemplateCache(Path directory) {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param directory  directory holding the template files (must not be null)
+     * @param maxEntries maximum number of compiled templates kept
+     */
+    public TemplateCache(Path directory, int maxEntries) {
+        this.directory = Objects.requireNonNull(directory, "directory must not be null");
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EmailTemplate> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param name template name: letters, digits, {@code _} and {@code -}
+     * @return the compiled template
+     * @throws IllegalArgumentException if the name is invalid or a template file is malformed
+     * @throws GenPassCoreException     if the template files cannot be read
+     */
+    public EmailTemplate get(String name) {
+        checkName(name);
+        long loadGeneration;
+        lock.lock();
+        try {
+            EmailTemplate cached = entries.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+        EmailTemplate loaded = load(name); // outside the lock: file I/O
+        lock.lock();
+        try {
+            if (generation == loadGeneration) {
+                entries.put(name, loaded);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loaded;
+    }
+
+    private EmailTemplate load(String name) {
+        String subject = read(name + ".subject");
+        String text = read(name + ".txt");
+        String html = read(name + ".html");
+        if (subject == null) {
+            throw new GenPassCoreException("Template '" + name + "' has no " + name + ".subject in " + directory, null);
+        }
+        if (text == null && html == null) {
+            throw new GenPassCoreException("Template '" + name + "' has neither " + name + ".txt nor "
+                    + name + ".html in " + directory, null);
+        }
+        return EmailTemplate.of(subject.strip(), text, html);
+    }
+
+    private String read(String fileName) {
+        try {
+            return Files.readString(directory.resolve(fileName), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new GenPassCoreException("Failed to read template file " + directory.resolve(fileName), e);
+        }
+    }
+
+    private static void checkName(String name) {
+        Objects.requireNonNull(name, "name must not be null");
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("template name must not be empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-')) {
+                throw new IllegalArgumentException("Invalid template name: " + name);
+            }
+        }
+    }
+
+    /**
+     * Drop one template so that it is reloaded on next use.
+     */
+    public void invalidate(String name) {
+        lock.lock();
+        try {
+            generation++;
+            entries.remove(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop all templates.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of cached templates
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start watching the directory for changes. Calling it again has no effect.
+     *
+     * @return this cache
+     * @throws GenPassCoreException if the directory cannot be watched
+     */
+    public synchronized TemplateCache start() {
+        if (watcher == null) {
+            try {
+                WatchService service = directory.getFileSystem().newWatchService();
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchService = service;
+            } catch (IOException e) {
+                throw new GenPassCoreException("Failed to watch template directory " + directory, e);
+            }
+            Thread t = new Thread(this::watchLoop, "genpass-email-templates");
+            t.setDaemon(true);
+            watcher = t;
+            t.start();
+        }
+        return this;
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    invalidateAll();
+                } else if (event.context() instanceof Path changed) {
+                    String file = changed.getFileName().toString();
+                    int dot = file.lastIndexOf('.');
+                    String name = dot < 0 ? file : file.substring(0, dot);
+                    LOGGER.fine(() -> "Template file changed: " + file);
+                    invalidate(name);
+                }
+            }
+            if (!key.reset()) {
+                LOGGER.warning(() -> "Template directory " + directory + " is no longer watched");
+                invalidateAll();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop watching the directory. Cached templates stay usable.
+     */
+    @Override
+    public synchronized void close() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Ignoring error while closing template watcher", e);
+            }
+            watchService = null;
+            watcher = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCache{directory=" + directory + ", size=" + size() + "}";
+    }
+}
@@ -0,0 +1,33 @@
+package com.genpass.email.api;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailClientTest {
+
+    @Test
+    void defaultSendBatchReportsEachMessage() {
+        List<EmailMessage> sent = new ArrayList<>();
+        EmailClient client = message -> {
+            if (message.getTo().contains("bad@test.com")) {
+                throw new GenPassCoreException("rejected", null);
+            }
+            sent.add(message);
+        };
+        EmailMessage good = new EmailMessage.Builder().addTo("good@test.com").textBody("ok").build();
+        EmailMessage bad = new EmailMessage.Builder().addTo("bad@test.com").textBody("no").build();
+
+        List<SendResult> results = client.sendBatch(List.of(good, bad, good));
+
+        assertEquals(List.of(SendResult.Status.SENT, SendResult.Status.FAILED, SendResult.Status.SENT),
+                results.stream().map(SendResult::status).toList());
+        assertEquals("rejected", results.get(1).error().getMessage());
+        assertEquals(2, sent.size());
+    }
+}
@@ -0,0 +1,179 @@
+package com.genpass.email.async;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+import com.genpass.email.mock.MockEmailClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueuedAsyncEmailClientTest {
+
+    private static EmailMessage message(int i) {
+        return new EmailMessage.Builder()
+                .addTo("user" + i + "@test.com")
+                .subject("Async " + i)
+                .textBody("Body " + i)
+                .build();
+    }
+
+    /** Blocks every send until the gate opens. */
+    private static final class GatedClient implements EmailClient {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final List<EmailMessage> sent = new ArrayList<>();
+
+        @Override
+        public void send(EmailMessage message) {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (sent) {
+                sent.add(message);
+            }
+        }
+    }
+
+    @Test
+    void sendsThroughDelegate() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        try (QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(mock).build()) {
+            for (int i = 0; i < 20; i++) {
+                futures.add(client.sendAsync(message(i)));
+            }
+            for (CompletableFuture<SendResult> f : futures) {
+                assertEquals(SendResult.Status.SENT, f.get(5, TimeUnit.SECONDS).status());
+            }
+        }
+        assertEquals(20, mock.getSentEmails().size());
+    }
+
+    @Test
+    void delegateFailureCompletesWithFailedResult() throws Exception {
+        EmailClient failing = message -> {
+            throw new GenPassCoreException("boom", null);
+        };
+        try (QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(failing).build()) {
+            SendResult result = client.sendAsync(message(1)).get(5, TimeUnit.SECONDS);
+
+            assertEquals(SendResult.Status.FAILED, result.status());
+            assertInstanceOf(GenPassCoreException.class, result.error());
+        }
+    }
+
+    @Test
+    void delegateErrorCompletesWithFailedResultAndKeepsWorker() throws Exception {
+        EmailClient failing = message -> {
+            if (message.getSubject().equals("Async 1")) {
+                throw new AssertionError("broken delegate");
+            }
+        };
+        try (QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(failing).workers(1).build()) {
+            SendResult result = client.sendAsync(message(1)).get(5, TimeUnit.SECONDS);
+
+            assertEquals(SendResult.Status.FAILED, result.status());
+            assertInstanceOf(AssertionError.class, result.error());
+            assertEquals(SendResult.Status.SENT, client.sendAsync(message(2)).get(5, TimeUnit.SECONDS).status());
+        }
+    }
+
+    @Test
+    void rejectPolicyRejectsWhenQueueIsFull() throws Exception {
+        GatedClient gated = new GatedClient();
+        try (QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(gated)
+                .workers(1)
+                .queueCapacity(1)
+                .backpressurePolicy(BackpressurePolicy.REJECT)
+                .build()) {
+            CompletableFuture<SendResult> inFlight = client.sendAsync(message(1));
+            assertTrue(gated.started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<SendResult> queued = client.sendAsync(message(2));
+            CompletableFuture<SendResult> rejected = client.sendAsync(message(3));
+
+            assertEquals(SendResult.Status.REJECTED, rejected.getNow(null).status());
+
+            gated.gate.countDown();
+            assertTrue(inFlight.get(5, TimeUnit.SECONDS).isSent());
+            assertTrue(queued.get(5, TimeUnit.SECONDS).isSent());
+        }
+    }
+
+    @Test
+    void dropOldestPolicyEvictsQueuedMessage() throws Exception {
+        GatedClient gated = new GatedClient();
+        try (QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(gated)
+                .workers(1)
+                .queueCapacity(1)
+                .backpressurePolicy(BackpressurePolicy.DROP_OLDEST)
+                .build()) {
+            client.sendAsync(message(1));
+            assertTrue(gated.started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<SendResult> oldest = client.sendAsync(message(2));
+            CompletableFuture<SendResult> newest = client.sendAsync(message(3));
+
+            assertEquals(SendResult.Status.DROPPED, oldest.get(5, TimeUnit.SECONDS).status());
+
+            gated.gate.countDown();
+            assertTrue(newest.get(5, TimeUnit.SECONDS).isSent());
+        }
+    }
+
+    @Test
+    void blockPolicyWaitsForRoom() throws Exception {
+        GatedClient gated = new GatedClient();
+        try (QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(gated)
+                .workers(1)
+                .queueCapacity(1)
+                .virtualThreads(false)
+                .build()) {
+            client.sendAsync(message(1));
+            assertTrue(gated.started.await(5, TimeUnit.SECONDS));
+            client.sendAsync(message(2));
+
+            CompletableFuture<CompletableFuture<SendResult>> blocked =
+                    CompletableFuture.supplyAsync(() -> client.sendAsync(message(3)));
+            Thread.sleep(100);
+            assertFalse(blocked.isDone());
+
+            gated.gate.countDown();
+            assertTrue(blocked.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).isSent());
+        }
+        assertEquals(3, gated.sent.size());
+    }
+
+    @Test
+    void closeDrainsQueueAndRejectsLaterMessages() {
+        MockEmailClient mock = new MockEmailClient();
+        QueuedAsyncEmailClient client = QueuedAsyncEmailClient.builder(mock).workers(2).build();
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(client.sendAsync(message(i)));
+        }
+
+        client.close();
+
+        futures.forEach(f -> assertTrue(f.getNow(null).isSent()));
+        assertEquals(50, mock.getSentEmails().size());
+        assertEquals(SendResult.Status.REJECTED, client.sendAsync(message(99)).getNow(null).status());
+    }
+
+    @Test
+    void builderValidatesArguments() {
+        MockEmailClient mock = new MockEmailClient();
+        assertThrows(NullPointerException.class, () -> QueuedAsyncEmailClient.builder(null));
+        assertThrows(IllegalArgumentException.class, () -> QueuedAsyncEmailClient.builder(mock).workers(0).build());
+        assertThrows(IllegalArgumentException.class, () -> QueuedAsyncEmailClient.builder(mock).queueCapacity(0).build());
+    }
+}
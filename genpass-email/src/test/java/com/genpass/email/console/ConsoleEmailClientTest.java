@@ -1,9 +1,14 @@
 package com.genpass.email.console;
 
 import com.genpass.core.email.EmailMessage;
+import com.genpass.email.api.SendResult;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConsoleEmailClientTest {
 
@@ -33,4 +38,16 @@ class ConsoleEmailClientTest {
 
         assertDoesNotThrow(() -> client.send(message));
     }
+
+    @Test
+    void shouldPrintBatch() {
+        ConsoleEmailClient client = new ConsoleEmailClient();
+
+        List<SendResult> results = client.sendBatch(List.of(
+                new EmailMessage.Builder().addTo("one@test.com").subject("One").textBody("1").build(),
+                new EmailMessage.Builder().addTo("two@test.com").subject("Two").textBody("2").build()));
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(SendResult::isSent));
+    }
 }
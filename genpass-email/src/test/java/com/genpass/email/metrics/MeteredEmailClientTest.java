@@ -0,0 +1,76 @@
+package com.genpass.email.metrics;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.metrics.InMemoryMetricsRecorder;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+import com.genpass.email.mock.MockEmailClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeteredEmailClientTest {
+
+    @Test
+    void timesAndCountsSendsAndBatches() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        MockEmailClient mock = new MockEmailClient();
+        MeteredEmailClient client = new MeteredEmailClient(mock, metrics, "genpass.email.mock");
+
+        client.send(message("a@test.com"));
+        client.sendBatch(List.of(message("b@test.com"), message("c@test.com")));
+
+        assertEquals(3, mock.sentCount());
+        assertEquals(3, metrics.counterValue("genpass.email.mock.sent"));
+        assertEquals(0, metrics.counterValue("genpass.email.mock.failed"));
+        assertEquals(1, metrics.histogram("genpass.email.mock.send").count());
+        assertEquals(1, metrics.histogram("genpass.email.mock.batch").count());
+    }
+
+    @Test
+    void countsFailuresAndRethrows() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        EmailClient failing = message -> {
+            throw new GenPassCoreException("relay down", null);
+        };
+        MeteredEmailClient client = new MeteredEmailClient(failing, metrics, MeteredEmailClient.DEFAULT_PREFIX);
+
+        assertThrows(GenPassCoreException.class, () -> client.send(message("a@test.com")));
+        List<SendResult> results = client.sendBatch(List.of(message("b@test.com"), message("c@test.com")));
+
+        assertTrue(results.stream().noneMatch(SendResult::isSent));
+        assertEquals(3, metrics.counterValue("genpass.email.failed"));
+        assertEquals(0, metrics.counterValue("genpass.email.sent"));
+        assertEquals(1, metrics.histogram("genpass.email.send").count());
+    }
+
+    @Test
+    void throwingBatchIsTimedAndCountsAllMessagesAsFailed() {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        EmailClient failing = new EmailClient() {
+            @Override
+            public void send(EmailMessage message) {
+            }
+
+            @Override
+            public List<SendResult> sendBatch(List<EmailMessage> messages) {
+                throw new GenPassCoreException("relay down", null);
+            }
+        };
+        MeteredEmailClient client = new MeteredEmailClient(failing, metrics, MeteredEmailClient.DEFAULT_PREFIX);
+
+        assertThrows(GenPassCoreException.class,
+                () -> client.sendBatch(List.of(message("a@test.com"), message("b@test.com"))));
+
+        assertEquals(2, metrics.counterValue("genpass.email.failed"));
+        assertEquals(0, metrics.counterValue("genpass.email.sent"));
+        assertEquals(1, metrics.histogram("genpass.email.batch").count());
+    }
+
+    private static EmailMessage message(String to) {
+        return new EmailMessage.Builder().addTo(to).subject("S").textBody("B").build();
+    }
+}
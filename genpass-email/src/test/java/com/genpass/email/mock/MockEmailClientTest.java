@@ -1,9 +1,15 @@
 package com.genpass.email.mock;
 
 import com.genpass.core.email.EmailMessage;
+import com.genpass.email.api.SendResult;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,4 +55,87 @@ class MockEmailClientTest {
 
         assertThrows(NullPointerException.class, () -> client.send(null));
     }
+
+    @Test
+    void sendBatchShouldStoreAllEmails() {
+        MockEmailClient client = new MockEmailClient();
+        List<EmailMessage> batch = List.of(
+                new EmailMessage.Builder().addTo("a@test.com").textBody("A").build(),
+                new EmailMessage.Builder().addTo("b@test.com").textBody("B").build());
+
+        List<SendResult> results = client.sendBatch(batch);
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(SendResult::isSent));
+        assertEquals(batch, client.getSentEmails());
+    }
+
+    @Test
+    void ringBufferKeepsMostRecentEmails() {
+        MockEmailClient client = new MockEmailClient(3);
+        for (int i = 0; i < 5; i++) {
+            client.send(email("user@test.com", "S" + i));
+        }
+
+        assertEquals(List.of("S2", "S3", "S4"), subjects(client.getSentEmails()));
+        assertEquals(5, client.sentCount());
+        assertEquals(5, client.sentCount("user@test.com"));
+        assertEquals(2, client.droppedCount());
+        assertEquals(3, client.capacity());
+
+        client.clear();
+        assertTrue(client.getSentEmails().isEmpty());
+        assertEquals(0, client.sentCount());
+        assertEquals(0, client.droppedCount());
+    }
+
+    @Test
+    void countsAndStreamsPerRecipient() {
+        MockEmailClient client = new MockEmailClient(16);
+        client.send(email("a@test.com", "A1"));
+        client.sendBatch(List.of(email("b@test.com", "B1"), email("a@test.com", "A2")));
+
+        assertEquals(2, client.sentCount("a@test.com"));
+        assertEquals(1, client.sentCount("b@test.com"));
+        assertEquals(0, client.sentCount("c@test.com"));
+        assertEquals(List.of("A1", "A2"), subjects(client.sentTo("a@test.com").toList()));
+        assertEquals(3, client.sentEmails().count());
+    }
+
+    @Test
+    void awaitSentWaitsForConcurrentSenders() throws Exception {
+        MockEmailClient client = new MockEmailClient(64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        client.send(email(i % 10 == 0 ? "hot@test.com" : "cold@test.com", "S"));
+                    }
+                }));
+            }
+
+            assertTrue(client.awaitSent("hot@test.com", 100, Duration.ofSeconds(5)));
+            assertTrue(client.awaitSent(1000, Duration.ofSeconds(5)));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000, client.sentCount());
+        assertEquals(64, client.getSentEmails().size());
+        assertEquals(936, client.droppedCount());
+        assertFalse(client.awaitSent("hot@test.com", 101, Duration.ofMillis(20)));
+    }
+
+    private static EmailMessage email(String to, String subject) {
+        return new EmailMessage.Builder().addTo(to).subject(subject).textBody("body").build();
+    }
+
+    private static List<String> subjects(List<EmailMessage> messages) {
+        return messages.stream().map(EmailMessage::getSubject).toList();
+    }
 }
@@ -0,0 +1,303 @@
+package com.genpass.email.outbox;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.mock.MockEmailClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailOutboxTest {
+
+    @TempDir
+    Path dir;
+
+    private static EmailMessage message(int i) {
+        return new EmailMessage.Builder()
+                .addTo("user" + i + "@test.com")
+                .subject("Outbox " + i)
+                .textBody("Body " + i)
+                .build();
+    }
+
+    private static List<String> subjects(MockEmailClient mock) {
+        return mock.getSentEmails().stream().map(EmailMessage::getSubject).toList();
+    }
+
+    @Test
+    void dispatchDeliversMessagesWithAllFields() {
+        MockEmailClient mock = new MockEmailClient();
+        EmailMessage full = new EmailMessage.Builder()
+                .from("noreply@genpass.dev")
+                .addTo("a@test.com")
+                .addTo("b@test.com")
+                .subject("Grüße 🔑")
+                .textBody("text")
+                .htmlBody("<p>html</p>")
+                .build();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, mock).build()) {
+            outbox.send(full);
+            outbox.send(message(2));
+            assertEquals(2, outbox.pendingCount());
+
+            assertEquals(2, outbox.dispatch());
+            assertEquals(0, outbox.pendingCount());
+        }
+        EmailMessage delivered = mock.getSentEmails().get(0);
+        assertEquals(full.getFrom(), delivered.getFrom());
+        assertEquals(full.getTo(), delivered.getTo());
+        assertEquals(full.getSubject(), delivered.getSubject());
+        assertEquals(full.getTextBody(), delivered.getTextBody());
+        assertEquals(full.getHtmlBody(), delivered.getHtmlBody());
+        assertNull(mock.getSentEmails().get(1).getFrom());
+        assertNull(mock.getSentEmails().get(1).getHtmlBody());
+    }
+
+    @Test
+    void undeliveredMessagesAreReplayedOnReopen() {
+        MockEmailClient first = new MockEmailClient();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, first).build()) {
+            for (int i = 0; i < 3; i++) {
+                outbox.send(message(i));
+            }
+            outbox.dispatch();
+            outbox.send(message(3));
+            outbox.send(message(4));
+        }
+
+        MockEmailClient second = new MockEmailClient();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, second).build()) {
+            assertEquals(2, outbox.pendingCount());
+            outbox.dispatch();
+        }
+        assertEquals(List.of("Outbox 0", "Outbox 1", "Outbox 2"), subjects(first));
+        assertEquals(List.of("Outbox 3", "Outbox 4"), subjects(second));
+
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).build()) {
+            assertEquals(0, outbox.pendingCount());
+        }
+    }
+
+    @Test
+    void dispatcherThreadDrainsLog() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, mock).build().start()) {
+            for (int i = 0; i < 20; i++) {
+                outbox.send(message(i));
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (outbox.pendingCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, outbox.pendingCount());
+        }
+        assertEquals(20, mock.getSentEmails().size());
+    }
+
+    @Test
+    void dispatcherSurvivesErrorFromDelegate() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<EmailMessage> delivered = new CopyOnWriteArrayList<>();
+        EmailClient erratic = message -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new AssertionError("broken delegate");
+            }
+            delivered.add(message);
+        };
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, erratic).retryDelay(Duration.ZERO).build().start()) {
+            outbox.send(message(1));
+            outbox.send(message(2));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (outbox.pendingCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, outbox.pendingCount());
+        }
+        assertEquals(2, delivered.size());
+    }
+
+    @Test
+    void concurrentSendersAreAllPersisted() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).build();
+             ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        outbox.send(message(base + i));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        }
+        MockEmailClient mock = new MockEmailClient();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, mock).build()) {
+            assertEquals(threads * perThread, outbox.pendingCount());
+            outbox.dispatch();
+        }
+        assertEquals(threads * perThread, subjects(mock).stream().distinct().count());
+    }
+
+    @Test
+    void failedMessagesAreRetriedThenGivenUp() {
+        AtomicInteger calls = new AtomicInteger();
+        EmailClient flaky = message -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new GenPassCoreException("temporary", null);
+            }
+        };
+        EmailClient broken = message -> {
+            throw new GenPassCoreException("permanent", null);
+        };
+        try (EmailOutbox outbox = EmailOutbox.builder(dir.resolve("flaky"), flaky)
+                .retryDelay(Duration.ZERO)
+                .build()) {
+            outbox.send(message(1));
+            assertEquals(1, outbox.dispatch());
+            assertEquals(2, calls.get());
+            assertEquals(0, outbox.pendingCount());
+        }
+        try (EmailOutbox outbox = EmailOutbox.builder(dir.resolve("broken"), broken)
+                .retryDelay(Duration.ZERO)
+                .maxAttempts(3)
+                .build()) {
+            outbox.send(message(1));
+            assertEquals(0, outbox.dispatch());
+            assertEquals(0, outbox.pendingCount());
+        }
+        try (EmailOutbox outbox = EmailOutbox.builder(dir.resolve("broken"), broken).build()) {
+            assertEquals(0, outbox.pendingCount(), "failed messages are not replayed");
+        }
+    }
+
+    @Test
+    void retryWaitsForRetryDelay() {
+        EmailClient broken = message -> {
+            throw new GenPassCoreException("down", null);
+        };
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, broken).retryDelay(Duration.ofHours(1)).build()) {
+            outbox.send(message(1));
+            assertEquals(0, outbox.dispatch());
+            assertEquals(1, outbox.pendingCount());
+            assertEquals(0, outbox.dispatch());
+        }
+    }
+
+    @Test
+    void deliveredSegmentsAreDeleted() throws IOException {
+        MockEmailClient mock = new MockEmailClient();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, mock).segmentSize(256).build()) {
+            for (int i = 0; i < 20; i++) {
+                outbox.send(message(i));
+            }
+            assertTrue(outbox.segmentCount() > 3);
+            assertEquals(outbox.segmentCount(), segmentFiles());
+
+            outbox.dispatch();
+
+            assertEquals(1, outbox.segmentCount(), "only the segment being written remains");
+            assertEquals(1, segmentFiles());
+        }
+        assertEquals(20, mock.getSentEmails().size());
+    }
+
+    @Test
+    void tornRecordAtEndOfLogIsDiscarded() throws IOException {
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).segmentSize(4096).build()) {
+            outbox.send(message(1));
+            outbox.send(message(2));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("segment-")).findFirst().orElseThrow();
+        }
+        int secondRecord;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 0);
+            secondRecord = SegmentLog.HEADER_SIZE + length.getInt(0);
+            // corrupt the second record's payload as if the crash hit mid-write
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f, 0x7f, 0x7f}), secondRecord + SegmentLog.HEADER_SIZE + 5);
+        }
+
+        MockEmailClient mock = new MockEmailClient();
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, mock).segmentSize(4096).build()) {
+            assertEquals(1, outbox.pendingCount());
+            outbox.send(message(3));
+            outbox.dispatch();
+        }
+        assertEquals(List.of("Outbox 1", "Outbox 3"), subjects(mock));
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).segmentSize(4096).build()) {
+            assertEquals(0, outbox.pendingCount());
+        }
+    }
+
+    @Test
+    void directoryCanOnlyBeOpenedByOneOutboxAtATime() {
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).build()) {
+            GenPassCoreException e = assertThrows(GenPassCoreException.class,
+                    () -> EmailOutbox.builder(dir, new MockEmailClient()).build());
+            assertTrue(e.getMessage().contains("in use"));
+            outbox.send(message(1));
+        }
+        // the lock is released on close
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).build()) {
+            assertEquals(1, outbox.pendingCount());
+        }
+    }
+
+    @Test
+    void sendAfterCloseFails() {
+        EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).build();
+        outbox.close();
+        assertThrows(GenPassCoreException.class, () -> outbox.send(message(1)));
+    }
+
+    @Test
+    void oversizedMessageIsRejected() {
+        try (EmailOutbox outbox = EmailOutbox.builder(dir, new MockEmailClient()).segmentSize(256).build()) {
+            EmailMessage big = new EmailMessage.Builder().addTo("a@test.com").textBody("x".repeat(1000)).build();
+            assertThrows(IllegalArgumentException.class, () -> outbox.send(big));
+            assertEquals(0, outbox.pendingCount());
+        }
+    }
+
+    @Test
+    void builderValidatesArguments() {
+        MockEmailClient mock = new MockEmailClient();
+        assertThrows(NullPointerException.class, () -> EmailOutbox.builder(null, mock));
+        assertThrows(NullPointerException.class, () -> EmailOutbox.builder(dir, null));
+        assertThrows(IllegalArgumentException.class, () -> EmailOutbox.builder(dir, mock).batchSize(0).build());
+        assertThrows(IllegalArgumentException.class, () -> EmailOutbox.builder(dir, mock).maxAttempts(0).build());
+        assertThrows(IllegalArgumentException.class, () -> EmailOutbox.builder(dir, mock).segmentSize(8).build());
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.genpass.email.ratelimit;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+import com.genpass.email.mock.MockEmailClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedEmailClientTest {
+
+    private static EmailMessage message(String... to) {
+        return new EmailMessage.Builder()
+                .to(List.of(to))
+                .subject("Rate")
+                .textBody("Body")
+                .build();
+    }
+
+    @Test
+    void sendsThroughDelegate() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock).build()) {
+            client.send(message("a@x.com"));
+            assertTrue(client.sendAsync(message("b@y.com")).get(5, TimeUnit.SECONDS).isSent());
+        }
+        assertEquals(2, mock.getSentEmails().size());
+    }
+
+    @Test
+    void splitsMessageByRecipientDomain() {
+        MockEmailClient mock = new MockEmailClient();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock).build()) {
+            client.send(message("a@x.com", "b@Y.com", "c@x.com"));
+        }
+        List<List<String>> recipients = mock.getSentEmails().stream().map(EmailMessage::getTo).toList();
+        assertEquals(2, recipients.size());
+        assertTrue(recipients.contains(List.of("a@x.com", "c@x.com")));
+        assertTrue(recipients.contains(List.of("b@Y.com")));
+    }
+
+    @Test
+    void burstToOneDomainDoesNotStarveOthers() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        List<CompletableFuture<SendResult>> slow = new ArrayList<>();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock)
+                .perDomainRate(10, 1)
+                .build()) {
+            for (int i = 0; i < 10; i++) {
+                slow.add(client.sendAsync(message("user" + i + "@big.com")));
+            }
+            long start = System.nanoTime();
+            assertTrue(client.sendAsync(message("someone@small.org")).get(5, TimeUnit.SECONDS).isSent());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1),
+                    "other domain is not queued behind the burst");
+
+            assertTrue(client.pendingCount("big.com") > 5, "big.com is throttled to 10/s");
+        }
+        assertTrue(slow.stream().allMatch(f -> f.getNow(null).isSent()));
+        assertEquals(11, mock.getSentEmails().size(), "close sends what was queued");
+    }
+
+    @Test
+    void relayRateCapsAllDomains() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock)
+                .relayRate(10, 2)
+                .build()) {
+            for (int i = 0; i < 6; i++) {
+                client.sendAsync(message("user@domain" + i + ".com"));
+            }
+            Thread.sleep(150);
+            int sent = mock.getSentEmails().size();
+            assertTrue(sent >= 2 && sent <= 4, "burst of 2 plus ~1 refill, got " + sent);
+        }
+        assertEquals(6, mock.getSentEmails().size());
+    }
+
+    @Test
+    void domainOverrideApplies() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock)
+                .perDomainRate(1000, 1000)
+                .domainRate("Strict.com", 2, 1)
+                .build()) {
+            for (int i = 0; i < 3; i++) {
+                client.sendAsync(message("u" + i + "@strict.com"));
+                client.sendAsync(message("u" + i + "@loose.com"));
+            }
+            Thread.sleep(200);
+            assertEquals(2, client.pendingCount("strict.com"));
+            assertEquals(0, client.pendingCount("loose.com"));
+            client.sendAsync(message("x@strict.com"));
+            assertEquals(3, client.pendingCount("strict.com"));
+        }
+    }
+
+    @Test
+    void fullDomainQueueRejects() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock)
+                .perDomainRate(2, 1)
+                .maxQueuedPerDomain(2)
+                .build()) {
+            client.sendAsync(message("a@x.com")).get(5, TimeUnit.SECONDS);
+            client.sendAsync(message("b@x.com"));
+            client.sendAsync(message("c@x.com"));
+            SendResult rejected = client.sendAsync(message("d@x.com")).getNow(null);
+
+            assertEquals(SendResult.Status.REJECTED, rejected.status());
+            assertTrue(client.sendAsync(message("e@y.com")).get(5, TimeUnit.SECONDS).isSent());
+        }
+    }
+
+    @Test
+    void failuresAreReported() {
+        EmailClient failing = message -> {
+            throw new GenPassCoreException("boom", null);
+        };
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(failing).build()) {
+            GenPassCoreException thrown = assertThrows(GenPassCoreException.class, () -> client.send(message("a@x.com")));
+            assertEquals("boom", thrown.getMessage());
+        }
+    }
+
+    @Test
+    void idleDomainsAreDropped() throws Exception {
+        MockEmailClient mock = new MockEmailClient();
+        try (RateLimitedEmailClient client = RateLimitedEmailClient.builder(mock)
+                .perDomainRate(100, 1)
+                .build()) {
+            for (int i = 0; i < 50; i++) {
+                client.send(message("user@d" + i + ".com"));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (client.domainCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, client.domainCount());
+            client.send(message("user@d0.com"));
+        }
+        assertEquals(51, mock.getSentEmails().size());
+    }
+
+    @Test
+    void closedClientRejects() {
+        RateLimitedEmailClient client = RateLimitedEmailClient.builder(new MockEmailClient()).build();
+        client.close();
+        assertEquals(SendResult.Status.REJECTED, client.sendAsync(message("a@x.com")).getNow(null).status());
+    }
+
+    @Test
+    void domainOfNormalizesAddress() {
+        assertEquals("example.com", RateLimitedEmailClient.domainOf("User@Example.COM"));
+        assertEquals("example.com", RateLimitedEmailClient.domainOf("Name <user@example.com> "));
+        assertEquals("", RateLimitedEmailClient.domainOf("local"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.genpass.email.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void startsFullAndAllowsBurst() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+
+        assertEquals(100 * MS, bucket.tryAcquire(0), "next permit after one refill interval");
+    }
+
+    @Test
+    void refillsAtRateUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertEquals(0, bucket.tryAcquire(100 * MS));
+        assertTrue(bucket.tryAcquire(100 * MS) > 0);
+
+        // a long pause refills only up to the burst size
+        long later = 10_000 * MS;
+        assertEquals(0, bucket.nanosUntilFull(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void delayDoesNotTakePermit() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        assertEquals(0, bucket.delayNanos(0));
+        assertEquals(0, bucket.delayNanos(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(1000 * MS, bucket.delayNanos(0));
+    }
+
+    @Test
+    void concurrentCallersNeverExceedBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        AtomicInteger granted = new AtomicInteger();
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (bucket.tryAcquire()) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        assertEquals(100, granted.get());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}
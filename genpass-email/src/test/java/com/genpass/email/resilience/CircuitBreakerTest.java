@@ -0,0 +1,89 @@
+package com.genpass.email.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return CircuitBreaker.builder()
+                .failureRateThreshold(0.5)
+                .windowSize(10)
+                .minimumCalls(4)
+                .openDuration(Duration.ofSeconds(30))
+                .nanoClock(now::get)
+                .build();
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        CircuitBreaker breaker = breaker();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "below minimumCalls");
+
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "3 of 5 recorded but last was a success");
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        for (int i = 0; i < 10; i++) {
+            breaker.recordSuccess();
+        }
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "4 of the last 10 failed");
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void halfOpenAllowsOneTrialCall() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(), "only one trial call");
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "window was reset");
+    }
+
+    @Test
+    void builderValidatesArguments() {
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.builder().failureRateThreshold(0).build());
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.builder().windowSize(0).build());
+        assertThrows(IllegalArgumentException.class, () -> CircuitBreaker.builder().windowSize(5).minimumCalls(6).build());
+    }
+}
@@ -0,0 +1,63 @@
+package com.genpass.email.resilience;
+
+import com.genpass.core.exception.GenPassCoreException;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailureClassifierTest {
+
+    private final FailureClassifier classifier = new FailureClassifier.Smtp();
+
+    private static GenPassCoreException wrapped(Exception cause) {
+        return new GenPassCoreException("Failed to send SMTP email", cause);
+    }
+
+    private static SMTPSendFailedException sendFailed(int code, Exception next) {
+        return new SMTPSendFailedException("DATA", code, code + " failed", next,
+                new Address[0], new Address[0], new Address[0]);
+    }
+
+    private static SMTPAddressFailedException recipientFailed(int code) throws AddressException {
+        return new SMTPAddressFailedException(new InternetAddress("a@test.com"), "RCPT TO:<a@test.com>",
+                code, code + " recipient failed");
+    }
+
+    @Test
+    void replyCodesDecide() throws Exception {
+        assertTrue(classifier.isTransient(wrapped(sendFailed(451, null))));
+        assertTrue(classifier.isTransient(wrapped(recipientFailed(450))));
+        assertFalse(classifier.isTransient(wrapped(sendFailed(554, null))));
+        assertFalse(classifier.isTransient(wrapped(recipientFailed(550))));
+    }
+
+    @Test
+    void anyPermanentReplyInChainWins() throws Exception {
+        assertFalse(classifier.isTransient(wrapped(sendFailed(451, recipientFailed(550)))));
+        assertTrue(classifier.isTransient(wrapped(sendFailed(451, recipientFailed(452)))));
+    }
+
+    @Test
+    void connectionProblemsAreTransient() {
+        assertTrue(classifier.isTransient(wrapped(new MessagingException("connect failed", new ConnectException()))));
+        assertTrue(classifier.isTransient(wrapped(new MessagingException("read", new SocketTimeoutException()))));
+        assertTrue(classifier.isTransient(new GenPassCoreException("pool exhausted", new TimeoutException())));
+    }
+
+    @Test
+    void invalidInputIsPermanent() {
+        assertFalse(classifier.isTransient(new GenPassCoreException("Invalid email address: x", new AddressException("x"))));
+        assertFalse(classifier.isTransient(new GenPassCoreException("No valid recipient addresses provided", null)));
+        assertFalse(classifier.isTransient(new IllegalArgumentException()));
+    }
+}
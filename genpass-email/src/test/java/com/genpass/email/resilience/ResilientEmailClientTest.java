@@ -0,0 +1,179 @@
+package com.genpass.email.resilience;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.api.EmailClient;
+import com.genpass.email.api.SendResult;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientEmailClientTest {
+
+    private static final EmailMessage MESSAGE = new EmailMessage.Builder()
+            .addTo("user@test.com")
+            .subject("Retry")
+            .textBody("Body")
+            .build();
+
+    private static GenPassCoreException transientFailure() {
+        return new GenPassCoreException("Failed to send SMTP email", new MessagingException("connection reset"));
+    }
+
+    /** Fails with the given exception for the first {@code failures} calls. */
+    private static final class FailingClient implements EmailClient {
+        final AtomicInteger calls = new AtomicInteger();
+        final int failures;
+        final RuntimeException error;
+
+        FailingClient(int failures, RuntimeException error) {
+            this.failures = failures;
+            this.error = error;
+        }
+
+        @Override
+        public void send(EmailMessage message) {
+            if (calls.incrementAndGet() <= failures) {
+                throw error;
+            }
+        }
+    }
+
+    private static ResilientEmailClient.Builder fast(EmailClient delegate) {
+        return ResilientEmailClient.builder(delegate)
+                .initialBackoff(Duration.ofMillis(1))
+                .maxBackoff(Duration.ofMillis(5));
+    }
+
+    @Test
+    void transientFailuresAreRetried() {
+        FailingClient delegate = new FailingClient(2, transientFailure());
+        ResilientEmailClient client = fast(delegate).build();
+
+        client.send(MESSAGE);
+
+        assertEquals(3, delegate.calls.get());
+    }
+
+    @Test
+    void permanentFailuresAreNotRetried() {
+        FailingClient delegate = new FailingClient(1, new GenPassCoreException("No valid recipient addresses provided", null));
+        ResilientEmailClient client = fast(delegate).build();
+
+        assertThrows(GenPassCoreException.class, () -> client.send(MESSAGE));
+        assertEquals(1, delegate.calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, client.circuitBreaker().state());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        GenPassCoreException error = transientFailure();
+        FailingClient delegate = new FailingClient(Integer.MAX_VALUE, error);
+        ResilientEmailClient client = fast(delegate).maxAttempts(3).build();
+
+        GenPassCoreException thrown = assertThrows(GenPassCoreException.class, () -> client.send(MESSAGE));
+
+        assertSame(error, thrown);
+        assertEquals(3, delegate.calls.get());
+    }
+
+    @Test
+    void sendAsyncCompletesWithResult() throws Exception {
+        FailingClient delegate = new FailingClient(1, transientFailure());
+        ResilientEmailClient client = fast(delegate).build();
+
+        SendResult result = client.sendAsync(MESSAGE).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isSent());
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    void openCircuitFailsFastWithoutCallingDelegate() {
+        FailingClient delegate = new FailingClient(Integer.MAX_VALUE, transientFailure());
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .openDuration(Duration.ofMinutes(1))
+                .build();
+        ResilientEmailClient client = fast(delegate).maxAttempts(2).circuitBreaker(breaker).build();
+
+        assertThrows(GenPassCoreException.class, () -> client.send(MESSAGE));
+        assertThrows(GenPassCoreException.class, () -> client.send(MESSAGE));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        int calls = delegate.calls.get();
+
+        GenPassCoreException thrown = assertThrows(GenPassCoreException.class, () -> client.send(MESSAGE));
+
+        assertTrue(thrown.getMessage().contains("Circuit breaker is open"));
+        assertEquals(calls, delegate.calls.get());
+    }
+
+    @Test
+    void backoffGrowsExponentiallyWithinJitterAndCap() {
+        ResilientEmailClient exact = ResilientEmailClient.builder(message -> { })
+                .initialBackoff(Duration.ofMillis(100))
+                .maxBackoff(Duration.ofMillis(1000))
+                .jitter(0)
+                .build();
+        assertEquals(Duration.ofMillis(100).toNanos(), exact.backoffNanos(1));
+        assertEquals(Duration.ofMillis(400).toNanos(), exact.backoffNanos(3));
+        assertEquals(Duration.ofMillis(1000).toNanos(), exact.backoffNanos(10));
+
+        ResilientEmailClient jittered = ResilientEmailClient.builder(message -> { })
+                .initialBackoff(Duration.ofMillis(100))
+                .jitter(0.5)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            long delay = jittered.backoffNanos(2);
+            assertTrue(delay >= Duration.ofMillis(100).toNanos() && delay <= Duration.ofMillis(200).toNanos());
+        }
+    }
+
+    @Test
+    void closedClientRejects() throws Exception {
+        FailingClient delegate = new FailingClient(0, null);
+        ResilientEmailClient client = fast(delegate).build();
+        client.close();
+
+        assertEquals(SendResult.Status.REJECTED, client.sendAsync(MESSAGE).get(5, TimeUnit.SECONDS).status());
+        assertThrows(GenPassCoreException.class, () -> client.send(MESSAGE));
+        assertEquals(0, delegate.calls.get());
+    }
+
+    @Test
+    void closeRejectsRetriesWaitingForBackoff() throws Exception {
+        FailingClient delegate = new FailingClient(Integer.MAX_VALUE, transientFailure());
+        ResilientEmailClient client = ResilientEmailClient.builder(delegate)
+                .initialBackoff(Duration.ofMinutes(1))
+                .maxBackoff(Duration.ofMinutes(1))
+                .build();
+        CompletableFuture<SendResult> future = client.sendAsync(MESSAGE);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delegate.calls.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        client.close();
+
+        assertEquals(SendResult.Status.REJECTED, future.get(1, TimeUnit.SECONDS).status());
+        assertEquals(1, delegate.calls.get());
+    }
+
+    @Test
+    void builderValidatesArguments() {
+        EmailClient delegate = message -> { };
+        assertThrows(NullPointerException.class, () -> ResilientEmailClient.builder(null));
+        assertThrows(IllegalArgumentException.class, () -> ResilientEmailClient.builder(delegate).maxAttempts(0).build());
+        assertThrows(IllegalArgumentException.class, () -> ResilientEmailClient.builder(delegate).jitter(1.5).build());
+        assertThrows(IllegalArgumentException.class, () -> ResilientEmailClient.builder(delegate).multiplier(0.5).build());
+        assertThrows(IllegalArgumentException.class, () -> ResilientEmailClient.builder(delegate)
+                .initialBackoff(Duration.ofSeconds(2)).maxBackoff(Duration.ofSeconds(1)).build());
+    }
+}
@@ -0,0 +1,48 @@
+package com.genpass.email.smtp;
+
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressCacheTest {
+
+    @Test
+    void repeatedAddressesAreServedFromCache() throws Exception {
+        AddressCache cache = new AddressCache(16);
+
+        InternetAddress first = cache.get(" user@example.com ");
+        assertEquals("user@example.com", first.getAddress());
+        assertNull(first.getPersonal());
+        assertSame(first, cache.get(" user@example.com "));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void fastPathMatchesJakartaMailParsing() throws Exception {
+        for (String address : new String[]{"user@example.com", "first.last+tag@Mail.Example.org", "a@localhost"}) {
+            assertEquals(new InternetAddress(address, false), AddressCache.parse(address));
+            assertEquals(new InternetAddress(address, false).toString(), AddressCache.parse(address).toString());
+        }
+    }
+
+    @Test
+    void addressesOutsideTheFastPathAreStillParsed() throws Exception {
+        InternetAddress parsed = AddressCache.parse("Jane Doe <jane@example.com>");
+        assertEquals("jane@example.com", parsed.getAddress());
+        assertEquals("Jane Doe", parsed.getPersonal());
+        assertThrows(AddressException.class, () -> AddressCache.parse("not an <email"));
+    }
+
+    @Test
+    void fullCacheIsCleared() throws Exception {
+        AddressCache cache = new AddressCache(2);
+        cache.get("a@example.com");
+        cache.get("b@example.com");
+        cache.get("c@example.com");
+
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new AddressCache(0));
+    }
+}
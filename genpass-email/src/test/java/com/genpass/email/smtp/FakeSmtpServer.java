@@ -0,0 +1,105 @@
+package com.genpass.email.smtp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server for tests: accepts everything except recipients containing
+ * {@code "reject"}, counts connections, messages, NOOPs and QUITs, and keeps the DATA of each message.
+ */
+final class FakeSmtpServer implements AutoCloseable {
+
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger messages = new AtomicInteger();
+    final AtomicInteger noops = new AtomicInteger();
+    final AtomicInteger quits = new AtomicInteger();
+    final List<String> received = new CopyOnWriteArrayList<>();
+
+    /** When set, the server hangs up right after accepting each message. */
+    volatile boolean dropAfterMessage;
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+
+    FakeSmtpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = Thread.ofVirtual().start(this::acceptLoop);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 localhost fake SMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "NOOP" -> {
+                        noops.incrementAndGet();
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line).append("\r\n");
+                        }
+                        received.add(data.toString());
+                        messages.incrementAndGet();
+                        reply(out, "250 OK queued");
+                        if (dropAfterMessage) {
+                            return;
+                        }
+                    }
+                    case "RCPT" -> reply(out, line.contains("reject") ? "550 No such user" : "250 OK");
+                    case "QUIT" -> {
+                        quits.incrementAndGet();
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        acceptor.interrupt();
+    }
+}
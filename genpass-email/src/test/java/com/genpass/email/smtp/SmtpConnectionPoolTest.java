@@ -0,0 +1,139 @@
+package com.genpass.email.smtp;
+
+import com.genpass.core.email.EmailMessage;
+import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.email.config.EmailConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpConnectionPoolTest {
+
+    private FakeSmtpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new FakeSmtpServer();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    private EmailConfig.Builder config() {
+        return EmailConfig.builder()
+                .host("127.0.0.1")
+                .port(server.port())
+                .useTls(false)
+                .fromAddress("no-reply@test.com")
+                .timeoutMillis(2_000);
+    }
+
+    private static EmailMessage message(int i) {
+        return new EmailMessage.Builder()
+                .addTo("user" + i + "@test.com")
+                .subject("Pooled " + i)
+                .textBody("Body " + i)
+                .build();
+    }
+
+    @Test
+    void sequentialSendsReuseOneConnection() {
+        try (SmtpEmailClient client = new SmtpEmailClient(config().build())) {
+            for (int i = 0; i < 5; i++) {
+                client.send(message(i));
+            }
+        }
+
+        assertEquals(5, server.messages.get());
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    void concurrentSendsNeverExceedMaxConnections() throws Exception {
+        try (SmtpEmailClient client = new SmtpEmailClient(config().maxConnections(2).build());
+             var executor = Executors.newFixedThreadPool(6)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                int n = i;
+                futures.add(executor.submit(() -> client.send(message(n))));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        }
+
+        assertEquals(30, server.messages.get());
+        assertTrue(server.connections.get() <= 2, "connections: " + server.connections.get());
+    }
+
+    @Test
+    void reconnectsWhenServerDropsPooledConnection() {
+        server.dropAfterMessage = true;
+        try (SmtpEmailClient client = new SmtpEmailClient(config().build())) {
+            client.send(message(1));
+            client.send(message(2));
+        }
+
+        assertEquals(2, server.messages.get());
+        assertEquals(2, server.connections.get());
+    }
+
+    @Test
+    void zeroIdleTimeoutClosesConnectionsAfterEachSend() {
+        try (SmtpEmailClient client = new SmtpEmailClient(config().idleTimeoutMillis(0).build())) {
+            client.send(message(1));
+            client.send(message(2));
+        }
+
+        assertEquals(2, server.connections.get());
+    }
+
+    @Test
+    void idleConnectionIsHealthCheckedBeforeReuse() throws InterruptedException {
+        try (SmtpEmailClient client = new SmtpEmailClient(config().build())) {
+            client.send(message(1));
+            Thread.sleep(1_100);
+            client.send(message(2));
+        }
+
+        assertEquals(1, server.connections.get());
+        assertTrue(server.noops.get() >= 1);
+    }
+
+    @Test
+    void idleConnectionIsClosedWithoutFurtherTraffic() throws InterruptedException {
+        try (SmtpEmailClient client = new SmtpEmailClient(config().idleTimeoutMillis(100).build())) {
+            client.send(message(1));
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (server.quits.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(1, server.quits.get(), "reaper should have closed the idle connection");
+        }
+    }
+
+    @Test
+    void closedClientRejectsSends() {
+        SmtpEmailClient client = new SmtpEmailClient(config().build());
+        client.close();
+
+        assertThrows(GenPassCoreException.class, () -> client.send(message(1)));
+    }
+
+    @Test
+    void configRejectsInvalidPoolSettings() {
+        assertThrows(IllegalArgumentException.class, () -> config().maxConnections(0).build());
+        assertThrows(IllegalArgumentException.class, () -> config().idleTimeoutMillis(-1).build());
+    }
+}
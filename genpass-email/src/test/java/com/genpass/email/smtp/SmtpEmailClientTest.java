@@ -2,10 +2,29 @@ package com.genpass.email.smtp;
 
 import com.genpass.core.email.EmailMessage;
 import com.genpass.core.exception.GenPassCoreException;
+import com.genpass.core.metrics.InMemoryMetricsRecorder;
+import com.genpass.email.api.SendResult;
 import com.genpass.email.config.EmailConfig;
+import com.genpass.testsupport.smtp.EmbeddedSmtpServer;
+import com.genpass.testsupport.smtp.ReceivedMessage;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SmtpEmailClientTest {
 
@@ -43,4 +62,185 @@ class SmtpEmailClientTest {
 
         assertThrows(GenPassCoreException.class, () -> client.send(message));
     }
+
+    @Test
+    void batchFailsEveryMessageWhenSmtpIsUnavailable() {
+        SmtpEmailClient client = new SmtpEmailClient(baseConfig());
+
+        List<SendResult> results = client.sendBatch(List.of(message("a@test.com"), message("b@test.com")));
+
+        assertEquals(2, results.size());
+        results.forEach(r -> assertEquals(SendResult.Status.FAILED, r.status()));
+    }
+
+    @Test
+    void batchSendsOverOneConnectionAndIsolatesRejectedRecipients() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer();
+             SmtpEmailClient client = new SmtpEmailClient(EmailConfig.builder()
+                     .host("127.0.0.1")
+                     .port(server.port())
+                     .useTls(false)
+                     .fromAddress("no-reply@test.com")
+                     .timeoutMillis(2_000)
+                     .build())) {
+            List<EmailMessage> batch = List.of(
+                    message("a@test.com"),
+                    message("reject@test.com"),
+                    message("c@test.com"),
+                    message("d@test.com"));
+
+            List<SendResult> results = client.sendBatch(batch);
+
+            assertEquals(List.of(SendResult.Status.SENT, SendResult.Status.FAILED,
+                            SendResult.Status.SENT, SendResult.Status.SENT),
+                    results.stream().map(SendResult::status).toList());
+            assertSame(batch.get(1), results.get(1).message());
+            assertInstanceOf(GenPassCoreException.class, results.get(1).error());
+            assertEquals(3, server.messages.get());
+            assertEquals(1, server.connections.get());
+        }
+    }
+
+    @Test
+    void rejectedRecipientKeepsPooledConnection() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer();
+             SmtpEmailClient client = new SmtpEmailClient(EmailConfig.builder()
+                     .host("127.0.0.1")
+                     .port(server.port())
+                     .useTls(false)
+                     .fromAddress("no-reply@test.com")
+                     .timeoutMillis(2_000)
+                     .build())) {
+            client.send(message("a@test.com"));
+            assertThrows(GenPassCoreException.class, () -> client.send(message("reject@test.com")));
+            client.send(message("c@test.com"));
+
+            assertEquals(2, server.messages.get());
+            assertEquals(1, server.connections.get());
+        }
+    }
+
+    @Test
+    void preEncodedBodiesMatchRegularEncoding() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer();
+             SmtpEmailClient plain = new SmtpEmailClient(localConfig(server.port(), 0));
+             SmtpEmailClient cached = new SmtpEmailClient(localConfig(server.port(), 16))) {
+            plain.send(notification("a@test.com"));
+            cached.send(notification("b@test.com"));
+            cached.send(notification("c@test.com"));
+
+            assertEquals(1, cached.bodyCacheSize());
+            List<String> received = server.received;
+            assertEquals(3, received.size());
+            assertEquals(withoutPerMessageHeaders(received.get(0)), withoutPerMessageHeaders(received.get(1)));
+            assertEquals(withoutPerMessageHeaders(received.get(1)), withoutPerMessageHeaders(received.get(2)));
+            assertTrue(received.get(1).contains("To: b@test.com\r\n"));
+            assertTrue(received.get(2).contains("To: c@test.com\r\n"));
+            assertNotEquals(header(received.get(1), "Message-ID"), header(received.get(2), "Message-ID"));
+        }
+    }
+
+    @Test
+    void authenticatesAndSharesPooledConnectionsAcrossConcurrentSenders() throws Exception {
+        List<ReceivedMessage> received = new CopyOnWriteArrayList<>();
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .credentials("mailer", "s3cret")
+                .replyLatency(Duration.ofMillis(1))
+                .messageListener(received::add)
+                .build()
+                .start();
+             SmtpEmailClient client = new SmtpEmailClient(EmailConfig.builder()
+                     .host("127.0.0.1")
+                     .port(server.port())
+                     .username("mailer")
+                     .password("s3cret")
+                     .useTls(false)
+                     .fromAddress("no-reply@test.com")
+                     .timeoutMillis(5_000)
+                     .maxConnections(4)
+                     .build());
+             ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String to = "user" + i + "@test.com";
+                futures.add(executor.submit(() -> client.send(message(to))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertEquals(40, server.messageCount());
+            assertTrue(server.connectionCount() <= 4, "connections: " + server.connectionCount());
+            assertEquals("no-reply@test.com", received.getFirst().from());
+        }
+    }
+
+    @Test
+    void surfacesInjectedRelayFailures() throws Exception {
+        InMemoryMetricsRecorder metrics = new InMemoryMetricsRecorder();
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .faults(new EmbeddedSmtpServer.Faults(1.0, 0.0, 0.0))
+                .build()
+                .start();
+             SmtpEmailClient client = new SmtpEmailClient(localConfig(server.port(), 0), metrics)) {
+            GenPassCoreException error = assertThrows(GenPassCoreException.class,
+                    () -> client.send(message("a@test.com")));
+            assertTrue(String.valueOf(error.getCause()).contains("451"), String.valueOf(error.getCause()));
+
+            server.faults(EmbeddedSmtpServer.Faults.NONE);
+            client.send(message("a@test.com"));
+            assertEquals(1, server.messageCount());
+
+            assertEquals(1, metrics.counterValue("genpass.smtp.failed"));
+            assertEquals(1, metrics.counterValue("genpass.smtp.sent"));
+            assertEquals(1, metrics.histogram("genpass.smtp.send").count());
+            assertTrue(metrics.histogram("genpass.smtp.acquire").count() >= 1);
+        }
+    }
+
+    private static EmailMessage notification(String to) {
+        return new EmailMessage.Builder()
+                .addTo(to)
+                .subject("Grüße – your sign-in link")
+                .textBody("text")
+                .htmlBody("<p>Hallo, <a href=\"https://example.test/?t=abc\">anmelden</a> ✓</p>\n.leading dot\n")
+                .build();
+    }
+
+    private static EmailConfig localConfig(int port, int encodedBodyCacheSize) {
+        return EmailConfig.builder()
+                .host("127.0.0.1")
+                .port(port)
+                .useTls(false)
+                .fromAddress("no-reply@test.com")
+                .timeoutMillis(2_000)
+                .encodedBodyCacheSize(encodedBodyCacheSize)
+                .build();
+    }
+
+    /** Header lines (sorted) minus To, Date and Message-ID, followed by the body. */
+    private static String withoutPerMessageHeaders(String data) {
+        int split = data.indexOf("\r\n\r\n");
+        String headers = data.substring(0, split);
+        String body = data.substring(split);
+        return Arrays.stream(headers.split("\r\n"))
+                .filter(h -> !h.startsWith("To:") && !h.startsWith("Date:") && !h.startsWith("Message-ID:"))
+                .sorted()
+                .collect(Collectors.joining("\r\n")) + body;
+    }
+
+    private static String header(String data, String name) {
+        return Arrays.stream(data.split("\r\n"))
+                .filter(h -> h.startsWith(name + ":"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static EmailMessage message(String to) {
+        return new EmailMessage.Builder()
+                .addTo(to)
+                .subject("Batch")
+                .textBody("Body")
+                .build();
+    }
 }
@@ -0,0 +1,35 @@
+package com.genpass.email.template;
+
+import com.genpass.core.email.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateTest {
+
+    @Test
+    void rendersAllParts() {
+        EmailTemplate template = EmailTemplate.of(
+                "Code for {{app}}",
+                "Your code: {{code}}",
+                "<p>Your code: <b>{{code}}</b></p>");
+
+        EmailMessage message = template.render(Map.of("app", "GenPass", "code", "042917"))
+                .addTo("user@test.com")
+                .build();
+
+        assertEquals("Code for GenPass", message.getSubject());
+        assertEquals("Your code: 042917", message.getTextBody());
+        assertEquals("<p>Your code: <b>042917</b></p>", message.getHtmlBody());
+    }
+
+    @Test
+    void bodiesAreOptionalButNotBoth() {
+        EmailMessage message = EmailTemplate.of("S", "T", null).render(Map.of()).addTo("a@test.com").build();
+        assertNull(message.getHtmlBody());
+
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.of("S", null, null));
+    }
+}
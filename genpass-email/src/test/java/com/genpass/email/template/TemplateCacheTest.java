@@ -0,0 +1,87 @@
+package com.genpass.email.template;
+
+import com.genpass.core.exception.GenPassCoreException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private void write(String name, String subject, String text) throws IOException {
+        Files.writeString(dir.resolve(name + ".subject"), subject + "\n");
+        Files.writeString(dir.resolve(name + ".txt"), text);
+    }
+
+    @Test
+    void loadsOnceAndCaches() throws IOException {
+        write("otp", "Your code", "Code: {{code}}");
+        TemplateCache cache = new TemplateCache(dir);
+
+        EmailTemplate first = cache.get("otp");
+        assertSame(first, cache.get("otp"));
+        assertEquals("Your code", first.render(Map.of("code", 1)).addTo("a@test.com").build().getSubject());
+        assertNull(first.htmlBody());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        write("a", "A", "a");
+        write("b", "B", "b");
+        write("c", "C", "c");
+        TemplateCache cache = new TemplateCache(dir, 2);
+
+        EmailTemplate a = cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c"); // evicts b
+
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"));
+    }
+
+    @Test
+    void invalidateReloads() throws IOException {
+        write("otp", "Old", "x");
+        TemplateCache cache = new TemplateCache(dir);
+        cache.get("otp");
+
+        write("otp", "New", "x");
+        assertEquals("Old", cache.get("otp").subject().source());
+        cache.invalidate("otp");
+        assertEquals("New", cache.get("otp").subject().source());
+    }
+
+    @Test
+    void watcherReloadsChangedFiles() throws Exception {
+        write("otp", "Old", "x");
+        try (TemplateCache cache = new TemplateCache(dir).start()) {
+            cache.get("otp");
+            write("otp", "New", "x");
+
+            long deadline = System.nanoTime() + 15_000_000_000L;
+            while (cache.get("otp").subject().source().equals("Old") && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("New", cache.get("otp").subject().source());
+        }
+    }
+
+    @Test
+    void missingOrInvalidTemplatesFail() throws IOException {
+        TemplateCache cache = new TemplateCache(dir);
+        assertThrows(GenPassCoreException.class, () -> cache.get("missing"));
+        assertThrows(IllegalArgumentException.class, () -> cache.get("../etc/passwd"));
+
+        Files.writeString(dir.resolve("nobody.subject"), "S");
+        assertThrows(GenPassCoreException.class, () -> cache.get("nobody"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.genpass.email.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateTest {
+
+    @Test
+    void rendersLiteralsAndPlaceholders() {
+        Template t = Template.text("Hi {{name}}, your code is {{ code }}.");
+        assertEquals("Hi Ana, your code is 123456.", t.render(Map.of("name", "Ana", "code", 123456)));
+        assertEquals(Set.of("name", "code"), t.placeholders());
+    }
+
+    @Test
+    void templateWithoutPlaceholdersRendersAsIs() {
+        assertEquals("plain text", Template.text("plain text").render(Map.of()));
+        assertEquals("{{x}}", Template.text("{{a}}").render(Map.of("a", "{{x}}")), "values are not re-parsed");
+    }
+
+    @Test
+    void htmlEscapesUnlessTripleBraces() {
+        Template t = Template.html("<a href=\"{{link}}\">{{name}}</a>{{{footer}}}");
+        String out = t.render(Map.of(
+                "link", "https://x.test/?a=1&b=\"2\"",
+                "name", "<script>",
+                "footer", "<hr>"));
+        assertEquals("<a href=\"https://x.test/?a=1&amp;b=&quot;2&quot;\">&lt;script&gt;</a><hr>", out);
+    }
+
+    @Test
+    void textTemplatesDoNotEscape() {
+        assertEquals("a<b", Template.text("{{v}}").render(Map.of("v", "a<b")));
+    }
+
+    @Test
+    void renderToAppendsToReusableBuilder() {
+        Template t = Template.text("[{{v}}]");
+        StringBuilder sb = new StringBuilder();
+        t.renderTo(Map.of("v", 1), sb);
+        t.renderTo(Map.of("v", 2), sb);
+        assertEquals("[1][2]", sb.toString());
+    }
+
+    @Test
+    void missingValueFails() {
+        Template t = Template.text("{{link}}");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> t.render(Map.of()));
+        assertTrue(e.getMessage().contains("link"));
+    }
+
+    @Test
+    void malformedTemplatesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Template.text("Hi {{name"));
+        assertThrows(IllegalArgumentException.class, () -> Template.text("Hi {{ }}"));
+        assertThrows(IllegalArgumentException.class, () -> Template.text("Hi {{a b}}"));
+    }
+}
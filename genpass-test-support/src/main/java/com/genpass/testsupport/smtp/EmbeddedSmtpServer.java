@@ -0,0 +1,502 @@
+package com.genpass.testsupport.smtp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process SMTP server for integration, load and latency tests.
+ *
+ * <p>Speaks EHLO/HELO, PIPELINING, AUTH PLAIN, MAIL, RCPT, DATA, RSET, NOOP and QUIT on
+ * non-blocking channels: a few selector threads serve all sessions, so thousands of concurrent
+ * connections cost a socket and a small buffer each rather than a thread. STARTTLS is not
+ * advertised and is answered with {@code 454}; clients must run without TLS.</p>
+ *
+ * <p>To make a test relay behave like a real one it can hold back every reply
+ * ({@link Builder#replyLatency(Duration)}), add extra time to accept a message
+ * ({@link Builder#dataLatency(Duration)}), and fail a fraction of messages with a 4xx or 5xx
+ * reply or by dropping the connection ({@link Faults}, changeable while running).</p>
+ *
+ * <pre>
+ * try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+ *         .credentials("user", "secret")
+ *         .replyLatency(Duration.ofMillis(2))
+ *         .faults(new EmbeddedSmtpServer.Faults(0.05, 0.0, 0.01))
+ *         .build()
+ *         .start()) {
+ *     // point the client at 127.0.0.1:server.port()
+ * }
+ * </pre>
+ *
+ * <p>Accepted messages are counted; their content is only kept if a
+ * {@link Builder#messageListener(Consumer) listener} is set.</p>
+ */
+public final class EmbeddedSmtpServer implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedSmtpServer.class.getName());
+
+    /**
+     * Share of messages that fail at the end of DATA. Rates are in {@code [0, 1]} and their sum
+     * must not exceed 1.
+     *
+     * @param transientFailureRate messages answered with {@code 451}
+     * @param permanentFailureRate messages answered with {@code 554}
+     * @param dropRate             messages after which the connection is closed without a reply
+     */
+    public record Faults(double transientFailureRate, double permanentFailureRate, double dropRate) {
+
+        /** No injected failures. */
+        public static final Faults NONE = new Faults(0, 0, 0);
+
+        public Faults {
+            checkRate(transientFailureRate, "transientFailureRate");
+            checkRate(permanentFailureRate, "permanentFailureRate");
+            checkRate(dropRate, "dropRate");
+            if (transientFailureRate + permanentFailureRate + dropRate > 1.0) {
+                throw new IllegalArgumentException("sum of fault rates must be <= 1");
+            }
+        }
+
+        private static void checkRate(double rate, String name) {
+            if (!(rate >= 0.0 && rate <= 1.0)) {
+                throw new IllegalArgumentException(name + " must be in [0, 1]");
+            }
+        }
+    }
+
+    private final InetAddress bindAddress;
+    private final int requestedPort;
+    private final int backlog;
+    private final int eventLoops;
+    private final String hostname;
+    private final String username;
+    private final String password;
+    private final long replyLatencyNanos;
+    private final long dataLatencyNanos;
+    private final long latencyJitterNanos;
+    private final Predicate<String> recipientFilter;
+    private final Consumer<ReceivedMessage> messageListener;
+    private volatile Faults faults;
+
+    private final LongAdder connections = new LongAdder();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong messages = new AtomicLong();
+    private final LongAdder recipients = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] loops;
+    private Thread[] threads;
+    private int nextLoop;
+
+    private EmbeddedSmtpServer(Builder b) {
+        this.bindAddress = b.bindAddress;
+        this.requestedPort = b.port;
+        this.backlog = b.backlog;
+        this.eventLoops = b.eventLoops;
+        this.hostname = b.hostname;
+        this.username = b.username;
+        this.password = b.password;
+        this.replyLatencyNanos = b.replyLatency.toNanos();
+        this.dataLatencyNanos = b.dataLatency.toNanos();
+        this.latencyJitterNanos = b.latencyJitter.toNanos();
+        this.recipientFilter = b.recipientFilter;
+        this.messageListener = b.messageListener;
+        this.faults = b.faults;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Bind and start serving. Calling it again has no effect.
+     *
+     * @return this server
+     * @throws UncheckedIOException if the port cannot be bound
+     */
+    public synchronized EmbeddedSmtpServer start() {
+        if (serverChannel != null) {
+            return this;
+        }
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(bindAddress, requestedPort), backlog);
+            channel.configureBlocking(false);
+            EventLoop[] created = new EventLoop[eventLoops];
+            for (int i = 0; i < eventLoops; i++) {
+                created[i] = new EventLoop(this);
+            }
+            created[0].listen(channel);
+            serverChannel = channel;
+            loops = created;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start SMTP server on port " + requestedPort, e);
+        }
+        threads = new Thread[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            Thread t = new Thread(loops[i], "genpass-smtp-server-" + i);
+            t.setDaemon(true);
+            threads[i] = t;
+            t.start();
+        }
+        return this;
+    }
+
+    /**
+     * Accept pending connections and spread them over the loops (called on loop 0).
+     */
+    void accept(ServerSocketChannel channel) {
+        while (true) {
+            SocketChannel client;
+            try {
+                client = channel.accept();
+                if (client == null) {
+                    return;
+                }
+                client.configureBlocking(false);
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to accept SMTP connection", e);
+                return;
+            }
+            connections.increment();
+            activeSessions.incrementAndGet();
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.register(client);
+        }
+    }
+
+    /**
+     * @return the bound port
+     * @throws IllegalStateException if not started
+     */
+    public int port() {
+        ServerSocketChannel channel = serverChannel;
+        if (channel == null) {
+            throw new IllegalStateException("server not started");
+        }
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String hostname() {
+        return hostname;
+    }
+
+    public Faults faults() {
+        return faults;
+    }
+
+    /**
+     * Change the injected failures; applies to messages completed from now on.
+     */
+    public void faults(Faults faults) {
+        this.faults = Objects.requireNonNull(faults, "faults must not be null");
+    }
+
+    /**
+     * @return connections accepted since start
+     */
+    public long connectionCount() {
+        return connections.sum();
+    }
+
+    /**
+     * @return currently open connections
+     */
+    public int activeSessionCount() {
+        return activeSessions.get();
+    }
+
+    /**
+     * @return messages accepted with {@code 250}
+     */
+    public long messageCount() {
+        return messages.get();
+    }
+
+    /**
+     * @return recipients of accepted messages
+     */
+    public long recipientCount() {
+        return recipients.sum();
+    }
+
+    /**
+     * @return content bytes of accepted messages
+     */
+    public long byteCount() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return messages answered with an injected 4xx or 5xx reply
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return messages after which the connection was dropped
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    boolean requiresAuth() {
+        return username != null;
+    }
+
+    boolean checkCredentials(String user, String pass) {
+        return username.equals(user) && password.equals(pass);
+    }
+
+    boolean acceptsRecipient(String recipient) {
+        return recipientFilter.test(recipient);
+    }
+
+    boolean capturesMessages() {
+        return messageListener != null;
+    }
+
+    long replyDelayNanos() {
+        if (replyLatencyNanos == 0 && latencyJitterNanos == 0) {
+            return 0;
+        }
+        return replyLatencyNanos + jitter();
+    }
+
+    long dataDelayNanos() {
+        return dataLatencyNanos;
+    }
+
+    private long jitter() {
+        return latencyJitterNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(latencyJitterNanos);
+    }
+
+    long recordMessage(String from, List<String> to, ByteArrayOutputStream data, long size) {
+        long id = messages.incrementAndGet();
+        recipients.add(to.size());
+        bytes.add(size);
+        if (messageListener != null) {
+            try {
+                messageListener.accept(new ReceivedMessage(from, to, data.toByteArray()));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "SMTP message listener failed", e);
+            }
+        }
+        return id;
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordDrop() {
+        dropped.increment();
+    }
+
+    void sessionClosed() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * Stop serving and close all connections.
+     */
+    @Override
+    public synchronized void close() {
+        if (serverChannel == null) {
+            return;
+        }
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Ignoring error while closing SMTP server socket", e);
+        }
+        serverChannel = null;
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedSmtpServer{port=" + (serverChannel == null ? "-" : port())
+                + ", sessions=" + activeSessionCount() + ", messages=" + messageCount() + "}";
+    }
+
+    /**
+     * Builder for {@link EmbeddedSmtpServer}.
+     */
+    public static final class Builder {
+        private InetAddress bindAddress = InetAddress.getLoopbackAddress();
+        private int port;
+        private int backlog = 4096;
+        private int eventLoops = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        private String hostname = "localhost";
+        private String username;
+        private String password;
+        private Duration replyLatency = Duration.ZERO;
+        private Duration dataLatency = Duration.ZERO;
+        private Duration latencyJitter = Duration.ZERO;
+        private Faults faults = Faults.NONE;
+        private Predicate<String> recipientFilter = recipient -> true;
+        private Consumer<ReceivedMessage> messageListener;
+
+        private Builder() {
+        }
+
+        /**
+         * Address to bind (default loopback).
+         */
+        public Builder bindAddress(InetAddress bindAddress) {
+            this.bindAddress = Objects.requireNonNull(bindAddress, "bindAddress must not be null");
+            return this;
+        }
+
+        /**
+         * Port to bind; 0 (default) picks a free port.
+         */
+        public Builder port(int port) {
+            if (port < 0 || port > 65_535) {
+                throw new IllegalArgumentException("port must be in [0, 65535]");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Accept queue length (default 4096), so bursts of connections are not refused.
+         */
+        public Builder backlog(int backlog) {
+            if (backlog <= 0) {
+                throw new IllegalArgumentException("backlog must be > 0");
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Number of selector threads (default: available processors, at most 4).
+         */
+        public Builder eventLoops(int eventLoops) {
+            if (eventLoops <= 0) {
+                throw new IllegalArgumentException("eventLoops must be > 0");
+            }
+            this.eventLoops = eventLoops;
+            return this;
+        }
+
+        /**
+         * Name used in the greeting and EHLO reply (default {@code localhost}).
+         */
+        public Builder hostname(String hostname) {
+            this.hostname = Objects.requireNonNull(hostname, "hostname must not be null");
+            return this;
+        }
+
+        /**
+         * Advertise AUTH PLAIN and require these credentials before MAIL. Without this call no
+         * authentication is offered or needed.
+         */
+        public Builder credentials(String username, String password) {
+            this.username = Objects.requireNonNull(username, "username must not be null");
+            this.password = Objects.requireNonNull(password, "password must not be null");
+            return this;
+        }
+
+        /**
+         * Delay before every reply (default none).
+         */
+        public Builder replyLatency(Duration replyLatency) {
+            this.replyLatency = checkLatency(replyLatency, "replyLatency");
+            return this;
+        }
+
+        /**
+         * Extra delay before the reply to the end of DATA, i.e. the time the relay takes to
+         * queue a message (default none).
+         */
+        public Builder dataLatency(Duration dataLatency) {
+            this.dataLatency = checkLatency(dataLatency, "dataLatency");
+            return this;
+        }
+
+        /**
+         * Random extra delay in {@code [0, jitter)} added to every reply (default none).
+         */
+        public Builder latencyJitter(Duration latencyJitter) {
+            this.latencyJitter = checkLatency(latencyJitter, "latencyJitter");
+            return this;
+        }
+
+        private static Duration checkLatency(Duration latency, String name) {
+            Objects.requireNonNull(latency, name + " must not be null");
+            if (latency.isNegative()) {
+                throw new IllegalArgumentException(name + " must not be negative");
+            }
+            return latency;
+        }
+
+        /**
+         * Initial injected failures (default {@link Faults#NONE}).
+         */
+        public Builder faults(Faults faults) {
+            this.faults = Objects.requireNonNull(faults, "faults must not be null");
+            return this;
+        }
+
+        /**
+         * Recipients for which the filter returns false get {@code 550} (default: accept all).
+         */
+        public Builder recipientFilter(Predicate<String> recipientFilter) {
+            this.recipientFilter = Objects.requireNonNull(recipientFilter, "recipientFilter must not be null");
+            return this;
+        }
+
+        /**
+         * Called with every accepted message, on a server thread; keep it fast. Without a
+         * listener message content is discarded.
+         */
+        public Builder messageListener(Consumer<ReceivedMessage> messageListener) {
+            this.messageListener = Objects.requireNonNull(messageListener, "messageListener must not be null");
+            return this;
+        }
+
+        public EmbeddedSmtpServer build() {
+            return new EmbeddedSmtpServer(this);
+        }
+    }
+}
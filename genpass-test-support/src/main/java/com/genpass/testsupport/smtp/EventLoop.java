@@ -0,0 +1,162 @@
+package com.genpass.testsupport.smtp;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One selector thread serving many {@link SmtpSession}s, plus the timers that release delayed
+ * replies. Sessions are only touched from this thread.
+ */
+final class EventLoop implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(EventLoop.class.getName());
+
+    private record Timer(long dueNanos, SmtpSession session) {
+    }
+
+    private final EmbeddedSmtpServer server;
+    private final Selector selector;
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>((a, b) -> Long.compare(a.dueNanos, b.dueNanos));
+    private volatile boolean running = true;
+
+    EventLoop(EmbeddedSmtpServer server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Accept connections on this loop (called before the thread starts).
+     */
+    void listen(ServerSocketChannel serverChannel) throws ClosedChannelException {
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Hand a freshly accepted connection to this loop. Thread-safe.
+     */
+    void register(SocketChannel channel) {
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Release {@code session} at {@code dueNanos} ({@link System#nanoTime()}).
+     */
+    void schedule(SmtpSession session, long dueNanos) {
+        timers.add(new Timer(dueNanos, session));
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                Timer next = timers.peek();
+                if (next == null) {
+                    selector.select();
+                } else {
+                    long waitNanos = next.dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999)));
+                    } else {
+                        selector.selectNow();
+                    }
+                }
+                registerPending();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                runTimers();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "SMTP event loop failed", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void registerPending() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            try {
+                SmtpSession session = new SmtpSession(server, this, channel);
+                session.open(channel.register(selector, SelectionKey.OP_READ, session));
+            } catch (IOException e) {
+                server.sessionClosed();
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            server.accept((ServerSocketChannel) key.channel());
+            return;
+        }
+        SmtpSession session = (SmtpSession) key.attachment();
+        if (key.isWritable()) {
+            session.onWritable();
+        }
+        if (key.isValid() && key.isReadable()) {
+            session.onReadable();
+        }
+    }
+
+    private void runTimers() {
+        long now = System.nanoTime();
+        Timer timer;
+        while ((timer = timers.peek()) != null && timer.dueNanos - now <= 0) {
+            timers.poll();
+            timer.session.resume();
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof SmtpSession session) {
+                session.close();
+            }
+        }
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            server.sessionClosed();
+            closeQuietly(channel);
+        }
+        timers.clear();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Ignoring error while closing selector", e);
+        }
+    }
+
+    static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Ignoring error while closing channel", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.genpass.testsupport.smtp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A message accepted by {@link EmbeddedSmtpServer}.
+ *
+ * @param from       envelope sender ({@code MAIL FROM}), without angle brackets
+ * @param recipients accepted envelope recipients ({@code RCPT TO})
+ * @param data       message content after dot-unstuffing, lines ending in CRLF
+ */
+public record ReceivedMessage(String from, List<String> recipients, byte[] data) {
+
+    public ReceivedMessage {
+        recipients = List.copyOf(recipients);
+    }
+
+    /**
+     * @return the content decoded as UTF-8
+     */
+    public String content() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,410 @@
+package com.genpass.testsupport.smtp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Server side of one SMTP connection, driven by its {@link EventLoop}.
+ *
+ * <p>Input is split into lines and handled in order, so pipelined commands are answered in
+ * order. While a reply is held back by the configured latency the session stops reading,
+ * and it also stops while earlier replies are still waiting to be written.</p>
+ */
+final class SmtpSession {
+
+    private static final int MAX_COMMAND_LINE = 4096;
+    private static final int MAX_DATA_LINE = 64 * 1024;
+
+    private enum State { COMMAND, AUTH, DATA }
+
+    private final EmbeddedSmtpServer server;
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    private ByteBuffer in = ByteBuffer.allocate(4096);
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private State state = State.COMMAND;
+    private boolean authenticated;
+    private String mailFrom;
+    private final List<String> recipients = new ArrayList<>();
+    private ByteArrayOutputStream data;
+    private long dataSize;
+
+    /** Reply held back until the loop resumes this session. */
+    private String delayedReply;
+    private Runnable afterDelayedReply;
+    private boolean closeAfterFlush;
+    private boolean closed;
+
+    SmtpSession(EmbeddedSmtpServer server, EventLoop loop, SocketChannel channel) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+    }
+
+    void open(SelectionKey key) {
+        this.key = key;
+        reply("220 " + server.hostname() + " ESMTP GenPass test server");
+    }
+
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(in);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        process();
+    }
+
+    void onWritable() {
+        flush();
+        if (!closed) {
+            process();
+        }
+    }
+
+    /**
+     * Called by the loop once a delayed reply is due.
+     */
+    void resume() {
+        if (closed) {
+            return;
+        }
+        String reply = delayedReply;
+        Runnable after = afterDelayedReply;
+        delayedReply = null;
+        afterDelayedReply = null;
+        write(reply);
+        if (after != null) {
+            after.run();
+        }
+        if (!closed) {
+            process();
+        }
+    }
+
+    private boolean paused() {
+        return delayedReply != null || !out.isEmpty() || closeAfterFlush || closed;
+    }
+
+    /**
+     * Handle complete buffered lines until paused or out of input.
+     */
+    private void process() {
+        in.flip();
+        try {
+            while (!paused()) {
+                int end = indexOfLineFeed(in);
+                if (end < 0) {
+                    break;
+                }
+                int start = in.position();
+                int length = end - start;
+                if (length > 0 && in.get(end - 1) == '\r') {
+                    length--;
+                }
+                byte[] line = new byte[length];
+                in.get(line);
+                in.position(end + 1);
+                if (state == State.DATA) {
+                    onDataLine(line);
+                } else {
+                    onCommand(new String(line, StandardCharsets.US_ASCII));
+                }
+            }
+        } finally {
+            in.compact();
+        }
+        if (!paused() && !in.hasRemaining()) { // buffer full without a complete line
+            int max = state == State.DATA ? MAX_DATA_LINE : MAX_COMMAND_LINE;
+            if (in.capacity() >= max) {
+                write("500 5.5.6 Line too long");
+                closeAfterFlush = true;
+                flush();
+            } else {
+                ByteBuffer larger = ByteBuffer.allocate(Math.min(max, in.capacity() * 2));
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+        }
+        updateInterest();
+    }
+
+    private static int indexOfLineFeed(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void onCommand(String line) {
+        if (state == State.AUTH) {
+            state = State.COMMAND;
+            if (line.equals("*")) {
+                reply("501 5.0.0 Authentication cancelled");
+            } else {
+                checkPlainCredentials(line);
+            }
+            return;
+        }
+        int space = line.indexOf(' ');
+        String verb = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        String argument = space < 0 ? "" : line.substring(space + 1).trim();
+        switch (verb) {
+            case "EHLO" -> {
+                resetTransaction();
+                StringBuilder reply = new StringBuilder("250-").append(server.hostname()).append("\r\n")
+                        .append("250-PIPELINING\r\n")
+                        .append("250-8BITMIME\r\n");
+                if (server.requiresAuth()) {
+                    reply.append("250-AUTH PLAIN\r\n");
+                }
+                reply.append("250 ENHANCEDSTATUSCODES");
+                reply(reply.toString());
+            }
+            case "HELO" -> {
+                resetTransaction();
+                reply("250 " + server.hostname());
+            }
+            case "MAIL" -> {
+                if (server.requiresAuth() && !authenticated) {
+                    reply("530 5.7.0 Authentication required");
+                } else if (mailFrom != null) {
+                    reply("503 5.5.1 Sender already specified");
+                } else {
+                    mailFrom = address(argument);
+                    reply("250 2.1.0 OK");
+                }
+            }
+            case "RCPT" -> {
+                if (mailFrom == null) {
+                    reply("503 5.5.1 Need MAIL command");
+                } else {
+                    String recipient = address(argument);
+                    if (server.acceptsRecipient(recipient)) {
+                        recipients.add(recipient);
+                        reply("250 2.1.5 OK");
+                    } else {
+                        reply("550 5.1.1 Mailbox unavailable");
+                    }
+                }
+            }
+            case "DATA" -> {
+                if (recipients.isEmpty()) {
+                    reply(mailFrom == null ? "503 5.5.1 Need MAIL command" : "554 5.5.1 No valid recipients");
+                } else {
+                    state = State.DATA;
+                    data = server.capturesMessages() ? new ByteArrayOutputStream() : null;
+                    dataSize = 0;
+                    reply("354 End data with <CR><LF>.<CR><LF>");
+                }
+            }
+            case "RSET" -> {
+                resetTransaction();
+                reply("250 2.0.0 OK");
+            }
+            case "NOOP" -> reply("250 2.0.0 OK");
+            case "VRFY" -> reply("252 2.1.5 Cannot VRFY user");
+            case "STARTTLS" -> reply("454 4.7.0 TLS not available");
+            case "AUTH" -> onAuth(argument);
+            case "QUIT" -> {
+                write("221 2.0.0 Bye");
+                closeAfterFlush = true;
+                flush();
+            }
+            default -> reply("500 5.5.2 Command not recognized");
+        }
+    }
+
+    private void onAuth(String argument) {
+        if (!server.requiresAuth()) {
+            reply("502 5.5.1 AUTH not supported");
+            return;
+        }
+        if (authenticated) {
+            reply("503 5.5.1 Already authenticated");
+            return;
+        }
+        int space = argument.indexOf(' ');
+        String mechanism = (space < 0 ? argument : argument.substring(0, space)).toUpperCase(Locale.ROOT);
+        if (!mechanism.equals("PLAIN")) {
+            reply("504 5.5.4 Unrecognized authentication type");
+        } else if (space < 0) {
+            state = State.AUTH;
+            reply("334 ");
+        } else {
+            checkPlainCredentials(argument.substring(space + 1).trim());
+        }
+    }
+
+    /**
+     * Check a base64 {@code authzid NUL authcid NUL password} response.
+     */
+    private void checkPlainCredentials(String response) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(response), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            reply("501 5.5.2 Cannot decode response");
+            return;
+        }
+        String[] parts = decoded.split("\0", -1);
+        if (parts.length == 3 && server.checkCredentials(parts[1], parts[2])) {
+            authenticated = true;
+            reply("235 2.7.0 Authentication successful");
+        } else {
+            reply("535 5.7.8 Authentication credentials invalid");
+        }
+    }
+
+    private void onDataLine(byte[] line) {
+        if (line.length == 1 && line[0] == '.') {
+            state = State.COMMAND;
+            endOfData();
+            return;
+        }
+        int offset = line.length > 0 && line[0] == '.' ? 1 : 0; // dot-unstuffing
+        dataSize += line.length - offset + 2;
+        if (data != null) {
+            data.write(line, offset, line.length - offset);
+            data.write('\r');
+            data.write('\n');
+        }
+    }
+
+    private void endOfData() {
+        EmbeddedSmtpServer.Faults faults = server.faults();
+        double roll = ThreadLocalRandom.current().nextDouble();
+        long delay = server.replyDelayNanos() + server.dataDelayNanos();
+        if (roll < faults.dropRate()) {
+            server.recordDrop();
+            if (delay > 0) {
+                delayThen(delay, null, this::close);
+            } else {
+                close();
+            }
+        } else if (roll < faults.dropRate() + faults.transientFailureRate()) {
+            server.recordRejected();
+            replyAfter(delay, "451 4.3.0 Temporary failure, try again later");
+        } else if (roll < faults.dropRate() + faults.transientFailureRate() + faults.permanentFailureRate()) {
+            server.recordRejected();
+            replyAfter(delay, "554 5.3.0 Transaction failed");
+        } else {
+            long id = server.recordMessage(mailFrom, recipients, data, dataSize);
+            replyAfter(delay, "250 2.0.0 OK queued as " + id);
+        }
+        resetTransaction();
+    }
+
+    private void resetTransaction() {
+        mailFrom = null;
+        recipients.clear();
+        data = null;
+        dataSize = 0;
+    }
+
+    private static String address(String argument) {
+        int open = argument.indexOf('<');
+        int close = argument.indexOf('>', open + 1);
+        if (open >= 0 && close > open) {
+            return argument.substring(open + 1, close);
+        }
+        int colon = argument.indexOf(':');
+        String rest = colon < 0 ? argument : argument.substring(colon + 1).trim();
+        int space = rest.indexOf(' ');
+        return space < 0 ? rest : rest.substring(0, space);
+    }
+
+    private void reply(String reply) {
+        replyAfter(server.replyDelayNanos(), reply);
+    }
+
+    private void replyAfter(long delayNanos, String reply) {
+        if (delayNanos <= 0) {
+            write(reply);
+        } else {
+            delayThen(delayNanos, reply, null);
+        }
+    }
+
+    private void delayThen(long delayNanos, String reply, Runnable after) {
+        delayedReply = reply == null ? "" : reply;
+        afterDelayedReply = after;
+        loop.schedule(this, System.nanoTime() + delayNanos);
+        updateInterest();
+    }
+
+    private void write(String reply) {
+        if (closed || reply.isEmpty()) {
+            return;
+        }
+        out.add(ByteBuffer.wrap((reply + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+        flush();
+    }
+
+    private void flush() {
+        try {
+            while (!out.isEmpty()) {
+                ByteBuffer head = out.peek();
+                channel.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                out.poll();
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (out.isEmpty() && closeAfterFlush) {
+            close();
+            return;
+        }
+        updateInterest();
+    }
+
+    private void updateInterest() {
+        if (closed || !key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (!out.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        } else if (!paused()) {
+            ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        EventLoop.closeQuietly(channel);
+        server.sessionClosed();
+    }
+}
@@ -0,0 +1,212 @@
+package com.genpass.testsupport.smtp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedSmtpServerTest {
+
+    @Test
+    void acceptsPipelinedTransactionAfterAuthPlain() throws Exception {
+        List<ReceivedMessage> received = new CopyOnWriteArrayList<>();
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .credentials("user", "secret")
+                .messageListener(received::add)
+                .build()
+                .start();
+             Client client = new Client(server.port())) {
+
+            assertTrue(client.reply().startsWith("220 "));
+            String ehlo = client.command("EHLO client");
+            assertTrue(ehlo.contains("250-PIPELINING"), ehlo);
+            assertTrue(ehlo.contains("250-AUTH PLAIN"), ehlo);
+            assertFalse(ehlo.contains("STARTTLS"), ehlo);
+
+            assertTrue(client.command("MAIL FROM:<a@test.com>").startsWith("530 "));
+            assertTrue(client.command("AUTH PLAIN").startsWith("334"));
+            assertTrue(client.command(plain("user", "wrong")).startsWith("535 "));
+            assertTrue(client.command("AUTH PLAIN " + plain("user", "secret")).startsWith("235 "));
+
+            client.write("MAIL FROM:<a@test.com>\r\nRCPT TO:<b@test.com>\r\nRCPT TO:<c@test.com>\r\nDATA\r\n");
+            assertTrue(client.reply().startsWith("250 "));
+            assertTrue(client.reply().startsWith("250 "));
+            assertTrue(client.reply().startsWith("250 "));
+            assertTrue(client.reply().startsWith("354 "));
+            assertTrue(client.command("Subject: hi\r\n\r\n..leading dot\r\nbody\r\n.").startsWith("250 "));
+            assertTrue(client.command("QUIT").startsWith("221 "));
+        }
+
+        assertEquals(1, received.size());
+        ReceivedMessage message = received.getFirst();
+        assertEquals("a@test.com", message.from());
+        assertEquals(List.of("b@test.com", "c@test.com"), message.recipients());
+        assertEquals("Subject: hi\r\n\r\n.leading dot\r\nbody\r\n", message.content());
+    }
+
+    @Test
+    void refusesStartTlsAndRejectsFilteredRecipients() throws Exception {
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .recipientFilter(recipient -> !recipient.startsWith("reject"))
+                .build()
+                .start();
+             Client client = new Client(server.port())) {
+            client.reply();
+            assertFalse(client.command("EHLO client").contains("AUTH"));
+            assertTrue(client.command("STARTTLS").startsWith("454 "));
+            assertTrue(client.command("RCPT TO:<b@test.com>").startsWith("503 "));
+            assertTrue(client.command("MAIL FROM:<a@test.com>").startsWith("250 "));
+            assertTrue(client.command("RCPT TO:<reject@test.com>").startsWith("550 "));
+            assertTrue(client.command("DATA").startsWith("554 "));
+            assertEquals(0, server.messageCount());
+        }
+    }
+
+    @Test
+    void injectsFailuresAndDrops() throws Exception {
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .faults(new EmbeddedSmtpServer.Faults(1.0, 0.0, 0.0))
+                .build()
+                .start();
+             Client client = new Client(server.port())) {
+            client.reply();
+            client.command("HELO client");
+            assertTrue(sendMessage(client).startsWith("451 "));
+
+            server.faults(new EmbeddedSmtpServer.Faults(0.0, 1.0, 0.0));
+            assertTrue(sendMessage(client).startsWith("554 "));
+
+            server.faults(new EmbeddedSmtpServer.Faults(0.0, 0.0, 1.0));
+            assertNull(sendMessage(client));
+
+            assertEquals(2, server.rejectedCount());
+            assertEquals(1, server.droppedCount());
+            assertEquals(0, server.messageCount());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new EmbeddedSmtpServer.Faults(0.6, 0.6, 0.0));
+    }
+
+    @Test
+    void delaysReplies() throws Exception {
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .replyLatency(Duration.ofMillis(40))
+                .dataLatency(Duration.ofMillis(60))
+                .build()
+                .start();
+             Client client = new Client(server.port())) {
+            client.reply();
+            long start = System.nanoTime();
+            client.command("NOOP");
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(40).toNanos());
+
+            client.command("HELO client");
+            client.command("MAIL FROM:<a@test.com>");
+            client.command("RCPT TO:<b@test.com>");
+            client.command("DATA");
+            start = System.nanoTime();
+            assertTrue(client.command("body\r\n.").startsWith("250 "));
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+        }
+    }
+
+    @Test
+    void servesManyConcurrentSessions() throws Exception {
+        int sessions = 500;
+        try (EmbeddedSmtpServer server = EmbeddedSmtpServer.builder()
+                .replyLatency(Duration.ofMillis(1))
+                .eventLoops(2)
+                .build()
+                .start();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Client client = new Client(server.port())) {
+                        client.reply();
+                        client.command("EHLO client");
+                        return sendMessage(client);
+                    }
+                }));
+            }
+            for (Future<String> future : futures) {
+                assertTrue(future.get().startsWith("250 "));
+            }
+
+            assertEquals(sessions, server.messageCount());
+            assertEquals(sessions, server.connectionCount());
+        }
+    }
+
+    private static String sendMessage(Client client) throws IOException {
+        client.write("MAIL FROM:<a@test.com>\r\nRCPT TO:<b@test.com>\r\nDATA\r\n");
+        client.reply();
+        client.reply();
+        client.reply();
+        return client.command("Subject: test\r\n\r\nbody\r\n.");
+    }
+
+    private static String plain(String user, String password) {
+        return Base64.getEncoder().encodeToString(("\0" + user + "\0" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Blocking line-based SMTP client.
+     */
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final OutputStream out;
+
+        Client(int port) throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            this.socket.setSoTimeout(10_000);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            this.out = socket.getOutputStream();
+        }
+
+        void write(String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        String command(String line) throws IOException {
+            write(line + "\r\n");
+            return reply();
+        }
+
+        /**
+         * @return the (possibly multi-line) reply, or null if the server hung up
+         */
+        String reply() throws IOException {
+            StringBuilder reply = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                reply.append(line).append('\n');
+                if (line.length() < 4 || line.charAt(3) != '-') {
+                    return reply.toString();
+                }
+            }
+            return reply.isEmpty() ? null : reply.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}